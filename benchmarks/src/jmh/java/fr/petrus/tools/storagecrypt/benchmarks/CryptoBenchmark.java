@@ -0,0 +1,150 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.tools.storagecrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataChunk;
+
+/**
+ * Compares the cryptographic primitives of the JCA and BouncyCastle lightweight API
+ * {@link Crypto} implementations.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    @Param({ "Jca", "BouncyCastle" })
+    public BenchmarkCrypto crypto;
+
+    @Param({ "1024", "1048576" })
+    public int dataSize;
+
+    private Crypto cryptoInstance;
+    private SecretKey encryptionKey;
+    private SecretKey signatureKey;
+    private byte[] clearData;
+    private EncryptedDataChunk encryptedDataChunk;
+    private byte[] nonce;
+    private byte[] aad;
+    private byte[] authenticatedNonce;
+    private byte[] authenticatedData;
+    private byte[] output;
+
+    @Setup
+    public void setup() throws CryptoException {
+        cryptoInstance = crypto.newCrypto();
+        encryptionKey = cryptoInstance.generateEncryptionKey(256);
+        signatureKey = cryptoInstance.generateSignatureKey(256);
+        clearData = new byte[dataSize];
+        new Random(42).nextBytes(clearData);
+        encryptedDataChunk = cryptoInstance.encrypt(encryptionKey, clearData);
+
+        nonce = new byte[Constants.CRYPTO.AEAD_NONCE_SIZE];
+        cryptoInstance.generateRandomBytes(nonce);
+        aad = Constants.CRYPTO.CHUNK_PREFIX;
+        authenticatedData = new byte[dataSize + Constants.CRYPTO.AEAD_TAG_SIZE];
+        cryptoInstance.encryptAuthenticated(encryptionKey, nonce, aad, clearData, 0, clearData.length,
+                authenticatedData, 0);
+        authenticatedNonce = nonce.clone();
+        output = new byte[dataSize + Constants.CRYPTO.AEAD_TAG_SIZE];
+    }
+
+    @Benchmark
+    public EncryptedDataChunk encrypt(DataThroughput throughput) throws CryptoException {
+        EncryptedDataChunk result = cryptoInstance.encrypt(encryptionKey, clearData);
+        throughput.add(clearData.length);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] decrypt(DataThroughput throughput) throws CryptoException {
+        byte[] result = cryptoInstance.decrypt(encryptionKey, encryptedDataChunk);
+        throughput.add(result.length);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] computeSignature(DataThroughput throughput) throws CryptoException {
+        byte[] result = cryptoInstance.computeSignature(signatureKey, clearData);
+        throughput.add(clearData.length);
+        return result;
+    }
+
+    @Benchmark
+    public int encryptAuthenticated(DataThroughput throughput) throws CryptoException {
+        /* a nonce must never be used twice with the same key */
+        for (int i = nonce.length - 1; i >= 0 && 0 == ++nonce[i]; i--);
+        int result = cryptoInstance.encryptAuthenticated(encryptionKey, nonce, aad,
+                clearData, 0, clearData.length, output, 0);
+        throughput.add(clearData.length);
+        return result;
+    }
+
+    @Benchmark
+    public int decryptAuthenticated(DataThroughput throughput) throws CryptoException {
+        int result = cryptoInstance.decryptAuthenticated(encryptionKey, authenticatedNonce, aad,
+                authenticatedData, 0, dataSize, authenticatedData, dataSize, output, 0);
+        throughput.add(dataSize);
+        return result;
+    }
+}
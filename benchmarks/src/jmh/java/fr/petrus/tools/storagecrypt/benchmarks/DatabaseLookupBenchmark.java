@@ -0,0 +1,218 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.tools.storagecrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.StorageType;
+import fr.petrus.lib.core.SyncAction;
+import fr.petrus.lib.core.cloud.Account;
+import fr.petrus.lib.core.db.DatabaseConstants;
+import fr.petrus.lib.core.db.H2Database;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionException;
+
+/**
+ * Measures the latency of the {@link H2Database} document lookups, with and without the indexes of
+ * the encrypted documents table.
+ *
+ * <p>The database is filled with documents spread in folders of one account, a few of them
+ * waiting to be uploaded.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseLookupBenchmark {
+
+    private static final int DOCUMENTS_PER_FOLDER = 1000;
+
+    private static final int PLANNED_UPLOADS = 50;
+
+    private static final String[] INDEXES = {
+            DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_PARENT_ID_DISPLAY_NAME,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_STORAGE_ACCOUNT_BACK_ENTRY_ID,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_UPLOAD_STATE,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_DOWNLOAD_STATE,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_DELETION_STATE
+    };
+
+    @Param({ "300000" })
+    public int documents;
+
+    @Param({ "false", "true" })
+    public boolean indexed;
+
+    private File databaseFolder;
+    private H2Database database;
+    private Account account;
+    private int folders;
+    private Random random;
+
+    @Setup
+    public void setup() throws IOException, SQLException, DatabaseConnectionException,
+            DatabaseConnectionClosedException {
+        databaseFolder = Files.createTempDirectory("benchmark").toFile();
+        database = new H2Database(databaseFolder.getAbsolutePath(), null);
+        database.open();
+
+        folders = documents / DOCUMENTS_PER_FOLDER;
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:file:" + databaseFolder.getAbsolutePath() + "/StorageCrypt")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(String.format("insert into %s (%s, %s) values ('%s', 'benchmark')",
+                        DatabaseConstants.ACCOUNTS_TABLE,
+                        DatabaseConstants.ACCOUNT_COLUMN_STORAGE_TYPE,
+                        DatabaseConstants.ACCOUNT_COLUMN_NAME,
+                        StorageType.GoogleDrive.name()));
+                if (!indexed) {
+                    for (String index : INDEXES) {
+                        statement.executeUpdate(String.format("drop index if exists `%s`", index));
+                    }
+                }
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(String.format(
+                    "insert into %s (%s, %s, %s, %s, %s, %s, %s, %s) values (?, ?, ?, ?, 1, ?, ?, ?)",
+                    DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_MIME_TYPE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_TYPE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_ACCOUNT,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_ID,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE))) {
+                for (int i = 0; i < documents; i++) {
+                    insert.setString(1, "document " + i);
+                    insert.setString(2, "application/octet-stream");
+                    insert.setLong(3, folderId(i / DOCUMENTS_PER_FOLDER));
+                    insert.setString(4, StorageType.GoogleDrive.name());
+                    insert.setString(5, "entry " + i);
+                    insert.setString(6, (i % (documents / PLANNED_UPLOADS) == 0 ?
+                            fr.petrus.lib.core.State.Planned : fr.petrus.lib.core.State.Done).name());
+                    insert.setString(7, fr.petrus.lib.core.State.Done.name());
+                    insert.addBatch();
+                    if (0 == (i + 1) % DOCUMENTS_PER_FOLDER) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+
+        account = database.getAllAccounts().get(0);
+        random = new Random(42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+        File[] files = databaseFolder.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        databaseFolder.delete();
+    }
+
+    /**
+     * Returns the id of the parent folder of the documents of the given folder index.
+     *
+     * <p>The folders themselves are not stored, only their ids are used.
+     *
+     * @param folder the index of the folder
+     * @return the id of the folder
+     */
+    private long folderId(int folder) {
+        return 1000000000L + folder;
+    }
+
+    @Benchmark
+    public EncryptedDocument byNameAndParentId() throws DatabaseConnectionClosedException {
+        int i = random.nextInt(documents);
+        return database.getEncryptedDocumentByNameAndParentId("document " + i, folderId(i / DOCUMENTS_PER_FOLDER));
+    }
+
+    @Benchmark
+    public EncryptedDocument byAccountAndEntryId() throws DatabaseConnectionClosedException {
+        return database.getEncryptedDocumentByAccountAndEntryId(account, "entry " + random.nextInt(documents));
+    }
+
+    @Benchmark
+    public List<EncryptedDocument> byParentId() throws DatabaseConnectionClosedException {
+        return database.getEncryptedDocumentsByParentId(folderId(random.nextInt(folders)), false);
+    }
+
+    @Benchmark
+    public List<EncryptedDocument> bySyncState() throws DatabaseConnectionClosedException {
+        /* alternate the states, so that H2 cannot reuse the result of the previous query */
+        return database.getEncryptedDocumentsBySyncState(SyncAction.Upload, random.nextBoolean() ?
+                fr.petrus.lib.core.State.Planned : fr.petrus.lib.core.State.Failed);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+package fr.petrus.tools.storagecrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.db.DatabaseConstants;
+import fr.petrus.lib.core.db.EncryptedDocumentPathCache;
+import fr.petrus.lib.core.db.H2Database;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionException;
+
+/**
+ * Measures the resolution of the parents of a deep document, through the path nodes cached by the
+ * {@link H2Database}, compared to querying each parent.
+ *
+ * <p>The database is filled with branches of nested folders under a single root.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentPathBenchmark {
+
+    private static final int BRANCHES = 500;
+
+    @Param({ "10" })
+    public int depth;
+
+    private File databaseFolder;
+    private H2Database database;
+    private Random random;
+
+    @Setup
+    public void setup() throws IOException, SQLException, DatabaseConnectionException {
+        databaseFolder = Files.createTempDirectory("benchmark").toFile();
+        database = new H2Database(databaseFolder.getAbsolutePath(), null);
+        database.open();
+
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:file:" + databaseFolder.getAbsolutePath() + "/StorageCrypt")) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(String.format(
+                    "insert into %s (%s, %s, %s, %s, %s) values (?, ?, ?, ?, ?)",
+                    DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_FILE_NAME,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_MIME_TYPE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID))) {
+                insert(insert, rootId(), Constants.STORAGE.ROOT_PARENT_ID);
+                for (int branch = 0; branch < BRANCHES; branch++) {
+                    long parentId = rootId();
+                    for (int level = 0; level < depth; level++) {
+                        insert(insert, folderId(branch, level), parentId);
+                        parentId = folderId(branch, level);
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+
+        random = new Random(42);
+    }
+
+    private void insert(PreparedStatement insert, long id, long parentId) throws SQLException {
+        insert.setLong(1, id);
+        insert.setString(2, "folder " + id);
+        insert.setString(3, String.valueOf(id));
+        insert.setString(4, Constants.STORAGE.DEFAULT_FOLDER_MIME_TYPE);
+        insert.setLong(5, parentId);
+        insert.addBatch();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+        File[] files = databaseFolder.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        databaseFolder.delete();
+    }
+
+    private long rootId() {
+        return 1;
+    }
+
+    private long folderId(int branch, int level) {
+        return 2 + branch * depth + level;
+    }
+
+    private long deepestFolderId() {
+        return folderId(random.nextInt(BRANCHES), depth - 1);
+    }
+
+    @Benchmark
+    public List<EncryptedDocumentPathCache.Node> pathNodes() throws DatabaseConnectionClosedException {
+        return database.getEncryptedDocumentPathNodes(deepestFolderId());
+    }
+
+    @Benchmark
+    public List<EncryptedDocument> parentsQueries() throws DatabaseConnectionClosedException {
+        /* what EncryptedDocument.parents() does : one query for each parent */
+        LinkedList<EncryptedDocument> parents = new LinkedList<>();
+        EncryptedDocument parent = database.getEncryptedDocumentById(deepestFolderId());
+        while (null != parent) {
+            parents.addFirst(parent);
+            parent = database.getEncryptedDocumentById(parent.getParentId());
+        }
+        return parents;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+package fr.petrus.tools.storagecrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import fr.petrus.lib.core.StorageType;
+import fr.petrus.lib.core.SyncAction;
+import fr.petrus.lib.core.db.DatabaseConstants;
+import fr.petrus.lib.core.db.DocumentUpdateBatch;
+import fr.petrus.lib.core.db.H2Database;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionException;
+
+/**
+ * Measures the time needed to record the completion of the upload of a group of documents, with
+ * one statement per column as {@code EncryptedDocument.upload()} used to do, and with a
+ * {@link DocumentUpdateBatch}.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentUpdateBenchmark {
+
+    private static final int DOCUMENTS = 10000;
+
+    @Param({ "1", "100" })
+    public int documentsPerUpdate;
+
+    private File databaseFolder;
+    private H2Database database;
+    private long version;
+
+    @Setup
+    public void setup() throws IOException, SQLException, DatabaseConnectionException {
+        databaseFolder = Files.createTempDirectory("benchmark").toFile();
+        database = new H2Database(databaseFolder.getAbsolutePath(), null);
+        database.open();
+
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:file:" + databaseFolder.getAbsolutePath() + "/StorageCrypt")) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(String.format(
+                    "insert into %s (%s, %s, %s, %s) values (?, ?, ?, ?)",
+                    DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_TYPE))) {
+                for (int i = 0; i < DOCUMENTS; i++) {
+                    insert.setLong(1, i + 1);
+                    insert.setString(2, "document " + i);
+                    insert.setLong(3, 0);
+                    insert.setString(4, StorageType.GoogleDrive.name());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+        File[] files = databaseFolder.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        databaseFolder.delete();
+    }
+
+    private long firstDocumentId() {
+        version++;
+        return 1 + (version * documentsPerUpdate) % (DOCUMENTS - documentsPerUpdate);
+    }
+
+    @Benchmark
+    public void perColumn() throws DatabaseConnectionClosedException {
+        long firstId = firstDocumentId();
+        for (long id = firstId; id < firstId + documentsPerUpdate; id++) {
+            database.updateEncryptedDocumentBackEntryVersion(id, version);
+            database.updateEncryptedDocumentRemoteModificationTime(id, version);
+            database.updateEncryptedDocumentSyncState(id, SyncAction.Upload, fr.petrus.lib.core.State.Done);
+            database.updateEncryptedDocumentBackEntryNumSyncFailures(id, 0);
+            database.updateEncryptedDocumentBackEntryLastFailureTime(id, -1);
+        }
+    }
+
+    @Benchmark
+    public void batch() throws DatabaseConnectionClosedException {
+        long firstId = firstDocumentId();
+        DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+        for (long id = firstId; id < firstId + documentsPerUpdate; id++) {
+            documentUpdateBatch.updateBackEntryVersion(id, version)
+                    .updateRemoteModificationTime(id, version)
+                    .updateSyncState(id, SyncAction.Upload, fr.petrus.lib.core.State.Done)
+                    .updateSyncFailures(id, 0, -1);
+        }
+        database.executeDocumentUpdateBatch(documentUpdateBatch);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.tools.storagecrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataStream;
+import fr.petrus.lib.core.crypto.SecretKeys;
+
+/**
+ * Measures the throughput of {@link EncryptedDataStream} encryption and decryption, for several
+ * chunk sizes and chunk formats.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptedDataStreamBenchmark {
+
+    private static final int DATA_SIZE = 16 * 1024 * 1024;
+
+    @Param({ "Jca", "BouncyCastle" })
+    public BenchmarkCrypto crypto;
+
+    @Param({ "65536", "1048576", "8388608" })
+    public int chunkSize;
+
+    @Param({ "false", "true" })
+    public boolean authenticatedEncryption;
+
+    private EncryptedDataStream encryptedDataStream;
+    private byte[] clearData;
+    private byte[] encryptedData;
+
+    @Setup
+    public void setup() throws CryptoException {
+        Crypto crypto = this.crypto.newCrypto();
+        SecretKeys secretKeys = new SecretKeys(crypto.generateEncryptionKey(256), crypto.generateSignatureKey(256));
+        encryptedDataStream = new EncryptedDataStream(crypto, secretKeys);
+        encryptedDataStream.setChunkSize(chunkSize);
+        encryptedDataStream.setAuthenticatedEncryption(authenticatedEncryption);
+
+        clearData = new byte[DATA_SIZE];
+        new Random(42).nextBytes(clearData);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(DATA_SIZE + DATA_SIZE / 8);
+        encryptedDataStream.encrypt(new ByteArrayInputStream(clearData), outputStream, null);
+        encryptedData = outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public long encrypt(DataThroughput throughput) throws CryptoException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        encryptedDataStream.encrypt(new ByteArrayInputStream(clearData), outputStream, null);
+        throughput.add(clearData.length);
+        return outputStream.getCount();
+    }
+
+    @Benchmark
+    public long decrypt(DataThroughput throughput) throws CryptoException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        encryptedDataStream.decrypt(new ByteArrayInputStream(encryptedData), outputStream, null);
+        throughput.add(clearData.length);
+        return outputStream.getCount();
+    }
+
+}
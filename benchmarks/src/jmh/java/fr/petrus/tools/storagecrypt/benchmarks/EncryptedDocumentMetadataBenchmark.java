@@ -0,0 +1,162 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.tools.storagecrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import fr.petrus.lib.core.EncryptedDocumentMetadata;
+import fr.petrus.lib.core.StorageCryptException;
+import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.KeyManager;
+
+/**
+ * Measures the encryption and decryption of the {@link EncryptedDocumentMetadata}, which are
+ * performed for each document listed during a synchronization.
+ *
+ * <p>The metadata is decrypted by trying each key of the key store, so the decryption is measured
+ * with the key which is tried last, for several key store sizes, one by one and in batches.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptedDocumentMetadataBenchmark {
+
+    private static final String KEY_STORE_PASSWORD = "benchmark";
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({ "Jca", "BouncyCastle" })
+    public BenchmarkCrypto crypto;
+
+    @Param({ "1", "16" })
+    public int keyCount;
+
+    private Crypto cryptoInstance;
+    private KeyManager keyManager;
+    private File keyStoreFolder;
+    private EncryptedDocumentMetadata metadata;
+    private String encryptedMetadata;
+    private List<String> encryptedMetadataBatch;
+
+    @Setup
+    public void setup() throws IOException, StorageCryptException {
+        cryptoInstance = crypto.newCrypto();
+        keyStoreFolder = Files.createTempDirectory("benchmark").toFile();
+        keyManager = new KeyManager(cryptoInstance, keyStoreFolder);
+        if (!keyManager.createKeyStore(KEY_STORE_PASSWORD)) {
+            throw new IOException("Failed to create the key store");
+        }
+        for (int i = 0; i < keyCount; i++) {
+            if (!keyManager.generateKeys("key" + i)) {
+                throw new IOException("Failed to generate the keys");
+            }
+        }
+        List<String> keyAliases = keyManager.getKeyAliases();
+
+        metadata = new EncryptedDocumentMetadata(cryptoInstance, keyManager);
+        metadata.setMetadata("application/pdf", "A document with a reasonably long name.pdf",
+                keyAliases.get(keyAliases.size() - 1));
+        encryptedMetadata = metadata.encryptToBase64();
+
+        encryptedMetadataBatch = new ArrayList<>();
+        EncryptedDocumentMetadata documentMetadata = new EncryptedDocumentMetadata(cryptoInstance, keyManager);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            documentMetadata.setMetadata("application/pdf", "Document " + i + ".pdf",
+                    keyAliases.get(keyAliases.size() - 1));
+            encryptedMetadataBatch.add(documentMetadata.encryptToBase64());
+        }
+        if (BATCH_SIZE != decryptBatch().size()) {
+            throw new StorageCryptException("Failed to decrypt the metadata batch",
+                    StorageCryptException.Reason.KeyNotFound);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = keyStoreFolder.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        keyStoreFolder.delete();
+    }
+
+    @Benchmark
+    public String encrypt() throws StorageCryptException {
+        return metadata.encryptToBase64();
+    }
+
+    @Benchmark
+    public String decrypt() throws StorageCryptException {
+        metadata.decrypt(encryptedMetadata);
+        return metadata.getDisplayName();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Map<String, EncryptedDocumentMetadata> decryptBatch() {
+        return EncryptedDocumentMetadata.decrypt(cryptoInstance, keyManager, encryptedMetadataBatch,
+                Runtime.getRuntime().availableProcessors()).getMetadata();
+    }
+}
@@ -51,10 +51,23 @@ public class Constants {
     public interface CRYPTO {
         byte[] STREAM_PREFIX = "SCDS".getBytes(StandardCharsets.UTF_8);
         short STREAM_VERSION = 0;
+        short STREAM_VERSION_INDEX_FLAG = 1;
+        short STREAM_VERSION_AEAD = 2;
+        short STREAM_VERSION_CHUNK_SIZE_FLAG = 4;
+        short STREAM_VERSION_FLAGS = STREAM_VERSION_INDEX_FLAG | STREAM_VERSION_AEAD
+                | STREAM_VERSION_CHUNK_SIZE_FLAG;
         byte[] CHUNK_PREFIX = "SCDC".getBytes(StandardCharsets.UTF_8);
         short CHUNK_VERSION = 0;
+        short CHUNK_VERSION_AEAD = 1;
+        byte[] INDEX_PREFIX = "SCDI".getBytes(StandardCharsets.UTF_8);
+        short INDEX_VERSION = 0;
 
-        int MAX_CHUNK_SIZE = 1024 * 1024; // 1MB
+        int DEFAULT_CHUNK_SIZE = 1024 * 1024; // 1MB
+        int SEEKABLE_CHUNK_SIZE = 1024 * 64; // 64KB
+        int ARCHIVE_CHUNK_SIZE = 1024 * 1024 * 8; // 8MB
+        int MIN_CHUNK_SIZE = 1024 * 4; // 4KB
+        int MAX_CHUNK_SIZE = 1024 * 1024 * 64; // 64MB : the largest chunk accepted when decrypting
+        long PIPELINE_MEMORY_BUDGET = 1024 * 1024 * 64; // 64MB : the chunk buffers of a parallel stream
 
         String KEY_STORE_UBER_FILE_NAME = "StorageCrypt.ubr";
         String KEY_STORE_UBER_DEFAULT_EXPORT_FILE_NAME = "ExportedKeys.ubr";
@@ -66,6 +79,11 @@ public class Constants {
 
         String AES_ENCRYPT_ALGO = "AES";
         String AES_FULL_ENCRYPT_ALGO = "AES/CBC/PKCS7Padding";
+        String AES_AEAD_ENCRYPT_ALGO = "AES/GCM/NoPadding";
+        int AEAD_NONCE_SIZE = 12;
+        int AEAD_TAG_SIZE = 16;
+        int AES_BLOCK_SIZE = 16;
+        int CONTEXT_CACHE_MAX_KEYS = 8;
         String MAC_ALGO = "HmacSHA256";
 
         String ENCRYPTED_DOCUMENT_NAME_HEADER = "StorageCrypt";
@@ -83,6 +101,15 @@ public class Constants {
 
         int CLOUD_SYNC_MAX_FAILURES = 5;
         int CLOUD_SYNC_FAILURE_RESET_DELAY_S = 600; // 10 minutes
+
+        int CLOUD_SYNC_MAX_TRANSFERS = 4;
+        int CLOUD_SYNC_MAX_TRANSFERS_PER_ACCOUNT = 2;
+        long CLOUD_SYNC_RETRY_DELAY_MS = 1000;
+        long CLOUD_SYNC_MAX_RETRY_DELAY_MS = 60000; // 1 minute
+        long CLOUD_SYNC_STATE_CHECK_DELAY_MS = 1000; // network state checks while waiting for documents
+
+        long CLOUD_RESUMABLE_UPLOAD_MIN_SIZE = 10 * 1024 * 1024; // 10 MiB
+        int CLOUD_UPLOAD_CHUNK_SIZE = 10 * 1024 * 1024; // 10 MiB, a multiple of 256 KiB and 320 KiB
     }
 
     public interface RETROFIT {
@@ -99,6 +126,27 @@ public class Constants {
         //String LOG_LEVEL = "WARN";
         String LOG_LEVEL = "ERROR";
         //String LOG_LEVEL = "FATAL";
+
+        /** The maximum number of documents kept in the path cache of the database */
+        int DOCUMENT_PATH_CACHE_SIZE = 10000;
+
+        /** The number of documents loaded at once by the cursors over large queries */
+        int DOCUMENT_CURSOR_PAGE_SIZE = 500;
+
+        /** The maximum number of new documents inserted at once by a creation batch */
+        int DOCUMENT_CREATION_BATCH_SIZE = 1000;
+
+        /** The fill rate (in percent) under which the chunks of the database file are compacted */
+        int COMPACTION_TARGET_FILL_RATE = 80;
+
+        /** The number of bytes rewritten by each step of the database compaction */
+        int COMPACTION_STEP_SIZE = 1024 * 1024;
+
+        /** The default time budget of the database compaction, in milliseconds */
+        long COMPACTION_TIME_BUDGET_MS = 10000;
+
+        /** The time budget of the database compaction run on exit, in milliseconds */
+        long COMPACTION_EXIT_TIME_BUDGET_MS = 1000;
     }
 
     public interface GOOGLE_DRIVE {
@@ -130,6 +178,7 @@ public class Constants {
         String REFRESH_TOKEN_GRANT_TYPE = "refresh_token";
         String ROOT_FOLDER_ID = "0";
         String DESCRIPTION_STRING = "StorageCrypt";
+        long CHUNKED_UPLOAD_MIN_SIZE = 20 * 1024 * 1024; // 20 MiB
     }
 
     public interface HUBIC {
@@ -141,6 +190,7 @@ public class Constants {
         String REFRESH_TOKEN_GRANT_TYPE = "refresh_token";
         String FOLDER_MIME_TYPE = STORAGE.DEFAULT_FOLDER_MIME_TYPE;
         String OPENSTACK_CONTAINER = "default";
+        String OPENSTACK_SEGMENTS_CONTAINER = OPENSTACK_CONTAINER + "_segments";
         int CONNECT_TIMEOUT_S = 60;
         int READ_TIMEOUT_S = 60;
         int WRITE_TIMEOUT_S = 60;
@@ -162,6 +212,7 @@ public class Constants {
     public interface FILE {
         String APP_DIR_NAME = "StorageCrypt";
         String TEMP_FILES_DIR_NAME = "tmp";
+        String PARTIAL_DOWNLOAD_FILE_EXTENSION = ".part";
 
         String LOCAL_FILES_DIR_NAME = "Unsynchronized";
         String GDRIVE_FILES_DIR_NAME = "Drive";
@@ -173,6 +224,7 @@ public class Constants {
         String EXTERNAL_APP_KEYS_FILE = "keys.json";
 
         int BUFFER_SIZE = 1024 * 64;
+        long MAPPED_WINDOW_SIZE = 1024 * 1024 * 16;
 
         long QUOTA_USED_ESTIMATION_BEFORE_REFRESH = 1024 * 1024;
     }
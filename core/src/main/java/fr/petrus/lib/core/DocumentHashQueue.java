@@ -69,6 +69,18 @@ public class DocumentHashQueue {
         return null != encryptedDocument && hashMap.containsKey(encryptedDocument.getId());
     }
 
+    /**
+     * Returns whether this {@code DocumentHashQueue} contains the {@code EncryptedDocument} with the
+     * given {@code id}.
+     *
+     * @param id the id of the {@code EncryptedDocument} to check
+     * @return true if this {@code DocumentHashQueue} contains the {@code EncryptedDocument} with the
+     *         given {@code id}
+     */
+    public synchronized boolean contains(long id) {
+        return hashMap.containsKey(id);
+    }
+
     /**
      * Adds the given {@code encryptedDocument} to this {@code DocumentHashQueue}.
      *
@@ -0,0 +1,179 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A queue of {@link EncryptedDocument}s which synchronization will be retried at a given time.
+ *
+ * <p>The retry delay of a document doubles with each retry, from an initial delay up to a maximum
+ * delay, until the document is forgotten. Documents scheduled at the same time are returned in the
+ * order they were scheduled.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DocumentRetryQueue {
+
+    /**
+     * A document which synchronization will be retried at a given time.
+     */
+    private static class ScheduledRetry implements Comparable<ScheduledRetry> {
+        private final long time;
+        private final long sequence;
+        private final EncryptedDocument encryptedDocument;
+
+        ScheduledRetry(long time, long sequence, EncryptedDocument encryptedDocument) {
+            this.time = time;
+            this.sequence = sequence;
+            this.encryptedDocument = encryptedDocument;
+        }
+
+        @Override
+        public int compareTo(ScheduledRetry other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private long initialDelay;
+    private long maxDelay;
+    private PriorityQueue<ScheduledRetry> scheduledRetries;
+    private Map<Long, Integer> numRetries;
+    private long nextSequence;
+
+    /**
+     * Creates a new empty {@code DocumentRetryQueue} instance.
+     *
+     * @param initialDelay the delay before the first retry of a document in ms
+     * @param maxDelay     the maximum delay before a retry in ms
+     */
+    public DocumentRetryQueue(long initialDelay, long maxDelay) {
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        scheduledRetries = new PriorityQueue<>();
+        numRetries = new HashMap<>();
+        nextSequence = 0;
+    }
+
+    /**
+     * Returns the delay before the next retry of the document with the given {@code id}, which
+     * doubles with each retry already scheduled for this document, up to the maximum delay.
+     *
+     * @param id the id of the document
+     * @return the delay before the next retry of the document in ms
+     */
+    public synchronized long retryDelay(long id) {
+        Integer retries = numRetries.get(id);
+        long delay = initialDelay << Math.min(null == retries ? 0 : retries, 16);
+        return Math.min(delay, maxDelay);
+    }
+
+    /**
+     * Schedules the retry of the given {@code encryptedDocument} at the given {@code time}.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} to retry
+     * @param time              the time of the retry in ms
+     */
+    public synchronized void schedule(EncryptedDocument encryptedDocument, long time) {
+        Integer retries = numRetries.get(encryptedDocument.getId());
+        numRetries.put(encryptedDocument.getId(), null == retries ? 1 : retries + 1);
+        scheduledRetries.offer(new ScheduledRetry(time, nextSequence++, encryptedDocument));
+    }
+
+    /**
+     * Forgets the retries of the document with the given {@code id}, so that its next retry delay
+     * is the initial delay again.
+     *
+     * @param id the id of the document
+     */
+    public synchronized void forget(long id) {
+        numRetries.remove(id);
+    }
+
+    /**
+     * Removes the first {@code EncryptedDocument} which retry time has come, and returns it.
+     *
+     * @param now the current time in ms
+     * @return the first {@code EncryptedDocument} which retry time has come, or null if there is none
+     */
+    public synchronized EncryptedDocument pollDue(long now) {
+        ScheduledRetry scheduledRetry = scheduledRetries.peek();
+        if (null == scheduledRetry || scheduledRetry.time > now) {
+            return null;
+        }
+        scheduledRetries.poll();
+        return scheduledRetry.encryptedDocument;
+    }
+
+    /**
+     * Returns the delay before the next scheduled retry.
+     *
+     * @param now the current time in ms
+     * @return the delay before the next scheduled retry in ms, or -1 if there is no scheduled retry
+     */
+    public synchronized long delayBeforeNext(long now) {
+        ScheduledRetry scheduledRetry = scheduledRetries.peek();
+        if (null == scheduledRetry) {
+            return -1;
+        }
+        return Math.max(0, scheduledRetry.time - now);
+    }
+
+    /**
+     * Returns whether no retry is scheduled.
+     *
+     * @return true if no retry is scheduled
+     */
+    public synchronized boolean isEmpty() {
+        return scheduledRetries.isEmpty();
+    }
+
+    /**
+     * Clears this queue, by removing the scheduled retries and forgetting the retries of all the
+     * documents.
+     */
+    public synchronized void clear() {
+        scheduledRetries.clear();
+        numRetries.clear();
+    }
+}
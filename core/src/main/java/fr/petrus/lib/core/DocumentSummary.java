@@ -0,0 +1,210 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core;
+
+/**
+ * A read-only summary of an {@link EncryptedDocument}, holding only what is needed to list it.
+ *
+ * <p>Summaries are loaded with a projection query, without refreshing the account of each document
+ * nor setting its dependencies, which makes listing large folders much cheaper. The full
+ * {@code EncryptedDocument} can be loaded with its {@link #getId() id} when it is needed.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DocumentSummary {
+    private final long id;
+    private final long parentId;
+    private final String displayName;
+    private final String mimeType;
+    private final long size;
+    private final StorageType backStorageType;
+    private final State uploadState;
+    private final State downloadState;
+    private final State deletionState;
+
+    /**
+     * Creates a new {@code DocumentSummary} with the given values.
+     *
+     * @param id              the database id of the document
+     * @param parentId        the database id of the parent folder of the document
+     * @param displayName     the name of the document
+     * @param mimeType        the mime type of the document
+     * @param size            the size of the document
+     * @param backStorageType the storage type where the document is synchronized
+     * @param uploadState     the state of the upload of the document
+     * @param downloadState   the state of the download of the document
+     * @param deletionState   the state of the deletion of the document
+     */
+    public DocumentSummary(long id, long parentId, String displayName, String mimeType, long size,
+                           StorageType backStorageType,
+                           State uploadState, State downloadState, State deletionState) {
+        this.id = id;
+        this.parentId = parentId;
+        this.displayName = displayName;
+        this.mimeType = mimeType;
+        this.size = size;
+        this.backStorageType = backStorageType;
+        this.uploadState = uploadState;
+        this.downloadState = downloadState;
+        this.deletionState = deletionState;
+    }
+
+    /**
+     * Returns the database id of the document.
+     *
+     * @return the database id of the document
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the database id of the parent folder of the document.
+     *
+     * @return the database id of the parent folder of the document
+     */
+    public long getParentId() {
+        return parentId;
+    }
+
+    /**
+     * Returns the name of the document.
+     *
+     * @return the name of the document
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns the mime type of the document.
+     *
+     * @return the mime type of the document
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Returns the size of the document.
+     *
+     * @return the size of the document
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the storage type where the document is synchronized.
+     *
+     * @return the storage type where the document is synchronized
+     */
+    public StorageType getBackStorageType() {
+        return backStorageType;
+    }
+
+    /**
+     * Returns whether the document is a root document.
+     *
+     * @return true if the document is a root document
+     */
+    public boolean isRoot() {
+        return Constants.STORAGE.ROOT_PARENT_ID == parentId;
+    }
+
+    /**
+     * Returns whether the document is a folder.
+     *
+     * @return true if the document is a folder
+     */
+    public boolean isFolder() {
+        return Constants.STORAGE.DEFAULT_FOLDER_MIME_TYPE.equals(mimeType);
+    }
+
+    /**
+     * Returns whether the document is stored only locally.
+     *
+     * @return true if the document is not synchronized with any remote account
+     */
+    public boolean isUnsynchronized() {
+        return StorageType.Unsynchronized == backStorageType;
+    }
+
+    /**
+     * Returns the state of the given {@code syncAction} of the document.
+     *
+     * @param syncAction the synchronization action
+     * @return the state of the given {@code syncAction} of the document
+     */
+    public State getSyncState(SyncAction syncAction) {
+        switch (syncAction) {
+            case Upload:
+                return uploadState;
+            case Download:
+                return downloadState;
+            case Deletion:
+                return deletionState;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * This implementation returns true if the other object is a DocumentSummary instance too,
+     * with the same id.
+     *
+     * @param obj the object this summary is compared to
+     * @return true if this summary is considered equal to the object parameter, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return id == ((DocumentSummary) obj).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int)(id % Integer.MAX_VALUE);
+    }
+}
@@ -43,21 +43,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 
 import fr.petrus.lib.core.cloud.Account;
 import fr.petrus.lib.core.cloud.RemoteDocument;
 import fr.petrus.lib.core.cloud.RemoteStorage;
+import fr.petrus.lib.core.cloud.UploadSession;
 import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
 import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataStream;
 import fr.petrus.lib.core.crypto.KeyManager;
 import fr.petrus.lib.core.db.Database;
 import fr.petrus.lib.core.db.DatabaseConstants;
+import fr.petrus.lib.core.db.DocumentUpdateBatch;
+import fr.petrus.lib.core.db.EncryptedDocumentPathCache;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.filesystem.tree.PathNode;
 import fr.petrus.lib.core.filesystem.tree.PathTree;
@@ -182,6 +190,17 @@ public class EncryptedDocument {
     @DatabaseField(columnName = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_CREATION_INCOMPLETE)
     private boolean backEntryCreationIncomplete;
 
+    /** The ids of the parents of this document, from its root, formatted as "/rootId/.../parentId/",
+     *  or "/" for a root. It is set by the database when the document is added. Its length grows
+     *  with the depth of the document, so the column is unbounded, as when it is added by an upgrade. */
+    @DatabaseField(columnName = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH, columnDefinition = "VARCHAR")
+    private String ancestorPath;
+
+    /** The state of the resumable upload of this document, as serialized by {@link UploadSession},
+     *  or null if no upload is in progress */
+    @DatabaseField(columnName = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_UPLOAD_SESSION, width=2048)
+    private String uploadSession;
+
     /**
      * Creates a new empty {@code EncryptedDocument} instance, with default values.
      *
@@ -209,6 +228,8 @@ public class EncryptedDocument {
         backEntryNumSyncFailures = 0;
         backEntryLastFailureTime = -1;
         backEntryCreationIncomplete = false;
+        ancestorPath = null;
+        uploadSession = null;
     }
 
     /**
@@ -372,6 +393,48 @@ public class EncryptedDocument {
         return parentId;
     }
 
+    /**
+     * Sets the ids of the parents of this encrypted document, from its root.
+     *
+     * <p>This method is meant to be called by the database, when the document is added.
+     *
+     * @param ancestorPath the ids of the parents of this document, formatted as
+     *                     "/rootId/.../parentId/", or "/" for a root
+     */
+    public void setAncestorPath(String ancestorPath) {
+        this.ancestorPath = ancestorPath;
+    }
+
+    /**
+     * Returns the ids of the parents of this encrypted document, from its root.
+     *
+     * @return the ids of the parents of this document, formatted as "/rootId/.../parentId/",
+     *         "/" for a root, or null if they are unknown
+     */
+    public String getAncestorPath() {
+        return ancestorPath;
+    }
+
+    /**
+     * Sets the state of the resumable upload of this encrypted document.
+     *
+     * @param uploadSession the upload session, as serialized by {@link UploadSession#serialize},
+     *                      or null if no upload is in progress
+     */
+    public void setUploadSession(String uploadSession) {
+        this.uploadSession = uploadSession;
+    }
+
+    /**
+     * Returns the state of the resumable upload of this encrypted document.
+     *
+     * @return the upload session, as serialized by {@link UploadSession#serialize}, or null if no
+     *         upload is in progress
+     */
+    public String getUploadSession() {
+        return uploadSession;
+    }
+
     /**
      * Returns whether this encrypted document represents a "top level" folder.
      *
@@ -844,6 +907,8 @@ public class EncryptedDocument {
     /**
      * Returns the logical path of this document, built from the names of the hierarchy of its parents.
      *
+     * <p>The names of the parents are resolved from the path nodes cached by the database.
+     *
      * @return the logical path of this document, built from the names of the hierarchy of its parents
      * @throws ParentNotFoundException if one of the parents of this document is missing from the database
      * @throws DatabaseConnectionClosedException if the database connection is closed
@@ -852,12 +917,17 @@ public class EncryptedDocument {
         if (isRoot()) {
             return storageText();
         } else {
-            EncryptedDocument parent = parent();
-            if (null==parent) {
+            List<EncryptedDocumentPathCache.Node> parentNodes = database.getEncryptedDocumentPathNodes(parentId);
+            if (parentNodes.isEmpty()
+                    || Constants.STORAGE.ROOT_PARENT_ID != parentNodes.get(0).getParentId()) {
                 throw new ParentNotFoundException(
                         "Error when building the logical path : of \""+getDisplayName()+"\" missing");
             }
-            return parent.logicalPath() + "/" + getDisplayName();
+            StringBuilder logicalPath = new StringBuilder(storageText());
+            for (EncryptedDocumentPathCache.Node parentNode : parentNodes.subList(1, parentNodes.size())) {
+                logicalPath.append('/').append(parentNode.getDisplayName());
+            }
+            return logicalPath.append('/').append(getDisplayName()).toString();
         }
     }
 
@@ -887,16 +957,33 @@ public class EncryptedDocument {
     /**
      * Returns the physical file where the contents of this document is stored on the local storage.
      *
+     * <p>The file names of the parents are resolved from the path nodes cached by the database.
+     *
      * @return the physical file where the contents of this document is stored on the local storage
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
     public File file() throws DatabaseConnectionClosedException {
-        if (!isRoot()) {
-            EncryptedDocument parentEncryptedDocument = parent();
-            if (null!=parentEncryptedDocument) {
-                return new File(parentEncryptedDocument.file(), getFileName());
+        File storageDir = storageDir();
+        if (!isRoot() && null!=storageDir) {
+            List<EncryptedDocumentPathCache.Node> parentNodes = database.getEncryptedDocumentPathNodes(parentId);
+            if (!parentNodes.isEmpty()) {
+                /* the highest parent found is stored in the storage dir, whether it is the root or not */
+                File file = storageDir;
+                for (EncryptedDocumentPathCache.Node parentNode : parentNodes.subList(1, parentNodes.size())) {
+                    file = new File(file, parentNode.getFileName());
+                }
+                return new File(file, getFileName());
             }
         }
+        return storageDir;
+    }
+
+    /**
+     * Returns the local storage folder of the storage type and account of this document.
+     *
+     * @return the local storage folder of the storage type and account of this document
+     */
+    private File storageDir() {
         switch (getBackStorageType()) {
             case Unsynchronized:
                 return fileSystem.getLocalFilesDir();
@@ -1025,7 +1112,30 @@ public class EncryptedDocument {
                     StorageCryptException.Reason.DocumentExists);
         }
 
-        encryptedDocument = new EncryptedDocument(crypto, keyManager, fileSystem, textI18n, database);
+        encryptedDocument = newChild(encryptedDocumentMetadata, encryptedName, remoteDocument);
+        encryptedDocument.add();
+        return encryptedDocument;
+    }
+
+    /**
+     * Returns a new encrypted document, child of this folder, built from the data of an existing
+     * encrypted remote document, without adding it to the database.
+     *
+     * <p>The caller is responsible for checking that this folder has no child with the same name,
+     * and for adding the returned document to the database, for instance in a
+     * {@code DocumentCreationBatch}.
+     *
+     * @param encryptedDocumentMetadata the encrypted document metadata obtained by decrypting the
+     *                                  metadata of the remote document.
+     * @param encryptedName             the encrypted name of the remote document
+     * @param remoteDocument            the remote document
+     * @return the new encrypted document
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public EncryptedDocument newChild(EncryptedDocumentMetadata encryptedDocumentMetadata,
+                                      String encryptedName, RemoteDocument remoteDocument)
+            throws DatabaseConnectionClosedException {
+        EncryptedDocument encryptedDocument = new EncryptedDocument(crypto, keyManager, fileSystem, textI18n, database);
         encryptedDocument.setDisplayName(encryptedDocumentMetadata.getDisplayName());
         encryptedDocument.setMimeType(encryptedDocumentMetadata.getMimeType());
         encryptedDocument.setParentId(getId());
@@ -1050,7 +1160,6 @@ public class EncryptedDocument {
             encryptedDocument.setSyncState(SyncAction.Download, State.Planned);
         }
         encryptedDocument.setBackEntryId(remoteDocument.getId());
-        encryptedDocument.add();
         return encryptedDocument;
     }
 
@@ -1075,7 +1184,26 @@ public class EncryptedDocument {
                     StorageCryptException.Reason.DocumentExists);
         }
 
-        encryptedDocument = new EncryptedDocument(crypto, keyManager, fileSystem, textI18n, database);
+        encryptedDocument = newChild(encryptedDocumentMetadata, document);
+        encryptedDocument.add();
+        return encryptedDocument;
+    }
+
+    /**
+     * Returns a new encrypted document, child of this folder, built from the data of an existing
+     * encrypted local file, without adding it to the database.
+     *
+     * <p>The caller is responsible for checking that this folder has no child with the same name,
+     * and for adding the returned document to the database, for instance in a
+     * {@code DocumentCreationBatch}.
+     *
+     * @param encryptedDocumentMetadata the encrypted document metadata obtained by decrypting the
+     *                                  name of the local document.
+     * @param document                  the encrypted local file
+     * @return the new encrypted document
+     */
+    public EncryptedDocument newChild(EncryptedDocumentMetadata encryptedDocumentMetadata, File document) {
+        EncryptedDocument encryptedDocument = new EncryptedDocument(crypto, keyManager, fileSystem, textI18n, database);
         encryptedDocument.setDisplayName(encryptedDocumentMetadata.getDisplayName());
         encryptedDocument.setMimeType(encryptedDocumentMetadata.getMimeType());
         encryptedDocument.setParentId(getId());
@@ -1090,7 +1218,6 @@ public class EncryptedDocument {
             encryptedDocument.setBackStorageAccount(getBackStorageAccount());
             encryptedDocument.setSyncState(SyncAction.Upload, State.Planned);
         }
-        encryptedDocument.add();
         return encryptedDocument;
     }
 
@@ -1153,6 +1280,23 @@ public class EncryptedDocument {
         return children;
     }
 
+    /**
+     * Returns the summaries of all the children encrypted documents of this folder, sorted by the
+     * given {@code orderBy} criterion.
+     *
+     * <p>The summaries only hold the columns needed to list the children, which makes them much
+     * cheaper to load than the full documents returned by {@link #children(boolean, OrderBy)}.
+     *
+     * @param foldersFirst if true, the folders are listed before the files, otherwise they are mixed
+     * @param orderBy      the criterion used to sort the documents
+     * @return the summaries of all the children encrypted documents of this folder
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public List<DocumentSummary> childrenSummaries(boolean foldersFirst, OrderBy orderBy)
+            throws DatabaseConnectionClosedException {
+        return database.getDocumentSummariesByParentId(getId(), foldersFirst, orderBy);
+    }
+
     /**
      * Removes the children of this folder from the database, without removing the physical and remote
      * documents themselves.
@@ -1281,6 +1425,96 @@ public class EncryptedDocument {
         database.updateEncryptedDocumentBackEntryCreationIncomplete(getId(), isBackEntryCreationIncomplete());
     }
 
+    /**
+     * Sets the state of the resumable upload of this document, then persists it into the database.
+     *
+     * @param uploadSession the upload session, as serialized by {@link UploadSession#serialize},
+     *                      or null if no upload is in progress
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public void updateUploadSession(String uploadSession) throws DatabaseConnectionClosedException {
+        setUploadSession(uploadSession);
+        database.updateEncryptedDocumentUploadSession(getId(), getUploadSession());
+    }
+
+    /**
+     * Returns the resumable upload session of this document, which persists its state into the
+     * database each time it changes.
+     *
+     * @return the upload session of this document
+     */
+    private UploadSession uploadSession() {
+        return UploadSession.parse(getUploadSession(), new UploadSession.Checkpoint() {
+            @Override
+            public void save(UploadSession uploadSession) throws DatabaseConnectionClosedException {
+                updateUploadSession(uploadSession.serialize());
+            }
+        });
+    }
+
+    /**
+     * Returns the temporary file where the given version of the remote file of this document is
+     * downloaded, before it replaces the local file.
+     *
+     * <p>The name of this file depends on the version of the remote file, so that an interrupted
+     * download is never resumed with the contents of another version.
+     *
+     * @param document the remote file of this document
+     * @return the temporary file where the remote file is downloaded
+     */
+    private File partialDownloadFile(RemoteDocument document) {
+        return new File(fileSystem.getTempFilesDir(), String.format(Locale.US, "%d_%d_%d%s", getId(),
+                document.getVersion(), document.getModificationTime(),
+                Constants.FILE.PARTIAL_DOWNLOAD_FILE_EXTENSION));
+    }
+
+    /**
+     * Deletes the temporary files where other versions of the remote file of this document were
+     * partially downloaded, which would otherwise never be deleted.
+     *
+     * @param partialFile the temporary file where the current version of the remote file is downloaded
+     */
+    private void deleteStalePartialDownloadFiles(final File partialFile) {
+        final String prefix = getId() + "_";
+        File[] staleFiles = fileSystem.getTempFilesDir().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(prefix)
+                        && name.endsWith(Constants.FILE.PARTIAL_DOWNLOAD_FILE_EXTENSION)
+                        && !name.equals(partialFile.getName());
+            }
+        });
+        if (null != staleFiles) {
+            for (File staleFile : staleFiles) {
+                if (!staleFile.delete()) {
+                    LOG.error("Failed to delete stale partial download {}", staleFile.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the beginning of the given {@code partialFile} which is kept when resuming
+     * its download : the data stream header and the encrypted chunks which signatures are verified.
+     *
+     * @param partialFile the temporary file where the remote file of this document is downloaded
+     * @return the number of bytes which do not have to be downloaded again
+     */
+    private long verifiedDownloadLength(File partialFile) {
+        if (!partialFile.exists()) {
+            return 0L;
+        }
+        try {
+            long verifiedLength = new EncryptedDataStream(crypto, keyManager.getKeys(getKeyAlias()))
+                    .verifiedLength(partialFile);
+            LOG.debug("Resuming download of {} at offset {}", failSafeLogicalPath(), verifiedLength);
+            return verifiedLength;
+        } catch (CryptoException e) {
+            LOG.error("Failed to verify the partially downloaded file {}", partialFile.getAbsolutePath(), e);
+            return 0L;
+        }
+    }
+
     /**
      * Sets the given {@code state} for the given {@code syncAction} of this document, then persists
      * it into the database.
@@ -1321,6 +1555,100 @@ public class EncryptedDocument {
         database.updateEncryptedDocumentBackEntryLastFailureTime(getId(), getBackEntryLastFailureTime());
     }
 
+    /**
+     * Sets the last modification time of the "local" copy of the file associated to this document
+     * (in ms from the epoch), then adds the change to the given {@code documentUpdateBatch}.
+     *
+     * @param time                the last modification time of the "local" copy of the file
+     *                            associated to this document (in ms from the epoch)
+     * @param documentUpdateBatch the batch which the change is added to
+     */
+    public void updateLocalModificationTime(long time, DocumentUpdateBatch documentUpdateBatch) {
+        setLocalModificationTime(time);
+        documentUpdateBatch.updateLocalModificationTime(getId(), getLocalModificationTime());
+    }
+
+    /**
+     * Sets the last modification time of the "remote" copy of the file associated to this document
+     * (in ms from the epoch), then adds the change to the given {@code documentUpdateBatch}.
+     *
+     * @param time                the last modification time of the "remote" copy of the file
+     *                            associated to this document (in ms from the epoch)
+     * @param documentUpdateBatch the batch which the change is added to
+     */
+    public void updateRemoteModificationTime(long time, DocumentUpdateBatch documentUpdateBatch) {
+        setRemoteModificationTime(time);
+        documentUpdateBatch.updateRemoteModificationTime(getId(), getRemoteModificationTime());
+    }
+
+    /**
+     * Sets the remote document id on the remote storage where this document is stored, then
+     * adds the change to the given {@code documentUpdateBatch}.
+     *
+     * @param backEntryId         the remote document id on the remote storage where this document is stored
+     * @param documentUpdateBatch the batch which the change is added to
+     */
+    public void updateBackEntryId(String backEntryId, DocumentUpdateBatch documentUpdateBatch) {
+        setBackEntryId(backEntryId);
+        documentUpdateBatch.updateBackEntryId(getId(), getBackEntryId());
+    }
+
+    /**
+     * Sets the version of the remote document on the remote storage, then adds the change to the
+     * given {@code documentUpdateBatch}.
+     *
+     * @param backEntryVersion    the version of the remote document on the remote storage
+     * @param documentUpdateBatch the batch which the change is added to
+     */
+    public void updateBackEntryVersion(long backEntryVersion, DocumentUpdateBatch documentUpdateBatch) {
+        setBackEntryVersion(backEntryVersion);
+        documentUpdateBatch.updateBackEntryVersion(getId(), getBackEntryVersion());
+    }
+
+    /**
+     * Sets the given {@code state} for the given {@code syncAction} of this document, then adds
+     * the change to the given {@code documentUpdateBatch}.
+     *
+     * @param syncAction          the synchronization action to set
+     * @param state               the state of the synchronization action to set
+     * @param documentUpdateBatch the batch which the change is added to
+     */
+    public void updateSyncState(SyncAction syncAction, State state, DocumentUpdateBatch documentUpdateBatch) {
+        setSyncState(syncAction, state);
+        documentUpdateBatch.updateSyncState(getId(), syncAction, state);
+        if (State.Planned == state) {
+            resetFailuresCount(documentUpdateBatch);
+        }
+    }
+
+    /**
+     * Resets the failed synchronization actions count and time, then adds the change to the given
+     * {@code documentUpdateBatch}.
+     *
+     * @param documentUpdateBatch the batch which the change is added to
+     */
+    public void resetFailuresCount(DocumentUpdateBatch documentUpdateBatch) {
+        resetBackEntryLastFailure();
+        documentUpdateBatch.updateSyncFailures(getId(), getBackEntryNumSyncFailures(), getBackEntryLastFailureTime());
+    }
+
+    /**
+     * Writes the changes of the given {@code documentUpdateBatch} to the database.
+     *
+     * @param documentUpdateBatch the batch of changes to write
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     * @throws StorageCryptException             if the changes could not be written
+     */
+    private void executeUpdateBatch(DocumentUpdateBatch documentUpdateBatch)
+            throws DatabaseConnectionClosedException, StorageCryptException {
+        try {
+            database.executeDocumentUpdateBatch(documentUpdateBatch);
+        } catch (SQLException e) {
+            throw new StorageCryptException("Failed to write the document changes",
+                    StorageCryptException.Reason.UpdateError, e);
+        }
+    }
+
     /**
      * Requests the remote document associated with this encrypted document.
      *
@@ -1386,6 +1714,30 @@ public class EncryptedDocument {
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
     public void uploadNew(ProcessProgressListener listener) throws StorageCryptException, DatabaseConnectionClosedException, NetworkException, UserCanceledException {
+        uploadNew(null, null, listener);
+    }
+
+    /**
+     * Encrypts the given clear {@code srcFile} while uploading it as the content of this document
+     * to the associated account.
+     *
+     * <p>The encrypted data is written to the local file of this document at the same time, so the
+     * clear file is read only once, and the encrypted file is never read back.
+     *
+     * <p>If {@code srcFile} is null, the local encrypted file of this document is uploaded.
+     *
+     * <p>The remote document must not already exist
+     *
+     * @param encryptedDataStream the stream used to encrypt the {@code srcFile}
+     * @param srcFile             the clear file to encrypt and upload, or null
+     * @param listener            the listener which the upload progress will be reported to, and which
+     *                            handles canceling, pausing and resuming the upload process
+     * @throws StorageCryptException             if an error occurs when uploading
+     * @throws NetworkException                  if a network connectivity error occurs
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public void uploadNew(EncryptedDataStream encryptedDataStream, File srcFile, ProcessProgressListener listener)
+            throws StorageCryptException, DatabaseConnectionClosedException, NetworkException, UserCanceledException {
         if (!isUnsynchronized()) {
             EncryptedDocument parentEncryptedDocument = parent();
             try {
@@ -1403,6 +1755,7 @@ public class EncryptedDocument {
                 LOG.error("RemoteStorage instance not found for storage type {}", getBackStorageType().name());
                 return;
             }
+            DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
             RemoteDocument parent;
             try {
                 try {
@@ -1440,18 +1793,23 @@ public class EncryptedDocument {
                         if (null != listener) {
                             listener.onProgress(0, 2);
                         }
+                    } else if (null != srcFile) {
+                        document = parent.uploadNewChildEncryptedFile(getFileName(),
+                                Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE, encryptedDataStream, srcFile, file(),
+                                listener);
+                        updateFileSize();
                     } else {
                         document = parent.uploadNewChildFile(getFileName(),
-                                Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE, file(), listener);
+                                Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE, file(), uploadSession(), listener);
                     }
                     if (null != document) {
-                        updateBackEntryId(document.getId());
-                        updateBackEntryVersion(document.getVersion());
-                        updateRemoteModificationTime(document.getModificationTime());
+                        updateBackEntryId(document.getId(), documentUpdateBatch);
+                        updateBackEntryVersion(document.getVersion(), documentUpdateBatch);
+                        updateRemoteModificationTime(document.getModificationTime(), documentUpdateBatch);
                         if (document.isCreationIncomplete()) {
                             updateBackEntryCreationIncomplete(document.isCreationIncomplete());
                         } else {
-                            updateSyncState(SyncAction.Upload, State.Done);
+                            updateSyncState(SyncAction.Upload, State.Done, documentUpdateBatch);
                         }
                     }
                 } catch (RemoteException e) {
@@ -1463,7 +1821,8 @@ public class EncryptedDocument {
                 incrementFailuresCount();
                 throw e;
             }
-            resetFailuresCount();
+            resetFailuresCount(documentUpdateBatch);
+            executeUpdateBatch(documentUpdateBatch);
         }
     }
 
@@ -1480,6 +1839,31 @@ public class EncryptedDocument {
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
     public void upload(ProcessProgressListener listener) throws StorageCryptException, DatabaseConnectionClosedException, NetworkException, NotFoundException, UserCanceledException {
+        upload(null, null, listener);
+    }
+
+    /**
+     * Encrypts the given clear {@code srcFile} while uploading it as the content of this document
+     * to the associated account, if any.
+     *
+     * <p>The encrypted data is written to the local file of this document at the same time, so the
+     * clear file is read only once, and the encrypted file is never read back.
+     *
+     * <p>If {@code srcFile} is null, the local encrypted file of this document is uploaded.
+     *
+     * <p>The remote document must already exist
+     *
+     * @param encryptedDataStream the stream used to encrypt the {@code srcFile}
+     * @param srcFile             the clear file to encrypt and upload, or null
+     * @param listener            the listener which the upload progress will be reported to, and which
+     *                            handles canceling, pausing and resuming the upload process
+     * @throws StorageCryptException             if an error occurs when uploading
+     * @throws NetworkException                  if a network connectivity error occurs
+     * @throws NotFoundException                 if the remote document does not exist
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public void upload(EncryptedDataStream encryptedDataStream, File srcFile, ProcessProgressListener listener)
+            throws StorageCryptException, DatabaseConnectionClosedException, NetworkException, NotFoundException, UserCanceledException {
         if (!isUnsynchronized()) {
             if (isFolder()) {
                 throw new StorageCryptException("Failed to upload document : folders cannot be uploaded",
@@ -1505,7 +1889,14 @@ public class EncryptedDocument {
                     }
                 }
                 try {
-                    document = document.uploadFile(Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE, file(), listener);
+                    if (null != srcFile) {
+                        document = document.uploadEncryptedFile(Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE,
+                                encryptedDataStream, srcFile, file(), listener);
+                        updateFileSize();
+                    } else {
+                        document = document.uploadFile(Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE, file(),
+                                uploadSession(), listener);
+                    }
 
                     Account account = getBackStorageAccount();
                     account.refresh();
@@ -1521,10 +1912,12 @@ public class EncryptedDocument {
                 incrementFailuresCount();
                 throw e;
             }
-            updateBackEntryVersion(document.getVersion());
-            updateRemoteModificationTime(document.getModificationTime());
-            updateSyncState(SyncAction.Upload, State.Done);
-            resetFailuresCount();
+            DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+            updateBackEntryVersion(document.getVersion(), documentUpdateBatch);
+            updateRemoteModificationTime(document.getModificationTime(), documentUpdateBatch);
+            updateSyncState(SyncAction.Upload, State.Done, documentUpdateBatch);
+            resetFailuresCount(documentUpdateBatch);
+            executeUpdateBatch(documentUpdateBatch);
         }
     }
 
@@ -1563,22 +1956,35 @@ public class EncryptedDocument {
                                 StorageCryptException.Reason.FailedToGetMetadata, e);
                     }
                 }
+                File partialFile = partialDownloadFile(document);
+                deleteStalePartialDownloadFiles(partialFile);
                 try {
-                    document.downloadFile(file(), listener);
+                    document.downloadFile(partialFile, verifiedDownloadLength(partialFile), listener);
                 } catch (RemoteException e) {
                     incrementFailuresCount();
                     throw new StorageCryptException("Failed to download document",
                             StorageCryptException.Reason.DownloadError, e);
                 }
+                if (null != listener && listener.isCanceled()) {
+                    throw new UserCanceledException("Canceled");
+                }
+                File file = file();
+                if ((file.exists() && !file.delete()) || !partialFile.renameTo(file)) {
+                    incrementFailuresCount();
+                    throw new StorageCryptException("Failed to download document : impossible to replace the local file",
+                            StorageCryptException.Reason.DownloadError);
+                }
             } catch (NetworkException e) {
                 incrementFailuresCount();
                 throw e;
             }
-            updateLocalModificationTime(System.currentTimeMillis());
-            updateRemoteModificationTime(document.getModificationTime());
-            updateBackEntryVersion(document.getVersion());
-            updateSyncState(SyncAction.Download, State.Done);
-            resetFailuresCount();
+            DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+            updateLocalModificationTime(System.currentTimeMillis(), documentUpdateBatch);
+            updateRemoteModificationTime(document.getModificationTime(), documentUpdateBatch);
+            updateBackEntryVersion(document.getVersion(), documentUpdateBatch);
+            updateSyncState(SyncAction.Download, State.Done, documentUpdateBatch);
+            resetFailuresCount(documentUpdateBatch);
+            executeUpdateBatch(documentUpdateBatch);
         }
     }
 
@@ -1864,7 +2270,14 @@ public class EncryptedDocument {
         if (parentBefore) {
             encryptedDocuments.add(this);
         }
-        if (isFolder()) {
+        if (isFolder() && null != getAncestorPath()) {
+            /* all the descendants are read at once, with a prefix query on their ancestor paths */
+            List<EncryptedDocument> descendants = database.getEncryptedDocumentDescendants(this, parentBefore);
+            for (EncryptedDocument descendant : descendants) {
+                descendant.setDependenciesFrom(this);
+            }
+            encryptedDocuments.addAll(descendants);
+        } else if (isFolder()) {
             for (EncryptedDocument child : children(false)) {
                 encryptedDocuments.addAll(child.unfoldAsList(parentBefore));
             }
@@ -39,6 +39,19 @@ package fr.petrus.lib.core;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.CryptoException;
 import fr.petrus.lib.core.crypto.EncryptedDataChunk;
@@ -60,6 +73,32 @@ public class EncryptedDocumentMetadata {
 
     private static Logger LOG = LoggerFactory.getLogger(EncryptedDocumentMetadata.class);
 
+    /**
+     * The results of the decryption of a list of encrypted metadata.
+     */
+    public static class BatchResults {
+        private final Map<String, EncryptedDocumentMetadata> metadata = new ConcurrentHashMap<>();
+        private boolean canceled = false;
+
+        /**
+         * Returns the decrypted metadata, mapped by their encrypted metadata.
+         *
+         * @return the decrypted metadata, mapped by their encrypted metadata
+         */
+        public Map<String, EncryptedDocumentMetadata> getMetadata() {
+            return metadata;
+        }
+
+        /**
+         * Returns whether the decryption was interrupted before all the metadata were decrypted.
+         *
+         * @return true if the decryption was interrupted before all the metadata were decrypted
+         */
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
     private Crypto crypto = null;
     private KeyManager keyManager = null;
     private String keyAlias = null;
@@ -125,12 +164,16 @@ public class EncryptedDocumentMetadata {
      * @throws StorageCryptException if no key can decrypt the given {@code encryptedMetadata}
      */
     public void decrypt(String encryptedMetadata) throws StorageCryptException {
+        EncryptedDataChunk encryptedDataChunk;
+        try {
+            encryptedDataChunk = parseMetadata(encryptedMetadata);
+        } catch (StorageCryptException e) {
+            LOG.info("Unable to parse metadata \"{}\"", encryptedMetadata);
+            throw new StorageCryptException("No key matches", StorageCryptException.Reason.KeyNotFound);
+        }
         for (String alias : keyManager.getKeyAliases()) {
             try {
-                String[] documentNameData = decryptMetadata(encryptedMetadata, keyManager.getKeys(alias));
-                this.keyAlias = alias;
-                this.mimeType = documentNameData[0];
-                this.displayName = documentNameData[1];
+                setDecryptedMetadata(alias, decryptMetadata(encryptedDataChunk, keyManager.getKeys(alias)));
                 return;
             } catch (StorageCryptException e) {
                 LOG.info("Unable to decrypt file with {} key, trying the next one.", alias);
@@ -141,6 +184,156 @@ public class EncryptedDocumentMetadata {
         throw new StorageCryptException("No key matches", StorageCryptException.Reason.KeyNotFound);
     }
 
+    /**
+     * Decrypts the given list of encrypted metadata, sharing the work between several threads.
+     *
+     * <p>The keys are retrieved from the key store only once, and each thread tries first the key
+     * which decrypted its previous metadata, as most documents of a storage are usually encrypted
+     * with the same key.
+     *
+     * <p>The metadata which cannot be decrypted are not returned : calling {@link #decrypt(String)}
+     * for them tells why they cannot be decrypted.
+     *
+     * <p>If the calling thread is interrupted, the decryption stops and the metadata decrypted so
+     * far are returned, with the interrupted status of the thread set again, and the results are
+     * reported as canceled.
+     *
+     * @param crypto                a {@code Crypto} instance
+     * @param keyManager            a {@code KeyManager} instance
+     * @param encryptedMetadataList the encrypted metadata to decrypt
+     * @param threads               the number of threads decrypting the metadata
+     * @return the results, with the decrypted metadata mapped by their encrypted metadata
+     */
+    public static BatchResults decrypt(final Crypto crypto, final KeyManager keyManager,
+                                       Collection<String> encryptedMetadataList, int threads) {
+        final BatchResults batchResults = new BatchResults();
+        final Map<String, EncryptedDocumentMetadata> results = batchResults.metadata;
+        final Map<String, SecretKeys> keys = new LinkedHashMap<>();
+        List<String> keyAliases = keyManager.getKeyAliases();
+        if (null != keyAliases) {
+            for (String alias : keyAliases) {
+                try {
+                    SecretKeys secretKeys = keyManager.getKeys(alias);
+                    if (null != secretKeys) {
+                        keys.put(alias, secretKeys);
+                    }
+                } catch (CryptoException e) {
+                    LOG.info("Unable to get {} key", alias);
+                }
+            }
+        }
+        if (keys.isEmpty()) {
+            return batchResults;
+        }
+
+        final List<String> pending = new ArrayList<>(new LinkedHashSet<>(encryptedMetadataList));
+        final int workers = Math.max(1, Math.min(threads, pending.size()));
+        if (workers <= 1) {
+            decryptSlice(crypto, keyManager, keys, pending, 0, 1, results);
+            batchResults.canceled = Thread.currentThread().isInterrupted();
+            return batchResults;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> slices = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                final int start = i;
+                slices.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        decryptSlice(crypto, keyManager, keys, pending, start, workers, results);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> slice : slices) {
+                slice.get();
+            }
+        } catch (InterruptedException e) {
+            LOG.debug("Interrupted while decrypting the metadata", e);
+            Thread.currentThread().interrupt();
+            batchResults.canceled = true;
+        } catch (ExecutionException e) {
+            LOG.error("Failed to decrypt the metadata", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return batchResults;
+    }
+
+    /**
+     * Decrypts the encrypted metadata of the {@code pending} list, from the {@code start} index
+     * and every {@code step} indices, and puts the decrypted metadata in the {@code results} map.
+     *
+     * @param crypto     a {@code Crypto} instance
+     * @param keyManager a {@code KeyManager} instance
+     * @param keys       the secret keys to try, mapped by their alias
+     * @param pending    the encrypted metadata to decrypt
+     * @param start      the index of the first encrypted metadata to decrypt
+     * @param step       the distance between two encrypted metadata to decrypt
+     * @param results    the map where to put the decrypted metadata
+     */
+    private static void decryptSlice(Crypto crypto, KeyManager keyManager, Map<String, SecretKeys> keys,
+                                     List<String> pending, int start, int step,
+                                     Map<String, EncryptedDocumentMetadata> results) {
+        String lastAlias = null;
+        for (int i = start; i < pending.size(); i += step) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            String encryptedMetadata = pending.get(i);
+            EncryptedDocumentMetadata metadata = new EncryptedDocumentMetadata(crypto, keyManager);
+            try {
+                EncryptedDataChunk encryptedDataChunk = metadata.parseMetadata(encryptedMetadata);
+                if (null != lastAlias && metadata.decrypt(encryptedDataChunk, lastAlias, keys.get(lastAlias))) {
+                    results.put(encryptedMetadata, metadata);
+                    continue;
+                }
+                for (Map.Entry<String, SecretKeys> key : keys.entrySet()) {
+                    if (!key.getKey().equals(lastAlias)
+                            && metadata.decrypt(encryptedDataChunk, key.getKey(), key.getValue())) {
+                        lastAlias = key.getKey();
+                        results.put(encryptedMetadata, metadata);
+                        break;
+                    }
+                }
+            } catch (StorageCryptException e) {
+                LOG.info("Unable to parse metadata \"{}\"", encryptedMetadata);
+            }
+        }
+    }
+
+    /**
+     * Tries to decrypt the given {@code encryptedDataChunk} with the given {@code secretKeys},
+     * and stores the decrypted metadata in this object if it succeeds.
+     *
+     * @param encryptedDataChunk the parsed encrypted metadata
+     * @param alias              the alias of the {@code secretKeys}
+     * @param secretKeys         the secret keys to decrypt the metadata with
+     * @return true if the metadata was decrypted with the given {@code secretKeys}
+     */
+    private boolean decrypt(EncryptedDataChunk encryptedDataChunk, String alias, SecretKeys secretKeys) {
+        try {
+            setDecryptedMetadata(alias, decryptMetadata(encryptedDataChunk, secretKeys));
+            return true;
+        } catch (StorageCryptException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores the decrypted metadata in this object.
+     *
+     * @param alias            the alias of the key which decrypted the metadata
+     * @param documentNameData the decrypted mime type and name
+     */
+    private void setDecryptedMetadata(String alias, String[] documentNameData) {
+        this.keyAlias = alias;
+        this.mimeType = documentNameData[0];
+        this.displayName = documentNameData[1];
+    }
+
     /**
      * Encrypts the metadata as a byte array.
      *
@@ -196,26 +389,36 @@ public class EncryptedDocumentMetadata {
     }
 
     /**
-     * Decrypts the encrypted metadata and returns the result as a String array.
+     * Parses the "Url Safe" Base64 encrypted metadata.
      *
      * @param encryptedMetadata the encrypted metadata
-     * @param secretKeys        the secret keys to decrypt the metadata with
+     * @return the parsed encrypted metadata
+     * @throws StorageCryptException if the metadata cannot be parsed
+     */
+    private EncryptedDataChunk parseMetadata(String encryptedMetadata) throws StorageCryptException {
+        EncryptedDataChunk encryptedDataChunk = new EncryptedDataChunk(crypto);
+        if (!encryptedDataChunk.parseEncryptedData(crypto.decodeUrlSafeBase64(encryptedMetadata))) {
+            throw new StorageCryptException("Error: encrypted metadata cannot be parsed.",
+                    StorageCryptException.Reason.EncryptedNameDecryptionError);
+        }
+        return encryptedDataChunk;
+    }
+
+    /**
+     * Decrypts the parsed encrypted metadata and returns the result as a String array.
+     *
+     * @param encryptedDataChunk the parsed encrypted metadata
+     * @param secretKeys         the secret keys to decrypt the metadata with
      * @return the resulting String array with the mime type as the first element, then the name
      * @throws StorageCryptException if an error occurs when decrypting or parsing the metadata
      */
-    private String[] decryptMetadataFromBytes(byte[] encryptedMetadata, SecretKeys secretKeys)
+    private String[] decryptMetadata(EncryptedDataChunk encryptedDataChunk, SecretKeys secretKeys)
             throws StorageCryptException {
 
         if (null==secretKeys) {
             throw new StorageCryptException("Error: key not found.", StorageCryptException.Reason.KeyNotFound);
         }
 
-        EncryptedDataChunk encryptedDataChunk = new EncryptedDataChunk(crypto);
-        if (!encryptedDataChunk.parseEncryptedData(encryptedMetadata)) {
-            throw new StorageCryptException("Error: encrypted metadata cannot be parsed.",
-                    StorageCryptException.Reason.EncryptedNameDecryptionError);
-        }
-
         String documentData;
         try {
             if (!encryptedDataChunk.verify(secretKeys.getSignatureKey())) {
@@ -250,17 +453,4 @@ public class EncryptedDocumentMetadata {
 
         return splitData;
     }
-
-    /**
-     * Decrypts the encrypted metadata and returns the result as a String array.
-     *
-     * @param encryptedMetadata the encrypted metadata
-     * @param secretKeys        the secret keys to decrypt the metadata with
-     * @return the resulting String array with the mime type as the first element, then the name
-     * @throws StorageCryptException if an error occurs when decrypting or parsing the metadata
-     */
-    private String[] decryptMetadata(String encryptedMetadata, SecretKeys secretKeys)
-            throws StorageCryptException {
-        return decryptMetadataFromBytes(crypto.decodeUrlSafeBase64(encryptedMetadata), secretKeys);
-    }
 }
@@ -36,6 +36,7 @@
 
 package fr.petrus.lib.core;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -50,6 +51,10 @@ import fr.petrus.lib.core.cloud.appkeys.CloudAppKeys;
 import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.KeyManager;
 import fr.petrus.lib.core.db.Database;
+import fr.petrus.lib.core.db.DocumentCreationBatch;
+import fr.petrus.lib.core.db.DocumentUpdateBatch;
+import fr.petrus.lib.core.db.EncryptedDocumentCursor;
+import fr.petrus.lib.core.db.SyncStateListener;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.platform.AppContext;
 import fr.petrus.lib.core.filesystem.FileSystem;
@@ -104,6 +109,66 @@ public class EncryptedDocuments {
         encryptedDocument.add();
     }
 
+    /**
+     * Inserts the documents of the given {@code documentCreationBatch} into the database in a single
+     * transaction.
+     *
+     * <p>The batch is cleared even if the insertion fails, in which case none of its documents is
+     * inserted.
+     *
+     * @param documentCreationBatch the batch of documents to insert
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     * @throws StorageCryptException             if the documents could not be inserted
+     */
+    public void add(DocumentCreationBatch documentCreationBatch)
+            throws DatabaseConnectionClosedException, StorageCryptException {
+        try {
+            database.executeDocumentCreationBatch(documentCreationBatch);
+        } catch (SQLException e) {
+            throw new StorageCryptException("Failed to insert the new documents",
+                    StorageCryptException.Reason.CreationError, e);
+        }
+    }
+
+    /**
+     * Writes the changes of the given {@code documentUpdateBatch} to the database in a single
+     * transaction.
+     *
+     * <p>If the changes could not be written, none of them is written, and the batch is kept.
+     *
+     * @param documentUpdateBatch the batch of changes to write
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     * @throws StorageCryptException             if the changes could not be written
+     */
+    public void update(DocumentUpdateBatch documentUpdateBatch)
+            throws DatabaseConnectionClosedException, StorageCryptException {
+        try {
+            database.executeDocumentUpdateBatch(documentUpdateBatch);
+        } catch (SQLException e) {
+            throw new StorageCryptException("Failed to write the documents changes",
+                    StorageCryptException.Reason.UpdateError, e);
+        }
+    }
+
+    /**
+     * Registers the given {@code syncStateListener}, which will be notified of the synchronization
+     * state changes of the documents.
+     *
+     * @param syncStateListener the {@code SyncStateListener} to register
+     */
+    public void addSyncStateListener(SyncStateListener syncStateListener) {
+        database.addSyncStateListener(syncStateListener);
+    }
+
+    /**
+     * Unregisters the given {@code syncStateListener}.
+     *
+     * @param syncStateListener the {@code SyncStateListener} to unregister
+     */
+    public void removeSyncStateListener(SyncStateListener syncStateListener) {
+        database.removeSyncStateListener(syncStateListener);
+    }
+
     /**
      * Sets the dependencies of the given {@code encryptedDocument}
      *
@@ -229,6 +294,75 @@ public class EncryptedDocuments {
         return encryptedDocuments;
     }
 
+    /**
+     * Returns a cursor over the encrypted documents, for which the given {@code syncAction} matches
+     * the given {@code state}, which loads them page by page.
+     *
+     * @param syncAction the synchronization action to check
+     * @param state      the state of the given {@code syncAction}
+     * @return a cursor over the encrypted documents, for which the given {@code syncAction} matches
+     *         the given {@code state}
+     */
+    public EncryptedDocumentCursor encryptedDocumentsCursorWithSyncState(final SyncAction syncAction,
+                                                                         final State state) {
+        return new EncryptedDocumentCursor(new EncryptedDocumentCursor.PageQuery() {
+            @Override
+            public List<EncryptedDocument> query(long afterId, int limit)
+                    throws DatabaseConnectionClosedException {
+                return setDependenciesFor(
+                        database.getEncryptedDocumentsBySyncState(syncAction, state, afterId, limit));
+            }
+        }, Constants.ORMLITE.DOCUMENT_CURSOR_PAGE_SIZE);
+    }
+
+    /**
+     * Returns a cursor over the encrypted documents matching the given {@code account}, which loads
+     * them page by page.
+     *
+     * @param account the account to return documents for
+     * @return a cursor over the encrypted documents matching the given {@code account}
+     */
+    public EncryptedDocumentCursor encryptedDocumentsCursorWithAccount(final Account account) {
+        return new EncryptedDocumentCursor(new EncryptedDocumentCursor.PageQuery() {
+            @Override
+            public List<EncryptedDocument> query(long afterId, int limit)
+                    throws DatabaseConnectionClosedException {
+                return setDependenciesFor(database.getEncryptedDocumentsByAccount(account, afterId, limit));
+            }
+        }, Constants.ORMLITE.DOCUMENT_CURSOR_PAGE_SIZE);
+    }
+
+    /**
+     * Returns a cursor over all the encrypted documents, which loads them page by page.
+     *
+     * @return a cursor over all the encrypted documents
+     */
+    public EncryptedDocumentCursor allEncryptedDocumentsCursor() {
+        return new EncryptedDocumentCursor(new EncryptedDocumentCursor.PageQuery() {
+            @Override
+            public List<EncryptedDocument> query(long afterId, int limit)
+                    throws DatabaseConnectionClosedException {
+                return setDependenciesFor(database.getAllEncryptedDocuments(afterId, limit));
+            }
+        }, Constants.ORMLITE.DOCUMENT_CURSOR_PAGE_SIZE);
+    }
+
+    /**
+     * Sets the dependencies of the given {@code encryptedDocuments}.
+     *
+     * @param encryptedDocuments the {@code EncryptedDocument}s which dependencies will be set
+     * @return the given {@code encryptedDocuments}
+     */
+    private List<EncryptedDocument> setDependenciesFor(List<EncryptedDocument> encryptedDocuments) {
+        if (null!=encryptedDocuments) {
+            for (EncryptedDocument encryptedDocument : encryptedDocuments) {
+                encryptedDocument.setDependencies(crypto, keyManager, fileSystem, textI18n, database);
+                setAccountDependenciesFor(encryptedDocument);
+            }
+        }
+        return encryptedDocuments;
+    }
+
     /**
      * Returns the root encrypted document with the given {@code storageType} and {@code account}.
      *
@@ -345,7 +479,9 @@ public class EncryptedDocuments {
                 remoteChangeIds.add(remoteChange.getDocumentId());
             }
 
-            for (EncryptedDocument encryptedDocument : encryptedDocumentsWithAccount(account)) {
+            EncryptedDocumentCursor cursor = encryptedDocumentsCursorWithAccount(account);
+            while (cursor.hasNext()) {
+                EncryptedDocument encryptedDocument = cursor.next();
                 if (!remoteChangeIds.contains(encryptedDocument.getBackEntryId())) {
                     if (encryptedDocument.isRoot()) {
                         continue;
@@ -53,6 +53,7 @@ public class StorageCryptException extends Exception {
         GetRemoteFolderError,
         GetRemoteFileError,
         CreationError,
+        UpdateError,
         DocumentExists,
         ParentNotFound,
         KeyStoreIsLocked,
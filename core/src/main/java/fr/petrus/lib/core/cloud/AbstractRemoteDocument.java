@@ -39,17 +39,32 @@ package fr.petrus.lib.core.cloud;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
 import java.util.List;
+import java.util.Locale;
 
 import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.EncryptedDocument;
 import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
+import fr.petrus.lib.core.crypto.EncryptedDataStream;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+import fr.petrus.lib.core.rest.EncryptingRequestBody;
+import fr.petrus.lib.core.rest.ProgressRequestBody;
 import fr.petrus.lib.core.result.ProcessProgressAdapter;
 import fr.petrus.lib.core.result.ProcessProgressListener;
+import fr.petrus.lib.core.utils.StreamUtils;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
 
 /**
  * This abstract class implements the methods which are the same for all implementations of the
@@ -65,6 +80,8 @@ public abstract class AbstractRemoteDocument
         implements RemoteDocument<S, D> {
     private static Logger LOG = LoggerFactory.getLogger(AbstractRemoteDocument.class);
 
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+
     private String accountName;
     private String name;
     private long size;
@@ -240,6 +257,315 @@ public abstract class AbstractRemoteDocument
                 metadata);
     }
 
+    @Override
+    public D uploadNewChildFile(String name, String mimeType, File localFile, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        return uploadNewChildFile(name, mimeType, new ProgressRequestBody(mimeType, localFile, listener), listener);
+    }
+
+    @Override
+    public D uploadNewChildEncryptedFile(String name, String mimeType, EncryptedDataStream encryptedDataStream,
+                                         File srcFile, File cacheFile, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        return uploadNewChildFile(name, mimeType,
+                new EncryptingRequestBody(mimeType, encryptedDataStream, srcFile, cacheFile, listener), listener);
+    }
+
+    /**
+     * Creates a file as a child of this document, and uploads the given {@code body} as its contents.
+     *
+     * @param name     the name of the new file
+     * @param mimeType the mime type of the new file
+     * @param body     the request body which writes the contents of the file
+     * @param listener a listener which allows to track the progress, and cancel/pause it
+     * @return the newly created remote file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    protected abstract D uploadNewChildFile(String name, String mimeType, RequestBody body,
+                                            ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException;
+
+    @Override
+    public D uploadNewChildFile(String name, String mimeType, File localFile, UploadSession uploadSession,
+                                ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        if (null == uploadSession || localFile.length() < resumableUploadMinSize()) {
+            return uploadNewChildFile(name, mimeType, localFile, listener);
+        }
+        return uploadResumable(name, mimeType, localFile, uploadSession, listener);
+    }
+
+    @Override
+    public D uploadFile(String mimeType, File localFile, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        return uploadFile(mimeType, new ProgressRequestBody(mimeType, localFile, listener), listener);
+    }
+
+    @Override
+    public D uploadEncryptedFile(String mimeType, EncryptedDataStream encryptedDataStream, File srcFile,
+                                 File cacheFile, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        return uploadFile(mimeType,
+                new EncryptingRequestBody(mimeType, encryptedDataStream, srcFile, cacheFile, listener), listener);
+    }
+
+    /**
+     * Uploads the given {@code body} as the contents of this file (the remote file must already exist).
+     *
+     * @param mimeType the mime type of the file
+     * @param body     the request body which writes the contents of the file
+     * @param listener a listener which allows to track the progress, and cancel/pause it
+     * @return the updated remote file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    protected abstract D uploadFile(String mimeType, RequestBody body, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException;
+
+    @Override
+    public D uploadFile(String mimeType, File localFile, UploadSession uploadSession,
+                        ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        if (null == uploadSession || localFile.length() < resumableUploadMinSize()) {
+            return uploadFile(mimeType, localFile, listener);
+        }
+        return uploadResumable(null, mimeType, localFile, uploadSession, listener);
+    }
+
+    /**
+     * Returns the minimum size of the files which are uploaded in chunks.
+     *
+     * @return the minimum size of the files which are uploaded in chunks
+     */
+    protected long resumableUploadMinSize() {
+        return Constants.STORAGE.CLOUD_RESUMABLE_UPLOAD_MIN_SIZE;
+    }
+
+    /**
+     * Uploads the given {@code localFile} in chunks, resuming the given {@code uploadSession} if
+     * it was started for the same file contents.
+     *
+     * <p>The session is checkpointed after each chunk confirmed by the remote storage, and cleared
+     * when the upload is done.
+     *
+     * @param name          the name of the new child file, or null to upload the contents of this file
+     * @param mimeType      the mime type of the file
+     * @param localFile     the local file which contents will be uploaded
+     * @param uploadSession the upload session
+     * @param listener      a listener which allows to track the progress, and cancel/pause it
+     * @return the uploaded remote file
+     */
+    private D uploadResumable(String name, String mimeType, File localFile, UploadSession uploadSession,
+                              ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        boolean resumed = false;
+        if (uploadSession.isStartedFor(localFile)) {
+            try {
+                uploadSession.setOffset(uploadSessionOffset(uploadSession));
+                resumed = true;
+                LOG.debug("Resuming upload session at offset {}", uploadSession.getOffset());
+            } catch (RemoteException e) {
+                LOG.debug("Failed to resume upload session : starting a new one", e);
+            }
+        }
+        if (!resumed) {
+            uploadSession.reset(localFile);
+            startUploadSession(uploadSession, name, mimeType);
+        }
+        uploadSession.checkpoint();
+
+        if (null != listener) {
+            listener.onSetMax(0, (int) uploadSession.getSize());
+        }
+        D document = null;
+        while (null == document && uploadSession.getOffset() < uploadSession.getSize()) {
+            if (null != listener) {
+                listener.onProgress(0, (int) uploadSession.getOffset());
+                listener.pauseIfNeeded();
+                if (listener.isCanceled()) {
+                    throw new UserCanceledException("Canceled");
+                }
+            }
+            int length = (int) Math.min(uploadSession.getChunkSize(),
+                    uploadSession.getSize() - uploadSession.getOffset());
+            document = uploadSessionChunk(uploadSession, name, mimeType, localFile, length, listener);
+            uploadSession.checkpoint();
+        }
+        if (null == document) {
+            document = finishUploadSession(uploadSession, name, mimeType, localFile);
+        }
+        uploadSession.clear();
+        return document;
+    }
+
+    /**
+     * Opens an upload session on the remote storage, and sets its id into the given {@code uploadSession}.
+     *
+     * @param uploadSession the upload session, reset for the file to upload
+     * @param name          the name of the new child file, or null to upload the contents of this file
+     * @param mimeType      the mime type of the file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    protected abstract void startUploadSession(UploadSession uploadSession, String name, String mimeType)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException;
+
+    /**
+     * Returns the number of bytes the remote storage received for the given {@code uploadSession}.
+     *
+     * @param uploadSession the upload session to resume
+     * @return the number of bytes received by the remote storage
+     * @throws RemoteException                    if the session cannot be resumed
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    protected abstract long uploadSessionOffset(UploadSession uploadSession)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException;
+
+    /**
+     * Uploads the {@code length} bytes of the given {@code localFile} which start at the offset
+     * of the given {@code uploadSession}, then updates this offset.
+     *
+     * @param uploadSession the upload session
+     * @param name          the name of the new child file, or null to upload the contents of this file
+     * @param mimeType      the mime type of the file
+     * @param localFile     the local file which contents will be uploaded
+     * @param length        the number of bytes to upload
+     * @param listener      a listener which allows to track the progress, and cancel/pause it
+     * @return the uploaded remote file if the remote storage completed the upload with this chunk,
+     *         or null if {@link AbstractRemoteDocument#finishUploadSession} has to be called
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    protected abstract D uploadSessionChunk(UploadSession uploadSession, String name, String mimeType,
+                                            File localFile, int length, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException;
+
+    /**
+     * Commits the given {@code uploadSession}, once all its chunks have been uploaded.
+     *
+     * @param uploadSession the upload session
+     * @param name          the name of the new child file, or null to upload the contents of this file
+     * @param mimeType      the mime type of the file
+     * @param localFile     the local file which contents were uploaded
+     * @return the uploaded remote file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    protected abstract D finishUploadSession(UploadSession uploadSession, String name, String mimeType,
+                                             File localFile)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException;
+
+    /**
+     * Returns the value of the "Content-Range" header of a request which uploads the given
+     * {@code length} bytes at the offset of the given {@code uploadSession}.
+     *
+     * @param uploadSession the upload session
+     * @param length        the number of bytes uploaded by the request
+     * @return the value of the "Content-Range" header
+     */
+    protected static String contentRange(UploadSession uploadSession, int length) {
+        return String.format(Locale.US, "bytes %d-%d/%d", uploadSession.getOffset(),
+                uploadSession.getOffset() + length - 1, uploadSession.getSize());
+    }
+
+    @Override
+    public void downloadFile(File localFile, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        downloadFile(localFile, 0L, listener);
+    }
+
+    /**
+     * Returns the value of the "Range" header of a request which downloads the contents of a file,
+     * starting at the given {@code offset}.
+     *
+     * @param offset the offset of the first byte to download
+     * @return the value of the "Range" header, or null if the whole contents have to be downloaded
+     */
+    protected static String range(long offset) {
+        if (offset <= 0L) {
+            return null;
+        }
+        return String.format(Locale.US, "bytes=%d-", offset);
+    }
+
+    /**
+     * Writes the body of the given download {@code response} to the given {@code localFile}.
+     *
+     * <p>If the {@code response} holds the partial contents requested with {@link #range(long)}, the
+     * body is written after the first {@code offset} bytes of the {@code localFile}. Otherwise, the
+     * remote storage sent the whole contents, and the {@code localFile} is overwritten.
+     *
+     * <p>The data received before an interruption is kept in the {@code localFile}, so that the
+     * download can be resumed later.
+     *
+     * @param response  the successful response of a download request
+     * @param localFile the local file where the downloaded contents will be written
+     * @param offset    the offset of the first byte requested
+     * @param listener  a listener which allows to track the progress, and cancel/pause it
+     * @throws RemoteException if an error occurs when reading the response or writing the file
+     */
+    protected static void writeDownloadedFile(Response<ResponseBody> response, File localFile, long offset,
+                                              final ProcessProgressListener listener)
+            throws RemoteException {
+        final long startOffset = HTTP_PARTIAL_CONTENT == response.code() ? offset : 0L;
+        InputStream inputStream = null;
+        RandomAccessFile randomAccessFile = null;
+        OutputStream outputStream = null;
+        try {
+            randomAccessFile = new RandomAccessFile(localFile, "rw");
+            randomAccessFile.setLength(startOffset);
+            randomAccessFile.seek(startOffset);
+            inputStream = new BufferedInputStream(response.body().byteStream());
+            outputStream = new BufferedOutputStream(Channels.newOutputStream(randomAccessFile.getChannel()),
+                    Constants.FILE.BUFFER_SIZE);
+            StreamUtils.copy(outputStream, inputStream, Constants.FILE.BUFFER_SIZE, new ProcessProgressAdapter() {
+                @Override
+                public boolean isCanceled() {
+                    return null!=listener && listener.isCanceled();
+                }
+
+                @Override
+                public void pauseIfNeeded() {
+                    if (null!=listener) {
+                        listener.pauseIfNeeded();
+                    }
+                }
+
+                @Override
+                public void onProgress(int i, int progress) {
+                    if (null!=listener) {
+                        listener.onProgress(i, (int) (startOffset + progress));
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            throw new RemoteException("Failed to download file", RemoteException.Reason.UnknownError, e);
+        } finally {
+            if (null!=inputStream) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    LOG.error("Error when closing input stream", e);
+                }
+            }
+            if (null!=outputStream) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    LOG.error("Error when closing output stream", e);
+                }
+            }
+            if (null!=randomAccessFile) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    LOG.error("Error when closing file", e);
+                }
+            }
+        }
+    }
+
     @Override
     public void getRecursiveChanges(final RemoteChanges changes,
                                     final ProcessProgressListener listener)
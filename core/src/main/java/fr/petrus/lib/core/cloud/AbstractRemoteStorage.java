@@ -181,16 +181,27 @@ public abstract class AbstractRemoteStorage
         if (!account.isAccessTokenExpired()) {
             return account;
         }
-        if (account.hasTooManyRequests()) {
-            throw new RemoteException("Too many requests, retry delay not expired yet",
-                    RemoteException.Reason.TooManyRequestsDelayNotExpired);
-        }
-        try {
-            account = refreshToken(accountName);
-        } catch (RemoteException e) {
-            throw new RemoteException("Failed to refresh token", e.getReason(), e);
+        // several documents may be synchronized at the same time : refresh the token only once
+        synchronized (this) {
+            account = account(accountName);
+            if (null == account) {
+                throw new RemoteException("Failed to get refreshed token : account not found",
+                        RemoteException.Reason.AccountNotFound);
+            }
+            if (!account.isAccessTokenExpired()) {
+                return account;
+            }
+            if (account.hasTooManyRequests()) {
+                throw new RemoteException("Too many requests, retry delay not expired yet",
+                        RemoteException.Reason.TooManyRequestsDelayNotExpired);
+            }
+            try {
+                account = refreshToken(accountName);
+            } catch (RemoteException e) {
+                throw new RemoteException("Failed to refresh token", e.getReason(), e);
+            }
+            return account;
         }
-        return account;
     }
 
     @Override
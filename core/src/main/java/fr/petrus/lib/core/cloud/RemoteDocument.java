@@ -44,6 +44,7 @@ import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.StorageType;
 import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
+import fr.petrus.lib.core.crypto.EncryptedDataStream;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.result.ProcessProgressListener;
 
@@ -289,6 +290,47 @@ public interface RemoteDocument<S extends RemoteStorage<S, D>, D extends RemoteD
     D uploadNewChildFile(String name, String mimeType, File localFile, ProcessProgressListener listener)
             throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
 
+    /**
+     * Creates a file as a child of this document, and uploads its contents in chunks, resuming the
+     * given {@code uploadSession} if it was started for the same file contents.
+     *
+     * <p>Small files are uploaded with a single request, as with
+     * {@link RemoteDocument#uploadNewChildFile(String, String, File, ProcessProgressListener)}.
+     *
+     * @param name          the name of the new file
+     * @param mimeType      the mime type of the new file
+     * @param localFile     the local file which contents will be uploaded
+     * @param uploadSession the upload session, which is checkpointed after each uploaded chunk
+     * @param listener      a listener which allows to track the progress, and cancel/pause it
+     * @return the newly created remote file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    D uploadNewChildFile(String name, String mimeType, File localFile, UploadSession uploadSession,
+                         ProcessProgressListener listener)
+            throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
+
+    /**
+     * Creates a file as a child of this document, and uploads the contents of the given clear
+     * {@code srcFile}, encrypted while it is uploaded.
+     *
+     * <p>The encrypted data is also written to the given {@code cacheFile}, if any, so that the
+     * clear file is read only once, and the encrypted data is never read back.
+     *
+     * @param name                the name of the new file
+     * @param mimeType            the mime type of the new file
+     * @param encryptedDataStream the stream used to encrypt the {@code srcFile}
+     * @param srcFile             the clear file which contents will be encrypted and uploaded
+     * @param cacheFile           the local file where the encrypted data is also written, or null
+     * @param listener            a listener which allows to track the progress, and cancel/pause it
+     * @return the newly created remote file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    D uploadNewChildEncryptedFile(String name, String mimeType, EncryptedDataStream encryptedDataStream,
+                                  File srcFile, File cacheFile, ProcessProgressListener listener)
+            throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
+
     /**
      * Creates a file as a child of this document, and uploads its contents.
      *
@@ -316,6 +358,44 @@ public interface RemoteDocument<S extends RemoteStorage<S, D>, D extends RemoteD
     D uploadFile(String mimeType, File localFile, ProcessProgressListener listener)
             throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
 
+    /**
+     * Uploads the contents of this file in chunks (the remote file must already exist), resuming
+     * the given {@code uploadSession} if it was started for the same file contents.
+     *
+     * <p>Small files are uploaded with a single request, as with
+     * {@link RemoteDocument#uploadFile(String, File, ProcessProgressListener)}.
+     *
+     * @param mimeType      the mime type of the new file
+     * @param localFile     the local file which contents will be uploaded
+     * @param uploadSession the upload session, which is checkpointed after each uploaded chunk
+     * @param listener      a listener which allows to track the progress, and cancel/pause it
+     * @return the updated remote file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    D uploadFile(String mimeType, File localFile, UploadSession uploadSession, ProcessProgressListener listener)
+            throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
+
+    /**
+     * Uploads the contents of the given clear {@code srcFile}, encrypted while it is uploaded, as
+     * the contents of this file (the remote file must already exist).
+     *
+     * <p>The encrypted data is also written to the given {@code cacheFile}, if any, so that the
+     * clear file is read only once, and the encrypted data is never read back.
+     *
+     * @param mimeType            the mime type of the new file
+     * @param encryptedDataStream the stream used to encrypt the {@code srcFile}
+     * @param srcFile             the clear file which contents will be encrypted and uploaded
+     * @param cacheFile           the local file where the encrypted data is also written, or null
+     * @param listener            a listener which allows to track the progress, and cancel/pause it
+     * @return the updated remote file
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    D uploadEncryptedFile(String mimeType, EncryptedDataStream encryptedDataStream, File srcFile, File cacheFile,
+                          ProcessProgressListener listener)
+            throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
+
     /**
      * Uploads the contents of this file (the remote file must already exist).
      *
@@ -340,6 +420,22 @@ public interface RemoteDocument<S extends RemoteStorage<S, D>, D extends RemoteD
     void downloadFile(File localFile, ProcessProgressListener listener)
             throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
 
+    /**
+     * Downloads the contents of this remote file which start at the given {@code offset}, and
+     * writes it after the first {@code offset} bytes of the provided {@code localFile}.
+     *
+     * <p>If the remote storage ignores the requested range, the whole contents are downloaded
+     * and the {@code localFile} is overwritten.
+     *
+     * @param localFile the local file where the downloaded contents will be downloaded
+     * @param offset    the number of bytes of the {@code localFile} which are already downloaded
+     * @param listener  a listener which allows to track the progress, and cancel/pause it
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    void downloadFile(File localFile, long offset, ProcessProgressListener listener)
+            throws RemoteException, DatabaseConnectionClosedException, NetworkException, UserCanceledException;
+
     /**
      * Downloads the contents of this remote file and returns it as a byte array.
      *
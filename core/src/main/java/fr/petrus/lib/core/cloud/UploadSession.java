@@ -0,0 +1,250 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.cloud;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+
+/**
+ * This class holds the state of a resumable upload : the id of the session opened on the remote
+ * storage, and the number of bytes the remote storage confirmed having received.
+ *
+ * <p>Each time the offset is confirmed, the session is passed to its {@link Checkpoint}, so that
+ * an interrupted upload can be resumed from the last confirmed chunk instead of from the start.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class UploadSession {
+    private static Logger LOG = LoggerFactory.getLogger(UploadSession.class);
+
+    private static final String SEPARATOR = ":";
+
+    /**
+     * The interface used to persist an {@code UploadSession} each time its state changes.
+     */
+    public interface Checkpoint {
+        /**
+         * Persists the given {@code uploadSession}.
+         *
+         * @param uploadSession the upload session to persist
+         * @throws DatabaseConnectionClosedException if the database connection is closed
+         */
+        void save(UploadSession uploadSession) throws DatabaseConnectionClosedException;
+    }
+
+    private Checkpoint checkpoint;
+    private String id;
+    private long size;
+    private long fileModificationTime;
+    private int chunkSize;
+    private long offset;
+
+    /**
+     * Creates a new {@code UploadSession}, which is not started yet.
+     *
+     * @param checkpoint the checkpoint which persists this session, or null if it is not persisted
+     */
+    public UploadSession(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        id = null;
+        size = 0L;
+        fileModificationTime = -1L;
+        chunkSize = Constants.STORAGE.CLOUD_UPLOAD_CHUNK_SIZE;
+        offset = 0L;
+    }
+
+    /**
+     * Creates an {@code UploadSession} from the text returned by {@link UploadSession#serialize}.
+     *
+     * <p>If the given {@code text} is null or invalid, the returned session is not started.
+     *
+     * @param text       the serialized session, or null
+     * @param checkpoint the checkpoint which persists this session, or null if it is not persisted
+     * @return the upload session
+     */
+    public static UploadSession parse(String text, Checkpoint checkpoint) {
+        UploadSession uploadSession = new UploadSession(checkpoint);
+        if (null != text) {
+            String[] fields = text.split(SEPARATOR, 5);
+            if (5 == fields.length) {
+                try {
+                    uploadSession.size = Long.parseLong(fields[0]);
+                    uploadSession.fileModificationTime = Long.parseLong(fields[1]);
+                    uploadSession.chunkSize = Integer.parseInt(fields[2]);
+                    uploadSession.offset = Long.parseLong(fields[3]);
+                    uploadSession.id = fields[4];
+                } catch (NumberFormatException e) {
+                    LOG.error("Invalid upload session {}", text, e);
+                    uploadSession.reset(0L, -1L);
+                }
+            }
+        }
+        return uploadSession;
+    }
+
+    /**
+     * Returns this session as text, which can be parsed with {@link UploadSession#parse}.
+     *
+     * @return this session as text, or null if it is not started
+     */
+    public String serialize() {
+        if (null == id) {
+            return null;
+        }
+        return size + SEPARATOR + fileModificationTime + SEPARATOR + chunkSize + SEPARATOR + offset + SEPARATOR + id;
+    }
+
+    /**
+     * Returns whether this session was started to upload the current contents of the given {@code file}.
+     *
+     * @param file the file to upload
+     * @return true if this session was started for the given {@code file}, and the file did not
+     *         change since
+     */
+    public boolean isStartedFor(File file) {
+        return null != id && size == file.length() && fileModificationTime == file.lastModified();
+    }
+
+    /**
+     * Resets this session, to start uploading the given {@code file} from the beginning.
+     *
+     * <p>The session id has to be set afterwards, when the remote session is opened.
+     *
+     * @param file the file to upload
+     */
+    public void reset(File file) {
+        reset(file.length(), file.lastModified());
+    }
+
+    private void reset(long size, long fileModificationTime) {
+        id = null;
+        this.size = size;
+        this.fileModificationTime = fileModificationTime;
+        chunkSize = Constants.STORAGE.CLOUD_UPLOAD_CHUNK_SIZE;
+        offset = 0L;
+    }
+
+    /**
+     * Clears this session when the upload is done, then persists it.
+     *
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public void clear() throws DatabaseConnectionClosedException {
+        reset(0L, -1L);
+        checkpoint();
+    }
+
+    /**
+     * Persists the current state of this session, if it has a checkpoint.
+     *
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public void checkpoint() throws DatabaseConnectionClosedException {
+        if (null != checkpoint) {
+            checkpoint.save(this);
+        }
+    }
+
+    /**
+     * Sets the id of the remote session (a session id, or an upload URL, depending on the remote storage).
+     *
+     * @param id the id of the remote session
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the id of the remote session.
+     *
+     * @return the id of the remote session, or null if it is not started
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the size of the file to upload.
+     *
+     * @return the size of the file to upload
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the size of the chunks sent to the remote storage, when the remote storage imposes it.
+     *
+     * @param chunkSize the size of the chunks
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the size of the chunks sent to the remote storage.
+     *
+     * @return the size of the chunks
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of bytes the remote storage confirmed having received.
+     *
+     * @param offset the number of bytes received by the remote storage
+     */
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the number of bytes the remote storage confirmed having received.
+     *
+     * @return the number of bytes received by the remote storage
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
@@ -41,14 +41,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +59,7 @@ import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.cloud.Account;
 import fr.petrus.lib.core.cloud.AbstractRemoteDocument;
 import fr.petrus.lib.core.cloud.RemoteDocument;
+import fr.petrus.lib.core.cloud.UploadSession;
 import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.StorageType;
@@ -65,6 +68,12 @@ import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.rest.ProgressRequestBody;
 import fr.petrus.lib.core.rest.models.box.BoxItem;
 import fr.petrus.lib.core.rest.models.box.BoxItems;
+import fr.petrus.lib.core.rest.models.box.BoxUploadPart;
+import fr.petrus.lib.core.rest.models.box.BoxUploadParts;
+import fr.petrus.lib.core.rest.models.box.BoxUploadSession;
+import fr.petrus.lib.core.rest.models.box.BoxUploadedPart;
+import fr.petrus.lib.core.rest.models.box.CommitUploadSessionArg;
+import fr.petrus.lib.core.rest.models.box.NewUploadSessionArg;
 import fr.petrus.lib.core.rest.models.box.NewItemArg;
 import fr.petrus.lib.core.rest.models.box.UpdateDescriptionArg;
 import fr.petrus.lib.core.result.ProcessProgressListener;
@@ -73,6 +82,7 @@ import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
+import okio.ByteString;
 import retrofit2.Response;
 
 /**
@@ -84,6 +94,9 @@ import retrofit2.Response;
 public class BoxDocument extends AbstractRemoteDocument<BoxStorage, BoxDocument> {
     private static Logger LOG = LoggerFactory.getLogger(BoxDocument.class);
 
+    /** The HTTP code returned by Box when the parts of an upload session are not processed yet */
+    private static final int HTTP_ACCEPTED = 202;
+
     private String id;
     private String parentId;
 
@@ -423,18 +436,18 @@ public class BoxDocument extends AbstractRemoteDocument<BoxStorage, BoxDocument>
     }
 
     @Override
-    public BoxDocument uploadNewChildFile(String name, String mimeType, File localFile,
+    protected BoxDocument uploadNewChildFile(String name, String mimeType, RequestBody body,
                                              ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
-            RequestBody body = new MultipartBody.Builder()
+            RequestBody multipartBody = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
                     .addFormDataPart("attributes", new NewItemArg(name, getId()).toString())
-                    .addFormDataPart("file", localFile.getName(), new ProgressRequestBody(mimeType, localFile, listener))
+                    .addFormDataPart("file", name, body)
                     .build();
             Response<BoxItems> response = storage.getUploadApiService().uploadNewFile(account.getAuthHeader(),
-                    body).execute();
+                    multipartBody).execute();
             if (response.isSuccessful()) {
                 BoxItems boxItems = response.body();
                 if (null != boxItems.entries) {
@@ -506,17 +519,17 @@ public class BoxDocument extends AbstractRemoteDocument<BoxStorage, BoxDocument>
     }
 
     @Override
-    public BoxDocument uploadFile(String mimeType, File localFile, ProcessProgressListener listener)
+    protected BoxDocument uploadFile(String mimeType, RequestBody body, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
-            RequestBody body = new MultipartBody.Builder()
+            RequestBody multipartBody = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
                     .addFormDataPart("attributes", new NewItemArg(getName(), getParentId()).toString())
-                    .addFormDataPart("file", localFile.getName(), new ProgressRequestBody(mimeType, localFile, listener))
+                    .addFormDataPart("file", getName(), body)
                     .build();
             Response<BoxItems> response = storage.getUploadApiService().uploadFile(
-                    account.getAuthHeader(), getId(), body).execute();
+                    account.getAuthHeader(), getId(), multipartBody).execute();
             if (response.isSuccessful()) {
                 BoxItems boxItems = response.body();
                 if (null != boxItems.entries) {
@@ -572,47 +585,196 @@ public class BoxDocument extends AbstractRemoteDocument<BoxStorage, BoxDocument>
     }
 
     @Override
-    public void downloadFile(File localFile, ProcessProgressListener listener)
+    protected long resumableUploadMinSize() {
+        return Constants.BOX.CHUNKED_UPLOAD_MIN_SIZE;
+    }
+
+    @Override
+    protected void startUploadSession(UploadSession uploadSession, String name, String mimeType)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<BoxUploadSession> response;
+            if (null == name) {
+                response = storage.getUploadApiService().startFileUploadSession(account.getAuthHeader(), getId(),
+                        new NewUploadSessionArg(null, uploadSession.getSize(), null)).execute();
+            } else {
+                response = storage.getUploadApiService().startNewFileUploadSession(account.getAuthHeader(),
+                        new NewUploadSessionArg(getId(), uploadSession.getSize(), name)).execute();
+            }
+            if (response.isSuccessful()) {
+                BoxUploadSession boxUploadSession = response.body();
+                uploadSession.setId(boxUploadSession.id);
+                // Box imposes the size of the parts
+                if (null != boxUploadSession.part_size) {
+                    uploadSession.setChunkSize(boxUploadSession.part_size);
+                }
+            } else {
+                throw storage.remoteException(account, response, "Failed to start upload session");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to start upload session", e);
+        }
+    }
+
+    @Override
+    protected long uploadSessionOffset(UploadSession uploadSession)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        long offset = 0L;
+        for (BoxUploadPart part : uploadedParts(account, uploadSession)) {
+            if (null != part.offset && null != part.size && part.offset == offset) {
+                offset += part.size;
+            }
+        }
+        return offset;
+    }
+
+    @Override
+    protected BoxDocument uploadSessionChunk(UploadSession uploadSession, String name, String mimeType,
+                                             File localFile, int length, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
-            Response<ResponseBody> response = storage.getApiService().downloadFile(account.getAuthHeader(),
-                    getId()).execute();
+            Response<BoxUploadedPart> response = storage.getUploadApiService().uploadPart(
+                    account.getAuthHeader(), uploadSession.getId(),
+                    sha1Digest(localFile, uploadSession.getOffset(), length),
+                    contentRange(uploadSession, length),
+                    new ProgressRequestBody(Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE, localFile,
+                            uploadSession.getOffset(), length, listener)).execute();
             if (response.isSuccessful()) {
-                InputStream inputStream = null;
-                OutputStream outputStream = null;
-                try {
-                    if (!localFile.exists()) {
-                        localFile.createNewFile();
-                    }
-                    inputStream = new BufferedInputStream(response.body().byteStream());
-                    outputStream = new BufferedOutputStream(new FileOutputStream(localFile));
-                    StreamUtils.copy(outputStream, inputStream, Constants.FILE.BUFFER_SIZE, listener);
-                } catch (IOException | RuntimeException e) {
-                    throw new RemoteException("Failed to download file", RemoteException.Reason.UnknownError, e);
-                } finally {
-                    if (null!=inputStream) {
-                        try {
-                            inputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing input stream", e);
-                        }
-                    }
-                    if (null!=outputStream) {
-                        try {
-                            outputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing output stream", e);
+                uploadSession.setOffset(uploadSession.getOffset() + length);
+                return null;
+            } else {
+                throw storage.remoteException(account, response, "Failed to upload file part");
+            }
+        } catch (RuntimeException e) {
+            throw new NetworkException("Failed to upload file part", e);
+        } catch (IOException e) {
+            if (null!=listener && listener.isCanceled()) {
+                throw new UserCanceledException("Canceled", e);
+            } else {
+                throw new NetworkException("Failed to upload file part", e);
+            }
+        }
+    }
+
+    @Override
+    protected BoxDocument finishUploadSession(UploadSession uploadSession, String name, String mimeType,
+                                              File localFile)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<BoxItems> response = storage.getUploadApiService().commitUploadSession(
+                    account.getAuthHeader(), uploadSession.getId(),
+                    sha1Digest(localFile, 0L, localFile.length()),
+                    new CommitUploadSessionArg(uploadedParts(account, uploadSession))).execute();
+            if (HTTP_ACCEPTED == response.code()) {
+                // the parts are still being processed : the commit will be retried with the next attempt
+                throw new RemoteException("Failed to commit upload session : parts not processed yet",
+                        RemoteException.Reason.Unavailable);
+            } else if (response.isSuccessful()) {
+                BoxItems boxItems = response.body();
+                if (null != boxItems.entries) {
+                    for (BoxItem item : boxItems.entries) {
+                        if (null == name && getId().equals(item.id)) {
+                            return new BoxDocument(storage, getAccountName(), item);
+                        } else if (null != name && name.equals(item.name) && "file".equals(item.type)) {
+                            return tryToUpdateDescription(account, new BoxDocument(storage, getAccountName(), item));
                         }
                     }
                 }
+            } else {
+                throw storage.remoteException(account, response, "Failed to commit upload session");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to commit upload session", e);
+        }
+        throw new RemoteException("Failed to commit upload session : not found in response", RemoteException.Reason.NotFound);
+    }
+
+    /**
+     * Returns the parts already uploaded to the given {@code uploadSession}, sorted by offset.
+     *
+     * @param account       the account
+     * @param uploadSession the upload session
+     * @return the uploaded parts
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private List<BoxUploadPart> uploadedParts(Account account, UploadSession uploadSession)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        try {
+            Response<BoxUploadParts> response = storage.getUploadApiService().getUploadedParts(
+                    account.getAuthHeader(), uploadSession.getId()).execute();
+            if (response.isSuccessful()) {
+                List<BoxUploadPart> parts = new ArrayList<>();
+                if (null != response.body().entries) {
+                    parts.addAll(response.body().entries);
+                }
+                Collections.sort(parts, new Comparator<BoxUploadPart>() {
+                    @Override
+                    public int compare(BoxUploadPart part1, BoxUploadPart part2) {
+                        long offset1 = null == part1.offset ? 0L : part1.offset;
+                        long offset2 = null == part2.offset ? 0L : part2.offset;
+                        return offset1 < offset2 ? -1 : (offset1 == offset2 ? 0 : 1);
+                    }
+                });
+                return parts;
+            } else {
+                throw storage.remoteException(account, response, "Failed to get uploaded parts");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to get uploaded parts", e);
+        }
+    }
+
+    /**
+     * Returns the value of the "Digest" header of a request which uploads the given {@code length}
+     * bytes of the given {@code file}, starting at the given {@code offset}.
+     *
+     * @param file   the file to upload
+     * @param offset the offset of the first byte to upload
+     * @param length the number of bytes to upload
+     * @return the value of the "Digest" header : the Base64 encoded SHA-1 digest of the uploaded bytes
+     * @throws IOException if an error occurs when reading the file
+     */
+    private static String sha1Digest(File file, long offset, long length) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 digest not supported", e);
+        }
+        byte[] buffer = new byte[8192];
+        try (FileInputStream in = new FileInputStream(file)) {
+            in.getChannel().position(offset);
+            long remaining = length;
+            int read;
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                messageDigest.update(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        return "sha=" + ByteString.of(messageDigest.digest()).base64();
+    }
+
+    @Override
+    public void downloadFile(File localFile, long offset, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<ResponseBody> response = storage.getApiService().downloadFile(account.getAuthHeader(),
+                    getId(), range(offset)).execute();
+            if (response.isSuccessful()) {
+                writeDownloadedFile(response, localFile, offset, listener);
             } else {
                 throw storage.remoteException(account, response, "Failed to download file");
             }
         } catch (RuntimeException e) {
             throw new NetworkException("Failed to download file", e);
         } catch (IOException e) {
-            if (null !=listener && listener.isCanceled()) {
+            if (null!=listener && listener.isCanceled()) {
                 throw new UserCanceledException("Canceled", e);
             } else {
                 throw new NetworkException("Failed to download file", e);
@@ -625,7 +787,7 @@ public class BoxDocument extends AbstractRemoteDocument<BoxStorage, BoxDocument>
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<ResponseBody> response = storage.getApiService().downloadFile(
-                    account.getAuthHeader(), getId()).execute();
+                    account.getAuthHeader(), getId(), null).execute();
             if (response.isSuccessful()) {
                 InputStream inputStream = null;
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
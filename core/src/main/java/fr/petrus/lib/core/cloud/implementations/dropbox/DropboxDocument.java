@@ -41,13 +41,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -55,6 +52,7 @@ import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.cloud.Account;
 import fr.petrus.lib.core.cloud.AbstractRemoteDocument;
 import fr.petrus.lib.core.cloud.RemoteDocument;
+import fr.petrus.lib.core.cloud.UploadSession;
 import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.StorageType;
@@ -70,6 +68,10 @@ import fr.petrus.lib.core.rest.models.dropbox.ListFolderArg;
 import fr.petrus.lib.core.rest.models.dropbox.ListFolderContinueArg;
 import fr.petrus.lib.core.rest.models.dropbox.PathArg;
 import fr.petrus.lib.core.rest.models.dropbox.UploadCommitArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionAppendArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionFinishArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionStartArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionStartResult;
 import fr.petrus.lib.core.result.ProcessProgressListener;
 import fr.petrus.lib.core.utils.StreamUtils;
 import okhttp3.MediaType;
@@ -423,15 +425,15 @@ public class DropboxDocument extends AbstractRemoteDocument<DropboxStorage, Drop
     }
 
     @Override
-    public DropboxDocument uploadNewChildFile(String name, String mimeType, File localFile,
-                                             ProcessProgressListener listener)
+    protected DropboxDocument uploadNewChildFile(String name, String mimeType, RequestBody body,
+                                                 ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<DropboxFileMetadata> response = storage.getContentApiService().uploadFile(
                     account.getAuthHeader(),
                     new UploadCommitArg(getChildPath(name)),
-                    new ProgressRequestBody(mimeType, localFile, listener)).execute();
+                    body).execute();
             if (response.isSuccessful()) {
                 DropboxDocument document = new DropboxDocument(storage, getAccountName(), response.body());
                 String parentPath = document.getParentPath();
@@ -492,14 +494,14 @@ public class DropboxDocument extends AbstractRemoteDocument<DropboxStorage, Drop
     }
 
     @Override
-    public DropboxDocument uploadFile(String mimeType, File localFile, ProcessProgressListener listener)
+    protected DropboxDocument uploadFile(String mimeType, RequestBody body, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<DropboxFileMetadata> response = storage.getContentApiService().uploadFile(
                     account.getAuthHeader(),
                     new UploadCommitArg(getPath()),
-                    new ProgressRequestBody(mimeType, localFile, listener)).execute();
+                    body).execute();
             if (response.isSuccessful()) {
                 DropboxDocument document = new DropboxDocument(storage, getAccountName(), response.body());
                 document.setParentId(getParentId());
@@ -540,41 +542,125 @@ public class DropboxDocument extends AbstractRemoteDocument<DropboxStorage, Drop
     }
 
     @Override
-    public void downloadFile(File localFile, ProcessProgressListener listener)
+    protected void startUploadSession(UploadSession uploadSession, String name, String mimeType)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<UploadSessionStartResult> response = storage.getContentApiService().startUploadSession(
+                    account.getAuthHeader(), new UploadSessionStartArg(),
+                    RequestBody.create(MediaType.parse(mimeType), new byte[0])).execute();
+            if (response.isSuccessful()) {
+                uploadSession.setId(response.body().session_id);
+            } else {
+                throw storage.remoteException(account, response, "Failed to start upload session");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to start upload session", e);
+        }
+    }
+
+    @Override
+    protected long uploadSessionOffset(UploadSession uploadSession)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        // Dropbox has no request to get the offset of a session : appending no data checks it
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            return appendToUploadSession(account, uploadSession,
+                    RequestBody.create(MediaType.parse(Constants.STORAGE.DEFAULT_BINARY_MIME_TYPE), new byte[0]));
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to get upload session offset", e);
+        }
+    }
+
+    @Override
+    protected DropboxDocument uploadSessionChunk(UploadSession uploadSession, String name, String mimeType,
+                                                 File localFile, int length, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
-            Response<ResponseBody> response = storage.getContentApiService().downloadFile(
+            uploadSession.setOffset(appendToUploadSession(account, uploadSession,
+                    new ProgressRequestBody(mimeType, localFile, uploadSession.getOffset(), length, listener)));
+            return null;
+        } catch (RuntimeException e) {
+            throw new NetworkException("Failed to upload file chunk", e);
+        } catch (IOException e) {
+            if (null!=listener && listener.isCanceled()) {
+                throw new UserCanceledException("Canceled", e);
+            } else {
+                throw new NetworkException("Failed to upload file chunk", e);
+            }
+        }
+    }
+
+    @Override
+    protected DropboxDocument finishUploadSession(UploadSession uploadSession, String name, String mimeType,
+                                                  File localFile)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<DropboxFileMetadata> response = storage.getContentApiService().finishUploadSession(
                     account.getAuthHeader(),
-                    new PathArg(getId())).execute();
+                    new UploadSessionFinishArg(uploadSession.getId(), uploadSession.getOffset(),
+                            null == name ? getPath() : getChildPath(name)),
+                    RequestBody.create(MediaType.parse(mimeType), new byte[0])).execute();
             if (response.isSuccessful()) {
-                InputStream inputStream = null;
-                OutputStream outputStream = null;
-                try {
-                    if (!localFile.exists()) {
-                        localFile.createNewFile();
-                    }
-                    inputStream = new BufferedInputStream(response.body().byteStream());
-                    outputStream = new BufferedOutputStream(new FileOutputStream(localFile));
-                    StreamUtils.copy(outputStream, inputStream, Constants.FILE.BUFFER_SIZE, listener);
-                } catch (IOException | RuntimeException e) {
-                    throw new RemoteException("Failed to download file", RemoteException.Reason.UnknownError, e);
-                } finally {
-                    if (null!=inputStream) {
-                        try {
-                            inputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing input stream", e);
-                        }
-                    }
-                    if (null!=outputStream) {
-                        try {
-                            outputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing output stream", e);
-                        }
-                    }
+                DropboxDocument document = new DropboxDocument(storage, getAccountName(), response.body());
+                if (null == name) {
+                    document.setParentId(getParentId());
+                } else if (null != getId() && !getId().isEmpty()) {
+                    document.setParentId(getId());
                 }
+                return document;
+            } else {
+                throw storage.remoteException(account, response, "Failed to finish upload session");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to finish upload session", e);
+        }
+    }
+
+    /**
+     * Appends the given {@code body} to the given {@code uploadSession}, at its current offset.
+     *
+     * @param account       the account
+     * @param uploadSession the upload session
+     * @param body          the data to append
+     * @return the new offset of the session, or the offset expected by Dropbox if the session
+     *         offset was not the right one
+     * @throws IOException                        if a network error occurs
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private long appendToUploadSession(Account account, UploadSession uploadSession, RequestBody body)
+            throws IOException, DatabaseConnectionClosedException, RemoteException {
+        Response<ResponseBody> response = storage.getContentApiService().appendUploadSession(
+                account.getAuthHeader(),
+                new UploadSessionAppendArg(uploadSession.getId(), uploadSession.getOffset()),
+                body).execute();
+        if (response.isSuccessful()) {
+            response.body().close();
+            return uploadSession.getOffset() + body.contentLength();
+        }
+        if (409 == response.code()) {
+            Long correctOffset = storage.uploadSessionCorrectOffset(response);
+            if (null != correctOffset) {
+                return correctOffset;
+            }
+            throw new RemoteException("Failed to append data to upload session", RemoteException.Reason.Conflict);
+        }
+        throw storage.remoteException(account, response, "Failed to append data to upload session");
+    }
+
+    @Override
+    public void downloadFile(File localFile, long offset, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<ResponseBody> response = storage.getContentApiService().downloadFile(
+                    account.getAuthHeader(),
+                    new PathArg(getId()), range(offset)).execute();
+            if (response.isSuccessful()) {
+                writeDownloadedFile(response, localFile, offset, listener);
             } else {
                 throw storage.remoteException(account, response, "Failed to download file");
             }
@@ -596,7 +682,7 @@ public class DropboxDocument extends AbstractRemoteDocument<DropboxStorage, Drop
             LOG.debug("downloading file with id : "+getId());
             Response<ResponseBody> response = storage.getContentApiService().downloadFile(
                     account.getAuthHeader(),
-                    new PathArg(getId())).execute();
+                    new PathArg(getId()), null).execute();
             if (response.isSuccessful()) {
                 InputStream inputStream = null;
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -194,6 +194,36 @@ public class DropboxStorage extends AbstractRemoteStorage<DropboxStorage, Dropbo
         return false;
     }
 
+    /**
+     * Returns the offset expected by Dropbox, if the given {@code response} is an "incorrect_offset"
+     * error returned when appending data to an upload session.
+     *
+     * <p>The error body of the {@code response} is consumed by this method.
+     *
+     * @param response the response of the append request
+     * @return the offset expected by Dropbox, or null if the response is not an "incorrect_offset" error
+     */
+    Long uploadSessionCorrectOffset(Response<?> response) {
+        if (!response.isSuccessful() && 409 == response.code()) {
+            Gson gson = new Gson();
+            Reader reader = new InputStreamReader(response.errorBody().byteStream());
+            try {
+                DropboxError errorBody = gson.fromJson(reader, DropboxError.class);
+                if (null != errorBody.error_summary && errorBody.error_summary.startsWith("incorrect_offset")
+                        && null != errorBody.error) {
+                    return errorBody.error.correct_offset;
+                }
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOG.error("Error when closing reader", e);
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public StorageType getStorageType() {
         return StorageType.Dropbox;
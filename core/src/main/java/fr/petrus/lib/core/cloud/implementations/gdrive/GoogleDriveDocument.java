@@ -41,13 +41,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -57,6 +54,7 @@ import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.cloud.Account;
 import fr.petrus.lib.core.cloud.AbstractRemoteDocument;
 import fr.petrus.lib.core.cloud.RemoteDocument;
+import fr.petrus.lib.core.cloud.UploadSession;
 import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.StorageType;
@@ -84,6 +82,9 @@ public class GoogleDriveDocument
         extends AbstractRemoteDocument<GoogleDriveStorage, GoogleDriveDocument> {
     private static Logger LOG = LoggerFactory.getLogger(GoogleDriveDocument.class);
 
+    /** The HTTP code returned by Google Drive when a resumable upload is not complete */
+    private static final int HTTP_RESUME_INCOMPLETE = 308;
+
     private String id;
     private String mimeType;
     private List<String> parentIds;
@@ -406,20 +407,20 @@ public class GoogleDriveDocument
     }
 
     @Override
-    public GoogleDriveDocument uploadNewChildFile(String name, String mimeType, File localFile,
-                                             ProcessProgressListener listener)
+    protected GoogleDriveDocument uploadNewChildFile(String name, String mimeType, RequestBody body,
+                                                     ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
-            RequestBody body = new MultipartBody.Builder()
+            RequestBody multipartBody = new MultipartBody.Builder()
                     .setType(MediaType.parse("multipart/related"))
                     .addPart(RequestBody.create(MediaType.parse("application/json; charset=UTF-8"),
                             new NewItemArg(name, getId(), mimeType).toString().getBytes("UTF8")))
-                    .addPart(new ProgressRequestBody(mimeType, localFile, listener))
+                    .addPart(body)
                     .build();
 
             Response<GoogleDriveItem> response = storage.getApiService().uploadNewFile(
-                    account.getAuthHeader(), body).execute();
+                    account.getAuthHeader(), multipartBody).execute();
             if (response.isSuccessful()) {
                 return new GoogleDriveDocument(storage, getAccountName(), response.body());
             } else {
@@ -461,13 +462,13 @@ public class GoogleDriveDocument
     }
 
     @Override
-    public GoogleDriveDocument uploadFile(String mimeType, File localFile, ProcessProgressListener listener)
+    protected GoogleDriveDocument uploadFile(String mimeType, RequestBody body, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<GoogleDriveItem> response = storage.getApiService().uploadFile(
                     account.getAuthHeader(), getId(),
-                    new ProgressRequestBody(mimeType, localFile, listener)).execute();
+                    body).execute();
             if (response.isSuccessful()) {
                 return new GoogleDriveDocument(storage, getAccountName(), response.body());
             } else {
@@ -503,40 +504,137 @@ public class GoogleDriveDocument
     }
 
     @Override
-    public void downloadFile(File localFile, ProcessProgressListener listener)
+    protected void startUploadSession(UploadSession uploadSession, String name, String mimeType)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<ResponseBody> response;
+            if (null == name) {
+                response = storage.getApiService().startFileUploadSession(account.getAuthHeader(), getId(),
+                        mimeType, uploadSession.getSize()).execute();
+            } else {
+                response = storage.getApiService().startNewFileUploadSession(account.getAuthHeader(),
+                        mimeType, uploadSession.getSize(), new NewItemArg(name, getId(), mimeType)).execute();
+            }
+            if (response.isSuccessful()) {
+                response.body().close();
+                String sessionUrl = response.headers().get("Location");
+                if (null == sessionUrl) {
+                    throw new RemoteException("Failed to start upload session : session URL not found in response",
+                            RemoteException.Reason.UnknownError);
+                }
+                uploadSession.setId(sessionUrl);
+            } else {
+                throw storage.remoteException(account, response, "Failed to start upload session");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to start upload session", e);
+        }
+    }
+
+    @Override
+    protected long uploadSessionOffset(UploadSession uploadSession)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<GoogleDriveItem> response = uploadSessionStatus(account, uploadSession);
+            if (response.isSuccessful()) {
+                return uploadSession.getSize();
+            } else if (HTTP_RESUME_INCOMPLETE == response.code()) {
+                return receivedBytes(response);
+            } else {
+                throw storage.remoteException(account, response, "Failed to get upload session status");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to get upload session status", e);
+        }
+    }
+
+    @Override
+    protected GoogleDriveDocument uploadSessionChunk(UploadSession uploadSession, String name, String mimeType,
+                                                     File localFile, int length, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<GoogleDriveItem> response = storage.getApiService().uploadSessionChunk(
+                    uploadSession.getId(), account.getAuthHeader(), contentRange(uploadSession, length),
+                    new ProgressRequestBody(mimeType, localFile, uploadSession.getOffset(), length, listener)).execute();
+            if (response.isSuccessful()) {
+                uploadSession.setOffset(uploadSession.getSize());
+                return new GoogleDriveDocument(storage, getAccountName(), response.body());
+            } else if (HTTP_RESUME_INCOMPLETE == response.code()) {
+                uploadSession.setOffset(receivedBytes(response));
+                return null;
+            } else {
+                throw storage.remoteException(account, response, "Failed to upload file chunk");
+            }
+        } catch (RuntimeException e) {
+            throw new NetworkException("Failed to upload file chunk", e);
+        } catch (IOException e) {
+            if (null!=listener && listener.isCanceled()) {
+                throw new UserCanceledException("Canceled", e);
+            } else {
+                throw new NetworkException("Failed to upload file chunk", e);
+            }
+        }
+    }
+
+    @Override
+    protected GoogleDriveDocument finishUploadSession(UploadSession uploadSession, String name, String mimeType,
+                                                      File localFile)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        // the last chunk completes the upload : this is only called when resuming a completed session
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<GoogleDriveItem> response = uploadSessionStatus(account, uploadSession);
+            if (response.isSuccessful()) {
+                return new GoogleDriveDocument(storage, getAccountName(), response.body());
+            } else {
+                throw storage.remoteException(account, response, "Failed to finish upload session");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to finish upload session", e);
+        }
+    }
+
+    /**
+     * Sends an empty request to the given {@code uploadSession} URL, to get its status.
+     *
+     * @param account       the account
+     * @param uploadSession the upload session
+     * @return the response, with a {@code HTTP_RESUME_INCOMPLETE} code if the upload is not complete
+     * @throws IOException if a network error occurs
+     */
+    private Response<GoogleDriveItem> uploadSessionStatus(Account account, UploadSession uploadSession)
+            throws IOException {
+        return storage.getApiService().uploadSessionChunk(uploadSession.getId(), account.getAuthHeader(),
+                "bytes */" + uploadSession.getSize(), RequestBody.create(null, new byte[0])).execute();
+    }
+
+    /**
+     * Returns the number of bytes received by Google Drive, from the "Range" header of an
+     * incomplete upload response.
+     *
+     * @param response the response, with a {@code HTTP_RESUME_INCOMPLETE} code
+     * @return the number of bytes received
+     */
+    private static long receivedBytes(Response<?> response) {
+        String range = response.headers().get("Range");
+        if (null == range) {
+            return 0L;
+        }
+        return Long.parseLong(range.substring(range.lastIndexOf('-') + 1)) + 1L;
+    }
+
+    @Override
+    public void downloadFile(File localFile, long offset, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<ResponseBody> response = storage.getApiService().downloadItem(
-                    account.getAuthHeader(), getId()).execute();
+                    account.getAuthHeader(), getId(), range(offset)).execute();
             if (response.isSuccessful()) {
-                InputStream inputStream = null;
-                OutputStream outputStream = null;
-                try {
-                    if (!localFile.exists()) {
-                        localFile.createNewFile();
-                    }
-                    inputStream = new BufferedInputStream(response.body().byteStream());
-                    outputStream = new BufferedOutputStream(new FileOutputStream(localFile));
-                    StreamUtils.copy(outputStream, inputStream, Constants.FILE.BUFFER_SIZE, listener);
-                } catch (IOException | RuntimeException e) {
-                    throw new RemoteException("Failed to download file", RemoteException.Reason.UnknownError, e);
-                } finally {
-                    if (null!=inputStream) {
-                        try {
-                            inputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing input stream", e);
-                        }
-                    }
-                    if (null!=outputStream) {
-                        try {
-                            outputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing output stream", e);
-                        }
-                    }
-                }
+                writeDownloadedFile(response, localFile, offset, listener);
             } else {
                 throw storage.remoteException(account, response, "Failed to download file");
             }
@@ -556,7 +654,7 @@ public class GoogleDriveDocument
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<ResponseBody> response = storage.getApiService().downloadItem(
-                    account.getAuthHeader(), getId()).execute();
+                    account.getAuthHeader(), getId(), null).execute();
             if (response.isSuccessful()) {
                 InputStream inputStream = null;
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -36,6 +36,8 @@
 
 package fr.petrus.lib.core.cloud.implementations.hubic;
 
+import com.google.gson.Gson;
+
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -43,13 +45,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -58,6 +57,7 @@ import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.cloud.Account;
 import fr.petrus.lib.core.cloud.AbstractRemoteDocument;
 import fr.petrus.lib.core.cloud.RemoteDocument;
+import fr.petrus.lib.core.cloud.UploadSession;
 import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.StorageType;
@@ -65,6 +65,7 @@ import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.rest.ProgressRequestBody;
 import fr.petrus.lib.core.rest.models.hubic.OpenStackObject;
+import fr.petrus.lib.core.rest.models.hubic.OpenStackSegment;
 import fr.petrus.lib.core.rest.services.hubic.OpenStackApiService;
 import fr.petrus.lib.core.result.ProcessProgressListener;
 import fr.petrus.lib.core.utils.StreamUtils;
@@ -364,8 +365,8 @@ public class HubicDocument extends AbstractRemoteDocument<HubicStorage, HubicDoc
     }
 
     @Override
-    public HubicDocument uploadNewChildFile(String name, String mimeType, File localFile,
-                                             ProcessProgressListener listener)
+    protected HubicDocument uploadNewChildFile(String name, String mimeType, RequestBody body,
+                                               ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.getRefreshedOpenStackAccount(getAccountName());
         OpenStackApiService openStackApiService = storage.getOpenStackApiService(account);
@@ -375,7 +376,7 @@ public class HubicDocument extends AbstractRemoteDocument<HubicStorage, HubicDoc
                     account.getOpenStackAccount(),
                     Constants.HUBIC.OPENSTACK_CONTAINER,
                     getChildPath(name),
-                    new ProgressRequestBody(mimeType, localFile, listener)).execute();
+                    body).execute();
             if (response.isSuccessful()) {
                 return new HubicDocument(storage, account.getAccountName(), getChildPath(name), response);
             } else {
@@ -415,7 +416,7 @@ public class HubicDocument extends AbstractRemoteDocument<HubicStorage, HubicDoc
     }
 
     @Override
-    public HubicDocument uploadFile(String mimeType, File localFile, ProcessProgressListener listener)
+    protected HubicDocument uploadFile(String mimeType, RequestBody body, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.getRefreshedOpenStackAccount(getAccountName());
         OpenStackApiService openStackApiService = storage.getOpenStackApiService(account);
@@ -424,7 +425,7 @@ public class HubicDocument extends AbstractRemoteDocument<HubicStorage, HubicDoc
                     account.getOpenStackAccessToken(),
                     account.getOpenStackAccount(),
                     Constants.HUBIC.OPENSTACK_CONTAINER, getPath(),
-                    new ProgressRequestBody(mimeType, localFile, listener)).execute();
+                    body).execute();
             if (response.isSuccessful()) {
                 return new HubicDocument(storage, account.getAccountName(), getPath(), response);
             } else {
@@ -463,7 +464,114 @@ public class HubicDocument extends AbstractRemoteDocument<HubicStorage, HubicDoc
     }
 
     @Override
-    public void downloadFile(File localFile, ProcessProgressListener listener)
+    protected void startUploadSession(UploadSession uploadSession, String name, String mimeType)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.getRefreshedOpenStackAccount(getAccountName());
+        OpenStackApiService openStackApiService = storage.getOpenStackApiService(account);
+        try {
+            // the segments are stored in a separate container, so that they are not listed with the documents
+            Response<ResponseBody> response = openStackApiService.createContainer(
+                    account.getOpenStackAccessToken(),
+                    account.getOpenStackAccount(),
+                    Constants.HUBIC.OPENSTACK_SEGMENTS_CONTAINER).execute();
+            if (response.isSuccessful()) {
+                String path = null == name ? getPath() : getChildPath(name);
+                uploadSession.setId(path + "/" + System.currentTimeMillis() + "/");
+            } else {
+                throw storage.remoteException(account, response, "Failed to create segments container");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to create segments container", e);
+        }
+    }
+
+    @Override
+    protected long uploadSessionOffset(UploadSession uploadSession)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.getRefreshedOpenStackAccount(getAccountName());
+        long offset = 0L;
+        for (OpenStackObject segment : storage.segments(account, uploadSession.getId())) {
+            if (segmentName(uploadSession, offset).equals(segment.name) && null != segment.bytes) {
+                offset += segment.bytes;
+            }
+        }
+        return offset;
+    }
+
+    @Override
+    protected HubicDocument uploadSessionChunk(UploadSession uploadSession, String name, String mimeType,
+                                               File localFile, int length, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        Account account = storage.getRefreshedOpenStackAccount(getAccountName());
+        OpenStackApiService openStackApiService = storage.getOpenStackApiService(account);
+        try {
+            Response<ResponseBody> response = openStackApiService.uploadDocument(
+                    account.getOpenStackAccessToken(),
+                    account.getOpenStackAccount(),
+                    Constants.HUBIC.OPENSTACK_SEGMENTS_CONTAINER,
+                    segmentName(uploadSession, uploadSession.getOffset()),
+                    new ProgressRequestBody(mimeType, localFile, uploadSession.getOffset(), length, listener)).execute();
+            if (response.isSuccessful()) {
+                uploadSession.setOffset(uploadSession.getOffset() + length);
+                return null;
+            } else {
+                throw storage.remoteException(account, response, "Failed to upload file segment");
+            }
+        } catch (RuntimeException e) {
+            throw new NetworkException("Failed to upload file segment", e);
+        } catch (IOException e) {
+            if (null!=listener && listener.isCanceled()) {
+                throw new UserCanceledException("Canceled", e);
+            } else {
+                throw new NetworkException("Failed to upload file segment", e);
+            }
+        }
+    }
+
+    @Override
+    protected HubicDocument finishUploadSession(UploadSession uploadSession, String name, String mimeType,
+                                                File localFile)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.getRefreshedOpenStackAccount(getAccountName());
+        OpenStackApiService openStackApiService = storage.getOpenStackApiService(account);
+        String path = null == name ? getPath() : getChildPath(name);
+        List<OpenStackSegment> manifest = new ArrayList<>();
+        for (OpenStackObject segment : storage.segments(account, uploadSession.getId())) {
+            manifest.add(new OpenStackSegment(
+                    "/" + Constants.HUBIC.OPENSTACK_SEGMENTS_CONTAINER + "/" + segment.name,
+                    segment.hash, segment.bytes));
+        }
+        try {
+            Response<ResponseBody> response = openStackApiService.uploadManifest(
+                    account.getOpenStackAccessToken(),
+                    account.getOpenStackAccount(),
+                    Constants.HUBIC.OPENSTACK_CONTAINER, path,
+                    RequestBody.create(MediaType.parse(mimeType), new Gson().toJson(manifest))).execute();
+            if (response.isSuccessful()) {
+                // the segments of the previous version of the file are not referenced anymore
+                storage.deleteSegments(account, path, uploadSession.getId());
+                return new HubicDocument(storage, account.getAccountName(), path, response);
+            } else {
+                throw storage.remoteException(account, response, "Failed to upload manifest");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to upload manifest", e);
+        }
+    }
+
+    /**
+     * Returns the name of the segment which starts at the given {@code offset}, in the segments container.
+     *
+     * @param uploadSession the upload session, which id is the prefix of its segments names
+     * @param offset        the offset of the first byte of the segment
+     * @return the name of the segment
+     */
+    private static String segmentName(UploadSession uploadSession, long offset) {
+        return String.format(Locale.US, "%s%08d", uploadSession.getId(), offset / uploadSession.getChunkSize());
+    }
+
+    @Override
+    public void downloadFile(File localFile, long offset, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.getRefreshedOpenStackAccount(getAccountName());
         OpenStackApiService openStackApiService = storage.getOpenStackApiService(account);
@@ -472,35 +580,9 @@ public class HubicDocument extends AbstractRemoteDocument<HubicStorage, HubicDoc
                     account.getOpenStackAccessToken(),
                     account.getOpenStackAccount(),
                     Constants.HUBIC.OPENSTACK_CONTAINER,
-                    getPath()).execute();
+                    getPath(), range(offset)).execute();
             if (response.isSuccessful()) {
-                InputStream inputStream = null;
-                OutputStream outputStream = null;
-                try {
-                    if (!localFile.exists()) {
-                        localFile.createNewFile();
-                    }
-                    inputStream = new BufferedInputStream(response.body().byteStream());
-                    outputStream = new BufferedOutputStream(new FileOutputStream(localFile));
-                    StreamUtils.copy(outputStream, inputStream, Constants.FILE.BUFFER_SIZE, listener);
-                } catch (IOException | RuntimeException e) {
-                    throw new RemoteException("Failed to download file", RemoteException.Reason.UnknownError, e);
-                } finally {
-                    if (null!=inputStream) {
-                        try {
-                            inputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing input stream", e);
-                        }
-                    }
-                    if (null!=outputStream) {
-                        try {
-                            outputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing output stream", e);
-                        }
-                    }
-                }
+                writeDownloadedFile(response, localFile, offset, listener);
             } else {
                 throw storage.remoteException(account, response, "Failed to download file");
             }
@@ -524,7 +606,7 @@ public class HubicDocument extends AbstractRemoteDocument<HubicStorage, HubicDoc
                     account.getOpenStackAccessToken(),
                     account.getOpenStackAccount(),
                     Constants.HUBIC.OPENSTACK_CONTAINER,
-                    getPath()).execute();
+                    getPath(), null).execute();
             if (response.isSuccessful()) {
                 InputStream inputStream = null;
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -61,6 +61,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -580,5 +581,71 @@ public class HubicStorage extends AbstractRemoteStorage<HubicStorage, HubicDocum
         } catch (IOException | RuntimeException e) {
             throw new NetworkException("Failed to delete file", e);
         }
+        // large files are uploaded as segments, which are not deleted with their manifest
+        deleteSegments(account, StringUtils.trimSlashes(path), null);
+    }
+
+    /**
+     * Returns the segments stored for the given {@code prefix} in the segments container, sorted by name.
+     *
+     * @param account the account
+     * @param prefix  the prefix of the segments names
+     * @return the segments, or an empty list if the segments container does not exist
+     * @throws RemoteException                    if any error occurs when calling the underlying API
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    List<OpenStackObject> segments(Account account, String prefix)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        OpenStackApiService openStackApiService = getOpenStackApiService(account);
+        try {
+            Response<List<OpenStackObject>> response = openStackApiService.getFolderRecursiveChildren(
+                    account.getOpenStackAccessToken(),
+                    account.getOpenStackAccount(),
+                    Constants.HUBIC.OPENSTACK_SEGMENTS_CONTAINER,
+                    prefix).execute();
+            if (response.isSuccessful()) {
+                return null == response.body() ? new ArrayList<OpenStackObject>() : response.body();
+            } else {
+                RemoteException remoteException = remoteException(account, response, "Failed to get segments");
+                if (!remoteException.isNotFoundError()) {
+                    throw remoteException;
+                }
+                return new ArrayList<>();
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to get segments", e);
+        }
+    }
+
+    /**
+     * Deletes the segments uploaded for the file at the given {@code path}.
+     *
+     * <p>Failures are only logged : the segments which could not be deleted will be deleted with
+     * the next upload or deletion of the file.
+     *
+     * @param account    the account
+     * @param path       the path of the file, without starting or trailing slash
+     * @param keptPrefix the prefix of the segments which must not be deleted, or null to delete all of them
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    void deleteSegments(Account account, String path, String keptPrefix)
+            throws DatabaseConnectionClosedException {
+        OpenStackApiService openStackApiService = getOpenStackApiService(account);
+        try {
+            for (OpenStackObject segment : segments(account, path + "/")) {
+                if (null == keptPrefix || !segment.name.startsWith(keptPrefix)) {
+                    Response<ResponseBody> response = openStackApiService.deleteDocument(
+                            account.getOpenStackAccessToken(),
+                            account.getOpenStackAccount(),
+                            Constants.HUBIC.OPENSTACK_SEGMENTS_CONTAINER,
+                            segment.name).execute();
+                    if (!response.isSuccessful()) {
+                        LOG.error("Failed to delete segment {} : HTTP code {}", segment.name, response.code());
+                    }
+                }
+            }
+        } catch (RemoteException | NetworkException | IOException | RuntimeException e) {
+            LOG.error("Failed to delete segments of {}", path, e);
+        }
     }
 }
\ No newline at end of file
@@ -36,18 +36,18 @@
 
 package fr.petrus.lib.core.cloud.implementations.onedrive;
 
+import com.google.gson.Gson;
+
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -55,6 +55,7 @@ import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.cloud.Account;
 import fr.petrus.lib.core.cloud.AbstractRemoteDocument;
 import fr.petrus.lib.core.cloud.RemoteDocument;
+import fr.petrus.lib.core.cloud.UploadSession;
 import fr.petrus.lib.core.cloud.exceptions.NetworkException;
 import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.StorageType;
@@ -64,6 +65,8 @@ import fr.petrus.lib.core.rest.ProgressRequestBody;
 import fr.petrus.lib.core.rest.models.onedrive.NewFolderArg;
 import fr.petrus.lib.core.rest.models.onedrive.OneDriveItem;
 import fr.petrus.lib.core.rest.models.onedrive.OneDriveItems;
+import fr.petrus.lib.core.rest.models.onedrive.OneDriveUploadSession;
+import fr.petrus.lib.core.rest.models.onedrive.UploadSessionArg;
 import fr.petrus.lib.core.result.ProcessProgressListener;
 import fr.petrus.lib.core.utils.StreamUtils;
 import okhttp3.MediaType;
@@ -80,6 +83,9 @@ import retrofit2.Response;
 public class OneDriveDocument extends AbstractRemoteDocument<OneDriveStorage, OneDriveDocument> {
     private static Logger LOG = LoggerFactory.getLogger(OneDriveDocument.class);
 
+    /** The HTTP code returned by OneDrive when more chunks are expected for an upload session */
+    private static final int HTTP_ACCEPTED = 202;
+
     private String id;
     private String mimeType;
     private String parentId;
@@ -319,14 +325,14 @@ public class OneDriveDocument extends AbstractRemoteDocument<OneDriveStorage, On
     }
 
     @Override
-    public OneDriveDocument uploadNewChildFile(String name, String mimeType, File localFile,
-                                             ProcessProgressListener listener)
+    protected OneDriveDocument uploadNewChildFile(String name, String mimeType, RequestBody body,
+                                                  ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<OneDriveItem> response = storage.getApiService().uploadNewFileById(
                     account.getAuthHeader(), getId(), name,
-                    new ProgressRequestBody(mimeType, localFile, listener)).execute();
+                    body).execute();
             if (response.isSuccessful()) {
                 return new OneDriveDocument(storage, getAccountName(), response.body());
             } else {
@@ -362,13 +368,13 @@ public class OneDriveDocument extends AbstractRemoteDocument<OneDriveStorage, On
     }
 
     @Override
-    public OneDriveDocument uploadFile(String mimeType, File localFile, ProcessProgressListener listener)
+    protected OneDriveDocument uploadFile(String mimeType, RequestBody body, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<OneDriveItem> response = storage.getApiService().uploadFileById(
                     account.getAuthHeader(), getParentId(), getName(),
-                    new ProgressRequestBody(mimeType, localFile, listener)).execute();
+                    body).execute();
             if (response.isSuccessful()) {
                 return new OneDriveDocument(storage, getAccountName(), response.body());
             } else {
@@ -404,40 +410,118 @@ public class OneDriveDocument extends AbstractRemoteDocument<OneDriveStorage, On
     }
 
     @Override
-    public void downloadFile(File localFile, ProcessProgressListener listener)
+    protected void startUploadSession(UploadSession uploadSession, String name, String mimeType)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<OneDriveUploadSession> response;
+            if (null == name) {
+                response = storage.getApiService().createUploadSession(account.getAuthHeader(),
+                        getParentId(), getName(), new UploadSessionArg("replace")).execute();
+            } else {
+                response = storage.getApiService().createUploadSession(account.getAuthHeader(),
+                        getId(), name, new UploadSessionArg("fail")).execute();
+            }
+            if (response.isSuccessful()) {
+                uploadSession.setId(response.body().uploadUrl);
+            } else {
+                throw storage.remoteException(account, response, "Failed to start upload session");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to start upload session", e);
+        }
+    }
+
+    @Override
+    protected long uploadSessionOffset(UploadSession uploadSession)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<OneDriveUploadSession> response =
+                    storage.getApiService().getUploadSession(uploadSession.getId()).execute();
+            if (response.isSuccessful()) {
+                return nextExpectedOffset(response.body(), uploadSession.getOffset());
+            } else {
+                throw storage.remoteException(account, response, "Failed to get upload session status");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new NetworkException("Failed to get upload session status", e);
+        }
+    }
+
+    @Override
+    protected OneDriveDocument uploadSessionChunk(UploadSession uploadSession, String name, String mimeType,
+                                                  File localFile, int length, ProcessProgressListener listener)
             throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
         Account account = storage.refreshedAccount(getAccountName());
         try {
-            Response<ResponseBody> response = storage.getApiService().downloadDocumentById(
-                    account.getAuthHeader(), getId()).execute();
+            Response<ResponseBody> response = storage.getApiService().uploadSessionChunk(
+                    uploadSession.getId(), contentRange(uploadSession, length),
+                    new ProgressRequestBody(mimeType, localFile, uploadSession.getOffset(), length, listener)).execute();
             if (response.isSuccessful()) {
-                InputStream inputStream = null;
-                OutputStream outputStream = null;
-                try {
-                    if (!localFile.exists()) {
-                        localFile.createNewFile();
-                    }
-                    inputStream = new BufferedInputStream(response.body().byteStream());
-                    outputStream = new BufferedOutputStream(new FileOutputStream(localFile));
-                    StreamUtils.copy(outputStream, inputStream, Constants.FILE.BUFFER_SIZE, listener);
-                } catch (IOException | RuntimeException e) {
-                    throw new RemoteException("Failed to download file", RemoteException.Reason.UnknownError, e);
-                } finally {
-                    if (null!=inputStream) {
-                        try {
-                            inputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing input stream", e);
-                        }
-                    }
-                    if (null!=outputStream) {
-                        try {
-                            outputStream.close();
-                        } catch (IOException e) {
-                            LOG.error("Error when closing output stream", e);
-                        }
+                Gson gson = new Gson();
+                try (Reader reader = response.body().charStream()) {
+                    if (HTTP_ACCEPTED == response.code()) {
+                        // more chunks are expected
+                        uploadSession.setOffset(nextExpectedOffset(gson.fromJson(reader, OneDriveUploadSession.class),
+                                uploadSession.getOffset() + length));
+                        return null;
                     }
+                    uploadSession.setOffset(uploadSession.getSize());
+                    return new OneDriveDocument(storage, getAccountName(), gson.fromJson(reader, OneDriveItem.class));
                 }
+            } else {
+                throw storage.remoteException(account, response, "Failed to upload file chunk");
+            }
+        } catch (RuntimeException e) {
+            throw new NetworkException("Failed to upload file chunk", e);
+        } catch (IOException e) {
+            if (null!=listener && listener.isCanceled()) {
+                throw new UserCanceledException("Canceled", e);
+            } else {
+                throw new NetworkException("Failed to upload file chunk", e);
+            }
+        }
+    }
+
+    @Override
+    protected OneDriveDocument finishUploadSession(UploadSession uploadSession, String name, String mimeType,
+                                                   File localFile)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException {
+        // the last chunk completes the upload, and OneDrive forgets the session : nothing to resume
+        throw new RemoteException("Failed to finish upload session : the session is already complete",
+                RemoteException.Reason.NotFound);
+    }
+
+    /**
+     * Returns the offset of the first byte OneDrive expects for the given {@code oneDriveUploadSession}.
+     *
+     * @param oneDriveUploadSession the upload session returned by OneDrive
+     * @param defaultOffset         the offset to return if the expected ranges are unknown
+     * @return the offset of the first byte expected by OneDrive
+     */
+    private static long nextExpectedOffset(OneDriveUploadSession oneDriveUploadSession, long defaultOffset) {
+        if (null == oneDriveUploadSession || null == oneDriveUploadSession.nextExpectedRanges
+                || oneDriveUploadSession.nextExpectedRanges.isEmpty()) {
+            return defaultOffset;
+        }
+        long offset = Long.MAX_VALUE;
+        for (String range : oneDriveUploadSession.nextExpectedRanges) {
+            int dashIndex = range.indexOf('-');
+            offset = Math.min(offset, Long.parseLong(dashIndex < 0 ? range : range.substring(0, dashIndex)));
+        }
+        return offset;
+    }
+
+    @Override
+    public void downloadFile(File localFile, long offset, ProcessProgressListener listener)
+            throws DatabaseConnectionClosedException, RemoteException, NetworkException, UserCanceledException {
+        Account account = storage.refreshedAccount(getAccountName());
+        try {
+            Response<ResponseBody> response = storage.getApiService().downloadDocumentById(
+                    account.getAuthHeader(), getId(), range(offset)).execute();
+            if (response.isSuccessful()) {
+                writeDownloadedFile(response, localFile, offset, listener);
             } else {
                 throw storage.remoteException(account, response, "Failed to download file");
             }
@@ -457,7 +541,7 @@ public class OneDriveDocument extends AbstractRemoteDocument<OneDriveStorage, On
         Account account = storage.refreshedAccount(getAccountName());
         try {
             Response<ResponseBody> response = storage.getApiService().downloadDocumentById(
-                    account.getAuthHeader(), getId()).execute();
+                    account.getAuthHeader(), getId(), null).execute();
             if (response.isSuccessful()) {
                 InputStream inputStream = null;
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -54,6 +54,8 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -73,6 +75,67 @@ import fr.petrus.lib.core.crypto.mac.Mac;
 public abstract class AbstractCrypto implements Crypto {
     private static Logger LOG = LoggerFactory.getLogger(AbstractCrypto.class);
 
+    /**
+     * The random number generator shared by all the cryptographic operations.
+     *
+     * <p>{@code SecureRandom} is thread safe, and seeds itself on first use.
+     */
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /**
+     * The encryption ([0]) and decryption ([1]) ciphers of each thread, for each key.
+     */
+    private final KeyedContextCache<Cipher[]> ciphers =
+            new KeyedContextCache<Cipher[]>(Constants.CRYPTO.CONTEXT_CACHE_MAX_KEYS) {
+                @Override
+                protected Cipher[] create(SecretKey key) throws CryptoException {
+                    try {
+                        return new Cipher[] {
+                                Cipher.getInstance(Constants.CRYPTO.AES_FULL_ENCRYPT_ALGO),
+                                Cipher.getInstance(Constants.CRYPTO.AES_FULL_ENCRYPT_ALGO)
+                        };
+                    } catch (NoSuchPaddingException | NoSuchAlgorithmException e) {
+                        throw new CryptoException(e);
+                    }
+                }
+            };
+
+    /**
+     * The authenticated encryption cipher of each thread, for each key.
+     *
+     * <p>These ciphers are kept apart, so that a provider which does not support AES-GCM only
+     * fails when authenticated encryption is actually used.
+     */
+    private final KeyedContextCache<Cipher> aeadCiphers =
+            new KeyedContextCache<Cipher>(Constants.CRYPTO.CONTEXT_CACHE_MAX_KEYS) {
+                @Override
+                protected Cipher create(SecretKey key) throws CryptoException {
+                    try {
+                        return Cipher.getInstance(Constants.CRYPTO.AES_AEAD_ENCRYPT_ALGO);
+                    } catch (NoSuchPaddingException | NoSuchAlgorithmException e) {
+                        throw new CryptoException(e);
+                    }
+                }
+            };
+
+    /**
+     * The MAC of each thread, for each key.
+     */
+    private final KeyedContextCache<Mac> macs =
+            new KeyedContextCache<Mac>(Constants.CRYPTO.CONTEXT_CACHE_MAX_KEYS) {
+                @Override
+                protected Mac create(SecretKey key) throws CryptoException {
+                    return initMac(key);
+                }
+            };
+
+    @Override
+    public void clearKeyContexts() {
+        ciphers.clear();
+        aeadCiphers.clear();
+        macs.clear();
+    }
+
     @Override
     public boolean isAes256Supported() {
         try {
@@ -89,7 +152,7 @@ public abstract class AbstractCrypto implements Crypto {
     public SecretKey generateEncryptionKey(int keyLength) throws CryptoException {
         try {
             KeyGenerator kg = KeyGenerator.getInstance(Constants.CRYPTO.AES_ENCRYPT_ALGO);
-            kg.init(keyLength, new SecureRandom());
+            kg.init(keyLength, SECURE_RANDOM);
             return new SecretKeySpec((kg.generateKey()).getEncoded(), Constants.CRYPTO.AES_ENCRYPT_ALGO);
         } catch (NoSuchAlgorithmException e) {
             throw new CryptoException(e);
@@ -101,7 +164,7 @@ public abstract class AbstractCrypto implements Crypto {
         try {
             //TODO: fix algo to be the same in kg and SecretKeySpec
             KeyGenerator kg = KeyGenerator.getInstance(Constants.CRYPTO.MAC_ALGO);
-            kg.init(keyLength, new SecureRandom());
+            kg.init(keyLength, SECURE_RANDOM);
             return new SecretKeySpec((kg.generateKey()).getEncoded(), Constants.CRYPTO.AES_ENCRYPT_ALGO);
         } catch (NoSuchAlgorithmException e) {
             throw new CryptoException(e);
@@ -111,15 +174,15 @@ public abstract class AbstractCrypto implements Crypto {
     @Override
     public EncryptedDataChunk encrypt(SecretKey key, byte[] data) throws CryptoException {
         try {
-            Cipher c = Cipher.getInstance(Constants.CRYPTO.AES_FULL_ENCRYPT_ALGO);
-            c.init(Cipher.ENCRYPT_MODE, key, new SecureRandom());
+            Cipher c = encryptionCipher(key);
+            c.init(Cipher.ENCRYPT_MODE, key, SECURE_RANDOM);
             AlgorithmParameters params = c.getParameters();
             EncryptedDataChunk result = new EncryptedDataChunk(this);
             result.setIV(params.getParameterSpec(IvParameterSpec.class).getIV());
             result.setData(c.doFinal(data));
             return result;
-        } catch (NoSuchPaddingException | NoSuchAlgorithmException | IllegalBlockSizeException |
-                BadPaddingException | InvalidKeyException | InvalidParameterSpecException e) {
+        } catch (IllegalBlockSizeException | BadPaddingException | InvalidKeyException |
+                InvalidParameterSpecException e) {
             throw new CryptoException(e);
         }
     }
@@ -127,24 +190,115 @@ public abstract class AbstractCrypto implements Crypto {
     @Override
     public byte[] decrypt(SecretKey key, EncryptedDataChunk dataChunk) throws CryptoException {
         try {
-            Cipher c = Cipher.getInstance(Constants.CRYPTO.AES_FULL_ENCRYPT_ALGO);
+            Cipher c = decryptionCipher(key);
             c.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(dataChunk.getIV()));
             return c.doFinal(dataChunk.getData());
-        } catch (NoSuchPaddingException  | InvalidAlgorithmParameterException |
-                NoSuchAlgorithmException | IllegalBlockSizeException |
+        } catch (InvalidAlgorithmParameterException | IllegalBlockSizeException |
                 BadPaddingException | InvalidKeyException e) {
             throw new CryptoException(e);
         }
     }
 
+    @Override
+    public int encrypt(SecretKey key, byte[] iv, byte[] input, int inputOffset, int inputLength,
+                       byte[] output, int outputOffset) throws CryptoException {
+        try {
+            Cipher c = encryptionCipher(key);
+            c.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+            return c.doFinal(input, inputOffset, inputLength, output, outputOffset);
+        } catch (InvalidAlgorithmParameterException | IllegalBlockSizeException |
+                ShortBufferException | BadPaddingException | InvalidKeyException e) {
+            throw new CryptoException(e);
+        }
+    }
+
+    @Override
+    public int decrypt(SecretKey key, byte[] iv, byte[] input, int inputOffset, int inputLength,
+                       byte[] output, int outputOffset) throws CryptoException {
+        try {
+            Cipher c = decryptionCipher(key);
+            c.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
+            return c.doFinal(input, inputOffset, inputLength, output, outputOffset);
+        } catch (InvalidAlgorithmParameterException | IllegalBlockSizeException |
+                ShortBufferException | BadPaddingException | InvalidKeyException e) {
+            throw new CryptoException(e);
+        }
+    }
+
+    @Override
+    public int encryptAuthenticated(SecretKey key, byte[] nonce, byte[] aad, byte[] input, int inputOffset,
+                                    int inputLength, byte[] output, int outputOffset) throws CryptoException {
+        try {
+            Cipher c = aeadCiphers.get(key);
+            c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(8 * Constants.CRYPTO.AEAD_TAG_SIZE, nonce));
+            c.updateAAD(aad);
+            return c.doFinal(input, inputOffset, inputLength, output, outputOffset);
+        } catch (InvalidAlgorithmParameterException | IllegalBlockSizeException |
+                ShortBufferException | BadPaddingException | InvalidKeyException e) {
+            throw new CryptoException(e);
+        }
+    }
+
+    @Override
+    public int decryptAuthenticated(SecretKey key, byte[] nonce, byte[] aad, byte[] input, int inputOffset,
+                                    int inputLength, byte[] tag, int tagOffset, byte[] output, int outputOffset)
+            throws CryptoException {
+        try {
+            Cipher c = aeadCiphers.get(key);
+            c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(8 * Constants.CRYPTO.AEAD_TAG_SIZE, nonce));
+            c.updateAAD(aad);
+            /* the tag is expected at the end of the input : feed it last */
+            int decryptedLength = c.update(input, inputOffset, inputLength, output, outputOffset);
+            return decryptedLength + c.doFinal(tag, tagOffset, Constants.CRYPTO.AEAD_TAG_SIZE,
+                    output, outputOffset + decryptedLength);
+        } catch (InvalidAlgorithmParameterException | IllegalBlockSizeException |
+                ShortBufferException | BadPaddingException | InvalidKeyException e) {
+            throw new CryptoException(e);
+        }
+    }
+
+    /**
+     * Returns the encryption cipher of the calling thread for the given {@code key}.
+     *
+     * @param key the encryption key
+     * @return the encryption cipher of the calling thread, which must be initialized before use
+     * @throws CryptoException if the cipher cannot be created
+     */
+    protected Cipher encryptionCipher(SecretKey key) throws CryptoException {
+        return ciphers.get(key)[0];
+    }
+
+    /**
+     * Returns the decryption cipher of the calling thread for the given {@code key}.
+     *
+     * @param key the encryption key
+     * @return the decryption cipher of the calling thread, which must be initialized before use
+     * @throws CryptoException if the cipher cannot be created
+     */
+    protected Cipher decryptionCipher(SecretKey key) throws CryptoException {
+        return ciphers.get(key)[1];
+    }
+
     @Override
     public Mac initMac(SecretKey key) throws CryptoException {
         return new JcaMac(key);
     }
 
+    /**
+     * {@inheritDoc}
+     * This implementation keeps one MAC for each key in each thread, and resets it before
+     * returning it.
+     */
+    @Override
+    public Mac pooledMac(SecretKey key) throws CryptoException {
+        Mac mac = macs.get(key);
+        mac.reset();
+        return mac;
+    }
+
     @Override
     public byte[] computeSignature(SecretKey key, byte[] data) throws CryptoException {
-        Mac mac = initMac(key);
+        Mac mac = pooledMac(key);
         mac.update(data);
         return mac.doFinal();
     }
@@ -178,10 +332,15 @@ public abstract class AbstractCrypto implements Crypto {
      */
     protected byte[] generateRandomByteArray(int size) {
         byte[] randomByteArray = new byte[size];
-        new SecureRandom().nextBytes(randomByteArray);
+        generateRandomBytes(randomByteArray);
         return randomByteArray;
     }
 
+    @Override
+    public void generateRandomBytes(byte[] bytes) {
+        SECURE_RANDOM.nextBytes(bytes);
+    }
+
     /**
      * {@inheritDoc}
      * This implementation generates a random byte array of the given {@code size} (in bytes)
@@ -0,0 +1,121 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.crypto;
+
+import fr.petrus.lib.core.Constants;
+
+/**
+ * The Enum used to choose the size of the chunks of an {@link EncryptedDataStream}, depending on
+ * the way the data will be read.
+ *
+ * <p>Small chunks make random reads cheaper, because only the chunks covering the requested range
+ * have to be decrypted. Large chunks make sequential processing cheaper, because they have less
+ * headers, signatures and writes per byte.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public enum ChunkSizePolicy {
+
+    /**
+     * Small chunks, for data which will be read at random positions (audio, video).
+     */
+    Seekable(Constants.CRYPTO.SEEKABLE_CHUNK_SIZE),
+
+    /**
+     * The default chunk size, which streams without a recorded chunk size use.
+     */
+    Default(Constants.CRYPTO.DEFAULT_CHUNK_SIZE),
+
+    /**
+     * Large chunks, for data which will only be read sequentially (archives, disk images).
+     */
+    Archive(Constants.CRYPTO.ARCHIVE_CHUNK_SIZE);
+
+    private final int preferredChunkSize;
+
+    ChunkSizePolicy(int preferredChunkSize) {
+        this.preferredChunkSize = preferredChunkSize;
+    }
+
+    /**
+     * Returns the chunk size to use for data of the given size.
+     *
+     * <p>Data smaller than the preferred chunk size gets a chunk size just large enough to hold it,
+     * but never smaller than the default chunk size, unless the preferred one is smaller.
+     *
+     * @param dataSize the size of the data to encrypt, or a negative value if it is unknown
+     * @return the chunk size to use
+     */
+    public int chunkSize(long dataSize) {
+        int minChunkSize = Math.min(preferredChunkSize, Constants.CRYPTO.DEFAULT_CHUNK_SIZE);
+        if (dataSize < 0 || dataSize >= preferredChunkSize) {
+            return preferredChunkSize;
+        }
+        int fittingChunkSize = Integer.highestOneBit((int) Math.max(1, dataSize - 1)) << 1;
+        return Math.max(minChunkSize, Math.min(preferredChunkSize, fittingChunkSize));
+    }
+
+    /**
+     * Returns the policy suited to documents of the given MIME type.
+     *
+     * @param mimeType the MIME type of the document, may be null
+     * @return the policy suited to documents of the given MIME type
+     */
+    public static ChunkSizePolicy forMimeType(String mimeType) {
+        if (null == mimeType) {
+            return Default;
+        }
+        if (mimeType.startsWith("video/") || mimeType.startsWith("audio/")) {
+            return Seekable;
+        }
+        switch (mimeType) {
+            case "application/zip":
+            case "application/gzip":
+            case "application/x-gzip":
+            case "application/x-tar":
+            case "application/x-bzip2":
+            case "application/x-xz":
+            case "application/x-7z-compressed":
+            case "application/x-rar-compressed":
+            case "application/x-iso9660-image":
+                return Archive;
+            default:
+                return Default;
+        }
+    }
+}
@@ -40,6 +40,7 @@ import java.security.NoSuchAlgorithmException;
 
 import javax.crypto.SecretKey;
 
+import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.crypto.keystore.KeyStore;
 import fr.petrus.lib.core.crypto.mac.Mac;
 
@@ -57,6 +58,14 @@ public interface Crypto {
      */
     void initProvider();
 
+    /**
+     * Releases the cryptographic contexts cached for the keys used so far.
+     *
+     * <p>This method has to be called when keys are deleted or locked, so that the cached
+     * contexts do not keep them in memory.
+     */
+    void clearKeyContexts();
+
     /**
      * Returns wether AES 256 is supported.
      *
@@ -105,6 +114,106 @@ public interface Crypto {
      */
     byte[] decrypt(SecretKey key, EncryptedDataChunk data) throws CryptoException;
 
+    /**
+     * Encrypts {@code inputLength} bytes of the {@code input} array, starting at {@code inputOffset},
+     * with a {@code key} and the given initialization vector, and writes the encrypted data into
+     * the {@code output} array, starting at {@code outputOffset}.
+     *
+     * <p>This method does not allocate any buffer for the data, so that callers can reuse their
+     * own buffers. The {@code output} array must have room for {@code inputLength} bytes plus
+     * one cipher block after the {@code outputOffset}.
+     *
+     * @param key          the encryption key
+     * @param iv           the initialization vector
+     * @param input        the array containing the data to be encrypted
+     * @param inputOffset  the offset of the data to be encrypted
+     * @param inputLength  the length of the data to be encrypted
+     * @param output       the array to write the encrypted data to
+     * @param outputOffset the offset where to write the encrypted data
+     * @return the number of encrypted bytes written into the {@code output} array
+     * @throws CryptoException if any encryption error occurs
+     */
+    int encrypt(SecretKey key, byte[] iv, byte[] input, int inputOffset, int inputLength,
+                byte[] output, int outputOffset) throws CryptoException;
+
+    /**
+     * Decrypts {@code inputLength} bytes of the {@code input} array, starting at {@code inputOffset},
+     * with a {@code key} and the given initialization vector, and writes the decrypted data into
+     * the {@code output} array, starting at {@code outputOffset}.
+     *
+     * <p>This method does not allocate any buffer for the data, so that callers can reuse their
+     * own buffers. The {@code output} array must have room for {@code inputLength} bytes after
+     * the {@code outputOffset}.
+     *
+     * @param key          the encryption key
+     * @param iv           the initialization vector
+     * @param input        the array containing the data to be decrypted
+     * @param inputOffset  the offset of the data to be decrypted
+     * @param inputLength  the length of the data to be decrypted
+     * @param output       the array to write the decrypted data to
+     * @param outputOffset the offset where to write the decrypted data
+     * @return the number of decrypted bytes written into the {@code output} array
+     * @throws CryptoException if any decryption error occurs
+     */
+    int decrypt(SecretKey key, byte[] iv, byte[] input, int inputOffset, int inputLength,
+                byte[] output, int outputOffset) throws CryptoException;
+
+    /**
+     * Encrypts and authenticates {@code inputLength} bytes of the {@code input} array, starting at
+     * {@code inputOffset}, with a {@code key}, the given nonce and the given additional authenticated
+     * data, in a single pass (AES-GCM), and writes the encrypted data followed with the
+     * authentication tag into the {@code output} array, starting at {@code outputOffset}.
+     *
+     * <p>The {@code output} array must have room for {@code inputLength} bytes plus
+     * {@link Constants.CRYPTO#AEAD_TAG_SIZE} bytes after the {@code outputOffset}.
+     *
+     * @param key          the encryption key
+     * @param nonce        the nonce, which must never be used twice with the same key
+     * @param aad          the additional data, which is authenticated but not encrypted
+     * @param input        the array containing the data to be encrypted
+     * @param inputOffset  the offset of the data to be encrypted
+     * @param inputLength  the length of the data to be encrypted
+     * @param output       the array to write the encrypted data and the tag to
+     * @param outputOffset the offset where to write the encrypted data
+     * @return the number of bytes written into the {@code output} array, including the tag
+     * @throws CryptoException if any encryption error occurs
+     */
+    int encryptAuthenticated(SecretKey key, byte[] nonce, byte[] aad, byte[] input, int inputOffset,
+                             int inputLength, byte[] output, int outputOffset) throws CryptoException;
+
+    /**
+     * Verifies and decrypts {@code inputLength} bytes of the {@code input} array, starting at
+     * {@code inputOffset}, with a {@code key}, the given nonce and the given additional authenticated
+     * data, in a single pass (AES-GCM), and writes the decrypted data into the {@code output} array,
+     * starting at {@code outputOffset}.
+     *
+     * <p>The {@code output} array must have room for {@code inputLength} bytes after the
+     * {@code outputOffset}.
+     *
+     * @param key          the encryption key
+     * @param nonce        the nonce used to encrypt the data
+     * @param aad          the additional data, which was authenticated with the encrypted data
+     * @param input        the array containing the data to be decrypted
+     * @param inputOffset  the offset of the data to be decrypted
+     * @param inputLength  the length of the data to be decrypted
+     * @param tag          the array containing the authentication tag
+     * @param tagOffset    the offset of the authentication tag
+     * @param output       the array to write the decrypted data to
+     * @param outputOffset the offset where to write the decrypted data
+     * @return the number of decrypted bytes written into the {@code output} array
+     * @throws CryptoException if the authentication tag does not match, or if any decryption error occurs
+     */
+    int decryptAuthenticated(SecretKey key, byte[] nonce, byte[] aad, byte[] input, int inputOffset,
+                             int inputLength, byte[] tag, int tagOffset, byte[] output, int outputOffset)
+            throws CryptoException;
+
+    /**
+     * Fills the given array with cryptographically strong random bytes.
+     *
+     * @param bytes the array to fill
+     */
+    void generateRandomBytes(byte[] bytes);
+
     /**
      * Initializes a MAC with a given signature {@code key} and returns..
      *
@@ -114,6 +223,19 @@ public interface Crypto {
      */
     Mac initMac(SecretKey key) throws CryptoException;
 
+    /**
+     * Returns a MAC initialized with a given signature {@code key}, which belongs to the calling
+     * thread and is reused by the next calls of this method from the same thread with the same key.
+     *
+     * <p>This avoids creating a new MAC for each signature. The returned MAC must only be used by
+     * the calling thread, to compute one signature, before this method is called again.
+     *
+     * @param key the signature key
+     * @return the reset MAC of the calling thread for the given {@code key}
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    Mac pooledMac(SecretKey key) throws CryptoException;
+
     /**
      * Computes the signature of the given binary {@code data}, with the given {@code key}.
      *
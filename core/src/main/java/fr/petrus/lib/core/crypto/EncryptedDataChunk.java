@@ -621,7 +621,7 @@ public class EncryptedDataChunk {
      * @throws CryptoException if any cryptography error occurs
      */
     private byte[] computeSignature(SecretKey key) throws CryptoException {
-        Mac mac = crypto.initMac(key);
+        Mac mac = crypto.pooledMac(key);
         mac.update(NumberConv.intToByteArray(iv.length));
         mac.update(iv);
         mac.update(NumberConv.intToByteArray(data.length));
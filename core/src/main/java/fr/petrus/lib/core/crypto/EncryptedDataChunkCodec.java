@@ -0,0 +1,646 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+package fr.petrus.lib.core.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.crypto.mac.Mac;
+import fr.petrus.lib.core.result.ProcessProgressListener;
+import fr.petrus.lib.core.utils.NumberConv;
+import fr.petrus.lib.core.utils.StreamUtils;
+
+/**
+ * This class encodes and decodes {@link EncryptedDataChunk}s using buffers which are reused
+ * from one chunk to the next.
+ *
+ * <p>The serialized chunks are the same as the ones produced by {@link EncryptedDataChunk#write},
+ * but the clear data, the encrypted data, the headers and the signature are all processed in place,
+ * so that encoding or decoding a stream of chunks does not allocate memory for each chunk once
+ * the buffers have grown to the chunk size.
+ *
+ * <p>Chunks are encoded with the chunk format version given to the constructor. The legacy version
+ * ({@link Constants.CRYPTO#CHUNK_VERSION}) encrypts the data with AES-CBC and signs it with a separate
+ * HMAC pass. The authenticated version ({@link Constants.CRYPTO#CHUNK_VERSION_AEAD}) encrypts and
+ * authenticates the data in a single AES-GCM pass : the signature field holds the GCM tag, the
+ * initialization vector field holds the nonce, and the chunk prefix and version are authenticated
+ * as additional data. Both versions are decoded, whatever the version used to encode.
+ *
+ * <p>An instance of this class is not thread safe : it must only be used by one thread at a time.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptedDataChunkCodec {
+
+    /**
+     * The number of bytes used in the serialized array to represent the format version.
+     */
+    private static final int VERSION_BYTES = 2;
+
+    /**
+     * The number of bytes used in the serialized array to represent lengths.
+     */
+    private static final int LENGTH_BYTES = 4;
+
+    /**
+     * The number of bytes of the serialized chunk before the signature.
+     */
+    private static final int HEADER_BYTES = Constants.CRYPTO.CHUNK_PREFIX.length + VERSION_BYTES + LENGTH_BYTES;
+
+    /**
+     * The initial size of the buffers, which grow as needed up to the chunk size.
+     */
+    private static final int INITIAL_BUFFER_SIZE = Constants.FILE.BUFFER_SIZE;
+
+    /**
+     * The maximum length accepted for the signature and the initialization vector of a serialized chunk.
+     */
+    private static final int MAX_FIELD_LENGTH = 1024;
+
+    /**
+     * The maximum number of bytes added to the clear data by the encryption (padding or tag).
+     */
+    private static final int MAX_ENCRYPTION_OVERHEAD =
+            Math.max(Constants.CRYPTO.AES_BLOCK_SIZE, Constants.CRYPTO.AEAD_TAG_SIZE);
+
+    private Crypto crypto;
+    private SecretKeys secretKeys;
+    private int chunkSize;
+    private short chunkVersion;
+
+    /**
+     * The additional authenticated data of the AEAD chunks : the chunk prefix and version.
+     */
+    private byte[] aeadAdditionalData;
+
+    /**
+     * The MAC used to sign or verify the chunks, which is reinitialized by each signature.
+     */
+    private Mac mac;
+
+    /**
+     * The buffer holding the signature computed when verifying a chunk.
+     */
+    private byte[] computedSignature;
+
+    /**
+     * The buffer holding the initialization vector.
+     */
+    private byte[] iv;
+
+    /**
+     * The buffer holding the clear data.
+     */
+    private byte[] clearData;
+    private int clearDataLength;
+
+    /**
+     * The buffer holding the serialized chunk.
+     */
+    private byte[] encodedChunk;
+    private int encodedChunkLength;
+
+    /**
+     * The positions of the parts of the serialized chunk.
+     */
+    private int signatureOffset;
+    private int signatureLength;
+    private int ivOffset;
+    private int ivLength;
+    private int dataOffset;
+    private int dataLength;
+
+    /**
+     * Creates a new {@code EncryptedDataChunkCodec}, which chunks will be processed with the given
+     * {@code secretKeys}.
+     *
+     * @param crypto     the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys the secret keys used to encrypt, decrypt, sign and verify the chunks
+     * @param chunkSize  the maximum size of the clear data of the chunks produced or accepted by this codec
+     * @throws CryptoException if the MAC cannot be initialized
+     */
+    public EncryptedDataChunkCodec(Crypto crypto, SecretKeys secretKeys, int chunkSize) throws CryptoException {
+        this(crypto, secretKeys, chunkSize, Constants.CRYPTO.CHUNK_VERSION);
+    }
+
+    /**
+     * Creates a new {@code EncryptedDataChunkCodec}, which chunks will be processed with the given
+     * {@code secretKeys}, and encoded with the given chunk format version.
+     *
+     * @param crypto       the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys   the secret keys used to encrypt, decrypt, sign and verify the chunks
+     * @param chunkSize    the maximum size of the clear data of the chunks produced or accepted by this
+     *                     codec : longer serialized chunks are rejected when reading
+     * @param chunkVersion the format version of the encoded chunks : {@link Constants.CRYPTO#CHUNK_VERSION}
+     *                     or {@link Constants.CRYPTO#CHUNK_VERSION_AEAD}
+     * @throws CryptoException if the MAC cannot be initialized
+     */
+    public EncryptedDataChunkCodec(Crypto crypto, SecretKeys secretKeys, int chunkSize, short chunkVersion)
+            throws CryptoException {
+        if (Constants.CRYPTO.CHUNK_VERSION != chunkVersion && Constants.CRYPTO.CHUNK_VERSION_AEAD != chunkVersion) {
+            throw new IllegalArgumentException("Unsupported chunk version " + chunkVersion);
+        }
+        this.crypto = crypto;
+        this.secretKeys = secretKeys;
+        this.chunkSize = chunkSize;
+        this.chunkVersion = chunkVersion;
+        aeadAdditionalData = new byte[HEADER_BYTES - LENGTH_BYTES];
+        System.arraycopy(Constants.CRYPTO.CHUNK_PREFIX, 0, aeadAdditionalData, 0,
+                Constants.CRYPTO.CHUNK_PREFIX.length);
+        NumberConv.shortToByteArray(Constants.CRYPTO.CHUNK_VERSION_AEAD, aeadAdditionalData,
+                Constants.CRYPTO.CHUNK_PREFIX.length);
+        mac = crypto.initMac(secretKeys.getSignatureKey());
+        computedSignature = new byte[mac.getMacLength()];
+        iv = new byte[Constants.CRYPTO.AES_BLOCK_SIZE];
+        clearData = new byte[Math.min(chunkSize, INITIAL_BUFFER_SIZE)];
+        clearDataLength = 0;
+        encodedChunk = new byte[INITIAL_BUFFER_SIZE];
+        encodedChunkLength = 0;
+    }
+
+    /**
+     * Returns the buffer holding the clear data.
+     *
+     * <p>Only the first {@link #getClearDataLength()} bytes are meaningful.
+     *
+     * @return the buffer holding the clear data
+     */
+    public byte[] getClearData() {
+        return clearData;
+    }
+
+    /**
+     * Returns the length of the clear data read by {@link #readClearData} or decoded by {@link #decode}.
+     *
+     * @return the length of the clear data
+     */
+    public int getClearDataLength() {
+        return clearDataLength;
+    }
+
+    /**
+     * Returns the buffer holding the serialized chunk.
+     *
+     * <p>Only the first {@link #getEncodedChunkLength()} bytes are meaningful.
+     *
+     * @return the buffer holding the serialized chunk
+     */
+    public byte[] getEncodedChunk() {
+        return encodedChunk;
+    }
+
+    /**
+     * Returns the length of the serialized chunk produced by {@link #encode} or read by
+     * {@link #readEncodedChunk}.
+     *
+     * @return the length of the serialized chunk
+     */
+    public int getEncodedChunkLength() {
+        return encodedChunkLength;
+    }
+
+    /**
+     * Returns a copy of the signature of the serialized chunk.
+     *
+     * @return a copy of the signature of the serialized chunk
+     */
+    public byte[] getSignature() {
+        return Arrays.copyOfRange(encodedChunk, signatureOffset, signatureOffset + signatureLength);
+    }
+
+    /**
+     * Reads no more than one chunk of clear data from the given {@code inputStream}.
+     *
+     * <p>This method does not close the {@code inputStream}.
+     *
+     * @param inputStream the input stream to read the clear data from
+     * @param listener    the listener used to handle pause/cancelation, may be null
+     * @return the number of bytes read, 0 if the end of the stream was reached
+     * @throws IOException if an error occurs while reading
+     */
+    public int readClearData(InputStream inputStream, ProcessProgressListener listener) throws IOException {
+        clearDataLength = 0;
+        while (clearDataLength < chunkSize) {
+            if (clearDataLength == clearData.length) {
+                clearData = Arrays.copyOf(clearData, Math.min(chunkSize, 2 * clearData.length));
+            }
+            int bytesRead = inputStream.read(clearData, clearDataLength, clearData.length - clearDataLength);
+            if (-1 == bytesRead) {
+                break;
+            }
+            clearDataLength += bytesRead;
+            if (null != listener) {
+                listener.pauseIfNeeded();
+                if (listener.isCanceled()) {
+                    break;
+                }
+            }
+        }
+        return clearDataLength;
+    }
+
+    /**
+     * Encrypts and signs the clear data held by this codec, and serializes the resulting chunk.
+     *
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    public void encode() throws CryptoException {
+        boolean aead = Constants.CRYPTO.CHUNK_VERSION_AEAD == chunkVersion;
+        int ivSize = aead ? Constants.CRYPTO.AEAD_NONCE_SIZE : Constants.CRYPTO.AES_BLOCK_SIZE;
+        if (iv.length != ivSize) {
+            iv = new byte[ivSize];
+        }
+        ensureEncodedChunkCapacity(HEADER_BYTES + mac.getMacLength() + 3 * LENGTH_BYTES + iv.length
+                + clearDataLength + Math.max(Constants.CRYPTO.AES_BLOCK_SIZE, Constants.CRYPTO.AEAD_TAG_SIZE));
+
+        /* Write the prefix and the format version */
+        System.arraycopy(Constants.CRYPTO.CHUNK_PREFIX, 0, encodedChunk, 0,
+                Constants.CRYPTO.CHUNK_PREFIX.length);
+        int currentPos = NumberConv.shortToByteArray(chunkVersion, encodedChunk,
+                Constants.CRYPTO.CHUNK_PREFIX.length);
+
+        /* Reserve room for the signature, which will be computed at the end */
+        signatureLength = aead ? Constants.CRYPTO.AEAD_TAG_SIZE : mac.getMacLength();
+        currentPos = NumberConv.intToByteArray(signatureLength, encodedChunk, currentPos);
+        signatureOffset = currentPos;
+        currentPos += signatureLength;
+
+        /* Generate a random initialization vector and write it */
+        crypto.generateRandomBytes(iv);
+        ivLength = iv.length;
+        currentPos = NumberConv.intToByteArray(ivLength, encodedChunk, currentPos);
+        ivOffset = currentPos;
+        System.arraycopy(iv, 0, encodedChunk, ivOffset, ivLength);
+        currentPos += ivLength;
+
+        /* Encrypt the data directly after its length */
+        dataOffset = currentPos + LENGTH_BYTES;
+        if (aead) {
+            /* The tag is written after the encrypted data, then moved to the signature field */
+            try {
+                dataLength = crypto.encryptAuthenticated(secretKeys.getEncryptionKey(), iv, aeadAdditionalData,
+                        clearData, 0, clearDataLength, encodedChunk, dataOffset) - signatureLength;
+            } catch (CryptoException e) {
+                throw new CryptoException("Failed to encrypt data", e);
+            }
+            System.arraycopy(encodedChunk, dataOffset + dataLength, encodedChunk, signatureOffset, signatureLength);
+            NumberConv.intToByteArray(dataLength, encodedChunk, currentPos);
+            encodedChunkLength = dataOffset + dataLength;
+            return;
+        }
+        try {
+            dataLength = crypto.encrypt(secretKeys.getEncryptionKey(), iv, clearData, 0, clearDataLength,
+                    encodedChunk, dataOffset);
+        } catch (CryptoException e) {
+            throw new CryptoException("Failed to encrypt data", e);
+        }
+        NumberConv.intToByteArray(dataLength, encodedChunk, currentPos);
+        encodedChunkLength = dataOffset + dataLength;
+
+        /* Sign the initialization vector and the encrypted data, with their lengths */
+        try {
+            signInto(encodedChunk, signatureOffset);
+        } catch (CryptoException e) {
+            throw new CryptoException("Failed to compute data chunk signature", e);
+        }
+    }
+
+    /**
+     * Writes the serialized chunk to the given {@code outputStream}.
+     *
+     * <p>This method does not close the {@code outputStream}.
+     *
+     * @param outputStream the output stream to write to
+     * @throws IOException if an error occurs while writing
+     */
+    public void writeEncodedChunk(OutputStream outputStream) throws IOException {
+        outputStream.write(encodedChunk, 0, encodedChunkLength);
+    }
+
+    /**
+     * Reads a serialized chunk from the given {@code inputStream}.
+     *
+     * <p>A chunk which data is longer than the chunk size of this codec (plus padding) is rejected
+     * before its data is read, so that a malformed stream cannot make this codec allocate a huge buffer.
+     *
+     * <p>This method does not close the {@code inputStream}.
+     *
+     * @param inputStream the input stream to read from
+     * @return true if a complete and acceptable chunk was read, false otherwise
+     * @throws IOException if an error occurs while reading
+     */
+    public boolean readEncodedChunk(InputStream inputStream) throws IOException {
+        encodedChunkLength = 0;
+        clearDataLength = 0;
+
+        /* Read and check the prefix, then read the version and the signature length */
+        if (!readEncodedBytes(inputStream, HEADER_BYTES)) {
+            return false;
+        }
+        for (int i = 0; i < Constants.CRYPTO.CHUNK_PREFIX.length; i++) {
+            if (encodedChunk[i] != Constants.CRYPTO.CHUNK_PREFIX[i]) {
+                return false;
+            }
+        }
+        signatureOffset = HEADER_BYTES;
+        signatureLength = NumberConv.byteArrayToInt(encodedChunk, HEADER_BYTES - LENGTH_BYTES);
+
+        /* Read the signature itself, and the initialization vector length */
+        if (signatureLength < 0 || signatureLength > MAX_FIELD_LENGTH
+                || !readEncodedBytes(inputStream, signatureLength + LENGTH_BYTES)) {
+            return false;
+        }
+        ivOffset = encodedChunkLength;
+        ivLength = NumberConv.byteArrayToInt(encodedChunk, ivOffset - LENGTH_BYTES);
+
+        /* Read the initialization vector itself, and the encrypted data length */
+        if (ivLength < 0 || ivLength > MAX_FIELD_LENGTH
+                || !readEncodedBytes(inputStream, ivLength + LENGTH_BYTES)) {
+            return false;
+        }
+        dataOffset = encodedChunkLength;
+        dataLength = NumberConv.byteArrayToInt(encodedChunk, dataOffset - LENGTH_BYTES);
+
+        /* Read the encrypted data itself */
+        return dataLength >= 0 && dataLength <= chunkSize + MAX_ENCRYPTION_OVERHEAD
+                && readEncodedBytes(inputStream, dataLength);
+    }
+
+    /**
+     * Reads a serialized chunk of the given {@code length}, at the given {@code position} of the
+     * given {@code channel}, with positional reads which do not change the channel position.
+     *
+     * @param channel  the channel to read from
+     * @param position the position of the serialized chunk in the channel
+     * @param length   the length of the serialized chunk
+     * @return true if a complete and well formed chunk was read, false otherwise
+     * @throws IOException if an error occurs while reading
+     */
+    public boolean readEncodedChunk(FileChannel channel, long position, int length) throws IOException {
+        encodedChunkLength = 0;
+        clearDataLength = 0;
+        if (length < HEADER_BYTES || length > HEADER_BYTES + 2 * (MAX_FIELD_LENGTH + LENGTH_BYTES)
+                + chunkSize + MAX_ENCRYPTION_OVERHEAD) {
+            return false;
+        }
+        ensureEncodedChunkCapacity(length);
+        ByteBuffer buffer = ByteBuffer.wrap(encodedChunk, 0, length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        encodedChunkLength = length;
+
+        /* Check the prefix, then locate the signature, the initialization vector and the data */
+        for (int i = 0; i < Constants.CRYPTO.CHUNK_PREFIX.length; i++) {
+            if (encodedChunk[i] != Constants.CRYPTO.CHUNK_PREFIX[i]) {
+                return false;
+            }
+        }
+        signatureOffset = HEADER_BYTES;
+        signatureLength = NumberConv.byteArrayToInt(encodedChunk, HEADER_BYTES - LENGTH_BYTES);
+        if (signatureLength < 0 || signatureLength > length - signatureOffset - LENGTH_BYTES) {
+            return false;
+        }
+        ivOffset = signatureOffset + signatureLength + LENGTH_BYTES;
+        ivLength = NumberConv.byteArrayToInt(encodedChunk, ivOffset - LENGTH_BYTES);
+        if (ivLength < 0 || ivLength > length - ivOffset - LENGTH_BYTES) {
+            return false;
+        }
+        dataOffset = ivOffset + ivLength + LENGTH_BYTES;
+        dataLength = NumberConv.byteArrayToInt(encodedChunk, dataOffset - LENGTH_BYTES);
+        return dataLength == length - dataOffset;
+    }
+
+    /**
+     * Checks whether the signature of the serialized chunk is the given {@code signature}.
+     *
+     * @param signature the expected signature
+     * @return true if the signature of the serialized chunk is the given {@code signature}
+     */
+    public boolean hasSignature(byte[] signature) {
+        if (null == signature || signature.length != signatureLength) {
+            return false;
+        }
+        for (int i = 0; i < signatureLength; i++) {
+            if (signature[i] != encodedChunk[signatureOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies the signature of the serialized chunk, without decrypting it when its format allows it.
+     *
+     * <p>The GCM tag of an authenticated chunk can only be checked by decrypting the chunk, so such
+     * a chunk is decoded into the clear data buffer.
+     *
+     * @return true if the signature of the serialized chunk is valid
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    public boolean verifySignature() throws CryptoException {
+        if (Constants.CRYPTO.CHUNK_VERSION_AEAD == getEncodedChunkVersion()) {
+            try {
+                decodeAuthenticated();
+                return true;
+            } catch (CryptoException e) {
+                return false;
+            }
+        }
+        return Constants.CRYPTO.CHUNK_VERSION == getEncodedChunkVersion() && verify();
+    }
+
+    /**
+     * Verifies the signature of the serialized chunk, then decrypts it into the clear data buffer.
+     *
+     * @throws CryptoException if the signature does not match or if any cryptographic error occurs
+     */
+    public void decode() throws CryptoException {
+        if (Constants.CRYPTO.CHUNK_VERSION_AEAD == getEncodedChunkVersion()) {
+            decodeAuthenticated();
+            return;
+        } else if (Constants.CRYPTO.CHUNK_VERSION != getEncodedChunkVersion()) {
+            throw new CryptoException("Unsupported data chunk version");
+        }
+        if (!verify()) {
+            throw new CryptoException("Failed to verify data chunk signature or data was tampered with");
+        }
+
+        if (ivLength != iv.length) {
+            iv = new byte[ivLength];
+        }
+        System.arraycopy(encodedChunk, ivOffset, iv, 0, ivLength);
+        if (clearData.length < dataLength) {
+            clearData = new byte[dataLength];
+        }
+        try {
+            clearDataLength = crypto.decrypt(secretKeys.getEncryptionKey(), iv, encodedChunk, dataOffset,
+                    dataLength, clearData, 0);
+        } catch (CryptoException e) {
+            throw new CryptoException("Failed to decrypt data", e);
+        }
+    }
+
+    /**
+     * Returns the format version of the serialized chunk.
+     *
+     * @return the format version of the serialized chunk
+     */
+    public short getEncodedChunkVersion() {
+        return NumberConv.byteArrayToShort(encodedChunk, Constants.CRYPTO.CHUNK_PREFIX.length);
+    }
+
+    /**
+     * Verifies and decrypts the AES-GCM serialized chunk, in a single pass, into the clear data buffer.
+     *
+     * @throws CryptoException if the tag does not match or if any cryptographic error occurs
+     */
+    private void decodeAuthenticated() throws CryptoException {
+        if (Constants.CRYPTO.AEAD_TAG_SIZE != signatureLength || Constants.CRYPTO.AEAD_NONCE_SIZE != ivLength) {
+            throw new CryptoException("Failed to verify data chunk signature or data was tampered with");
+        }
+        if (ivLength != iv.length) {
+            iv = new byte[ivLength];
+        }
+        System.arraycopy(encodedChunk, ivOffset, iv, 0, ivLength);
+        if (clearData.length < dataLength) {
+            clearData = new byte[dataLength];
+        }
+        try {
+            clearDataLength = crypto.decryptAuthenticated(secretKeys.getEncryptionKey(), iv, aeadAdditionalData,
+                    encodedChunk, dataOffset, dataLength, encodedChunk, signatureOffset, clearData, 0);
+        } catch (CryptoException e) {
+            throw new CryptoException("Failed to verify data chunk signature or data was tampered with", e);
+        }
+    }
+
+    /**
+     * Writes the clear data to the given {@code outputStream}.
+     *
+     * <p>This method does not close the {@code outputStream}.
+     *
+     * @param outputStream the output stream to write to
+     * @param listener     the listener used to handle pause/cancelation, may be null
+     * @throws IOException if an error occurs while writing
+     */
+    public void writeClearData(OutputStream outputStream, ProcessProgressListener listener) throws IOException {
+        StreamUtils.write(outputStream, clearData, 0, clearDataLength, Constants.FILE.BUFFER_SIZE, listener);
+    }
+
+    /**
+     * Feeds the given {@code globalMac} with the signature of the serialized chunk.
+     *
+     * @param globalMac the MAC to feed with the signature
+     */
+    public void updateMac(Mac globalMac) {
+        globalMac.update(encodedChunk, signatureOffset, signatureLength);
+    }
+
+    /**
+     * Computes the signature of the initialization vector and the encrypted data, with their lengths,
+     * and compares it to the signature of the serialized chunk.
+     *
+     * @return true if the computed signature matches the signature of the serialized chunk
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    private boolean verify() throws CryptoException {
+        if (0 == ivLength || 0 == dataLength || signatureLength != computedSignature.length) {
+            return false;
+        }
+        try {
+            signInto(computedSignature, 0);
+        } catch (CryptoException e) {
+            throw new CryptoException("Failed to compute data chunk signature", e);
+        }
+        int diff = 0;
+        for (int i = 0; i < signatureLength; i++) {
+            diff |= computedSignature[i] ^ encodedChunk[signatureOffset + i];
+        }
+        return 0 == diff;
+    }
+
+    /**
+     * Signs the initialization vector and the encrypted data, with their lengths, which are
+     * contiguous in the serialized chunk.
+     *
+     * @param output the array to write the signature to
+     * @param offset the offset where to write the signature
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    private void signInto(byte[] output, int offset) throws CryptoException {
+        int signedOffset = ivOffset - LENGTH_BYTES;
+        mac.update(encodedChunk, signedOffset, dataOffset + dataLength - signedOffset);
+        mac.doFinal(output, offset);
+    }
+
+    /**
+     * Reads exactly {@code length} bytes from the given {@code inputStream}, and appends them to the
+     * serialized chunk.
+     *
+     * @param inputStream the input stream to read from
+     * @param length      the number of bytes to read
+     * @return true if all the bytes were read
+     * @throws IOException if an error occurs while reading
+     */
+    private boolean readEncodedBytes(InputStream inputStream, int length) throws IOException {
+        if (length > Integer.MAX_VALUE - encodedChunkLength) {
+            return false;
+        }
+        ensureEncodedChunkCapacity(encodedChunkLength + length);
+        int bytesRead = StreamUtils.readFully(inputStream, encodedChunk, encodedChunkLength, length);
+        encodedChunkLength += bytesRead;
+        return bytesRead == length;
+    }
+
+    /**
+     * Grows the serialized chunk buffer if it is smaller than the given {@code capacity}.
+     *
+     * @param capacity the minimum capacity of the serialized chunk buffer
+     */
+    private void ensureEncodedChunkCapacity(int capacity) {
+        if (encodedChunk.length < capacity) {
+            encodedChunk = Arrays.copyOf(encodedChunk, Math.max(capacity, 2 * encodedChunk.length));
+        }
+    }
+}
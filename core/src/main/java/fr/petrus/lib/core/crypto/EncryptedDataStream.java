@@ -39,15 +39,36 @@ package fr.petrus.lib.core.crypto;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.crypto.mac.Mac;
 import fr.petrus.lib.core.result.ProcessProgressAdapter;
 import fr.petrus.lib.core.result.ProcessProgressListener;
+import fr.petrus.lib.core.utils.MappedFileInputStream;
 import fr.petrus.lib.core.utils.NumberConv;
 import fr.petrus.lib.core.utils.StreamUtils;
 
@@ -64,8 +85,13 @@ public class EncryptedDataStream {
     /**
      * Section types : an EncryptedDataStream is made of several data chunks and a global signature
      */
-    private static final int SECTION_TYPE_SIGNATURE = 0;
-    private static final int SECTION_TYPE_CHUNK = 1;
+    static final int SECTION_TYPE_SIGNATURE = 0;
+    static final int SECTION_TYPE_CHUNK = 1;
+
+    /**
+     * The section type of the optional chunk index trailer, written after the global signature.
+     */
+    static final int SECTION_TYPE_INDEX = 2;
 
     /**
      * The number of bytes used in the serialized array to represent the format version.
@@ -77,6 +103,29 @@ public class EncryptedDataStream {
      */
     private static final int LENGTH_BYTES = 4;
 
+    /**
+     * The number of chunks which may wait in the pipeline for each worker thread, when processing
+     * data with several worker threads.
+     */
+    private static final int PIPELINE_CHUNKS_PER_WORKER = 2;
+
+    /**
+     * The delay (in milliseconds) between two checks of the pipeline state, when a stage is waiting.
+     */
+    private static final long PIPELINE_POLL_DELAY_MS = 100;
+
+    /**
+     * The thread pool which encrypts, decrypts, signs and verifies data chunks, shared by all
+     * the streams processed with several worker threads.
+     */
+    private static ExecutorService workersExecutor = null;
+
+    /**
+     * The thread pool which runs the reading stage of the streams processed with several worker
+     * threads.
+     */
+    private static ExecutorService readersExecutor = null;
+
     /**
      * The format version
      */
@@ -86,15 +135,222 @@ public class EncryptedDataStream {
 
     private SecretKeys secretKeys;
 
+    /**
+     * The number of chunks which may be encrypted or decrypted at the same time.
+     */
+    private int workerThreads;
+    private long pipelineMemoryBudget;
+
+    /**
+     * Whether a chunk index trailer is written after the global signature when encrypting.
+     */
+    private boolean writeIndex;
+
+    /**
+     * Whether the chunks are encrypted with AES-GCM instead of AES-CBC and HMAC when encrypting.
+     */
+    private boolean authenticatedEncryption;
+
+    /**
+     * The maximum length of the clear data of each chunk, when encrypting.
+     */
+    private int chunkSize;
+
     /**
      * Creates a new EncryptedDataStream, which data will be processed with the given {@code secretKeys}.
      *
+     * <p>By default, the data is processed sequentially by the calling thread.
+     *
      * @param secretKeys the secret keys used to encrypt, decrypt, sign and verify the data
      */
     public EncryptedDataStream(Crypto crypto, SecretKeys secretKeys) {
         this.crypto = crypto;
         this.secretKeys = secretKeys;
         this.version = Constants.CRYPTO.STREAM_VERSION;
+        this.workerThreads = 1;
+        this.pipelineMemoryBudget = Constants.CRYPTO.PIPELINE_MEMORY_BUDGET;
+        this.writeIndex = false;
+        this.authenticatedEncryption = false;
+        this.chunkSize = Constants.CRYPTO.DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * Sets the maximum length of the clear data of each chunk, when encrypting.
+     *
+     * <p>Small chunks make random access cheaper, because less data has to be decrypted to read
+     * a few bytes, while large chunks reduce the per-chunk overhead for data which is always read
+     * from the beginning to the end. When it is not {@link Constants.CRYPTO#DEFAULT_CHUNK_SIZE},
+     * the chunk size is recorded in the stream header, and the stream format version is flagged
+     * with {@link Constants.CRYPTO#STREAM_VERSION_CHUNK_SIZE_FLAG}, so that streams encrypted with
+     * the default chunk size remain readable by older readers.
+     *
+     * @param chunkSize the maximum length of the clear data of each chunk
+     * @throws IllegalArgumentException if {@code chunkSize} is not between
+     *                                  {@link Constants.CRYPTO#MIN_CHUNK_SIZE} and
+     *                                  {@link Constants.CRYPTO#MAX_CHUNK_SIZE}
+     * @see ChunkSizePolicy
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < Constants.CRYPTO.MIN_CHUNK_SIZE || chunkSize > Constants.CRYPTO.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size : " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the maximum length of the clear data of each chunk, when encrypting.
+     *
+     * @return the maximum length of the clear data of each chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets whether the chunks are encrypted and authenticated in a single AES-GCM pass, instead of
+     * being encrypted with AES-CBC and signed with a separate HMAC pass, when encrypting.
+     *
+     * <p>The AES-GCM chunks have the format version {@link Constants.CRYPTO#CHUNK_VERSION_AEAD},
+     * and the stream has the format version {@link Constants.CRYPTO#STREAM_VERSION_AEAD}. The global
+     * signature is computed over the GCM tags, in the same way as over the HMAC chunk signatures.
+     * Both kinds of chunks are always decrypted, but readers older than this format cannot decrypt
+     * AES-GCM chunks.
+     *
+     * @param authenticatedEncryption true to encrypt the chunks with AES-GCM
+     */
+    public void setAuthenticatedEncryption(boolean authenticatedEncryption) {
+        this.authenticatedEncryption = authenticatedEncryption;
+    }
+
+    /**
+     * Returns whether the chunks are encrypted with AES-GCM when encrypting.
+     *
+     * @return true if the chunks are encrypted with AES-GCM
+     */
+    public boolean isAuthenticatedEncryption() {
+        return authenticatedEncryption;
+    }
+
+    /**
+     * Sets whether a signed chunk index trailer is written after the global signature when encrypting.
+     *
+     * <p>The index lets {@link SeekableEncryptedChannel} open the file without scanning all the
+     * chunk headers. When it is written, the stream format version is
+     * flagged with {@link Constants.CRYPTO#STREAM_VERSION_INDEX_FLAG}. Readers which do not know about the index
+     * stop at the global signature, and never read it.
+     *
+     * @param writeIndex true to write the chunk index trailer
+     * @see EncryptedDataStreamIndex
+     */
+    public void setWriteIndex(boolean writeIndex) {
+        this.writeIndex = writeIndex;
+    }
+
+    /**
+     * Returns whether a chunk index trailer is written after the global signature when encrypting.
+     *
+     * @return true if the chunk index trailer is written
+     */
+    public boolean isWriteIndex() {
+        return writeIndex;
+    }
+
+    /**
+     * Sets the number of chunks which may be encrypted or decrypted at the same time.
+     *
+     * <p>If {@code workerThreads} is greater than 1, reading, cryptographic operations and writing
+     * are performed in a pipeline : a reader thread reads the chunks, a pool of worker threads
+     * encrypt (or decrypt) and sign (or verify) them, and the calling thread writes them in their
+     * original order, feeding the global signature with the chunk signatures in the same order.
+     * The resulting data is the same as if it was processed sequentially.
+     *
+     * @param workerThreads the number of chunks which may be processed at the same time
+     */
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads < 1 ? 1 : workerThreads;
+    }
+
+    /**
+     * Returns the number of chunks which may be encrypted or decrypted at the same time.
+     *
+     * @return the number of chunks which may be encrypted or decrypted at the same time
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Sets the maximum size of the chunk buffers which may be held at the same time when the data is
+     * processed with several worker threads.
+     *
+     * <p>Each chunk in the pipeline holds a clear and an encrypted buffer of the chunk size, so with
+     * large chunks, less chunks are processed at the same time than the number of worker threads.
+     * The pipeline always holds at least 3 chunks : one being read, one being processed and one
+     * being written.
+     *
+     * @param pipelineMemoryBudget the maximum size (in bytes) of the chunk buffers of the pipeline
+     */
+    public void setPipelineMemoryBudget(long pipelineMemoryBudget) {
+        this.pipelineMemoryBudget = pipelineMemoryBudget;
+    }
+
+    /**
+     * Returns the maximum size of the chunk buffers which may be held at the same time when the
+     * data is processed with several worker threads.
+     *
+     * @return the maximum size (in bytes) of the chunk buffers of the pipeline
+     */
+    public long getPipelineMemoryBudget() {
+        return pipelineMemoryBudget;
+    }
+
+    /**
+     * Returns the length of the data which will be written when encrypting {@code clearLength}
+     * bytes of clear data with the current settings of this stream.
+     *
+     * <p>This allows to send the encrypted data while it is produced, with a known content length.
+     *
+     * @param clearLength the length of the clear data
+     * @return the length of the encrypted data
+     * @throws CryptoException if the signature object cannot be initialized
+     */
+    public long encryptedLength(long clearLength) throws CryptoException {
+        int macLength = crypto.initMac(secretKeys.getSignatureKey()).getMacLength();
+        int signatureLength = authenticatedEncryption ? Constants.CRYPTO.AEAD_TAG_SIZE : macLength;
+        int ivLength = authenticatedEncryption ? Constants.CRYPTO.AEAD_NONCE_SIZE : Constants.CRYPTO.AES_BLOCK_SIZE;
+
+        /* The header */
+        long length = Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES
+                + (Constants.CRYPTO.DEFAULT_CHUNK_SIZE != chunkSize ? LENGTH_BYTES : 0);
+
+        /* The chunks : every chunk is full, except the last one */
+        long chunks = (clearLength + chunkSize - 1) / chunkSize;
+        length += chunks * (1 + Constants.CRYPTO.CHUNK_PREFIX.length + VERSION_BYTES
+                + LENGTH_BYTES + signatureLength + LENGTH_BYTES + ivLength + LENGTH_BYTES);
+        if (authenticatedEncryption) {
+            length += clearLength;
+        } else if (chunks > 0) {
+            /* AES-CBC data is padded to the next full block */
+            length += (chunks - 1) * paddedLength(chunkSize)
+                    + paddedLength(clearLength - (chunks - 1) * chunkSize);
+        }
+
+        /* The global signature, and the chunk index trailer */
+        length += 1 + LENGTH_BYTES + macLength;
+        if (writeIndex) {
+            length += EncryptedDataStreamIndex.trailerLength(chunks, signatureLength, macLength);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the length of {@code clearLength} bytes of data, encrypted with AES-CBC.
+     *
+     * @param clearLength the length of the clear data
+     * @return the length of the encrypted data, padded to the next full block
+     */
+    private static long paddedLength(long clearLength) {
+        return (clearLength / Constants.CRYPTO.AES_BLOCK_SIZE + 1) * Constants.CRYPTO.AES_BLOCK_SIZE;
     }
 
     /**
@@ -108,13 +364,85 @@ public class EncryptedDataStream {
      */
     public void encrypt(InputStream inputStream, OutputStream outputStream, final ProcessProgressListener listener)
             throws CryptoException {
+        encrypt(inputStream, new StreamChunkOutput(outputStream), listener);
+    }
+
+    /**
+     * Encrypts and signs the data of the given {@code srcFile}, then writes the result to the
+     * given {@code dstFile}, followed with a global signature.
+     *
+     * @param srcFile  the file to read the clear data from.
+     * @param dstFile  the file to write the encrypted data to.
+     * @param listener a listener used to report the progress and handle pause/cancelation
+     * @throws CryptoException if any cryptographic error occurs, or if the files cannot be opened
+     * @see #encrypt(FileChannel, GatheringByteChannel, ProcessProgressListener)
+     */
+    public void encrypt(File srcFile, File dstFile, final ProcessProgressListener listener)
+            throws CryptoException {
+        try (FileChannel srcChannel = new FileInputStream(srcFile).getChannel();
+             FileChannel dstChannel = new FileOutputStream(dstFile).getChannel()) {
+            encrypt(srcChannel, dstChannel, listener);
+        } catch (IOException e) {
+            throw new CryptoException("Failed to open or close the files", e);
+        }
+    }
 
+    /**
+     * Encrypts and signs the data read from the given {@code srcChannel}, then writes the result
+     * to the given {@code dstChannel}, followed with a global signature.
+     *
+     * <p>The source file is mapped into memory, and each chunk is written with a single gathering
+     * write, so that large files are processed with few system calls. The resulting data is the same
+     * as the one produced by {@link #encrypt(InputStream, OutputStream, ProcessProgressListener)}.
+     *
+     * <p>This method does not close the channels.
+     *
+     * @param srcChannel the channel to read the clear data from, from its current position.
+     * @param dstChannel the channel to write the encrypted data to.
+     * @param listener   a listener used to report the progress and handle pause/cancelation
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    public void encrypt(FileChannel srcChannel, GatheringByteChannel dstChannel,
+                        final ProcessProgressListener listener)
+            throws CryptoException {
+        InputStream inputStream;
         try {
-            /* Write the prefix */
-            outputStream.write(Constants.CRYPTO.STREAM_PREFIX);
+            inputStream = new MappedFileInputStream(srcChannel, Constants.FILE.MAPPED_WINDOW_SIZE);
+        } catch (IOException e) {
+            throw new CryptoException("Failed to map the source file", e);
+        }
+        encrypt(inputStream, new ChannelChunkOutput(dstChannel), listener);
+    }
+
+    /**
+     * Encrypts and signs data from the given {@code inputStream}, then writes the result to the
+     * given {@code output}, followed with a global signature.
+     *
+     * @param inputStream the input stream to read the clear data from.
+     * @param output      the output to write the encrypted data to.
+     * @param listener    a listener used to report the progress and handle pause/cancelation
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    private void encrypt(InputStream inputStream, ChunkOutput output, final ProcessProgressListener listener)
+            throws CryptoException {
 
-            /* Write the format version */
-            outputStream.write(NumberConv.shortToByteArray(Constants.CRYPTO.STREAM_VERSION));
+        /* Write the prefix, the format version, and the chunk size if it is not the default one */
+        boolean customChunkSize = Constants.CRYPTO.DEFAULT_CHUNK_SIZE != chunkSize;
+        byte[] header = new byte[Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES
+                + (customChunkSize ? LENGTH_BYTES : 0)];
+        try {
+            System.arraycopy(Constants.CRYPTO.STREAM_PREFIX, 0, header, 0, Constants.CRYPTO.STREAM_PREFIX.length);
+            short streamVersion = authenticatedEncryption ? Constants.CRYPTO.STREAM_VERSION_AEAD
+                    : Constants.CRYPTO.STREAM_VERSION;
+            if (writeIndex) {
+                streamVersion |= Constants.CRYPTO.STREAM_VERSION_INDEX_FLAG;
+            }
+            if (customChunkSize) {
+                streamVersion |= Constants.CRYPTO.STREAM_VERSION_CHUNK_SIZE_FLAG;
+                NumberConv.intToByteArray(chunkSize, header, Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES);
+            }
+            NumberConv.shortToByteArray(streamVersion, header, Constants.CRYPTO.STREAM_PREFIX.length);
+            output.write(header);
         } catch (IOException e) {
             throw new CryptoException("Failed to write the data stream header", e);
         }
@@ -127,6 +455,14 @@ public class EncryptedDataStream {
             throw new CryptoException("Failed to initialize global signature", e);
         }
 
+        EncryptedDataStreamIndex index = writeIndex ? new EncryptedDataStreamIndex(header.length) : null;
+
+        if (workerThreads > 1) {
+            encryptInPipeline(inputStream, output, listener, globalMac, index, chunkSize);
+            return;
+        }
+
+        EncryptedDataChunkCodec codec = newCodec(chunkSize);
         int processedBytes = 0;
         while (true) {
             if (null!=listener) {
@@ -135,60 +471,17 @@ public class EncryptedDataStream {
                     return;
                 }
             }
-            byte[] chunkData = null;
-            try {
-                chunkData = StreamUtils.read(inputStream, Constants.FILE.BUFFER_SIZE,
-                        Constants.CRYPTO.MAX_CHUNK_SIZE, new ProcessProgressAdapter() {
-                            @Override
-                            public boolean isCanceled() {
-                                return null!=listener && listener.isCanceled();
-                            }
-
-                            @Override
-                            public void pauseIfNeeded() {
-                                if (null!=listener) {
-                                    listener.pauseIfNeeded();
-                                }
-                            }
-                        });
-            } catch (IOException e) {
-                LOG.error("IOException : ", e);
-            }
-            if (null == chunkData) {
-                byte[] globalSignature = globalMac.doFinal();
-                try {
-                    outputStream.write(SECTION_TYPE_SIGNATURE);
-                    outputStream.write(NumberConv.intToByteArray(globalSignature.length));
-                    outputStream.write(globalSignature);
-                    outputStream.flush();
-                } catch (IOException e) {
-                    throw new CryptoException("Failed to write global signature", e);
-                }
+            int chunkDataLength = readChunkData(codec, inputStream, listener);
+            if (chunkDataLength <= 0) {
+                writeGlobalSignature(output, globalMac, index);
                 return;
             }
 
-            EncryptedDataChunk cipherDataChunk;
-            try {
-                cipherDataChunk = crypto.encrypt(secretKeys.getEncryptionKey(), chunkData);
-            } catch (CryptoException e) {
-                throw new CryptoException("Failed to encrypt data", e);
-            }
-
-            try {
-                cipherDataChunk.sign(secretKeys.getSignatureKey());
-            } catch (CryptoException e) {
-                throw new CryptoException("Failed to compute data chunk signature", e);
-            }
-            globalMac.update(cipherDataChunk.getSignature());
-
-            try {
-                outputStream.write(SECTION_TYPE_CHUNK);
-                cipherDataChunk.write(outputStream);
-            } catch (IOException e) {
-                throw new CryptoException("Failed to write encrypted data", e);
-            }
+            codec.encode();
+            codec.updateMac(globalMac);
+            writeChunk(output, codec, index);
 
-            processedBytes += chunkData.length;
+            processedBytes += chunkDataLength;
 
             if (null!=listener) {
                 listener.onProgress(0, processedBytes);
@@ -207,23 +500,149 @@ public class EncryptedDataStream {
      */
     public void decrypt(InputStream inputStream, OutputStream outputStream, final ProcessProgressListener listener)
             throws CryptoException {
+        decrypt(inputStream, new StreamChunkOutput(outputStream), listener);
+    }
 
+    /**
+     * Decrypts the data of the given {@code srcFile}, then writes the result to the given
+     * {@code dstFile}.
+     *
+     * @param srcFile  the file to read the encrypted data from.
+     * @param dstFile  the file to write the decrypted data to.
+     * @param listener a listener used to report the progress and handle pause/cancelation
+     * @throws CryptoException if any cryptographic error occurs, or if the files cannot be opened
+     * @see #decrypt(FileChannel, GatheringByteChannel, ProcessProgressListener)
+     */
+    public void decrypt(File srcFile, File dstFile, final ProcessProgressListener listener)
+            throws CryptoException {
+        try (FileChannel srcChannel = new FileInputStream(srcFile).getChannel();
+             FileChannel dstChannel = new FileOutputStream(dstFile).getChannel()) {
+            decrypt(srcChannel, dstChannel, listener);
+        } catch (IOException e) {
+            throw new CryptoException("Failed to open or close the files", e);
+        }
+    }
+
+    /**
+     * Decrypts the data read from the given {@code srcChannel}, then writes the result to the given
+     * {@code dstChannel}.
+     *
+     * <p>The source file is mapped into memory, and the clear data of each chunk is written with
+     * a single write, so that large files are processed with few system calls.
+     *
+     * <p>This method does not close the channels.
+     *
+     * @param srcChannel the channel to read the encrypted data from, from its current position.
+     * @param dstChannel the channel to write the decrypted data to.
+     * @param listener   a listener used to report the progress and handle pause/cancelation
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    public void decrypt(FileChannel srcChannel, GatheringByteChannel dstChannel,
+                        final ProcessProgressListener listener)
+            throws CryptoException {
+        InputStream inputStream;
         try {
-            /* Read and check the prefix */
-            byte[] prefix = new byte[Constants.CRYPTO.STREAM_PREFIX.length];
-            if (prefix.length != inputStream.read(prefix)) {
-                if (!Arrays.equals(Constants.CRYPTO.STREAM_PREFIX, prefix)) {
-                    throw new CryptoException("The data stream prefix does not match");
+            inputStream = new MappedFileInputStream(srcChannel, Constants.FILE.MAPPED_WINDOW_SIZE);
+        } catch (IOException e) {
+            throw new CryptoException("Failed to map the source file", e);
+        }
+        decrypt(inputStream, new ChannelChunkOutput(dstChannel), listener);
+    }
+
+    /**
+     * Returns the length of the beginning of the given encrypted {@code file} which can be trusted :
+     * the data stream header, followed with the complete chunks which signatures are verified.
+     *
+     * <p>This is used to resume an interrupted download of an encrypted file at the boundary of the
+     * last verified chunk, instead of downloading it again from the beginning. The global signature
+     * is never counted, so the returned length is always shorter than the length of a complete stream.
+     *
+     * @param file the encrypted file, which may be incomplete
+     * @return the length of the verified beginning of the {@code file}, or 0 if its header is not valid
+     * @throws CryptoException if the chunk codec cannot be initialized, or a signature cannot be computed
+     */
+    public long verifiedLength(File file) throws CryptoException {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file),
+                Constants.FILE.BUFFER_SIZE)) {
+            /* Read and check the header */
+            byte[] header = new byte[Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES + LENGTH_BYTES];
+            int headerLength = Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES;
+            if (headerLength != StreamUtils.readFully(inputStream, header, 0, headerLength)
+                    || !checkPrefix(header, 0)) {
+                return 0L;
+            }
+            int streamChunkSize = Constants.CRYPTO.DEFAULT_CHUNK_SIZE;
+            short streamVersion = NumberConv.byteArrayToShort(header, Constants.CRYPTO.STREAM_PREFIX.length);
+            if (0 != (streamVersion & ~Constants.CRYPTO.STREAM_VERSION_FLAGS)) {
+                return 0L;
+            }
+            if (0 != (streamVersion & Constants.CRYPTO.STREAM_VERSION_CHUNK_SIZE_FLAG)) {
+                if (LENGTH_BYTES != StreamUtils.readFully(inputStream, header, headerLength, LENGTH_BYTES)) {
+                    return 0L;
                 }
+                streamChunkSize = NumberConv.byteArrayToInt(header, headerLength);
+                if (streamChunkSize <= 0 || streamChunkSize > Constants.CRYPTO.MAX_CHUNK_SIZE) {
+                    return 0L;
+                }
+                headerLength += LENGTH_BYTES;
             }
 
-            byte[] versionBytes = new byte[VERSION_BYTES];
+            /* Count the complete chunks, until the first one which cannot be verified */
+            EncryptedDataChunkCodec codec = newCodec(streamChunkSize);
+            long verifiedLength = headerLength;
+            while (SECTION_TYPE_CHUNK == inputStream.read() && codec.readEncodedChunk(inputStream)) {
+                /* the chunks are decrypted later, only their signatures are checked here */
+                if (!codec.verifySignature()) {
+                    LOG.debug("Chunk at offset {} cannot be verified", verifiedLength);
+                    break;
+                }
+                verifiedLength += 1 + codec.getEncodedChunkLength();
+            }
+            return verifiedLength;
+        } catch (IOException e) {
+            LOG.debug("Failed to read {}", file.getAbsolutePath(), e);
+            return 0L;
+        }
+    }
+
+    /**
+     * Decrypts data from the given {@code inputStream}, then writes the result to the given
+     * {@code output}.
+     *
+     * @param inputStream the input stream to read encrypted data.
+     * @param output      the output to write the decrypted data.
+     * @param listener    a listener used to report the progress and handle pause/cancelation
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    private void decrypt(InputStream inputStream, ChunkOutput output, final ProcessProgressListener listener)
+            throws CryptoException {
 
-            /* Read the version */
-            if (versionBytes.length != inputStream.read(versionBytes)) {
+        int streamChunkSize = Constants.CRYPTO.DEFAULT_CHUNK_SIZE;
+        try {
+            /* Read and check the prefix and the version */
+            byte[] header = new byte[Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES];
+            if (header.length != StreamUtils.readFully(inputStream, header, 0, header.length)) {
                 throw new CryptoException("Failed to read the data stream header");
             }
-            version = NumberConv.byteArrayToShort(versionBytes, 0);
+            if (!checkPrefix(header, 0)) {
+                throw new CryptoException("The data stream prefix does not match");
+            }
+            version = NumberConv.byteArrayToShort(header, Constants.CRYPTO.STREAM_PREFIX.length);
+            if (0 != (version & ~Constants.CRYPTO.STREAM_VERSION_FLAGS)) {
+                throw new CryptoException("Unsupported data stream version : " + version);
+            }
+
+            /* Read the chunk size, if it is not the default one */
+            if (0 != (version & Constants.CRYPTO.STREAM_VERSION_CHUNK_SIZE_FLAG)) {
+                byte[] chunkSizeBytes = new byte[LENGTH_BYTES];
+                if (chunkSizeBytes.length != StreamUtils.readFully(inputStream, chunkSizeBytes, 0, LENGTH_BYTES)) {
+                    throw new CryptoException("Failed to read the data stream header");
+                }
+                streamChunkSize = NumberConv.byteArrayToInt(chunkSizeBytes, 0);
+                if (streamChunkSize <= 0 || streamChunkSize > Constants.CRYPTO.MAX_CHUNK_SIZE) {
+                    throw new CryptoException("Invalid data stream chunk size : " + streamChunkSize);
+                }
+            }
         } catch (IOException e) {
             throw new CryptoException("Failed to read the data stream header", e);
         }
@@ -235,6 +654,12 @@ public class EncryptedDataStream {
             throw new CryptoException("Failed to initialize global signature", e);
         }
 
+        if (workerThreads > 1) {
+            decryptInPipeline(inputStream, output, listener, globalMac, streamChunkSize);
+            return;
+        }
+
+        EncryptedDataChunkCodec codec = newCodec(streamChunkSize);
         int processedBytes = 0;
         int numChunk = 0;
         while (true) {
@@ -251,80 +676,835 @@ public class EncryptedDataStream {
                 throw new CryptoException("Failed to read section type", e);
             }
             if (SECTION_TYPE_SIGNATURE == sectionType) {
-                byte[] globalSignatureLengthBytes = new byte[LENGTH_BYTES];
-                byte[] globalSignature = null;
+                byte[] globalSignature = readGlobalSignature(inputStream);
+                checkGlobalSignature(globalMac, globalSignature);
+                return;
+            } else if (SECTION_TYPE_CHUNK == sectionType) {
+                readChunk(codec, inputStream);
+                codec.decode();
+                codec.updateMac(globalMac);
+                writeChunkData(output, codec, listener);
+                numChunk++;
+                processedBytes += codec.getEncodedChunkLength();
+            } else {
+                throw new CryptoException("Wrong message section");
+            }
+            if (null!=listener) {
+                listener.onProgress(0, processedBytes);
+            }
+        }
+    }
+
+    /**
+     * Encrypts the data from the given {@code inputStream} with several worker threads, then writes
+     * the encrypted chunks in their original order to the given {@code output}, followed with
+     * the global signature.
+     *
+     * <p>The chunks are read by a reader thread, and written by the calling thread.
+     *
+     * @param inputStream  the input stream to read the clear data from.
+     * @param output       the output to write the encrypted data to.
+     * @param listener     a listener used to report the progress and handle pause/cancelation
+     * @param globalMac    the global signature object
+     * @param index        the chunk index to fill, or null if no index is written
+     * @param chunkSize    the maximum length of the clear data of each chunk
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    private void encryptInPipeline(final InputStream inputStream, ChunkOutput output,
+                                   final ProcessProgressListener listener, Mac globalMac,
+                                   EncryptedDataStreamIndex index, int chunkSize)
+            throws CryptoException {
+
+        int pipelineChunks = pipelineChunks(chunkSize);
+        final BlockingQueue<Future<PipelineChunk>> pipeline = new ArrayBlockingQueue<>(pipelineChunks);
+        final CodecPool codecs = new CodecPool(pipelineChunks + 2, chunkSize);
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+
+        Future<?> reader = readersExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                Future<PipelineChunk> end = null;
                 try {
-                    if (inputStream.read(globalSignatureLengthBytes) != globalSignatureLengthBytes.length) {
-                        throw new CryptoException("Failed to read global signature length");
-                    }
-                    int globalSignatureLength = NumberConv.byteArrayToInt(globalSignatureLengthBytes, 0);
-                    if (globalSignatureLength > 0) {
-                        globalSignature = new byte[globalSignatureLength];
-                        if (inputStream.read(globalSignature) != globalSignature.length) {
-                            throw new CryptoException("Failed to read global signature");
+                    while (!stopped.get()) {
+                        final EncryptedDataChunkCodec codec = codecs.take(stopped);
+                        if (null == codec) {
+                            return;
+                        }
+                        final int chunkDataLength = readChunkData(codec, inputStream, listener);
+                        if (chunkDataLength <= 0) {
+                            codecs.release(codec);
+                            end = done(PipelineChunk.last(null));
+                            return;
+                        }
+                        if (!enqueue(pipeline, stopped, workersExecutor().submit(new Callable<PipelineChunk>() {
+                            @Override
+                            public PipelineChunk call() throws CryptoException {
+                                codec.encode();
+                                return PipelineChunk.chunk(codec, chunkDataLength);
+                            }
+                        }))) {
+                            return;
                         }
                     }
-                } catch (IOException e) {
-                    throw new CryptoException("Failed to read global signature", e);
+                } catch (Throwable t) {
+                    end = failed(t);
+                } finally {
+                    terminate(pipeline, stopped, end);
                 }
+            }
+        });
 
-                byte[] computedGlobalSignature = globalMac.doFinal();
-                if (!Arrays.equals(computedGlobalSignature, globalSignature)) {
-                    throw new CryptoException("Failed to verify global signature or data was tampered with");
+        try {
+            int processedBytes = 0;
+            while (true) {
+                if (null != listener) {
+                    listener.pauseIfNeeded();
+                    if (listener.isCanceled()) {
+                        return;
+                    }
                 }
-                return;
-            } else if (SECTION_TYPE_CHUNK == sectionType) {
-                EncryptedDataChunk encryptedDataChunk = new EncryptedDataChunk(crypto);
-                try {
-                    encryptedDataChunk.read(inputStream, Constants.FILE.BUFFER_SIZE);
-                } catch (IOException e) {
-                    throw new CryptoException("Failed to read data", e);
+                PipelineChunk pipelineChunk = dequeue(pipeline, reader);
+                if (pipelineChunk.isLast()) {
+                    writeGlobalSignature(output, globalMac, index);
+                    return;
                 }
 
-                boolean signatureOk;
-                try {
-                    signatureOk = encryptedDataChunk.verify(secretKeys.getSignatureKey());
-                } catch (CryptoException e) {
-                    throw new CryptoException("Failed to compute data chunk signature", e);
-                }
-                if (!signatureOk) {
-                    throw new CryptoException("Failed to verify data chunk signature or data was tampered with");
-                }
-                globalMac.update(encryptedDataChunk.getSignature());
+                pipelineChunk.getCodec().updateMac(globalMac);
+                writeChunk(output, pipelineChunk.getCodec(), index);
+                codecs.release(pipelineChunk.getCodec());
 
-                byte[] dataChunk;
-                try {
-                    dataChunk = crypto.decrypt(secretKeys.getEncryptionKey(), encryptedDataChunk);
-                } catch (CryptoException e) {
-                    throw new CryptoException("Failed to decrypt data", e);
+                processedBytes += pipelineChunk.getSize();
+
+                if (null != listener) {
+                    listener.onProgress(0, processedBytes);
                 }
+            }
+        } finally {
+            stopPipeline(pipeline, stopped, reader);
+        }
+    }
+
+    /**
+     * Decrypts the data from the given {@code inputStream} with several worker threads, then writes
+     * the decrypted chunks in their original order to the given {@code output}.
+     *
+     * <p>The chunks are read by a reader thread, and written by the calling thread.
+     *
+     * @param inputStream  the input stream to read encrypted data.
+     * @param output       the output to write the decrypted data.
+     * @param listener     a listener used to report the progress and handle pause/cancelation
+     * @param globalMac    the global signature object
+     * @param chunkSize    the maximum length of the clear data of each chunk
+     * @throws CryptoException if any cryptographic error occurs
+     */
+    private void decryptInPipeline(final InputStream inputStream, ChunkOutput output,
+                                   final ProcessProgressListener listener, Mac globalMac,
+                                   int chunkSize)
+            throws CryptoException {
+
+        int pipelineChunks = pipelineChunks(chunkSize);
+        final BlockingQueue<Future<PipelineChunk>> pipeline = new ArrayBlockingQueue<>(pipelineChunks);
+        final CodecPool codecs = new CodecPool(pipelineChunks + 2, chunkSize);
+        final AtomicBoolean stopped = new AtomicBoolean(false);
 
+        Future<?> reader = readersExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                Future<PipelineChunk> end = null;
                 try {
-                    StreamUtils.write(outputStream, dataChunk, Constants.FILE.BUFFER_SIZE, new ProcessProgressAdapter() {
-                        @Override
-                        public boolean isCanceled() {
-                            return null!=listener && listener.isCanceled();
+                    while (!stopped.get()) {
+                        int sectionType;
+                        try {
+                            sectionType = inputStream.read();
+                        } catch (IOException e) {
+                            throw new CryptoException("Failed to read section type", e);
                         }
-
-                        @Override
-                        public void pauseIfNeeded() {
-                            if (null!=listener) {
-                                listener.pauseIfNeeded();
+                        if (SECTION_TYPE_SIGNATURE == sectionType) {
+                            end = done(PipelineChunk.last(readGlobalSignature(inputStream)));
+                            return;
+                        } else if (SECTION_TYPE_CHUNK == sectionType) {
+                            final EncryptedDataChunkCodec codec = codecs.take(stopped);
+                            if (null == codec) {
+                                return;
+                            }
+                            readChunk(codec, inputStream);
+                            if (!enqueue(pipeline, stopped, workersExecutor().submit(new Callable<PipelineChunk>() {
+                                @Override
+                                public PipelineChunk call() throws CryptoException {
+                                    codec.decode();
+                                    return PipelineChunk.chunk(codec, codec.getEncodedChunkLength());
+                                }
+                            }))) {
+                                return;
                             }
+                        } else {
+                            throw new CryptoException("Wrong message section");
                         }
-                    });
-                    outputStream.flush();
-                } catch (IOException e) {
-                    throw new CryptoException("Failed to write decrypted data", e);
+                    }
+                } catch (Throwable t) {
+                    end = failed(t);
+                } finally {
+                    terminate(pipeline, stopped, end);
                 }
-                numChunk++;
-                processedBytes += encryptedDataChunk.getEncryptedSize();
-            } else {
-                throw new CryptoException("Wrong message section");
             }
-            if (null!=listener) {
-                listener.onProgress(0, processedBytes);
+        });
+
+        try {
+            int processedBytes = 0;
+            while (true) {
+                if (null != listener) {
+                    listener.pauseIfNeeded();
+                    if (listener.isCanceled()) {
+                        return;
+                    }
+                }
+                PipelineChunk pipelineChunk = dequeue(pipeline, reader);
+                if (pipelineChunk.isLast()) {
+                    checkGlobalSignature(globalMac, pipelineChunk.getGlobalSignature());
+                    return;
+                }
+
+                pipelineChunk.getCodec().updateMac(globalMac);
+                writeChunkData(output, pipelineChunk.getCodec(), listener);
+                codecs.release(pipelineChunk.getCodec());
+                processedBytes += pipelineChunk.getSize();
+
+                if (null != listener) {
+                    listener.onProgress(0, processedBytes);
+                }
+            }
+        } finally {
+            stopPipeline(pipeline, stopped, reader);
+        }
+    }
+
+    /**
+     * Returns the number of chunks which may wait in the pipeline, so that the chunk buffers of the
+     * pipeline fit in the memory budget, counting the chunk being read and the chunk being written.
+     *
+     * @param chunkSize the maximum length of the clear data of each chunk
+     * @return the number of chunks which may wait in the pipeline
+     */
+    private int pipelineChunks(int chunkSize) {
+        long maxCodecs = pipelineMemoryBudget / (2L * chunkSize);
+        return (int) Math.max(1, Math.min(workerThreads * PIPELINE_CHUNKS_PER_WORKER, maxCodecs - 2));
+    }
+
+    /**
+     * Creates a new codec which processes the chunks of this stream.
+     *
+     * @param chunkSize the maximum length of the clear data of each chunk
+     * @return a new codec
+     * @throws CryptoException if the codec cannot be initialized
+     */
+    private EncryptedDataChunkCodec newCodec(int chunkSize) throws CryptoException {
+        try {
+            return new EncryptedDataChunkCodec(crypto, secretKeys, chunkSize,
+                    authenticatedEncryption ? Constants.CRYPTO.CHUNK_VERSION_AEAD : Constants.CRYPTO.CHUNK_VERSION);
+        } catch (CryptoException e) {
+            throw new CryptoException("Failed to initialize data chunk signature", e);
+        }
+    }
+
+    /**
+     * Reads the clear data of the next chunk from the given {@code inputStream} into the given
+     * {@code codec}.
+     *
+     * @param codec       the codec to read the clear data into
+     * @param inputStream the input stream to read the clear data from.
+     * @param listener    a listener used to handle pause/cancelation
+     * @return the length of the clear data of the next chunk, or 0 if there is no more data to read
+     */
+    private int readChunkData(EncryptedDataChunkCodec codec, InputStream inputStream,
+                              ProcessProgressListener listener) {
+        try {
+            return codec.readClearData(inputStream, listener);
+        } catch (IOException e) {
+            LOG.error("IOException : ", e);
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the encrypted chunk held by the given {@code codec} to the given {@code output}.
+     *
+     * @param output the output to write the encrypted data to.
+     * @param codec  the codec holding the encrypted chunk
+     * @param index  the chunk index to append the chunk to, or null if no index is written
+     * @throws CryptoException if an error occurs when writing the chunk
+     */
+    private void writeChunk(ChunkOutput output, EncryptedDataChunkCodec codec, EncryptedDataStreamIndex index)
+            throws CryptoException {
+        try {
+            output.writeChunk(codec);
+        } catch (IOException e) {
+            throw new CryptoException("Failed to write encrypted data", e);
+        }
+        if (null != index) {
+            index.append(codec.getClearDataLength(), codec.getEncodedChunkLength(), codec.getSignature());
+        }
+    }
+
+    /**
+     * Writes the global signature section to the given {@code output}, followed with the chunk
+     * index trailer if an {@code index} is given.
+     *
+     * @param output    the output to write the global signature to.
+     * @param globalMac the global signature object
+     * @param index     the chunk index to write, or null if no index is written
+     * @throws CryptoException if an error occurs when writing the global signature
+     */
+    private void writeGlobalSignature(ChunkOutput output, Mac globalMac, EncryptedDataStreamIndex index)
+            throws CryptoException {
+        byte[] globalSignature = globalMac.doFinal();
+        try {
+            output.writeGlobalSignature(globalSignature);
+        } catch (IOException e) {
+            throw new CryptoException("Failed to write global signature", e);
+        }
+        if (null != index) {
+            long trailerOffset = index.getEncodedEnd() + 1 + LENGTH_BYTES + globalSignature.length;
+            try {
+                output.write(index.toTrailer(crypto, secretKeys, trailerOffset));
+            } catch (IOException e) {
+                throw new CryptoException("Failed to write chunk index", e);
+            }
+        }
+        try {
+            output.flush();
+        } catch (IOException e) {
+            throw new CryptoException("Failed to write global signature", e);
+        }
+    }
+
+    /**
+     * Reads the global signature from the given {@code inputStream}, just after its section type.
+     *
+     * @param inputStream the input stream to read the global signature from.
+     * @return the global signature, or null if it is empty
+     * @throws CryptoException if an error occurs when reading the global signature
+     */
+    private byte[] readGlobalSignature(InputStream inputStream) throws CryptoException {
+        byte[] globalSignatureLengthBytes = new byte[LENGTH_BYTES];
+        byte[] globalSignature = null;
+        try {
+            if (inputStream.read(globalSignatureLengthBytes) != globalSignatureLengthBytes.length) {
+                throw new CryptoException("Failed to read global signature length");
+            }
+            int globalSignatureLength = NumberConv.byteArrayToInt(globalSignatureLengthBytes, 0);
+            if (globalSignatureLength > 0) {
+                globalSignature = new byte[globalSignatureLength];
+                if (inputStream.read(globalSignature) != globalSignature.length) {
+                    throw new CryptoException("Failed to read global signature");
+                }
+            }
+        } catch (IOException e) {
+            throw new CryptoException("Failed to read global signature", e);
+        }
+        return globalSignature;
+    }
+
+    /**
+     * Checks that the given {@code globalSignature} matches the one computed by {@code globalMac}.
+     *
+     * @param globalMac       the global signature object
+     * @param globalSignature the global signature read from the stream
+     * @throws CryptoException if the global signature does not match
+     */
+    private void checkGlobalSignature(Mac globalMac, byte[] globalSignature) throws CryptoException {
+        byte[] computedGlobalSignature = globalMac.doFinal();
+        if (!Arrays.equals(computedGlobalSignature, globalSignature)) {
+            throw new CryptoException("Failed to verify global signature or data was tampered with");
+        }
+    }
+
+    /**
+     * Reads the next encrypted chunk from the given {@code inputStream}, just after its section type,
+     * into the given {@code codec}.
+     *
+     * @param codec       the codec to read the chunk into
+     * @param inputStream the input stream to read the chunk from.
+     * @throws CryptoException if an error occurs when reading the chunk
+     */
+    private void readChunk(EncryptedDataChunkCodec codec, InputStream inputStream) throws CryptoException {
+        try {
+            if (!codec.readEncodedChunk(inputStream)) {
+                throw new CryptoException("Failed to read data");
+            }
+        } catch (IOException e) {
+            throw new CryptoException("Failed to read data", e);
+        }
+    }
+
+    /**
+     * Writes the decrypted data held by the given {@code codec} to the given {@code output}.
+     *
+     * @param output   the output to write the decrypted data.
+     * @param codec    the codec holding the decrypted data
+     * @param listener a listener used to handle pause/cancelation
+     * @throws CryptoException if an error occurs when writing the data
+     */
+    private void writeChunkData(ChunkOutput output, EncryptedDataChunkCodec codec,
+                                final ProcessProgressListener listener) throws CryptoException {
+        try {
+            output.writeClearData(codec, new ProcessProgressAdapter() {
+                @Override
+                public boolean isCanceled() {
+                    return null!=listener && listener.isCanceled();
+                }
+
+                @Override
+                public void pauseIfNeeded() {
+                    if (null!=listener) {
+                        listener.pauseIfNeeded();
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new CryptoException("Failed to write decrypted data", e);
+        }
+    }
+
+    /**
+     * Appends the given {@code chunk} to the {@code pipeline}, waiting for some room if needed,
+     * unless the pipeline is {@code stopped}.
+     *
+     * @param pipeline the pipeline
+     * @param stopped  the flag telling whether the pipeline was stopped
+     * @param chunk    the (future) chunk to append
+     * @return true if the chunk was appended, false if it was canceled
+     */
+    private static boolean enqueue(BlockingQueue<Future<PipelineChunk>> pipeline, AtomicBoolean stopped,
+                                   Future<PipelineChunk> chunk) {
+        try {
+            while (!stopped.get()) {
+                if (pipeline.offer(chunk, PIPELINE_POLL_DELAY_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.error("Interrupted while waiting for the pipeline", e);
+            Thread.currentThread().interrupt();
+        }
+        chunk.cancel(false);
+        return false;
+    }
+
+    /**
+     * Appends the last chunk of the reader thread to the {@code pipeline}, unless the pipeline
+     * is {@code stopped}, so that the calling thread never waits for a chunk which will not come.
+     *
+     * <p>If the reader did not reach the end of the stream, a failed chunk is appended.
+     *
+     * @param pipeline the pipeline
+     * @param stopped  the flag telling whether the pipeline was stopped
+     * @param end      the last chunk, or null if the reader stopped before the end of the stream
+     */
+    private static void terminate(BlockingQueue<Future<PipelineChunk>> pipeline, AtomicBoolean stopped,
+                                  Future<PipelineChunk> end) {
+        if (null == end) {
+            end = failed(new CryptoException("The pipeline reader stopped before the end of the stream"));
+        }
+        /* The last chunk must be appended even if the reader thread was interrupted */
+        boolean interrupted = Thread.interrupted();
+        enqueue(pipeline, stopped, end);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes the next chunk from the {@code pipeline}, waiting for it to be processed.
+     *
+     * <p>If the {@code reader} thread is done and the pipeline is empty, no chunk will ever come,
+     * so an exception is thrown instead of waiting forever.
+     *
+     * @param pipeline the pipeline
+     * @param reader   the reader thread task
+     * @return the next processed chunk
+     * @throws CryptoException if an error occurred while reading or processing the chunk
+     */
+    private static PipelineChunk dequeue(BlockingQueue<Future<PipelineChunk>> pipeline, Future<?> reader)
+            throws CryptoException {
+        try {
+            Future<PipelineChunk> chunk = pipeline.poll(PIPELINE_POLL_DELAY_MS, TimeUnit.MILLISECONDS);
+            while (null == chunk) {
+                if (reader.isDone()) {
+                    /* The reader may have appended its last chunk just before it was done */
+                    chunk = pipeline.poll();
+                    if (null == chunk) {
+                        throw new CryptoException("The pipeline reader stopped unexpectedly");
+                    }
+                } else {
+                    chunk = pipeline.poll(PIPELINE_POLL_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoException("Interrupted while waiting for the pipeline", e);
+        } catch (CancellationException e) {
+            throw new CryptoException("A chunk of the pipeline was canceled", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CryptoException) {
+                throw (CryptoException) e.getCause();
+            }
+            throw new CryptoException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the reader thread and cancels the chunks remaining in the {@code pipeline}.
+     *
+     * @param pipeline the pipeline
+     * @param stopped  the flag telling whether the pipeline was stopped
+     * @param reader   the reader thread task
+     */
+    private static void stopPipeline(BlockingQueue<Future<PipelineChunk>> pipeline, AtomicBoolean stopped,
+                                     Future<?> reader) {
+        stopped.set(true);
+        try {
+            /* Wait for the reader thread to leave the streams alone */
+            reader.get();
+        } catch (InterruptedException | ExecutionException e) {
+            LOG.error("Error while stopping the pipeline reader", e);
+        }
+        Future<PipelineChunk> chunk;
+        while (null != (chunk = pipeline.poll())) {
+            chunk.cancel(false);
+        }
+    }
+
+    /**
+     * Returns an already completed {@code Future} holding the given {@code chunk}.
+     *
+     * @param chunk the chunk
+     * @return the completed {@code Future}
+     */
+    private static Future<PipelineChunk> done(final PipelineChunk chunk) {
+        FutureTask<PipelineChunk> future = new FutureTask<>(new Callable<PipelineChunk>() {
+            @Override
+            public PipelineChunk call() {
+                return chunk;
+            }
+        });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Returns an already completed {@code Future} which throws the given {@code throwable},
+     * wrapped in a {@code CryptoException} if it is not one.
+     *
+     * @param throwable the exception or error
+     * @return the failed {@code Future}
+     */
+    private static Future<PipelineChunk> failed(final Throwable throwable) {
+        FutureTask<PipelineChunk> future = new FutureTask<>(new Callable<PipelineChunk>() {
+            @Override
+            public PipelineChunk call() throws CryptoException {
+                if (throwable instanceof CryptoException) {
+                    throw (CryptoException) throwable;
+                }
+                throw new CryptoException("Error in the pipeline reader", throwable);
+            }
+        });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Returns the shared thread pool which processes the chunks, creating it if needed.
+     *
+     * @return the shared thread pool which processes the chunks
+     */
+    private static synchronized ExecutorService workersExecutor() {
+        if (null == workersExecutor) {
+            workersExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new DaemonThreadFactory("EncryptedDataStream-worker"));
+        }
+        return workersExecutor;
+    }
+
+    /**
+     * Returns the shared thread pool which runs the reading stages, creating it if needed.
+     *
+     * @return the shared thread pool which runs the reading stages
+     */
+    private static synchronized ExecutorService readersExecutor() {
+        if (null == readersExecutor) {
+            readersExecutor = Executors.newCachedThreadPool(
+                    new DaemonThreadFactory("EncryptedDataStream-reader"));
+        }
+        return readersExecutor;
+    }
+
+    /**
+     * A {@code ThreadFactory} which creates named daemon threads, so that the pipeline threads
+     * never prevent the application from exiting.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * A pool of codecs, which lets the pipeline reuse the chunk buffers.
+     *
+     * <p>The codecs are created when needed, up to the maximum number of chunks which may be
+     * in the pipeline at the same time.
+     */
+    private class CodecPool {
+        private final BlockingQueue<EncryptedDataChunkCodec> freeCodecs;
+        private final int maxCodecs;
+        private final int chunkSize;
+        private int createdCodecs = 0;
+
+        CodecPool(int maxCodecs, int chunkSize) {
+            this.maxCodecs = maxCodecs;
+            this.chunkSize = chunkSize;
+            freeCodecs = new ArrayBlockingQueue<>(maxCodecs);
+        }
+
+        /**
+         * Takes a free codec, creating it if needed and possible, or waiting for a codec to be
+         * released, unless the pipeline is {@code stopped}.
+         *
+         * @param stopped the flag telling whether the pipeline was stopped
+         * @return a free codec, or null if the pipeline was stopped
+         * @throws CryptoException if a new codec cannot be initialized
+         */
+        EncryptedDataChunkCodec take(AtomicBoolean stopped) throws CryptoException {
+            EncryptedDataChunkCodec codec = freeCodecs.poll();
+            if (null == codec && createdCodecs < maxCodecs) {
+                createdCodecs++;
+                return newCodec(chunkSize);
+            }
+            try {
+                while (null == codec && !stopped.get()) {
+                    codec = freeCodecs.poll(PIPELINE_POLL_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                LOG.error("Interrupted while waiting for the pipeline", e);
+                Thread.currentThread().interrupt();
+            }
+            return codec;
+        }
+
+        /**
+         * Gives back a codec which is not used anymore.
+         *
+         * @param codec the codec which is not used anymore
+         */
+        void release(EncryptedDataChunkCodec codec) {
+            freeCodecs.offer(codec);
+        }
+    }
+
+    /**
+     * The destination of the sections of an encrypted stream, or of the decrypted data.
+     */
+    private interface ChunkOutput {
+
+        /**
+         * Writes the given raw {@code data}.
+         *
+         * @param data the data to write
+         * @throws IOException if an error occurs while writing
+         */
+        void write(byte[] data) throws IOException;
+
+        /**
+         * Writes the chunk section of the serialized chunk held by the given {@code codec}.
+         *
+         * @param codec the codec holding the serialized chunk
+         * @throws IOException if an error occurs while writing
+         */
+        void writeChunk(EncryptedDataChunkCodec codec) throws IOException;
+
+        /**
+         * Writes the global signature section, which ends the stream.
+         *
+         * @param globalSignature the global signature
+         * @throws IOException if an error occurs while writing
+         */
+        void writeGlobalSignature(byte[] globalSignature) throws IOException;
+
+        /**
+         * Writes the clear data held by the given {@code codec}.
+         *
+         * @param codec    the codec holding the clear data
+         * @param listener the listener used to handle pause/cancelation
+         * @throws IOException if an error occurs while writing
+         */
+        void writeClearData(EncryptedDataChunkCodec codec, ProcessProgressListener listener) throws IOException;
+
+        /**
+         * Flushes the data written so far.
+         *
+         * @throws IOException if an error occurs while flushing
+         */
+        void flush() throws IOException;
+    }
+
+    /**
+     * A {@code ChunkOutput} writing to an {@code OutputStream}.
+     */
+    private static class StreamChunkOutput implements ChunkOutput {
+        private final OutputStream outputStream;
+
+        StreamChunkOutput(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(byte[] data) throws IOException {
+            outputStream.write(data);
+        }
+
+        @Override
+        public void writeChunk(EncryptedDataChunkCodec codec) throws IOException {
+            outputStream.write(SECTION_TYPE_CHUNK);
+            codec.writeEncodedChunk(outputStream);
+        }
+
+        @Override
+        public void writeGlobalSignature(byte[] globalSignature) throws IOException {
+            outputStream.write(SECTION_TYPE_SIGNATURE);
+            outputStream.write(NumberConv.intToByteArray(globalSignature.length));
+            outputStream.write(globalSignature);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void writeClearData(EncryptedDataChunkCodec codec, ProcessProgressListener listener)
+                throws IOException {
+            codec.writeClearData(outputStream, listener);
+        }
+    }
+
+    /**
+     * A {@code ChunkOutput} writing to a {@code GatheringByteChannel}, with a single gathering write
+     * for each section.
+     */
+    private static class ChannelChunkOutput implements ChunkOutput {
+        private final GatheringByteChannel channel;
+        private final ByteBuffer sectionHeader = ByteBuffer.allocate(1 + LENGTH_BYTES);
+        private final ByteBuffer[] buffers = new ByteBuffer[2];
+
+        ChannelChunkOutput(GatheringByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(byte[] data) throws IOException {
+            buffers[0] = ByteBuffer.wrap(data);
+            writeFully(1);
+        }
+
+        @Override
+        public void writeChunk(EncryptedDataChunkCodec codec) throws IOException {
+            sectionHeader.clear();
+            sectionHeader.put((byte) SECTION_TYPE_CHUNK);
+            sectionHeader.flip();
+            buffers[0] = sectionHeader;
+            buffers[1] = ByteBuffer.wrap(codec.getEncodedChunk(), 0, codec.getEncodedChunkLength());
+            writeFully(2);
+        }
+
+        @Override
+        public void writeGlobalSignature(byte[] globalSignature) throws IOException {
+            sectionHeader.clear();
+            sectionHeader.put((byte) SECTION_TYPE_SIGNATURE);
+            sectionHeader.putInt(globalSignature.length);
+            sectionHeader.flip();
+            buffers[0] = sectionHeader;
+            buffers[1] = ByteBuffer.wrap(globalSignature);
+            writeFully(2);
+        }
+
+        @Override
+        public void writeClearData(EncryptedDataChunkCodec codec, ProcessProgressListener listener)
+                throws IOException {
+            buffers[0] = ByteBuffer.wrap(codec.getClearData(), 0, codec.getClearDataLength());
+            writeFully(1);
+        }
+
+        @Override
+        public void flush() {
+            /* a channel does not buffer data */
+        }
+
+        /**
+         * Writes the first {@code count} buffers, until they have been completely written.
+         *
+         * @param count the number of buffers to write
+         * @throws IOException if an error occurs while writing
+         */
+        private void writeFully(int count) throws IOException {
+            while (buffers[count - 1].hasRemaining()) {
+                channel.write(buffers, 0, count);
             }
+            Arrays.fill(buffers, null);
+        }
+    }
+
+    /**
+     * A chunk going through the pipeline.
+     *
+     * <p>The last element of the pipeline does not hold any chunk but marks the end of the stream,
+     * and holds the global signature read from the stream when decrypting.
+     */
+    private static class PipelineChunk {
+        private final boolean last;
+        private final EncryptedDataChunkCodec codec;
+        private final int size;
+        private final byte[] globalSignature;
+
+        private PipelineChunk(boolean last, EncryptedDataChunkCodec codec, int size, byte[] globalSignature) {
+            this.last = last;
+            this.codec = codec;
+            this.size = size;
+            this.globalSignature = globalSignature;
+        }
+
+        static PipelineChunk chunk(EncryptedDataChunkCodec codec, int size) {
+            return new PipelineChunk(false, codec, size, null);
+        }
+
+        static PipelineChunk last(byte[] globalSignature) {
+            return new PipelineChunk(true, null, 0, globalSignature);
+        }
+
+        boolean isLast() {
+            return last;
+        }
+
+        EncryptedDataChunkCodec getCodec() {
+            return codec;
+        }
+
+        int getSize() {
+            return size;
+        }
+
+        byte[] getGlobalSignature() {
+            return globalSignature;
         }
     }
 
@@ -0,0 +1,547 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.crypto;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.crypto.mac.Mac;
+import fr.petrus.lib.core.utils.NumberConv;
+
+/**
+ * This class holds the positions of the chunks of an encrypted file produced by {@link EncryptedDataStream}.
+ *
+ * <p>For each chunk, the index holds the offset and the length of its clear data in the decrypted
+ * file, the offset and the length of the serialized chunk in the encrypted file, and the chunk
+ * signature. It lets a reader decrypt only the chunks covering a given range of the clear data.
+ *
+ * <p>The index is either built by scanning the chunk headers of the file, or read from the signed
+ * trailer which {@link EncryptedDataStream} appends after the global signature when asked to.
+ * Readers which do not know about this trailer stop at the global signature, and never read it.
+ * The trailer is made of :
+ * <ul>
+ *     <li>the index section type, the index format version and the number of chunks</li>
+ *     <li>for each chunk : the clear length, the serialized offset and length, and the signature</li>
+ *     <li>the signature of all of the above</li>
+ *     <li>the offset of the trailer in the file, and the index prefix</li>
+ * </ul>
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptedDataStreamIndex {
+
+    /**
+     * The number of bytes used in the serialized array to represent the format version.
+     */
+    private static final int VERSION_BYTES = 2;
+
+    /**
+     * The number of bytes used in the serialized array to represent lengths.
+     */
+    private static final int LENGTH_BYTES = 4;
+
+    /**
+     * The length of a section header followed by a chunk header, up to the signature length included.
+     */
+    private static final int CHUNK_HEADER_BYTES = 1 + Constants.CRYPTO.CHUNK_PREFIX.length + VERSION_BYTES + LENGTH_BYTES;
+
+    /**
+     * The length of the end of the trailer : the trailer offset, followed with the index prefix.
+     */
+    private static final int TRAILER_FOOTER_BYTES = 8 + Constants.CRYPTO.INDEX_PREFIX.length;
+
+    /**
+     * The position and signature of a chunk.
+     */
+    public static class Entry {
+        private final long clearOffset;
+        private final int clearLength;
+        private final long encodedOffset;
+        private final int encodedLength;
+        private final byte[] signature;
+
+        /**
+         * Creates a new index entry.
+         *
+         * @param clearOffset   the offset of the chunk clear data in the decrypted file
+         * @param clearLength   the length of the chunk clear data
+         * @param encodedOffset the offset of the serialized chunk in the encrypted file
+         * @param encodedLength the length of the serialized chunk
+         * @param signature     the chunk signature
+         */
+        public Entry(long clearOffset, int clearLength, long encodedOffset, int encodedLength, byte[] signature) {
+            this.clearOffset = clearOffset;
+            this.clearLength = clearLength;
+            this.encodedOffset = encodedOffset;
+            this.encodedLength = encodedLength;
+            this.signature = signature;
+        }
+
+        public long getClearOffset() {
+            return clearOffset;
+        }
+
+        public int getClearLength() {
+            return clearLength;
+        }
+
+        public long getEncodedOffset() {
+            return encodedOffset;
+        }
+
+        public int getEncodedLength() {
+            return encodedLength;
+        }
+
+        public byte[] getSignature() {
+            return signature;
+        }
+    }
+
+    private List<Entry> entries;
+    private long clearSize;
+    private long encodedEnd;
+    private int maxClearLength;
+
+    /**
+     * Creates a new empty index, for a stream which header has the default length.
+     */
+    public EncryptedDataStreamIndex() {
+        this(Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES);
+    }
+
+    /**
+     * Creates a new empty index, for a stream which header has the given length.
+     *
+     * @param headerLength the length of the stream header, before the first chunk section
+     */
+    public EncryptedDataStreamIndex(int headerLength) {
+        entries = new ArrayList<>();
+        clearSize = 0;
+        encodedEnd = headerLength;
+        maxClearLength = 0;
+    }
+
+    /**
+     * Appends a chunk to this index, its clear data following the clear data of the last chunk.
+     *
+     * @param clearLength   the length of the chunk clear data
+     * @param encodedOffset the offset of the serialized chunk in the encrypted file
+     * @param encodedLength the length of the serialized chunk
+     * @param signature     the chunk signature
+     */
+    public void add(int clearLength, long encodedOffset, int encodedLength, byte[] signature) {
+        entries.add(new Entry(clearSize, clearLength, encodedOffset, encodedLength, signature));
+        clearSize += clearLength;
+        encodedEnd = encodedOffset + encodedLength;
+        if (clearLength > maxClearLength) {
+            maxClearLength = clearLength;
+        }
+    }
+
+    /**
+     * Appends a chunk to this index, the serialized chunk section following the last one in the file
+     * (or the stream header if this index is empty).
+     *
+     * @param clearLength   the length of the chunk clear data
+     * @param encodedLength the length of the serialized chunk
+     * @param signature     the chunk signature
+     */
+    public void append(int clearLength, int encodedLength, byte[] signature) {
+        add(clearLength, encodedEnd + 1, encodedLength, signature);
+    }
+
+    /**
+     * Returns the offset in the file of the end of the last serialized chunk.
+     *
+     * @return the offset in the file of the end of the last serialized chunk
+     */
+    public long getEncodedEnd() {
+        return encodedEnd;
+    }
+
+    /**
+     * Returns the length of the clear data of the largest chunk.
+     *
+     * @return the length of the clear data of the largest chunk, or 0 if this index is empty
+     */
+    public int getMaxClearLength() {
+        return maxClearLength;
+    }
+
+    /**
+     * Returns the number of chunks.
+     *
+     * @return the number of chunks
+     */
+    public int getChunkCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the entry of the chunk at the given {@code index}.
+     *
+     * @param index the index of the chunk
+     * @return the entry of the chunk
+     */
+    public Entry getEntry(int index) {
+        return entries.get(index);
+    }
+
+    /**
+     * Returns the size of the clear data of the whole file.
+     *
+     * @return the size of the clear data of the whole file
+     */
+    public long getClearSize() {
+        return clearSize;
+    }
+
+    /**
+     * Returns the index of the chunk which holds the clear data byte at the given {@code clearPosition}.
+     *
+     * @param clearPosition the position in the clear data
+     * @return the index of the chunk holding this position, or -1 if it is out of the clear data
+     */
+    public int chunkAt(long clearPosition) {
+        if (clearPosition < 0 || clearPosition >= clearSize) {
+            return -1;
+        }
+        int low = 0;
+        int high = entries.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (entries.get(middle).getClearOffset() <= clearPosition) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the length of the trailer of an index of {@code entriesCount} chunks, as serialized
+     * by {@link #toTrailer(Crypto, SecretKeys, long)}.
+     *
+     * @param entriesCount         the number of chunks of the index
+     * @param chunkSignatureLength the length of the signature of each chunk
+     * @param macLength            the length of the signature of the trailer
+     * @return the length of the serialized trailer
+     */
+    static long trailerLength(long entriesCount, int chunkSignatureLength, int macLength) {
+        return 1 + VERSION_BYTES + LENGTH_BYTES + LENGTH_BYTES + macLength + TRAILER_FOOTER_BYTES
+                + entriesCount * (LENGTH_BYTES + 8 + LENGTH_BYTES + LENGTH_BYTES + chunkSignatureLength);
+    }
+
+    /**
+     * Serializes this index as a signed trailer, to be written at the given {@code trailerOffset},
+     * after the global signature section.
+     *
+     * @param crypto        the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys    the secret keys used to sign the trailer
+     * @param trailerOffset the offset of the trailer in the file
+     * @return the serialized trailer
+     * @throws CryptoException if the trailer cannot be signed
+     */
+    public byte[] toTrailer(Crypto crypto, SecretKeys secretKeys, long trailerOffset) throws CryptoException {
+        Mac mac = crypto.initMac(secretKeys.getSignatureKey());
+        int length = 1 + VERSION_BYTES + LENGTH_BYTES + LENGTH_BYTES + mac.getMacLength() + TRAILER_FOOTER_BYTES;
+        for (Entry entry : entries) {
+            length += LENGTH_BYTES + 8 + LENGTH_BYTES + LENGTH_BYTES + entry.getSignature().length;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(length);
+        trailer.put((byte) EncryptedDataStream.SECTION_TYPE_INDEX);
+        trailer.putShort(Constants.CRYPTO.INDEX_VERSION);
+        trailer.putInt(entries.size());
+        for (Entry entry : entries) {
+            trailer.putInt(entry.getClearLength());
+            trailer.putLong(entry.getEncodedOffset());
+            trailer.putInt(entry.getEncodedLength());
+            trailer.putInt(entry.getSignature().length);
+            trailer.put(entry.getSignature());
+        }
+        mac.update(trailer.array(), 0, trailer.position());
+        trailer.putInt(mac.getMacLength());
+        mac.doFinal(trailer.array(), trailer.position());
+        trailer.position(trailer.position() + mac.getMacLength());
+        trailer.putLong(trailerOffset);
+        trailer.put(Constants.CRYPTO.INDEX_PREFIX);
+        return trailer.array();
+    }
+
+    /**
+     * Reads the index from the trailer of the encrypted file read from the given {@code channel}.
+     *
+     * <p>This method only uses positional reads, and does not change the channel position.
+     *
+     * @param crypto     the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys the secret keys used to sign the trailer
+     * @param channel    the channel of the encrypted file
+     * @return the index read from the trailer, or null if the file has no trailer
+     * @throws CryptoException if the trailer is not well formed, or if its signature does not match
+     * @throws IOException     if an error occurs while reading
+     */
+    public static EncryptedDataStreamIndex readTrailer(Crypto crypto, SecretKeys secretKeys, FileChannel channel)
+            throws CryptoException, IOException {
+        long fileSize = channel.size();
+        if (fileSize < Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES + TRAILER_FOOTER_BYTES) {
+            return null;
+        }
+        ByteBuffer footer = ByteBuffer.wrap(read(channel, fileSize - TRAILER_FOOTER_BYTES, TRAILER_FOOTER_BYTES));
+        long trailerOffset = footer.getLong();
+        byte[] prefix = new byte[Constants.CRYPTO.INDEX_PREFIX.length];
+        footer.get(prefix);
+        if (!Arrays.equals(Constants.CRYPTO.INDEX_PREFIX, prefix)) {
+            return null;
+        }
+        if (trailerOffset < 0 || fileSize - TRAILER_FOOTER_BYTES - trailerOffset > Integer.MAX_VALUE) {
+            throw new CryptoException("Wrong index trailer offset");
+        }
+
+        ByteBuffer trailer = ByteBuffer.wrap(read(channel, trailerOffset,
+                (int) (fileSize - TRAILER_FOOTER_BYTES - trailerOffset)));
+        try {
+            if (EncryptedDataStream.SECTION_TYPE_INDEX != trailer.get()) {
+                throw new CryptoException("Wrong message section");
+            }
+            if (Constants.CRYPTO.INDEX_VERSION != trailer.getShort()) {
+                throw new CryptoException("Unsupported index version");
+            }
+            int chunkCount = trailer.getInt();
+            if (chunkCount < 0) {
+                throw new CryptoException("Wrong index chunk count");
+            }
+            EncryptedDataStreamIndex index = new EncryptedDataStreamIndex();
+            for (int i = 0; i < chunkCount; i++) {
+                int clearLength = trailer.getInt();
+                long encodedOffset = trailer.getLong();
+                int encodedLength = trailer.getInt();
+                int signatureLength = trailer.getInt();
+                if (clearLength < 0 || encodedLength < 0 || signatureLength < 0
+                        || signatureLength > trailer.remaining()) {
+                    throw new CryptoException("Wrong index entry");
+                }
+                byte[] signature = new byte[signatureLength];
+                trailer.get(signature);
+                index.add(clearLength, encodedOffset, encodedLength, signature);
+            }
+            int signedLength = trailer.position();
+            int trailerSignatureLength = trailer.getInt();
+            if (trailerSignatureLength != trailer.remaining()) {
+                throw new CryptoException("Wrong index signature length");
+            }
+            byte[] trailerSignature = new byte[trailerSignatureLength];
+            trailer.get(trailerSignature);
+            if (!Arrays.equals(crypto.computeSignature(secretKeys.getSignatureKey(),
+                    Arrays.copyOf(trailer.array(), signedLength)), trailerSignature)) {
+                throw new CryptoException("Failed to verify index signature or index was tampered with");
+            }
+            return index;
+        } catch (BufferUnderflowException e) {
+            throw new CryptoException("Malformed index trailer", e);
+        }
+    }
+
+    /**
+     * Returns the index of the encrypted file read from the given {@code channel}, read from its
+     * trailer if its format version says it has one, or built by scanning its chunk headers otherwise.
+     *
+     * @param crypto     the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys the secret keys used to encrypt and sign the file
+     * @param channel    the channel of the encrypted file
+     * @return the index of the encrypted file
+     * @throws CryptoException if the file or its trailer is not well formed, or if a signature does not match
+     * @throws IOException     if an error occurs while reading
+     */
+    public static EncryptedDataStreamIndex load(Crypto crypto, SecretKeys secretKeys, FileChannel channel)
+            throws CryptoException, IOException {
+        EncryptedDataStreamIndex index = null;
+        short version = NumberConv.byteArrayToShort(
+                read(channel, Constants.CRYPTO.STREAM_PREFIX.length, VERSION_BYTES), 0);
+        if (0 != (version & Constants.CRYPTO.STREAM_VERSION_INDEX_FLAG)) {
+            index = readTrailer(crypto, secretKeys, channel);
+        }
+        if (null == index) {
+            index = scan(crypto, secretKeys, channel);
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index of the encrypted file read from the given {@code channel}, by scanning
+     * the headers of its chunks, without decrypting their data.
+     *
+     * <p>The chunk signatures are checked against the global signature, which guarantees that the
+     * chunks were neither modified, removed nor reordered, as long as each chunk is verified
+     * against its signature when it is decrypted. The clear length of each AES-CBC chunk is found
+     * by decrypting only the last block of its data, which holds the padding, while AES-GCM chunks
+     * are not padded.
+     *
+     * <p>This method only uses positional reads, and does not change the channel position.
+     *
+     * @param crypto     the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys the secret keys used to encrypt and sign the file
+     * @param channel    the channel of the encrypted file
+     * @return the index of the encrypted file
+     * @throws CryptoException if the file is not well formed, or if the global signature does not match
+     * @throws IOException     if an error occurs while reading
+     */
+    public static EncryptedDataStreamIndex scan(Crypto crypto, SecretKeys secretKeys, FileChannel channel)
+            throws CryptoException, IOException {
+        long fileSize = channel.size();
+        long position = 0;
+
+        /* Check the prefix and skip the version, and the chunk size if there is one */
+        byte[] streamHeader = read(channel, position, Constants.CRYPTO.STREAM_PREFIX.length + VERSION_BYTES);
+        if (!Arrays.equals(Arrays.copyOf(streamHeader, Constants.CRYPTO.STREAM_PREFIX.length),
+                Constants.CRYPTO.STREAM_PREFIX)) {
+            throw new CryptoException("The data stream prefix does not match");
+        }
+        position += streamHeader.length;
+        short version = NumberConv.byteArrayToShort(streamHeader, Constants.CRYPTO.STREAM_PREFIX.length);
+        if (0 != (version & Constants.CRYPTO.STREAM_VERSION_CHUNK_SIZE_FLAG)) {
+            position += LENGTH_BYTES;
+        }
+
+        Mac globalMac = crypto.initMac(secretKeys.getSignatureKey());
+        byte[] lastBlock = new byte[Constants.CRYPTO.AES_BLOCK_SIZE];
+        EncryptedDataStreamIndex index = new EncryptedDataStreamIndex();
+        while (true) {
+            int sectionType = read(channel, position, 1)[0];
+            if (EncryptedDataStream.SECTION_TYPE_SIGNATURE == sectionType) {
+                int globalSignatureLength = NumberConv.byteArrayToInt(read(channel, position + 1, LENGTH_BYTES), 0);
+                if (globalSignatureLength < 0 || globalSignatureLength > fileSize) {
+                    throw new CryptoException("Failed to read global signature");
+                }
+                byte[] globalSignature = read(channel, position + 1 + LENGTH_BYTES, globalSignatureLength);
+                if (!Arrays.equals(globalMac.doFinal(), globalSignature)) {
+                    throw new CryptoException("Failed to verify global signature or data was tampered with");
+                }
+                return index;
+            } else if (EncryptedDataStream.SECTION_TYPE_CHUNK != sectionType) {
+                throw new CryptoException("Wrong message section");
+            }
+
+            /* Read the chunk header, its signature, and the initialization vector */
+            long chunkOffset = position + 1;
+            byte[] chunkHeader = read(channel, position, CHUNK_HEADER_BYTES);
+            for (int i = 0; i < Constants.CRYPTO.CHUNK_PREFIX.length; i++) {
+                if (chunkHeader[1 + i] != Constants.CRYPTO.CHUNK_PREFIX[i]) {
+                    throw new CryptoException("The data chunk prefix does not match");
+                }
+            }
+            position += CHUNK_HEADER_BYTES;
+            int signatureLength = NumberConv.byteArrayToInt(chunkHeader, CHUNK_HEADER_BYTES - LENGTH_BYTES);
+            checkLength(fileSize, position, signatureLength);
+            byte[] signature = read(channel, position, signatureLength);
+            position += signatureLength;
+            int ivLength = NumberConv.byteArrayToInt(read(channel, position, LENGTH_BYTES), 0);
+            position += LENGTH_BYTES;
+            checkLength(fileSize, position, ivLength);
+            byte[] iv = read(channel, position, ivLength);
+            position += ivLength;
+            int dataLength = NumberConv.byteArrayToInt(read(channel, position, LENGTH_BYTES), 0);
+            position += LENGTH_BYTES;
+            checkLength(fileSize, position, dataLength);
+            if (Constants.CRYPTO.CHUNK_VERSION_AEAD == NumberConv.byteArrayToShort(chunkHeader,
+                    1 + Constants.CRYPTO.CHUNK_PREFIX.length)) {
+                /* AES-GCM does not pad the data */
+                position += dataLength;
+                globalMac.update(signature, 0, signature.length);
+                index.add(dataLength, chunkOffset, (int) (position - chunkOffset), signature);
+                continue;
+            }
+            if (dataLength < lastBlock.length || 0 != dataLength % lastBlock.length) {
+                throw new CryptoException("Wrong encrypted data length");
+            }
+
+            /* Decrypt the last block, chained to the previous one, to find the padding length */
+            byte[] lastBlocks = read(channel, position + dataLength - Math.min(dataLength, 2 * lastBlock.length),
+                    Math.min(dataLength, 2 * lastBlock.length));
+            byte[] lastBlockIv = dataLength > lastBlock.length
+                    ? Arrays.copyOf(lastBlocks, lastBlock.length) : iv;
+            int lastBlockClearLength = crypto.decrypt(secretKeys.getEncryptionKey(), lastBlockIv,
+                    lastBlocks, lastBlocks.length - lastBlock.length, lastBlock.length, lastBlock, 0);
+            position += dataLength;
+
+            globalMac.update(signature, 0, signature.length);
+            index.add(dataLength - lastBlock.length + lastBlockClearLength,
+                    chunkOffset, (int) (position - chunkOffset), signature);
+        }
+    }
+
+    /**
+     * Checks that a field of the given {@code length} fits in the file, at the given {@code position}.
+     *
+     * @param fileSize the size of the file
+     * @param position the position of the field
+     * @param length   the length of the field
+     * @throws CryptoException if the field does not fit in the file
+     */
+    private static void checkLength(long fileSize, long position, int length) throws CryptoException {
+        if (length < 0 || position + length > fileSize) {
+            throw new CryptoException("Wrong length in data chunk header");
+        }
+    }
+
+    /**
+     * Reads exactly {@code length} bytes at the given {@code position} of the given {@code channel}.
+     *
+     * @param channel  the channel to read from
+     * @param position the position where to read
+     * @param length   the number of bytes to read
+     * @return the bytes read
+     * @throws IOException if an error occurs while reading, or if the end of the file is reached
+     */
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.array();
+    }
+}
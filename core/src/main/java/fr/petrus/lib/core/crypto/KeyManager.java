@@ -248,11 +248,13 @@ public class KeyManager {
     /**
      * Locks the main key store.
      *
-     * <p>The key store has to be unlocked again to do anything on it.
+     * <p>The key store has to be unlocked again to do anything on it. The cryptographic contexts
+     * cached for its keys are released.
      */
     public void lockKeyStore() {
         keyStorePassword = null;
         keyStore = null;
+        crypto.clearKeyContexts();
     }
 
     /**
@@ -359,6 +361,7 @@ public class KeyManager {
         if (null!=keyStorePassword && null!= keyStore) {
             try {
                 keyStore.deleteKeys(alias);
+                crypto.clearKeyContexts();
                 keyStore.save(getMainKeyStoreFile(), keyStorePassword);
                 return true;
             } catch (CryptoException e) {
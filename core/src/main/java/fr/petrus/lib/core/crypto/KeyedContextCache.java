@@ -0,0 +1,147 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+package fr.petrus.lib.core.crypto;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.crypto.SecretKey;
+
+/**
+ * This class caches cryptographic contexts (ciphers, MACs...) for each thread, keyed by the
+ * {@code SecretKey} they were initialized with.
+ *
+ * <p>Creating a context (provider lookup, key schedule setup) is much more expensive than
+ * reinitializing an existing one with a new initialization vector. Each thread keeps its own
+ * contexts, so that they can be reused without contention. The number of keys cached by each
+ * thread is bounded, the least recently used keys being evicted first.
+ *
+ * <p>The contexts hold the keys they were initialized with, so {@link #clear()} must be called
+ * when keys are no longer usable, to release them from all the threads.
+ *
+ * @param <T> the type of the cached contexts
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public abstract class KeyedContextCache<T> {
+
+    /**
+     * The contexts of one thread, which are only locked by another thread when they are cleared.
+     */
+    private final class ThreadContexts {
+        private final Map<SecretKey, T> contexts = new LinkedHashMap<SecretKey, T>(maxKeys + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SecretKey, T> eldest) {
+                return size() > maxKeys;
+            }
+        };
+    }
+
+    private final int maxKeys;
+
+    /* weakly referenced, so that the contexts of the finished threads are released */
+    private final Set<ThreadContexts> allThreadContexts =
+            Collections.newSetFromMap(new WeakHashMap<ThreadContexts, Boolean>());
+
+    private final ThreadLocal<ThreadContexts> contexts = new ThreadLocal<ThreadContexts>() {
+        @Override
+        protected ThreadContexts initialValue() {
+            ThreadContexts threadContexts = new ThreadContexts();
+            synchronized (allThreadContexts) {
+                allThreadContexts.add(threadContexts);
+            }
+            return threadContexts;
+        }
+    };
+
+    /**
+     * Creates a new {@code KeyedContextCache}, which keeps the contexts of no more than
+     * {@code maxKeys} keys for each thread.
+     *
+     * @param maxKeys the maximum number of keys which contexts are kept by each thread
+     */
+    public KeyedContextCache(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Returns the context of the calling thread for the given {@code key}, creating it if needed.
+     *
+     * <p>The returned context must only be used by the calling thread.
+     *
+     * @param key the key the context is initialized with
+     * @return the context of the calling thread for the given {@code key}
+     * @throws CryptoException if the context cannot be created
+     */
+    public T get(SecretKey key) throws CryptoException {
+        ThreadContexts threadContexts = contexts.get();
+        synchronized (threadContexts) {
+            T context = threadContexts.contexts.get(key);
+            if (null == context) {
+                context = create(key);
+                threadContexts.contexts.put(key, context);
+            }
+            return context;
+        }
+    }
+
+    /**
+     * Removes the contexts of all the threads, for all the keys.
+     *
+     * <p>A context which is currently used by a thread is not affected, but it is not reused.
+     */
+    public void clear() {
+        synchronized (allThreadContexts) {
+            for (ThreadContexts threadContexts : allThreadContexts) {
+                synchronized (threadContexts) {
+                    threadContexts.contexts.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new context for the given {@code key}.
+     *
+     * @param key the key the context is initialized with
+     * @return the new context
+     * @throws CryptoException if the context cannot be created
+     */
+    protected abstract T create(SecretKey key) throws CryptoException;
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import fr.petrus.lib.core.Constants;
+
+/**
+ * A channel which reads the clear data of an encrypted file produced by {@link EncryptedDataStream},
+ * at any position, decrypting only the chunks covering the requested range.
+ *
+ * <p>When it is opened, the {@link EncryptedDataStreamIndex} of the encrypted file is read from its
+ * signed trailer, or built by scanning its chunk headers and checking the chunk signatures against
+ * the global signature. Then each chunk is verified against its signature when it is decrypted.
+ *
+ * <p>The last decrypted chunk is kept, so that sequential reads decrypt each chunk only once.
+ *
+ * <p>An instance of this class is not thread safe : it must only be used by one thread at a time.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class SeekableEncryptedChannel implements ReadableByteChannel {
+
+    private FileChannel encryptedChannel;
+    private EncryptedDataStreamIndex index;
+    private EncryptedDataChunkCodec codec;
+    private int decryptedChunk;
+    private long position;
+
+    /**
+     * Creates a new {@code SeekableEncryptedChannel} reading the encrypted file from the given
+     * {@code encryptedChannel}, which chunk index is read from its trailer if it has one, or built
+     * by scanning its chunk headers otherwise.
+     *
+     * @param crypto           the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys       the secret keys used to encrypt and sign the file
+     * @param encryptedChannel the channel of the encrypted file
+     * @throws CryptoException if the file is not well formed or if its global signature does not match
+     * @throws IOException     if an error occurs while scanning the file
+     */
+    public SeekableEncryptedChannel(Crypto crypto, SecretKeys secretKeys, FileChannel encryptedChannel)
+            throws CryptoException, IOException {
+        this(crypto, secretKeys, encryptedChannel, EncryptedDataStreamIndex.load(crypto, secretKeys, encryptedChannel));
+    }
+
+    /**
+     * Creates a new {@code SeekableEncryptedChannel} reading the encrypted file from the given
+     * {@code encryptedChannel}, with an already built chunk index.
+     *
+     * @param crypto           the {@code Crypto instance} which will be used to perform cryptographic operations
+     * @param secretKeys       the secret keys used to encrypt and sign the file
+     * @param encryptedChannel the channel of the encrypted file
+     * @param index            the chunk index of the encrypted file
+     * @throws CryptoException if the codec cannot be initialized
+     */
+    public SeekableEncryptedChannel(Crypto crypto, SecretKeys secretKeys, FileChannel encryptedChannel,
+                                    EncryptedDataStreamIndex index)
+            throws CryptoException {
+        this.encryptedChannel = encryptedChannel;
+        this.index = index;
+        codec = new EncryptedDataChunkCodec(crypto, secretKeys,
+                Math.max(index.getMaxClearLength(), Constants.CRYPTO.DEFAULT_CHUNK_SIZE));
+        decryptedChunk = -1;
+        position = 0;
+    }
+
+    /**
+     * Returns the chunk index of the encrypted file.
+     *
+     * @return the chunk index of the encrypted file
+     */
+    public EncryptedDataStreamIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the size of the clear data.
+     *
+     * @return the size of the clear data
+     */
+    public long size() {
+        return index.getClearSize();
+    }
+
+    /**
+     * Returns the position in the clear data where the next {@link #read(ByteBuffer)} will start.
+     *
+     * @return the current position in the clear data
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Sets the position in the clear data where the next {@link #read(ByteBuffer)} will start.
+     *
+     * @param newPosition the new position in the clear data
+     * @return this channel
+     */
+    public SeekableEncryptedChannel position(long newPosition) {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int bytesRead = read(position, dst);
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Reads clear data at the given {@code position} into the given {@code buffer}, without changing
+     * the current position of this channel.
+     *
+     * @param position the position in the clear data where to start reading
+     * @param buffer   the array to read the data into
+     * @param offset   the offset in the {@code buffer} where to write the data
+     * @param length   the maximum number of bytes to read
+     * @return the number of bytes read, or -1 if {@code position} is beyond the end of the clear data
+     * @throws IOException if an error occurs while reading, or if a chunk cannot be verified or decrypted
+     */
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        return read(position, ByteBuffer.wrap(buffer, offset, length));
+    }
+
+    /**
+     * Reads clear data at the given {@code position} into the given {@code dst} buffer, without
+     * changing the current position of this channel.
+     *
+     * @param position the position in the clear data where to start reading
+     * @param dst      the buffer to read the data into
+     * @return the number of bytes read, or -1 if {@code position} is beyond the end of the clear data
+     * @throws IOException if an error occurs while reading, or if a chunk cannot be verified or decrypted
+     */
+    public int read(long position, ByteBuffer dst) throws IOException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+        if (position >= index.getClearSize()) {
+            return -1;
+        }
+        int bytesRead = 0;
+        while (dst.hasRemaining() && position < index.getClearSize()) {
+            int chunk = index.chunkAt(position);
+            decryptChunk(chunk);
+            EncryptedDataStreamIndex.Entry entry = index.getEntry(chunk);
+            int chunkOffset = (int) (position - entry.getClearOffset());
+            int length = Math.min(dst.remaining(), entry.getClearLength() - chunkOffset);
+            dst.put(codec.getClearData(), chunkOffset, length);
+            position += length;
+            bytesRead += length;
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return null != encryptedChannel && encryptedChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (null != encryptedChannel) {
+            encryptedChannel.close();
+        }
+    }
+
+    /**
+     * Reads, verifies and decrypts the chunk at the given {@code chunkIndex}, unless it is the last
+     * decrypted chunk.
+     *
+     * @param chunkIndex the index of the chunk to decrypt
+     * @throws IOException if an error occurs while reading, or if the chunk cannot be verified or decrypted
+     */
+    private void decryptChunk(int chunkIndex) throws IOException {
+        if (chunkIndex == decryptedChunk) {
+            return;
+        }
+        decryptedChunk = -1;
+        EncryptedDataStreamIndex.Entry entry = index.getEntry(chunkIndex);
+        if (!codec.readEncodedChunk(encryptedChannel, entry.getEncodedOffset(), entry.getEncodedLength())
+                || !codec.hasSignature(entry.getSignature())) {
+            throw new IOException("Data chunk " + chunkIndex + " does not match the index");
+        }
+        try {
+            codec.decode();
+        } catch (CryptoException e) {
+            throw new IOException("Failed to decrypt data chunk " + chunkIndex, e);
+        }
+        if (codec.getClearDataLength() != entry.getClearLength()) {
+            throw new IOException("Data chunk " + chunkIndex + " does not match the index");
+        }
+        decryptedChunk = chunkIndex;
+    }
+}
@@ -4,6 +4,7 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.crypto.CryptoException;
@@ -38,8 +39,32 @@ public class JcaMac implements Mac {
         mac.update(data);
     }
 
+    @Override
+    public void update(byte[] data, int offset, int length) {
+        mac.update(data, offset, length);
+    }
+
+    @Override
+    public void reset() {
+        mac.reset();
+    }
+
+    @Override
+    public int getMacLength() {
+        return mac.getMacLength();
+    }
+
     @Override
     public byte[] doFinal() {
         return mac.doFinal();
     }
+
+    @Override
+    public void doFinal(byte[] output, int offset) throws CryptoException {
+        try {
+            mac.doFinal(output, offset);
+        } catch (ShortBufferException e) {
+            throw new CryptoException(e);
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package fr.petrus.lib.core.crypto.mac;
 
+import fr.petrus.lib.core.crypto.CryptoException;
+
 /**
  * The interface used to generate a Mac signature
  *
@@ -16,10 +18,44 @@ public interface Mac {
      */
     void update(byte[] data);
 
+    /**
+     * Processes {@code length} bytes of the given array, starting at the given {@code offset}
+     *
+     * @param data   the array containing the bytes to process
+     * @param offset the offset of the first byte to process
+     * @param length the number of bytes to process
+     */
+    void update(byte[] data, int offset, int length);
+
+    /**
+     * Resets this MAC, discarding the bytes processed since the last signature
+     */
+    void reset();
+
+    /**
+     * Returns the length of the signature produced by this MAC
+     *
+     * @return the length of the signature in bytes
+     */
+    int getMacLength();
+
     /**
      * Finishes the MAC operation and returns the signature
      *
      * @return the signature
      */
     byte[] doFinal();
+
+    /**
+     * Finishes the MAC operation and writes the signature into the given {@code output} array,
+     * at the given {@code offset}
+     *
+     * <p>The {@code output} array must have room for {@link #getMacLength()} bytes after
+     * the {@code offset}.
+     *
+     * @param output the array to write the signature to
+     * @param offset the offset where to write the signature
+     * @throws CryptoException if the signature could not be written
+     */
+    void doFinal(byte[] output, int offset) throws CryptoException;
 }
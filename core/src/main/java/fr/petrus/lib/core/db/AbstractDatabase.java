@@ -37,16 +37,25 @@
 package fr.petrus.lib.core.db;
 
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DatabaseResultsMapper;
+import com.j256.ormlite.stmt.SelectArg;
 import com.j256.ormlite.stmt.UpdateBuilder;
+import com.j256.ormlite.support.DatabaseResults;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.DocumentSummary;
 import fr.petrus.lib.core.EncryptedDocument;
 import fr.petrus.lib.core.OrderBy;
 import fr.petrus.lib.core.State;
@@ -89,11 +98,87 @@ public abstract class AbstractDatabase implements Database {
      */
     protected abstract Dao<EncryptedDocument, Long> getEncryptedDocumentDao() throws DatabaseConnectionClosedException;
 
+    /**
+     * The query which selects the columns of the {@code DocumentSummary} projection.
+     */
+    private static final String DOCUMENT_SUMMARY_QUERY = String.format(
+            "select `%s`, `%s`, `%s`, `%s`, `%s`, `%s`, `%s`, `%s`, `%s` from `%s`",
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_MIME_TYPE,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_SIZE,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_TYPE,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DELETION_STATE,
+            DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE);
+
+    /**
+     * The mapper which builds a {@code DocumentSummary} from a row of the {@code DOCUMENT_SUMMARY_QUERY}.
+     */
+    private static final DatabaseResultsMapper<DocumentSummary> DOCUMENT_SUMMARY_MAPPER =
+            new DatabaseResultsMapper<DocumentSummary>() {
+                @Override
+                public DocumentSummary mapRow(DatabaseResults results) throws SQLException {
+                    return new DocumentSummary(
+                            results.getLong(0),
+                            results.getLong(1),
+                            results.getString(2),
+                            results.getString(3),
+                            results.getLong(4),
+                            toEnum(StorageType.class, results.getString(5)),
+                            toEnum(State.class, results.getString(6)),
+                            toEnum(State.class, results.getString(7)),
+                            toEnum(State.class, results.getString(8)));
+                }
+            };
+
+    /**
+     * Returns the constant of the given {@code enumClass} with the given {@code name}.
+     *
+     * @param enumClass the class of the enum
+     * @param name      the name of the constant, as stored in the database
+     * @param <E>       the type of the enum
+     * @return the constant with the given {@code name}, or null if {@code name} is null
+     */
+    private static <E extends Enum<E>> E toEnum(Class<E> enumClass, String name) {
+        return null == name ? null : Enum.valueOf(enumClass, name);
+    }
+
+    /**
+     * The columns read to build an {@code EncryptedDocumentPathCache.Node}.
+     */
+    private static final String[] PATH_NODE_COLUMNS = {
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_FILE_NAME,
+            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH
+    };
+
     /**
      * The TextI18n instance, used to get localized messages.
      */
     protected TextI18n textI18n;
 
+    /**
+     * The cache of the {@code EncryptedDocument}s path nodes, kept up to date by the methods of
+     * this class which add, update, refresh or delete documents.
+     */
+    protected final EncryptedDocumentPathCache encryptedDocumentPathCache =
+            new EncryptedDocumentPathCache(Constants.ORMLITE.DOCUMENT_PATH_CACHE_SIZE);
+
+    /**
+     * The prepared {@code EncryptedDocument} statements of each thread.
+     */
+    private final ThreadLocal<EncryptedDocumentStatements> encryptedDocumentStatements = new ThreadLocal<>();
+
+    /**
+     * The listeners notified of the synchronization state changes.
+     */
+    private final List<SyncStateListener> syncStateListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Creates a new {@code AbstractDatabase}, providing its dependencies.
      *
@@ -152,17 +237,52 @@ public abstract class AbstractDatabase implements Database {
 
     @Override
     public void addEncryptedDocument(EncryptedDocument encryptedDocument) throws DatabaseConnectionClosedException {
+        setEncryptedDocumentAncestorPath(encryptedDocument);
         try {
             getEncryptedDocumentDao().create(encryptedDocument);
+            encryptedDocumentPathCache.put(encryptedDocument);
+            notifySyncStates(encryptedDocument);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
     }
 
+    @Override
+    public void executeDocumentCreationBatch(final DocumentCreationBatch documentCreationBatch)
+            throws DatabaseConnectionClosedException, SQLException {
+        if (documentCreationBatch.isEmpty()) {
+            return;
+        }
+        try {
+            for (EncryptedDocument encryptedDocument : documentCreationBatch.getDocuments()) {
+                setEncryptedDocumentAncestorPath(encryptedDocument);
+            }
+            final Dao<EncryptedDocument, Long> encryptedDocumentDao = getEncryptedDocumentDao();
+            /* one transaction for all the documents, the ids are read back after each insert */
+            callInTransaction(new Callable<Void>() {
+                public Void call() throws Exception {
+                    for (EncryptedDocument encryptedDocument : documentCreationBatch.getDocuments()) {
+                        encryptedDocumentDao.create(encryptedDocument);
+                    }
+                    return null;
+                }
+            });
+            for (EncryptedDocument encryptedDocument : documentCreationBatch.getDocuments()) {
+                encryptedDocumentPathCache.put(encryptedDocument);
+                notifySyncStates(encryptedDocument);
+            }
+        } finally {
+            /* the transaction was rolled back on failure : the documents cannot be inserted again */
+            documentCreationBatch.clear();
+        }
+    }
+
     @Override
     public void updateEncryptedDocument(EncryptedDocument encryptedDocument) throws DatabaseConnectionClosedException {
         try {
             getEncryptedDocumentDao().update(encryptedDocument);
+            encryptedDocumentPathCache.put(encryptedDocument);
+            notifySyncStates(encryptedDocument);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -172,18 +292,50 @@ public abstract class AbstractDatabase implements Database {
     public void refreshEncryptedDocument(EncryptedDocument encryptedDocument) throws DatabaseConnectionClosedException {
         try {
             getEncryptedDocumentDao().refresh(encryptedDocument);
+            encryptedDocumentPathCache.put(encryptedDocument);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
     }
 
+    /**
+     * Returns the prepared {@code EncryptedDocument} statements of the current thread, preparing
+     * them again if the DAO changed since they were prepared.
+     *
+     * @return the prepared {@code EncryptedDocument} statements of the current thread
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     * @throws SQLException                      if an error occurs when preparing the statements
+     */
+    private EncryptedDocumentStatements getEncryptedDocumentStatements()
+            throws DatabaseConnectionClosedException, SQLException {
+        Dao<EncryptedDocument, Long> encryptedDocumentDao = getEncryptedDocumentDao();
+        EncryptedDocumentStatements statements = encryptedDocumentStatements.get();
+        if (null == statements || statements.getDao() != encryptedDocumentDao) {
+            statements = new EncryptedDocumentStatements(encryptedDocumentDao);
+            encryptedDocumentStatements.set(statements);
+        }
+        return statements;
+    }
+
+    /**
+     * Sets the given {@code column} of the {@code EncryptedDocument} with the given {@code id},
+     * with a prepared update.
+     *
+     * @param column the name of the column to update
+     * @param id     the id of the document to update
+     * @param value  the new value of the column
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     * @throws SQLException                      if an error occurs when running the update
+     */
+    private void updateEncryptedDocumentColumn(String column, long id, Object value)
+            throws DatabaseConnectionClosedException, SQLException {
+        getEncryptedDocumentStatements().updateColumn(column, id, value);
+    }
+
     @Override
     public void updateEncryptedDocumentSize(long id, long size) throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_SIZE, size)
-                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_SIZE, id, size);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -192,10 +344,7 @@ public abstract class AbstractDatabase implements Database {
     @Override
     public void updateEncryptedDocumentKeyAlias(long id, String keyAlias) throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_KEY_ALIAS, keyAlias)
-                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_KEY_ALIAS, id, keyAlias);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -204,10 +353,7 @@ public abstract class AbstractDatabase implements Database {
     @Override
     public void updateEncryptedDocumentLocalModificationTime(long id, long time) throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_LOCAL_MODIFICATION_TIME, time)
-                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_LOCAL_MODIFICATION_TIME, id, time);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -216,10 +362,7 @@ public abstract class AbstractDatabase implements Database {
     @Override
     public void updateEncryptedDocumentBackEntryId(long id, String backEntryId) throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_ID, backEntryId)
-                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_ID, id, backEntryId);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -228,10 +371,7 @@ public abstract class AbstractDatabase implements Database {
     @Override
     public void updateEncryptedDocumentBackEntryVersion(long id, long version) throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_VERSION, version)
-                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_VERSION, id, version);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -240,10 +380,7 @@ public abstract class AbstractDatabase implements Database {
     @Override
     public void updateEncryptedDocumentRemoteModificationTime(long id, long time) throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_REMOTE_MODIFICATION_TIME, time)
-                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_REMOTE_MODIFICATION_TIME, id, time);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -253,53 +390,112 @@ public abstract class AbstractDatabase implements Database {
     public void updateEncryptedDocumentBackEntryFolderId(long id, long backEntryFolderId)
             throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_FOLDER_ID, backEntryFolderId)
-                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_FOLDER_ID, id, backEntryFolderId);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
     }
 
+    /**
+     * Returns the name of the column which stores the state of the given {@code syncAction}.
+     *
+     * @param syncAction the synchronization action
+     * @return the name of the column which stores the state of the given {@code syncAction}
+     */
+    private static String getSyncStateColumnName(SyncAction syncAction) {
+        switch (syncAction) {
+            case Upload:
+                return DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE;
+            case Download:
+                return DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE;
+            case Deletion:
+                return DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DELETION_STATE;
+        }
+        return null;
+    }
+
     @Override
     public void updateEncryptedDocumentSyncState(long id, SyncAction syncAction, State state)
             throws DatabaseConnectionClosedException {
         try {
-            String syncActionColumn;
-            switch (syncAction) {
-                case Upload:
-                    syncActionColumn = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE;
-                    break;
-                case Download:
-                    syncActionColumn = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE;
-                    break;
-                case Deletion:
-                    syncActionColumn = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DELETION_STATE;
-                    break;
-                default:
-                    syncActionColumn = null;
-            }
+            String syncActionColumn = getSyncStateColumnName(syncAction);
             if (null!=syncActionColumn) {
-                UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-                updateBuilder.updateColumnValue(syncActionColumn, state)
-                        .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-                updateBuilder.update();
+                updateEncryptedDocumentColumn(syncActionColumn, id, state);
+                notifySyncStateChanged(id, syncAction, state);
             }
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
     }
 
+    @Override
+    public void addSyncStateListener(SyncStateListener syncStateListener) {
+        syncStateListeners.add(syncStateListener);
+    }
+
+    @Override
+    public void removeSyncStateListener(SyncStateListener syncStateListener) {
+        syncStateListeners.remove(syncStateListener);
+    }
+
+    /**
+     * Notifies the registered listeners that the {@code state} of the given {@code syncAction} of
+     * the document with the given {@code id} was written.
+     *
+     * @param id         the id of the document
+     * @param syncAction the synchronization action
+     * @param state      the new state of the synchronization action
+     */
+    private void notifySyncStateChanged(long id, SyncAction syncAction, State state) {
+        for (SyncStateListener syncStateListener : syncStateListeners) {
+            syncStateListener.onSyncStateChanged(id, syncAction, state);
+        }
+    }
+
+    /**
+     * Notifies the registered listeners of the synchronization states of the given
+     * {@code encryptedDocument}, once it was written.
+     *
+     * @param encryptedDocument the document which was written
+     */
+    private void notifySyncStates(EncryptedDocument encryptedDocument) {
+        if (syncStateListeners.isEmpty()) {
+            return;
+        }
+        for (SyncAction syncAction : SyncAction.values()) {
+            State state = encryptedDocument.getSyncState(syncAction);
+            if (null != state) {
+                notifySyncStateChanged(encryptedDocument.getId(), syncAction, state);
+            }
+        }
+    }
+
+    /**
+     * Notifies the registered listeners of the synchronization state changes contained in the given
+     * {@code documentUpdateBatch}, once it was written.
+     *
+     * @param documentUpdateBatch the batch of changes which was written
+     */
+    protected void notifySyncStateChanges(DocumentUpdateBatch documentUpdateBatch) {
+        if (syncStateListeners.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Long, TreeMap<String, Object>> change : documentUpdateBatch.getChanges().entrySet()) {
+            for (SyncAction syncAction : SyncAction.values()) {
+                Object state = change.getValue().get(getSyncStateColumnName(syncAction));
+                if (null != state) {
+                    notifySyncStateChanged(change.getKey(), syncAction, toEnum(State.class, state.toString()));
+                }
+            }
+        }
+    }
+
     @Override
     public void updateEncryptedDocumentBackEntryFolderLastSubfolderId(long id, long folderLastSubfolderId)
             throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_FOLDER_LAST_SUBFOLDER_ID,
-                    folderLastSubfolderId);
-            updateBuilder.where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_FOLDER_LAST_SUBFOLDER_ID,
+                    id, folderLastSubfolderId);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -309,11 +505,8 @@ public abstract class AbstractDatabase implements Database {
     public void updateEncryptedDocumentBackEntryNumSyncFailures(long id, int numSyncFailures)
             throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_NUM_SYNC_FAILURES,
-                    numSyncFailures);
-            updateBuilder.where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_NUM_SYNC_FAILURES,
+                    id, numSyncFailures);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -323,11 +516,8 @@ public abstract class AbstractDatabase implements Database {
     public void updateEncryptedDocumentBackEntryLastFailureTime(long id, long lastFailureTime)
             throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_LAST_SYNC_FAILURE_TIME,
-                    lastFailureTime);
-            updateBuilder.where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_LAST_SYNC_FAILURE_TIME,
+                    id, lastFailureTime);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -337,11 +527,19 @@ public abstract class AbstractDatabase implements Database {
     public void updateEncryptedDocumentBackEntryCreationIncomplete(long id, boolean creationIncomplete)
             throws DatabaseConnectionClosedException {
         try {
-            UpdateBuilder<EncryptedDocument, Long> updateBuilder = getEncryptedDocumentDao().updateBuilder();
-            updateBuilder.updateColumnValue(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_CREATION_INCOMPLETE,
-                    creationIncomplete);
-            updateBuilder.where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id);
-            updateBuilder.update();
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_CREATION_INCOMPLETE,
+                    id, creationIncomplete);
+        } catch (SQLException e) {
+            LOG.error("SQL error", e);
+        }
+    }
+
+    @Override
+    public void updateEncryptedDocumentUploadSession(long id, String uploadSession)
+            throws DatabaseConnectionClosedException {
+        try {
+            updateEncryptedDocumentColumn(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_UPLOAD_SESSION,
+                    id, uploadSession);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -351,6 +549,7 @@ public abstract class AbstractDatabase implements Database {
     @Override
     public void deleteEncryptedDocument(EncryptedDocument encryptedDocument) throws DatabaseConnectionClosedException {
         try {
+            encryptedDocumentPathCache.remove(encryptedDocument.getId());
             getEncryptedDocumentDao().deleteById(encryptedDocument.getId());
         } catch (SQLException e) {
             LOG.error("SQL error", e);
@@ -362,23 +561,144 @@ public abstract class AbstractDatabase implements Database {
         EncryptedDocument encryptedDocument = null;
         try {
             encryptedDocument = getEncryptedDocumentDao().queryForId(id);
+            encryptedDocumentPathCache.put(encryptedDocument);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
         return encryptedDocument;
     }
 
+    @Override
+    public List<EncryptedDocumentPathCache.Node> getEncryptedDocumentPathNodes(long id)
+            throws DatabaseConnectionClosedException {
+        LinkedList<EncryptedDocumentPathCache.Node> nodes = new LinkedList<>();
+        EncryptedDocumentPathCache.Node node = getEncryptedDocumentPathNode(id);
+        if (null != node && null != node.getAncestorPath()) {
+            loadEncryptedDocumentPathNodes(node.getAncestorPath());
+        }
+        while (null != node) {
+            nodes.addFirst(node);
+            if (Constants.STORAGE.ROOT_PARENT_ID == node.getParentId()) {
+                break;
+            }
+            node = getEncryptedDocumentPathNode(node.getParentId());
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the path node of the {@code EncryptedDocument} with the given {@code id}, from the
+     * cache if possible, or else by querying only the needed columns.
+     *
+     * @param id the id of the {@code EncryptedDocument}
+     * @return the path node of the {@code EncryptedDocument}, or null if it is not in this database
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private EncryptedDocumentPathCache.Node getEncryptedDocumentPathNode(long id)
+            throws DatabaseConnectionClosedException {
+        EncryptedDocumentPathCache.Node node = encryptedDocumentPathCache.get(id);
+        if (null == node) {
+            try {
+                EncryptedDocument encryptedDocument = getEncryptedDocumentDao().queryBuilder()
+                        .selectColumns(PATH_NODE_COLUMNS)
+                        .where()
+                        .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, id)
+                        .queryForFirst();
+                if (null != encryptedDocument) {
+                    node = new EncryptedDocumentPathCache.Node(encryptedDocument);
+                    encryptedDocumentPathCache.put(node);
+                }
+            } catch (SQLException e) {
+                LOG.error("SQL error", e);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Loads the path nodes of the parents listed in the given {@code ancestorPath} which are not
+     * cached yet, with a single query.
+     *
+     * @param ancestorPath the ids of the parents of a document, formatted as "/rootId/.../parentId/"
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private void loadEncryptedDocumentPathNodes(String ancestorPath)
+            throws DatabaseConnectionClosedException {
+        List<Long> missingIds = new ArrayList<>();
+        for (String ancestorId : ancestorPath.split("/")) {
+            if (!ancestorId.isEmpty()) {
+                long id = Long.parseLong(ancestorId);
+                if (null == encryptedDocumentPathCache.get(id)) {
+                    missingIds.add(id);
+                }
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            try {
+                List<EncryptedDocument> encryptedDocuments = getEncryptedDocumentDao().queryBuilder()
+                        .selectColumns(PATH_NODE_COLUMNS)
+                        .where()
+                        .in(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, missingIds)
+                        .query();
+                for (EncryptedDocument encryptedDocument : encryptedDocuments) {
+                    encryptedDocumentPathCache.put(encryptedDocument);
+                }
+            } catch (SQLException e) {
+                LOG.error("SQL error", e);
+            }
+        }
+    }
+
+    /**
+     * Sets the ancestor path of the given new {@code encryptedDocument}, from the ancestor path of
+     * its parent.
+     *
+     * <p>The ancestor path is left unset if the ancestor path of the parent is unknown.
+     *
+     * @param encryptedDocument the new document
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private void setEncryptedDocumentAncestorPath(EncryptedDocument encryptedDocument)
+            throws DatabaseConnectionClosedException {
+        if (Constants.STORAGE.ROOT_PARENT_ID == encryptedDocument.getParentId()) {
+            encryptedDocument.setAncestorPath("/");
+        } else {
+            EncryptedDocumentPathCache.Node parentNode =
+                    getEncryptedDocumentPathNode(encryptedDocument.getParentId());
+            if (null != parentNode && null != parentNode.getAncestorPath()) {
+                encryptedDocument.setAncestorPath(parentNode.getAncestorPath() + parentNode.getId() + "/");
+            }
+        }
+    }
+
+    @Override
+    public List<EncryptedDocument> getEncryptedDocumentDescendants(EncryptedDocument folder, boolean parentBefore)
+            throws DatabaseConnectionClosedException {
+        List<EncryptedDocument> encryptedDocuments = null;
+        try {
+            encryptedDocuments = getEncryptedDocumentDao().queryBuilder()
+                    .orderBy(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH, parentBefore)
+                    .orderBy(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, parentBefore)
+                    .where()
+                    .like(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH,
+                            new SelectArg(folder.getAncestorPath() + folder.getId() + "/%"))
+                    .query();
+        } catch (SQLException e) {
+            LOG.error("SQL error", e);
+        }
+        if (null == encryptedDocuments) {
+            encryptedDocuments = new ArrayList<>();
+        }
+        return encryptedDocuments;
+    }
+
     @Override
     public EncryptedDocument getEncryptedDocumentByNameAndParentId(String displayName, long parentId)
             throws DatabaseConnectionClosedException {
         EncryptedDocument encryptedDocument = null;
         try {
-            encryptedDocument = getEncryptedDocumentDao().queryBuilder()
-                    .where()
-                    .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME, displayName)
-                    .and()
-                    .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID, parentId)
-                    .queryForFirst();
+            encryptedDocument = getEncryptedDocumentStatements().queryByNameAndParentId(displayName, parentId);
+            encryptedDocumentPathCache.put(encryptedDocument);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -391,12 +711,7 @@ public abstract class AbstractDatabase implements Database {
             throws DatabaseConnectionClosedException {
         EncryptedDocument encryptedDocument = null;
         try {
-            encryptedDocument = getEncryptedDocumentDao().queryBuilder()
-                    .where()
-                    .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_ACCOUNT, account)
-                    .and()
-                    .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_ID, backEntryId)
-                    .queryForFirst();
+            encryptedDocument = getEncryptedDocumentStatements().queryByAccountAndEntryId(account, backEntryId);
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
@@ -503,6 +818,45 @@ public abstract class AbstractDatabase implements Database {
         return encryptedDocuments;
     }
 
+    @Override
+    public List<DocumentSummary> getDocumentSummariesByParentId(long parentId, boolean foldersFirst,
+                                                                OrderBy orderBy)
+            throws DatabaseConnectionClosedException {
+        List<DocumentSummary> documentSummaries = null;
+        try {
+            String parentCondition = String.format(" where `%s` = ?",
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID);
+            String order = String.format(" order by `%s` %s",
+                    getEncryptedDocumentOrderColumnName(orderBy),
+                    isEncryptedDocumentOrderAscending(orderBy) ? "asc" : "desc");
+            if (foldersFirst) {
+                String mimeTypeCondition = String.format(" and `%s` %%s ?",
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_MIME_TYPE);
+                documentSummaries = getEncryptedDocumentDao().queryRaw(
+                        DOCUMENT_SUMMARY_QUERY + parentCondition
+                                + String.format(mimeTypeCondition, "=") + order,
+                        DOCUMENT_SUMMARY_MAPPER,
+                        String.valueOf(parentId), Constants.STORAGE.DEFAULT_FOLDER_MIME_TYPE)
+                        .getResults();
+                documentSummaries.addAll(getEncryptedDocumentDao().queryRaw(
+                        DOCUMENT_SUMMARY_QUERY + parentCondition
+                                + String.format(mimeTypeCondition, "<>") + order,
+                        DOCUMENT_SUMMARY_MAPPER,
+                        String.valueOf(parentId), Constants.STORAGE.DEFAULT_FOLDER_MIME_TYPE)
+                        .getResults());
+            } else {
+                documentSummaries = getEncryptedDocumentDao().queryRaw(
+                        DOCUMENT_SUMMARY_QUERY + parentCondition + order,
+                        DOCUMENT_SUMMARY_MAPPER,
+                        String.valueOf(parentId))
+                        .getResults();
+            }
+        } catch (SQLException e) {
+            LOG.error("SQL error", e);
+        }
+        return documentSummaries;
+    }
+
     @Override
     public List<EncryptedDocument> getEncryptedDocumentsByKeyAlias(String keyAlias)
             throws DatabaseConnectionClosedException {
@@ -524,20 +878,7 @@ public abstract class AbstractDatabase implements Database {
             throws DatabaseConnectionClosedException {
         List<EncryptedDocument> encryptedDocuments = null;
         try {
-            String syncActionColumn;
-            switch (syncAction) {
-                case Upload:
-                    syncActionColumn = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE;
-                    break;
-                case Download:
-                    syncActionColumn = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE;
-                    break;
-                case Deletion:
-                    syncActionColumn = DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DELETION_STATE;
-                    break;
-                default:
-                    syncActionColumn = null;
-            }
+            String syncActionColumn = getSyncStateColumnName(syncAction);
             if (null!=syncActionColumn) {
                 encryptedDocuments = getEncryptedDocumentDao().queryBuilder()
                         .orderBy(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME, true)
@@ -565,6 +906,65 @@ public abstract class AbstractDatabase implements Database {
         return encryptedDocuments;
     }
 
+    @Override
+    public List<EncryptedDocument> getAllEncryptedDocuments(long afterId, int limit)
+            throws DatabaseConnectionClosedException {
+        List<EncryptedDocument> encryptedDocuments = null;
+        try {
+            encryptedDocuments = getEncryptedDocumentDao().queryBuilder()
+                    .orderBy(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, true)
+                    .limit((long) limit)
+                    .where()
+                    .gt(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, afterId)
+                    .query();
+        } catch (SQLException e) {
+            LOG.error("SQL error", e);
+        }
+        return encryptedDocuments;
+    }
+
+    @Override
+    public List<EncryptedDocument> getEncryptedDocumentsBySyncState(SyncAction syncAction, State state,
+                                                                    long afterId, int limit)
+            throws DatabaseConnectionClosedException {
+        List<EncryptedDocument> encryptedDocuments = null;
+        try {
+            String syncActionColumn = getSyncStateColumnName(syncAction);
+            if (null!=syncActionColumn) {
+                encryptedDocuments = getEncryptedDocumentDao().queryBuilder()
+                        .orderBy(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, true)
+                        .limit((long) limit)
+                        .where()
+                        .eq(syncActionColumn, state)
+                        .and()
+                        .gt(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, afterId)
+                        .query();
+            }
+        } catch (SQLException e) {
+            LOG.error("SQL error", e);
+        }
+        return encryptedDocuments;
+    }
+
+    @Override
+    public List<EncryptedDocument> getEncryptedDocumentsByAccount(Account account, long afterId, int limit)
+            throws DatabaseConnectionClosedException {
+        List<EncryptedDocument> encryptedDocuments = null;
+        try {
+            encryptedDocuments = getEncryptedDocumentDao().queryBuilder()
+                    .orderBy(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, true)
+                    .limit((long) limit)
+                    .where()
+                    .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_ACCOUNT, account)
+                    .and()
+                    .gt(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, afterId)
+                    .query();
+        } catch (SQLException e) {
+            LOG.error("SQL error", e);
+        }
+        return encryptedDocuments;
+    }
+
 
     @Override
     public void removeEncryptedDocumentChildrenReferences(long id) throws DatabaseConnectionClosedException {
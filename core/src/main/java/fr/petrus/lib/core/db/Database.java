@@ -40,6 +40,7 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.concurrent.Callable;
 
+import fr.petrus.lib.core.DocumentSummary;
 import fr.petrus.lib.core.EncryptedDocument;
 import fr.petrus.lib.core.OrderBy;
 import fr.petrus.lib.core.State;
@@ -103,6 +104,28 @@ public interface Database {
      */
     void resetDatabase() throws DatabaseConnectionClosedException;
 
+    /**
+     * Returns the size of this database file.
+     *
+     * @return the size of this database file, in bytes, or -1 if it is unknown
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    long getDatabaseFileSize() throws DatabaseConnectionClosedException;
+
+    /**
+     * Runs one incremental step of this database file compaction, while the database stays open.
+     *
+     * <p>The chunks which fill rate is lower than {@code targetFillRate} are rewritten, so that
+     * their space can be reused. The chunks are not moved, so the file itself only shrinks when
+     * its last chunks become free.
+     *
+     * @param targetFillRate the fill rate (in percent) under which the chunks are compacted
+     * @param stepSize       the approximate number of bytes to rewrite in this step
+     * @return true if some data was compacted, false if there was nothing left to compact
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    boolean compactDatabase(int targetFillRate, int stepSize) throws DatabaseConnectionClosedException;
+
     /**
      * Returns the {@code EncryptedDocuments} table column related to the given {@code orderBy} value.
      *
@@ -273,6 +296,60 @@ public interface Database {
      */
     void updateEncryptedDocumentBackEntryCreationIncomplete(long id, boolean creationIncomplete) throws DatabaseConnectionClosedException;
 
+    /**
+     * Updates the resumable upload state of the {@code EncryptedDocument} which has the given
+     * {@code id} into this database.
+     *
+     * @param id            the id of the {@code EncryptedDocument} which upload session will be updated
+     * @param uploadSession the serialized upload session, or null if no upload is in progress
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    void updateEncryptedDocumentUploadSession(long id, String uploadSession) throws DatabaseConnectionClosedException;
+
+    /**
+     * Registers the given {@code syncStateListener}, which will be notified of the synchronization
+     * state changes written to this database.
+     *
+     * @param syncStateListener the {@code SyncStateListener} to register
+     */
+    void addSyncStateListener(SyncStateListener syncStateListener);
+
+    /**
+     * Unregisters the given {@code syncStateListener}.
+     *
+     * @param syncStateListener the {@code SyncStateListener} to unregister
+     */
+    void removeSyncStateListener(SyncStateListener syncStateListener);
+
+    /**
+     * Writes all the changes of the given {@code documentUpdateBatch} to this database in a single
+     * transaction, then clears the batch.
+     *
+     * <p>The documents which have the same changed columns are updated with one batched statement.
+     * If an update fails, none of the changes is written, and the batch is kept so that it can be
+     * executed again.
+     *
+     * @param documentUpdateBatch the batch of changes to write
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     * @throws SQLException                      if the changes could not be written
+     */
+    void executeDocumentUpdateBatch(DocumentUpdateBatch documentUpdateBatch)
+            throws DatabaseConnectionClosedException, SQLException;
+
+    /**
+     * Inserts all the documents of the given {@code documentCreationBatch} into this database in a
+     * single transaction, assigning their ids, then clears the batch.
+     *
+     * <p>If an insert fails, none of the documents of the batch is inserted, and the batch is
+     * cleared anyway.
+     *
+     * @param documentCreationBatch the batch of documents to insert
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     * @throws SQLException                      if the documents could not be inserted
+     */
+    void executeDocumentCreationBatch(DocumentCreationBatch documentCreationBatch)
+            throws DatabaseConnectionClosedException, SQLException;
+
     /**
      * Deletes the given {@code encryptedDocument} from this database.
      *
@@ -290,6 +367,35 @@ public interface Database {
      */
     EncryptedDocument getEncryptedDocumentById(long id) throws DatabaseConnectionClosedException;
 
+    /**
+     * Returns the path nodes of the {@code EncryptedDocument} which has the given {@code id} and of
+     * its parents, starting from the highest one found in this database.
+     *
+     * <p>The first node is the node of the root {@code EncryptedDocument} unless one of the parents
+     * is missing. The path nodes are cached, so that resolving the path of a document does not
+     * query the database once for each of its parents.
+     *
+     * @param id the id of the {@code EncryptedDocument} which path nodes will be returned
+     * @return the path nodes of the {@code EncryptedDocument} and of its parents, or an empty list
+     *         if there is no {@code EncryptedDocument} with the given {@code id} in this database
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    List<EncryptedDocumentPathCache.Node> getEncryptedDocumentPathNodes(long id)
+            throws DatabaseConnectionClosedException;
+
+    /**
+     * Returns all the {@code EncryptedDocument}s contained in the given {@code folder} and in its
+     * subfolders, with a single prefix query on their ancestor paths.
+     *
+     * @param folder       the folder, which ancestor path must be known
+     * @param parentBefore if true, each folder is listed before its content; if false, each folder
+     *                     is listed after its content
+     * @return the list of the descendants of the given {@code folder}
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    List<EncryptedDocument> getEncryptedDocumentDescendants(EncryptedDocument folder, boolean parentBefore)
+            throws DatabaseConnectionClosedException;
+
     /**
      * Returns the {@code EncryptedDocument} which has the given {@code displayName} and
      * {@code parentId} in this database.
@@ -354,6 +460,23 @@ public interface Database {
     List<EncryptedDocument> getEncryptedDocumentsByParentId(long parentId, boolean foldersFirst,
                                                             OrderBy orderBy) throws DatabaseConnectionClosedException;
 
+    /**
+     * Returns the summaries of the {@code EncryptedDocument}s which parent has the given
+     * {@code parentId} in this database, sorted using the given {@code orderBy} criterion.
+     *
+     * <p>The summaries are read with a projection query : the accounts of the documents are not
+     * loaded.
+     *
+     * @param parentId     the id of the parent of the {@code EncryptedDocument}s to return
+     * @param foldersFirst if true, the folders are returned before the files
+     * @param orderBy      the criterion used to sort the documents
+     * @return the summaries of the {@code EncryptedDocument}s which parent has the given
+     *         {@code parentId} in this database
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    List<DocumentSummary> getDocumentSummariesByParentId(long parentId, boolean foldersFirst, OrderBy orderBy)
+            throws DatabaseConnectionClosedException;
+
     /**
      * Returns the {@code EncryptedDocument}s which have the given {@code keyAlias} in this database.
      *
@@ -385,6 +508,47 @@ public interface Database {
      */
     List<EncryptedDocument> getEncryptedDocumentsByAccount(Account account) throws DatabaseConnectionClosedException;
 
+    /**
+     * Returns a page of at most {@code limit} {@code EncryptedDocument}s of this database, which
+     * have an id greater than {@code afterId}, sorted by id.
+     *
+     * @param afterId the id of the last {@code EncryptedDocument} of the previous page, or 0
+     * @param limit   the maximum number of {@code EncryptedDocument}s to return
+     * @return the {@code EncryptedDocument}s of the page
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    List<EncryptedDocument> getAllEncryptedDocuments(long afterId, int limit)
+            throws DatabaseConnectionClosedException;
+
+    /**
+     * Returns a page of at most {@code limit} {@code EncryptedDocument}s which have the given
+     * {@code state} for the given {@code syncAction}, and an id greater than {@code afterId},
+     * sorted by id.
+     *
+     * @param syncAction the synchronization action
+     * @param state      the state of the {@code syncAction}
+     * @param afterId    the id of the last {@code EncryptedDocument} of the previous page, or 0
+     * @param limit      the maximum number of {@code EncryptedDocument}s to return
+     * @return the {@code EncryptedDocument}s of the page
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    List<EncryptedDocument> getEncryptedDocumentsBySyncState(SyncAction syncAction, State state,
+                                                             long afterId, int limit)
+            throws DatabaseConnectionClosedException;
+
+    /**
+     * Returns a page of at most {@code limit} {@code EncryptedDocument}s which match the given
+     * {@code account}, and have an id greater than {@code afterId}, sorted by id.
+     *
+     * @param account the account to return documents for
+     * @param afterId the id of the last {@code EncryptedDocument} of the previous page, or 0
+     * @param limit   the maximum number of {@code EncryptedDocument}s to return
+     * @return the {@code EncryptedDocument}s of the page
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    List<EncryptedDocument> getEncryptedDocumentsByAccount(Account account, long afterId, int limit)
+            throws DatabaseConnectionClosedException;
+
     /**
      * Removes the {@code EncryptedDocument}s which parent has the given {@code id}, and all of
      * their children from this database.
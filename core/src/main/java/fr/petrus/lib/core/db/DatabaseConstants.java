@@ -93,4 +93,13 @@ public interface DatabaseConstants {
     String ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_NUM_SYNC_FAILURES = "back_entry_num_sync_failures";
     String ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_LAST_SYNC_FAILURE_TIME = "back_entry_last_sync_failure_time";
     String ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_CREATION_INCOMPLETE = "back_entry_creation_incomplete";
+    String ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH = "ancestor_path";
+    String ENCRYPTED_DOCUMENT_COLUMN_UPLOAD_SESSION = "upload_session";
+
+    String ENCRYPTED_DOCUMENT_INDEX_PARENT_ID_DISPLAY_NAME = "encrypted_documents_parent_id_display_name_idx";
+    String ENCRYPTED_DOCUMENT_INDEX_BACK_STORAGE_ACCOUNT_BACK_ENTRY_ID = "encrypted_documents_back_storage_account_back_entry_id_idx";
+    String ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_UPLOAD_STATE = "encrypted_documents_back_entry_upload_state_idx";
+    String ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_DOWNLOAD_STATE = "encrypted_documents_back_entry_download_state_idx";
+    String ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_DELETION_STATE = "encrypted_documents_back_entry_deletion_state_idx";
+    String ENCRYPTED_DOCUMENT_INDEX_ANCESTOR_PATH = "encrypted_documents_ancestor_path_idx";
 }
\ No newline at end of file
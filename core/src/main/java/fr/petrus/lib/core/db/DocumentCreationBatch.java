@@ -0,0 +1,147 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.db;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fr.petrus.lib.core.EncryptedDocument;
+
+/**
+ * A batch of new {@code EncryptedDocument}s, which are inserted into the database together in a
+ * single transaction by {@link Database#executeDocumentCreationBatch}.
+ *
+ * <p>The documents of this batch have no id until the batch is executed. A document which is the
+ * parent of another document must be inserted before its children can be added to a batch. The
+ * {@code contains*} methods tell whether a document that the caller is about to look up in the
+ * database is still waiting in this batch, in which case the batch should be executed first.
+ *
+ * <p>This class is not thread safe.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DocumentCreationBatch {
+
+    private final List<EncryptedDocument> documents = new ArrayList<>();
+    private final Set<String> backEntryIds = new HashSet<>();
+    private final Set<String> childNames = new HashSet<>();
+
+    /**
+     * Creates a new empty {@code DocumentCreationBatch}.
+     */
+    public DocumentCreationBatch() {}
+
+    private static String childKey(long parentId, String displayName) {
+        return parentId + "/" + displayName;
+    }
+
+    /**
+     * Adds the given new {@code encryptedDocument} to this batch.
+     *
+     * @param encryptedDocument the document to insert, which parent must already be in the database
+     * @return this {@code DocumentCreationBatch}
+     */
+    public DocumentCreationBatch add(EncryptedDocument encryptedDocument) {
+        documents.add(encryptedDocument);
+        if (null != encryptedDocument.getBackEntryId()) {
+            backEntryIds.add(encryptedDocument.getBackEntryId());
+        }
+        childNames.add(childKey(encryptedDocument.getParentId(), encryptedDocument.getDisplayName()));
+        return this;
+    }
+
+    /**
+     * Returns whether a document of this batch has the given remote document id.
+     *
+     * @param backEntryId the remote document id
+     * @return true if a document of this batch has the given remote document id
+     */
+    public boolean containsBackEntryId(String backEntryId) {
+        return null != backEntryId && backEntryIds.contains(backEntryId);
+    }
+
+    /**
+     * Returns whether a document of this batch is the child named {@code displayName} of the
+     * folder with the given {@code parentId}.
+     *
+     * @param parentId    the id of the parent folder
+     * @param displayName the name of the document
+     * @return true if a document of this batch is the child named {@code displayName} of the folder
+     */
+    public boolean containsChild(long parentId, String displayName) {
+        return childNames.contains(childKey(parentId, displayName));
+    }
+
+    /**
+     * Returns whether this batch contains no document.
+     *
+     * @return true if this batch contains no document
+     */
+    public boolean isEmpty() {
+        return documents.isEmpty();
+    }
+
+    /**
+     * Returns the number of documents of this batch.
+     *
+     * @return the number of documents of this batch
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Returns the documents of this batch, in the order they were added.
+     *
+     * @return the documents of this batch
+     */
+    List<EncryptedDocument> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Removes all the documents from this batch.
+     */
+    public void clear() {
+        documents.clear();
+        backEntryIds.clear();
+        childNames.clear();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import fr.petrus.lib.core.State;
+import fr.petrus.lib.core.SyncAction;
+
+/**
+ * A batch of column changes for several {@code EncryptedDocument}s, which are written to the
+ * database together in a single transaction by {@link Database#executeDocumentUpdateBatch}.
+ *
+ * <p>Several changes of the same column of a document are merged, keeping the last value.
+ *
+ * <p>This class is not thread safe.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DocumentUpdateBatch {
+
+    /* the changed columns of each document, sorted by column name so that the documents
+     * with the same changed columns can share the same update statement */
+    private final Map<Long, TreeMap<String, Object>> changes = new LinkedHashMap<>();
+
+    /**
+     * Creates a new empty {@code DocumentUpdateBatch}.
+     */
+    public DocumentUpdateBatch() {}
+
+    private DocumentUpdateBatch put(long id, String column, Object value) {
+        TreeMap<String, Object> documentChanges = changes.get(id);
+        if (null == documentChanges) {
+            documentChanges = new TreeMap<>();
+            changes.put(id, documentChanges);
+        }
+        documentChanges.put(column, value);
+        return this;
+    }
+
+    /**
+     * Adds a change of the last modification time of the "local" copy of the file associated to
+     * the document with the given {@code id} to this batch.
+     *
+     * @param id   the id of the document
+     * @param time the last modification time of the "local" copy (in ms from the epoch)
+     * @return this {@code DocumentUpdateBatch}
+     */
+    public DocumentUpdateBatch updateLocalModificationTime(long id, long time) {
+        return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_LOCAL_MODIFICATION_TIME, time);
+    }
+
+    /**
+     * Adds a change of the last modification time of the "remote" copy of the file associated to
+     * the document with the given {@code id} to this batch.
+     *
+     * @param id   the id of the document
+     * @param time the last modification time of the "remote" copy (in ms from the epoch)
+     * @return this {@code DocumentUpdateBatch}
+     */
+    public DocumentUpdateBatch updateRemoteModificationTime(long id, long time) {
+        return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_REMOTE_MODIFICATION_TIME, time);
+    }
+
+    /**
+     * Adds a change of the remote document id of the document with the given {@code id} to this batch.
+     *
+     * @param id          the id of the document
+     * @param backEntryId the remote document id on the remote storage where the document is stored
+     * @return this {@code DocumentUpdateBatch}
+     */
+    public DocumentUpdateBatch updateBackEntryId(long id, String backEntryId) {
+        return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_ID, backEntryId);
+    }
+
+    /**
+     * Adds a change of the remote document version of the document with the given {@code id} to
+     * this batch.
+     *
+     * @param id      the id of the document
+     * @param version the version of the remote document on the remote storage
+     * @return this {@code DocumentUpdateBatch}
+     */
+    public DocumentUpdateBatch updateBackEntryVersion(long id, long version) {
+        return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_VERSION, version);
+    }
+
+    /**
+     * Adds a change of the {@code state} of the given {@code syncAction} of the document with the
+     * given {@code id} to this batch.
+     *
+     * @param id         the id of the document
+     * @param syncAction the synchronization action
+     * @param state      the state of the synchronization action
+     * @return this {@code DocumentUpdateBatch}
+     */
+    public DocumentUpdateBatch updateSyncState(long id, SyncAction syncAction, State state) {
+        switch (syncAction) {
+            case Upload:
+                return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE, state.name());
+            case Download:
+                return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE, state.name());
+            case Deletion:
+                return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DELETION_STATE, state.name());
+        }
+        return this;
+    }
+
+    /**
+     * Adds a change of the failed synchronization actions count and last failure time of the
+     * document with the given {@code id} to this batch.
+     *
+     * @param id              the id of the document
+     * @param numSyncFailures the failed synchronization actions count
+     * @param lastFailureTime the last time a synchronization action failed (in ms from the epoch)
+     * @return this {@code DocumentUpdateBatch}
+     */
+    public DocumentUpdateBatch updateSyncFailures(long id, int numSyncFailures, long lastFailureTime) {
+        put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_NUM_SYNC_FAILURES, numSyncFailures);
+        return put(id, DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_LAST_SYNC_FAILURE_TIME, lastFailureTime);
+    }
+
+    /**
+     * Returns whether this batch contains no change.
+     *
+     * @return true if this batch contains no change
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Returns the number of documents changed by this batch.
+     *
+     * @return the number of documents changed by this batch
+     */
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * Returns the changed column values of each document of this batch, indexed by document id.
+     *
+     * <p>The columns of each document are sorted by name.
+     *
+     * @return the changed column values of each document of this batch
+     */
+    Map<Long, TreeMap<String, Object>> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Removes all the changes from this batch.
+     */
+    public void clear() {
+        changes.clear();
+    }
+}
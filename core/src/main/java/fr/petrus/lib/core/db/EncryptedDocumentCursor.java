@@ -0,0 +1,123 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.db;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+
+/**
+ * A cursor over the results of an {@code EncryptedDocument}s query, which loads them page by page.
+ *
+ * <p>The pages are queried by increasing document id ("keyset" pagination) : each page starts after
+ * the id of the last document returned, so that only one page is held in memory, and so that the
+ * documents can be modified while iterating without skipping any of them.
+ *
+ * <p>This class is not thread safe.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptedDocumentCursor {
+
+    /**
+     * The interface of the query which returns a page of the documents.
+     */
+    public interface PageQuery {
+
+        /**
+         * Returns at most {@code limit} documents, with an id greater than {@code afterId}, sorted
+         * by id.
+         *
+         * @param afterId the id of the last document of the previous page, or 0 for the first page
+         * @param limit   the maximum number of documents to return
+         * @return the documents of the page
+         * @throws DatabaseConnectionClosedException if the database connection is closed
+         */
+        List<EncryptedDocument> query(long afterId, int limit) throws DatabaseConnectionClosedException;
+    }
+
+    private final PageQuery pageQuery;
+    private final int pageSize;
+    private List<EncryptedDocument> page = null;
+    private int index = 0;
+    private long lastId = 0;
+
+    /**
+     * Creates a new {@code EncryptedDocumentCursor}, which reads the results of the given
+     * {@code pageQuery} by pages of {@code pageSize} documents.
+     *
+     * @param pageQuery the query which returns the pages
+     * @param pageSize  the number of documents of each page
+     */
+    public EncryptedDocumentCursor(PageQuery pageQuery, int pageSize) {
+        this.pageQuery = pageQuery;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Returns whether there are more documents, querying the next page if needed.
+     *
+     * @return true if there are more documents
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public boolean hasNext() throws DatabaseConnectionClosedException {
+        if (null == page || (index >= page.size() && page.size() >= pageSize)) {
+            page = pageQuery.query(lastId, pageSize);
+            index = 0;
+        }
+        return null != page && index < page.size();
+    }
+
+    /**
+     * Returns the next document.
+     *
+     * @return the next document
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     * @throws NoSuchElementException if there are no more documents
+     */
+    public EncryptedDocument next() throws DatabaseConnectionClosedException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        EncryptedDocument encryptedDocument = page.get(index++);
+        lastId = encryptedDocument.getId();
+        return encryptedDocument;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.petrus.lib.core.EncryptedDocument;
+
+/**
+ * A bounded cache of the parent, name and file name of the {@code EncryptedDocument}s, indexed by
+ * their id, which lets the paths of the documents be resolved without querying each of their parents.
+ *
+ * <p>The least recently used entries are evicted when the cache is full. This cache is written
+ * through by the database when documents are added, updated, refreshed or deleted.
+ *
+ * <p>This class is thread safe.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptedDocumentPathCache {
+
+    /**
+     * The immutable part of an {@code EncryptedDocument} needed to resolve its path.
+     */
+    public static class Node {
+        private final long id;
+        private final long parentId;
+        private final String displayName;
+        private final String fileName;
+        private final String ancestorPath;
+
+        /**
+         * Creates a new {@code Node} with the given values.
+         *
+         * @param id           the id of the document
+         * @param parentId     the id of the parent of the document
+         * @param displayName  the name of the document
+         * @param fileName     the name of the local file of the document
+         * @param ancestorPath the ids of the parents of the document, or null if they are unknown
+         */
+        public Node(long id, long parentId, String displayName, String fileName, String ancestorPath) {
+            this.id = id;
+            this.parentId = parentId;
+            this.displayName = displayName;
+            this.fileName = fileName;
+            this.ancestorPath = ancestorPath;
+        }
+
+        /**
+         * Creates a new {@code Node} with the values of the given {@code encryptedDocument}.
+         *
+         * @param encryptedDocument the document
+         */
+        public Node(EncryptedDocument encryptedDocument) {
+            this(encryptedDocument.getId(), encryptedDocument.getParentId(),
+                    encryptedDocument.getDisplayName(), encryptedDocument.getFileName(),
+                    encryptedDocument.getAncestorPath());
+        }
+
+        /**
+         * Returns the id of the document.
+         *
+         * @return the id of the document
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Returns the id of the parent of the document.
+         *
+         * @return the id of the parent of the document
+         */
+        public long getParentId() {
+            return parentId;
+        }
+
+        /**
+         * Returns the name of the document.
+         *
+         * @return the name of the document
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * Returns the name of the local file of the document.
+         *
+         * @return the name of the local file of the document
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Returns the ids of the parents of the document, from its root.
+         *
+         * @return the ids of the parents of the document, formatted as "/rootId/.../parentId/",
+         *         "/" for a root, or null if they are unknown
+         */
+        public String getAncestorPath() {
+            return ancestorPath;
+        }
+    }
+
+    private final Map<Long, Node> nodes;
+
+    /**
+     * Creates a new empty {@code EncryptedDocumentPathCache}, holding at most {@code maxSize} documents.
+     *
+     * @param maxSize the maximum number of documents held by this cache
+     */
+    public EncryptedDocumentPathCache(final int maxSize) {
+        nodes = new LinkedHashMap<Long, Node>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Node> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached node of the document with the given {@code id}.
+     *
+     * @param id the id of the document
+     * @return the cached node of the document, or null if it is not in this cache
+     */
+    public synchronized Node get(long id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Stores the node of the given {@code encryptedDocument} into this cache, replacing the
+     * previous one.
+     *
+     * @param encryptedDocument the document to cache
+     */
+    public void put(EncryptedDocument encryptedDocument) {
+        if (null != encryptedDocument) {
+            put(new Node(encryptedDocument));
+        }
+    }
+
+    /**
+     * Stores the given {@code node} into this cache, replacing the previous one.
+     *
+     * @param node the node to cache
+     */
+    public synchronized void put(Node node) {
+        nodes.put(node.getId(), node);
+    }
+
+    /**
+     * Removes the document with the given {@code id} from this cache.
+     *
+     * @param id the id of the document to remove
+     */
+    public synchronized void remove(long id) {
+        nodes.remove(id);
+    }
+
+    /**
+     * Removes all the documents from this cache.
+     */
+    public synchronized void clear() {
+        nodes.clear();
+    }
+}
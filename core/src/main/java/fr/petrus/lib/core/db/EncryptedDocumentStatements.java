@@ -0,0 +1,177 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.db;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.PreparedUpdate;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.UpdateBuilder;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.cloud.Account;
+
+/**
+ * The most frequent {@code EncryptedDocument} queries and updates, prepared once with
+ * {@code SelectArg} parameters and then reused, instead of rebuilding their SQL on every call.
+ *
+ * <p>As the values of the parameters are kept in the {@code SelectArg}s, this class is not thread
+ * safe : each thread must use its own instance.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+class EncryptedDocumentStatements {
+
+    /**
+     * A prepared update of one column of an {@code EncryptedDocument}, selected by its id.
+     */
+    private static class ColumnUpdate {
+        private final SelectArg valueArg = new SelectArg();
+        private final SelectArg idArg = new SelectArg();
+        private final PreparedUpdate<EncryptedDocument> preparedUpdate;
+
+        private ColumnUpdate(Dao<EncryptedDocument, Long> dao, String column) throws SQLException {
+            UpdateBuilder<EncryptedDocument, Long> updateBuilder = dao.updateBuilder();
+            updateBuilder.updateColumnValue(column, valueArg)
+                    .where().eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID, idArg);
+            preparedUpdate = updateBuilder.prepare();
+        }
+    }
+
+    private final Dao<EncryptedDocument, Long> dao;
+
+    private final SelectArg displayNameArg = new SelectArg();
+    private final SelectArg parentIdArg = new SelectArg();
+    private final PreparedQuery<EncryptedDocument> byNameAndParentIdQuery;
+
+    private final SelectArg accountArg = new SelectArg();
+    private final SelectArg backEntryIdArg = new SelectArg();
+    private final PreparedQuery<EncryptedDocument> byAccountAndEntryIdQuery;
+
+    private final Map<String, ColumnUpdate> columnUpdates = new HashMap<>();
+
+    /**
+     * Creates a new {@code EncryptedDocumentStatements}, preparing its queries with the given {@code dao}.
+     *
+     * @param dao the DAO used to access the {@code EncryptedDocument}s
+     * @throws SQLException if an error occurs when preparing the queries
+     */
+    EncryptedDocumentStatements(Dao<EncryptedDocument, Long> dao) throws SQLException {
+        this.dao = dao;
+
+        QueryBuilder<EncryptedDocument, Long> queryBuilder = dao.queryBuilder();
+        queryBuilder.limit(1L).where()
+                .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME, displayNameArg)
+                .and()
+                .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID, parentIdArg);
+        byNameAndParentIdQuery = queryBuilder.prepare();
+
+        queryBuilder = dao.queryBuilder();
+        queryBuilder.limit(1L).where()
+                .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_ACCOUNT, accountArg)
+                .and()
+                .eq(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_ID, backEntryIdArg);
+        byAccountAndEntryIdQuery = queryBuilder.prepare();
+    }
+
+    /**
+     * Returns the DAO these statements were prepared with.
+     *
+     * @return the DAO these statements were prepared with
+     */
+    Dao<EncryptedDocument, Long> getDao() {
+        return dao;
+    }
+
+    /**
+     * Returns the {@code EncryptedDocument} with the given {@code displayName} in the folder with
+     * the given {@code parentId}.
+     *
+     * @param displayName the name of the document
+     * @param parentId    the id of the parent folder of the document
+     * @return the document, or null if there is no such document
+     * @throws SQLException if an error occurs when running the query
+     */
+    EncryptedDocument queryByNameAndParentId(String displayName, long parentId) throws SQLException {
+        displayNameArg.setValue(displayName);
+        parentIdArg.setValue(parentId);
+        return dao.queryForFirst(byNameAndParentIdQuery);
+    }
+
+    /**
+     * Returns the {@code EncryptedDocument} of the given {@code account} with the given
+     * {@code backEntryId}.
+     *
+     * @param account     the account of the remote document
+     * @param backEntryId the id of the remote document
+     * @return the document, or null if there is no such document
+     * @throws SQLException if an error occurs when running the query
+     */
+    EncryptedDocument queryByAccountAndEntryId(Account account, String backEntryId) throws SQLException {
+        accountArg.setValue(account);
+        backEntryIdArg.setValue(backEntryId);
+        return dao.queryForFirst(byAccountAndEntryIdQuery);
+    }
+
+    /**
+     * Sets the given {@code column} of the {@code EncryptedDocument} with the given {@code id}.
+     *
+     * <p>The update of each column is prepared the first time it is used.
+     *
+     * @param column the name of the column to update
+     * @param id     the id of the document to update
+     * @param value  the new value of the column
+     * @return the number of updated rows
+     * @throws SQLException if an error occurs when running the update
+     */
+    int updateColumn(String column, long id, Object value) throws SQLException {
+        ColumnUpdate columnUpdate = columnUpdates.get(column);
+        if (null == columnUpdate) {
+            columnUpdate = new ColumnUpdate(dao, column);
+            columnUpdates.put(column, columnUpdate);
+        }
+        columnUpdate.valueArg.setValue(value);
+        columnUpdate.idArg.setValue(id);
+        return dao.update(columnUpdate.preparedUpdate);
+    }
+}
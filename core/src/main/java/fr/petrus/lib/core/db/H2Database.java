@@ -38,7 +38,7 @@ package fr.petrus.lib.core.db;
 
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
-import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
 import com.j256.ormlite.logger.LocalLog;
 import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.stmt.UpdateBuilder;
@@ -46,11 +46,22 @@ import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.table.TableUtils;
 
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.db.MVTableEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 
 import fr.petrus.lib.core.Constants;
@@ -74,7 +85,7 @@ public class H2Database extends AbstractDatabase {
     private static final String DATABASE_NAME = "StorageCrypt";
 
     /** The database version. Increased every time the structure of the database changes */
-    private static final int DATABASE_VERSION = 12;
+    private static final int DATABASE_VERSION = 15;
 
     /** The driver class name for this type of database */
     private static final String DB_DRIVER = "org.h2.Driver";
@@ -88,6 +99,9 @@ public class H2Database extends AbstractDatabase {
     /** The folder where the database file is stored */
     private String databaseFolderPath = null;
 
+    /** The profile which sets the connection source and the H2 settings */
+    private H2DatabaseProfile profile = null;
+
     /** The connection source used to access the database */
     private ConnectionSource connectionSource = null;
 
@@ -107,8 +121,20 @@ public class H2Database extends AbstractDatabase {
      * @param textI18n           a {@code TextI18n} instance
      */
     public H2Database(String databaseFolderPath, TextI18n textI18n) {
+        this(databaseFolderPath, H2DatabaseProfile.SingleConnection, textI18n);
+    }
+
+    /**
+     * Creates a new {@code H2Database} instance, providing its dependencies.
+     *
+     * @param databaseFolderPath the path of the folder where the database file is stored
+     * @param profile            the profile which sets the connection source and the H2 settings
+     * @param textI18n           a {@code TextI18n} instance
+     */
+    public H2Database(String databaseFolderPath, H2DatabaseProfile profile, TextI18n textI18n) {
         super(textI18n);
         this.databaseFolderPath = databaseFolderPath;
+        this.profile = profile;
     }
 
     @Override
@@ -120,10 +146,13 @@ public class H2Database extends AbstractDatabase {
             throw new DatabaseConnectionException("Failed to open encrypted database", e);
         }
         try {
-            String databaseUrl = String.format("jdbc:h2:file:%s/%s;CIPHER=AES", databaseFolderPath, DATABASE_NAME);
-            connectionSource = new JdbcConnectionSource(databaseUrl, DB_USER, databaseFilePassword + " " + DB_PASSWORD);
+            String databaseUrl = String.format("jdbc:h2:file:%s/%s;CIPHER=AES%s",
+                    databaseFolderPath, DATABASE_NAME, profile.urlSettings());
+            connectionSource = profile.createConnectionSource(databaseUrl,
+                    DB_USER, databaseFilePassword + " " + DB_PASSWORD);
             /* Try to connect to the database */
-            connectionSource.getReadWriteConnection(DatabaseConstants.DATABASE_INFO_TABLE);
+            connectionSource.releaseConnection(
+                    connectionSource.getReadWriteConnection(DatabaseConstants.DATABASE_INFO_TABLE));
             DatabaseInfo databaseInfo = null;
             try {
                 databaseInfo = getDatabaseInfoDao().queryBuilder()
@@ -154,8 +183,9 @@ public class H2Database extends AbstractDatabase {
             throw new DatabaseConnectionException("Failed to open database", e);
         }
         try {
-            String databaseUrl = String.format("jdbc:h2:file:%s/%s", databaseFolderPath, DATABASE_NAME);
-            connectionSource = new JdbcConnectionSource(databaseUrl);
+            String databaseUrl = String.format("jdbc:h2:file:%s/%s%s",
+                    databaseFolderPath, DATABASE_NAME, profile.urlSettings());
+            connectionSource = profile.createConnectionSource(databaseUrl, null, null);
             DatabaseInfo databaseInfo = null;
             try {
                 databaseInfo = getDatabaseInfoDao().queryBuilder()
@@ -188,6 +218,7 @@ public class H2Database extends AbstractDatabase {
             try {
                 connectionSource.close();
                 connectionSource = null;
+                encryptedDocumentPathCache.clear();
             } catch (IOException e) {
                 LOG.error("Error when closing the database", e);
             }
@@ -208,6 +239,7 @@ public class H2Database extends AbstractDatabase {
             TableUtils.createTableIfNotExists(connectionSource, DatabaseInfo.class);
             TableUtils.createTableIfNotExists(connectionSource, Account.class);
             TableUtils.createTableIfNotExists(connectionSource, EncryptedDocument.class);
+            createEncryptedDocumentsIndexes(connectionSource);
             DatabaseInfo databaseInfo = new DatabaseInfo();
             databaseInfo.setVersion(DATABASE_VERSION);
             getDatabaseInfoDao().create(databaseInfo);
@@ -291,6 +323,10 @@ public class H2Database extends AbstractDatabase {
                                     "FALSE"),
                                     DatabaseConnection.DEFAULT_RESULT_FLAGS);
 
+                            addEncryptedDocumentsAncestorPath(connectionSource);
+                            createEncryptedDocumentsIndexes(connectionSource);
+                            addEncryptedDocumentsUploadSession(connectionSource);
+
                             updateDatabaseVersion(oldVersion, newVersion);
                         } finally {
                             connectionSource.releaseConnection(accountsConnection);
@@ -310,12 +346,38 @@ public class H2Database extends AbstractDatabase {
                                     "FALSE"),
                                     DatabaseConnection.DEFAULT_RESULT_FLAGS);
 
+                            addEncryptedDocumentsAncestorPath(connectionSource);
+                            createEncryptedDocumentsIndexes(connectionSource);
+                            addEncryptedDocumentsUploadSession(connectionSource);
+
                             updateDatabaseVersion(oldVersion, newVersion);
                         } finally {
                             connectionSource.releaseConnection(connection);
                         }
                         break;
                     }
+                    case 12: {
+                        LOG.warn("Upgrading database from version {} to {}", oldVersion, newVersion);
+                        addEncryptedDocumentsAncestorPath(connectionSource);
+                        createEncryptedDocumentsIndexes(connectionSource);
+                        addEncryptedDocumentsUploadSession(connectionSource);
+                        updateDatabaseVersion(oldVersion, newVersion);
+                        break;
+                    }
+                    case 13: {
+                        LOG.warn("Upgrading database from version {} to {}", oldVersion, newVersion);
+                        addEncryptedDocumentsAncestorPath(connectionSource);
+                        createEncryptedDocumentsIndexes(connectionSource);
+                        addEncryptedDocumentsUploadSession(connectionSource);
+                        updateDatabaseVersion(oldVersion, newVersion);
+                        break;
+                    }
+                    case 14: {
+                        LOG.warn("Upgrading database from version {} to {}", oldVersion, newVersion);
+                        addEncryptedDocumentsUploadSession(connectionSource);
+                        updateDatabaseVersion(oldVersion, newVersion);
+                        break;
+                    }
                     default:
                         LOG.warn("Upgrading database from version {} to {}, which will destroy all old data", oldVersion, newVersion);
                         try {
@@ -332,6 +394,117 @@ public class H2Database extends AbstractDatabase {
         });
     }
 
+    /**
+     * Adds the upload session column to the encrypted documents table.
+     *
+     * @param connectionSource the ORMLite connection source
+     * @throws SQLException if an error occurs when adding the column
+     */
+    private void addEncryptedDocumentsUploadSession(ConnectionSource connectionSource) throws SQLException {
+        DatabaseConnection connection =
+                connectionSource.getReadWriteConnection(DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE);
+        try {
+            connection.executeStatement(
+                    String.format("alter table %s add column if not exists `%s` VARCHAR(2048)",
+                            DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_UPLOAD_SESSION),
+                    DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        } finally {
+            connectionSource.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Adds the ancestor path column to the encrypted documents table, and fills it.
+     *
+     * <p>The ancestor paths are filled level by level, from the roots, so this method runs one
+     * update per level of the documents tree.
+     *
+     * @param connectionSource the ORMLite connection source
+     * @throws SQLException if an error occurs when adding or filling the column
+     */
+    private void addEncryptedDocumentsAncestorPath(ConnectionSource connectionSource) throws SQLException {
+        DatabaseConnection connection =
+                connectionSource.getReadWriteConnection(DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE);
+        try {
+            connection.executeStatement(
+                    String.format("alter table %s add column if not exists `%s` VARCHAR",
+                            DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH),
+                    DatabaseConnection.DEFAULT_RESULT_FLAGS);
+
+            connection.executeStatement(
+                    String.format("update %s set `%s` = '/' where `%s` = %d",
+                            DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH,
+                            DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+                            Constants.STORAGE.ROOT_PARENT_ID),
+                    DatabaseConnection.DEFAULT_RESULT_FLAGS);
+
+            String fillNextLevel = String.format(
+                    "update %1$s c set `%2$s` = (select concat(p.`%2$s`, p.`%3$s`, '/') from %1$s p where p.`%3$s` = c.`%4$s`)"
+                            + " where c.`%2$s` is null and exists"
+                            + " (select 1 from %1$s p where p.`%3$s` = c.`%4$s` and p.`%2$s` is not null)",
+                    DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID,
+                    DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID);
+            while (connection.executeStatement(fillNextLevel, DatabaseConnection.DEFAULT_RESULT_FLAGS) > 0) {
+                LOG.debug("Filled a level of the documents ancestor paths");
+            }
+        } finally {
+            connectionSource.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Creates the indexes of the encrypted documents table, if they do not exist.
+     *
+     * <p>These indexes back the lookups of the children of a folder, of a document by name in its
+     * parent folder, of a document by its remote entry id, of the documents to synchronize, and of
+     * the descendants of a folder.
+     *
+     * @param connectionSource the ORMLite connection source
+     * @throws SQLException if an error occurs when creating the indexes
+     */
+    private void createEncryptedDocumentsIndexes(ConnectionSource connectionSource) throws SQLException {
+        String[][] indexes = {
+                { DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_PARENT_ID_DISPLAY_NAME,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME },
+                { DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_STORAGE_ACCOUNT_BACK_ENTRY_ID,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_ACCOUNT,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_ID },
+                { DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_UPLOAD_STATE,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE },
+                { DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_DOWNLOAD_STATE,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE },
+                { DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_BACK_ENTRY_DELETION_STATE,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DELETION_STATE },
+                { DatabaseConstants.ENCRYPTED_DOCUMENT_INDEX_ANCESTOR_PATH,
+                        DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH }
+        };
+        DatabaseConnection connection =
+                connectionSource.getReadWriteConnection(DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE);
+        try {
+            for (String[] index : indexes) {
+                StringBuilder columns = new StringBuilder();
+                for (int i = 1; i < index.length; i++) {
+                    if (i > 1) {
+                        columns.append(", ");
+                    }
+                    columns.append('`').append(index[i]).append('`');
+                }
+                connection.executeStatement(
+                        String.format("create index if not exists `%s` on %s (%s)",
+                                index[0], DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE, columns),
+                        DatabaseConnection.DEFAULT_RESULT_FLAGS);
+            }
+        } finally {
+            connectionSource.releaseConnection(connection);
+        }
+    }
+
     /**
      * Changes the version of the database.
      *
@@ -418,11 +591,76 @@ public class H2Database extends AbstractDatabase {
                     return null;
                 }
             });
+            encryptedDocumentPathCache.clear();
         } catch (SQLException e) {
             LOG.error("SQL error", e);
         }
     }
 
+    @Override
+    public long getDatabaseFileSize() throws DatabaseConnectionClosedException {
+        MVStore store = getMVStore();
+        if (null == store || null == store.getFileStore()) {
+            return -1;
+        }
+        return store.getFileStore().size();
+    }
+
+    @Override
+    public boolean compactDatabase(int targetFillRate, int stepSize)
+            throws DatabaseConnectionClosedException {
+        MVStore store = getMVStore();
+        if (null == store || store.isClosed()) {
+            return false;
+        }
+        // compactMoveChunks() is not used : it ignores the retention time, and is not safe while
+        // other connections of the pool may be writing
+        if (store.compact(targetFillRate, stepSize)) {
+            store.commit();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the H2 MVStore where this database is stored.
+     *
+     * <p>H2 does not expose its MVStore through JDBC, so this method relies on the H2 internals
+     * ({@code JdbcConnection.getSession()}, {@code Session} and {@code MVTableEngine.Store}) of
+     * the H2 version used by this project (1.4.192), which may change with any other version.
+     *
+     * @return the H2 MVStore where this database is stored, or null if this database does not use
+     *         an MVStore
+     * @throws DatabaseConnectionClosedException if this database connection is closed
+     */
+    private MVStore getMVStore() throws DatabaseConnectionClosedException {
+        if (!isOpen()) {
+            throw new DatabaseConnectionClosedException("Database is closed");
+        }
+        DatabaseConnection databaseConnection = null;
+        try {
+            databaseConnection = connectionSource.getReadOnlyConnection(DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE);
+            Connection connection = ((JdbcDatabaseConnection) databaseConnection).getInternalConnection();
+            Session session = (Session) ((JdbcConnection) connection).getSession();
+            MVTableEngine.Store store = session.getDatabase().getMvStore();
+            if (null == store) {
+                return null;
+            }
+            return store.getStore();
+        } catch (SQLException e) {
+            LOG.error("SQL error", e);
+            throw new DatabaseConnectionClosedException("Failed to access the database store", e);
+        } finally {
+            if (null != databaseConnection) {
+                try {
+                    connectionSource.releaseConnection(databaseConnection);
+                } catch (SQLException e) {
+                    LOG.error("SQL error", e);
+                }
+            }
+        }
+    }
+
     @Override
     public <T> T callInTransaction(Callable<T> callable)
             throws DatabaseConnectionClosedException, SQLException {
@@ -431,4 +669,73 @@ public class H2Database extends AbstractDatabase {
         }
         return TransactionManager.callInTransaction(connectionSource, callable);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void executeDocumentUpdateBatch(DocumentUpdateBatch documentUpdateBatch)
+            throws DatabaseConnectionClosedException, SQLException {
+        if (documentUpdateBatch.isEmpty()) {
+            return;
+        }
+
+        /* group the documents by changed columns, to run one batched statement per group */
+        final Map<List<String>, Map<Long, TreeMap<String, Object>>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Long, TreeMap<String, Object>> change : documentUpdateBatch.getChanges().entrySet()) {
+            List<String> columns = new ArrayList<>(change.getValue().keySet());
+            Map<Long, TreeMap<String, Object>> group = groups.get(columns);
+            if (null == group) {
+                group = new LinkedHashMap<>();
+                groups.put(columns, group);
+            }
+            group.put(change.getKey(), change.getValue());
+        }
+
+        /* the transaction is rolled back on failure : the batch is kept so that it can be executed again */
+        callInTransaction(new Callable<Void>() {
+            public Void call() throws Exception {
+                DatabaseConnection databaseConnection =
+                        connectionSource.getReadWriteConnection(DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE);
+                try {
+                    Connection connection = ((JdbcDatabaseConnection) databaseConnection).getInternalConnection();
+                    for (Map.Entry<List<String>, Map<Long, TreeMap<String, Object>>> group : groups.entrySet()) {
+                        try (PreparedStatement statement =
+                                     connection.prepareStatement(updateStatement(group.getKey()))) {
+                            for (Map.Entry<Long, TreeMap<String, Object>> change : group.getValue().entrySet()) {
+                                int index = 1;
+                                for (Object value : change.getValue().values()) {
+                                    statement.setObject(index++, value);
+                                }
+                                statement.setLong(index, change.getKey());
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+                } finally {
+                    connectionSource.releaseConnection(databaseConnection);
+                }
+                return null;
+            }
+        });
+        notifySyncStateChanges(documentUpdateBatch);
+        documentUpdateBatch.clear();
+    }
+
+    /**
+     * Returns the SQL statement which updates the given {@code columns} of an {@code EncryptedDocument}.
+     *
+     * @param columns the names of the columns to update
+     * @return the SQL statement, which parameters are the values of the columns, then the document id
+     */
+    private static String updateStatement(List<String> columns) {
+        StringBuilder statement = new StringBuilder("update `")
+                .append(DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE).append("` set ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                statement.append(", ");
+            }
+            statement.append('`').append(columns.get(i)).append("` = ?");
+        }
+        return statement.append(" where `").append(DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID)
+                .append("` = ?").toString();
+    }
+}
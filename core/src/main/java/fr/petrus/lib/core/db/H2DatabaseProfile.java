@@ -0,0 +1,148 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.db;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+
+import java.sql.SQLException;
+
+/**
+ * The Enum used to choose how an {@link H2Database} connects to its database file : the connection
+ * source and the settings of the H2 MVStore.
+ *
+ * <p>With a single connection, every database access is serialized, so a long transaction (a sync
+ * batch for instance) makes all the other threads, including the UI, wait until it is committed.
+ * The pooled profiles give each thread its own connection : with the MVCC of the MVStore, readers
+ * see the last committed state instead of waiting behind the writers.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public enum H2DatabaseProfile {
+
+    /**
+     * One shared connection, with the default H2 settings.
+     */
+    SingleConnection(0, 0, 0, 0, 0),
+
+    /**
+     * A small connection pool and a moderate cache, for memory constrained devices.
+     */
+    Mobile(2, 8192, 1000, 3, 200),
+
+    /**
+     * A larger connection pool and cache, for desktop computers.
+     */
+    Desktop(4, 65536, 1000, 3, 1000);
+
+    /* the H2 default values are kept when the values below are 0 */
+    private final int maxConnectionsFree;
+    private final int cacheSizeKb;
+    private final int writeDelayMillis;
+    private final int lockMode;
+    private final int maxCompactTimeMillis;
+
+    H2DatabaseProfile(int maxConnectionsFree, int cacheSizeKb, int writeDelayMillis, int lockMode,
+                      int maxCompactTimeMillis) {
+        this.maxConnectionsFree = maxConnectionsFree;
+        this.cacheSizeKb = cacheSizeKb;
+        this.writeDelayMillis = writeDelayMillis;
+        this.lockMode = lockMode;
+        this.maxCompactTimeMillis = maxCompactTimeMillis;
+    }
+
+    /**
+     * Returns whether this profile uses a pool of connections.
+     *
+     * @return true if this profile uses a pool of connections
+     */
+    public boolean isPooled() {
+        return maxConnectionsFree > 0;
+    }
+
+    /**
+     * Returns the settings of this profile, to append to the H2 database URL.
+     *
+     * <p>The settings are :
+     * <ul>
+     *     <li>{@code CACHE_SIZE} : the size of the MVStore page cache, in KB</li>
+     *     <li>{@code WRITE_DELAY} : the maximum delay between a commit and its write to the file,
+     *         in milliseconds</li>
+     *     <li>{@code LOCK_MODE} : 3 means "read committed", where readers never wait for the
+     *         writers locks</li>
+     *     <li>{@code MAX_COMPACT_TIME} : the time spent compacting the file when the database is
+     *         closed, in milliseconds</li>
+     * </ul>
+     *
+     * @return the settings of this profile, each one preceded by a ';'
+     */
+    public String urlSettings() {
+        StringBuilder settings = new StringBuilder();
+        appendSetting(settings, "CACHE_SIZE", cacheSizeKb);
+        appendSetting(settings, "WRITE_DELAY", writeDelayMillis);
+        appendSetting(settings, "LOCK_MODE", lockMode);
+        appendSetting(settings, "MAX_COMPACT_TIME", maxCompactTimeMillis);
+        return settings.toString();
+    }
+
+    private static void appendSetting(StringBuilder settings, String name, int value) {
+        if (value > 0) {
+            settings.append(';').append(name).append('=').append(value);
+        }
+    }
+
+    /**
+     * Creates the connection source of this profile.
+     *
+     * @param databaseUrl the URL of the database, including the settings of this profile
+     * @param userName    the user name, or null if the database is not encrypted
+     * @param password    the password, or null if the database is not encrypted
+     * @return the connection source of this profile
+     * @throws SQLException if the connection source could not be created
+     */
+    public JdbcConnectionSource createConnectionSource(String databaseUrl, String userName,
+                                                       String password) throws SQLException {
+        if (!isPooled()) {
+            return new JdbcConnectionSource(databaseUrl, userName, password);
+        }
+        JdbcPooledConnectionSource connectionSource =
+                new JdbcPooledConnectionSource(databaseUrl, userName, password);
+        connectionSource.setMaxConnectionsFree(maxConnectionsFree);
+        return connectionSource;
+    }
+}
@@ -63,6 +63,8 @@ import fr.petrus.lib.core.State;
 import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
 import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.KeyManager;
+import fr.petrus.lib.core.db.DocumentCreationBatch;
+import fr.petrus.lib.core.db.DocumentUpdateBatch;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.processes.results.BaseProcessResults;
 import fr.petrus.lib.core.processes.results.ColumnType;
@@ -348,12 +350,8 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
                 if (isCanceled()) {
                     break;
                 }
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    LOG.debug("ChangesSyncProcess interrupted, exiting", e);
-                    break;
-                }
+                // each synchronized account is now "Done" : the next pass only gets the accounts
+                // planned in the meantime, so there is no need to wait before checking again
             }
         } finally {
             cleanupSyncStates();
@@ -442,12 +440,19 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
                         }
                         List<RemoteChange> changesToProcess = changes.getChanges();
                         final Map<String, RemoteDocument> foldersMetadata = extractFoldersMetadata(changes);
+                        final Map<String, EncryptedDocumentMetadata> documentsMetadata =
+                                decryptDocumentsMetadata(changes);
+                        /* the state changes of the existing documents are written together */
+                        DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+                        /* and so are the new documents */
+                        DocumentCreationBatch documentCreationBatch = new DocumentCreationBatch();
                         for (int i=0; i<changesToProcess.size(); i++) {
                             if (null != progressListener) {
                                 progressListener.onProgress(1, i);
                             }
                             pauseIfNeeded();
                             if (isCanceled()) {
+                                writeBatches(account, documentCreationBatch, documentUpdateBatch);
                                 return;
                             }
                             RemoteChange remoteChange = changesToProcess.get(i);
@@ -462,7 +467,9 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
                             try {
                                 if (rootEncryptedDocument.getBackEntryId() != remoteChange.getDocumentId()) {
                                     SyncResult syncResult =
-                                            syncChange(rootEncryptedDocument, foldersMetadata, remoteChange);
+                                            syncChange(rootEncryptedDocument, foldersMetadata,
+                                                    documentsMetadata, documentCreationBatch,
+                                                    documentUpdateBatch, remoteChange);
                                     switch (syncResult.result) {
                                         case Synced:
                                             successfulSyncs.add(syncResult.encryptedDocument);
@@ -483,6 +490,7 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
                                 }
                             }
                         }
+                        writeBatches(account, documentCreationBatch, documentUpdateBatch);
                         if (failedSyncs.isEmpty() && null != changes.getLastChangeId()) {
                             lastChangeId = changes.getLastChangeId();
                             LOG.debug("Last Change Id : {}", lastChangeId);
@@ -503,6 +511,30 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
         }
     }
 
+    /**
+     * Writes the new documents and the changes of the existing documents collected while
+     * synchronizing the changes of the given {@code account}.
+     *
+     * <p>If they could not be written, the failure is recorded, so that the last change id of the
+     * account is not advanced and the changes are synchronized again next time.
+     *
+     * @param account               the {@code Account} which changes were synchronized
+     * @param documentCreationBatch the batch of new documents
+     * @param documentUpdateBatch   the batch of changes of the existing documents
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private void writeBatches(Account account, DocumentCreationBatch documentCreationBatch,
+                              DocumentUpdateBatch documentUpdateBatch)
+            throws DatabaseConnectionClosedException {
+        try {
+            encryptedDocuments.add(documentCreationBatch);
+            encryptedDocuments.update(documentUpdateBatch);
+        } catch (StorageCryptException e) {
+            LOG.error("Failed to write the changes of {}", account.storageText(), e);
+            failedSyncs.put(account.storageText(), new FailedResult<>(account.storageText(), e));
+        }
+    }
+
     private Map<String, RemoteDocument> extractFoldersMetadata(RemoteChanges changes) {
         final Map<String, RemoteDocument> foldersMetadata = new HashMap<>();
         for (RemoteChange remoteChange : changes.getChanges()) {
@@ -518,21 +550,60 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
         return foldersMetadata;
     }
 
+    /**
+     * Decrypts the names of the created or modified documents of the given {@code changes} in a
+     * single batch, sharing the work between the available processors.
+     *
+     * <p>The folders metadata are not decrypted here, because they have to be downloaded first.
+     *
+     * <p>If the decryption is interrupted, this process is canceled.
+     *
+     * @param changes the changes to decrypt the document names of
+     * @return the decrypted metadata, mapped by their encrypted name
+     */
+    private Map<String, EncryptedDocumentMetadata> decryptDocumentsMetadata(RemoteChanges changes) {
+        List<String> encryptedNames = new ArrayList<>();
+        for (RemoteChange remoteChange : changes.getChanges()) {
+            if (!remoteChange.isDeleted()) {
+                RemoteDocument remoteDocument = remoteChange.getDocument();
+                if (null != remoteDocument && !remoteDocument.isFolder()
+                        && !Constants.STORAGE.FOLDER_METADATA_FILE_NAME.equals(remoteDocument.getName())) {
+                    encryptedNames.add(remoteDocument.getName());
+                }
+            }
+        }
+        EncryptedDocumentMetadata.BatchResults batchResults = EncryptedDocumentMetadata.decrypt(
+                crypto, keyManager, encryptedNames, Runtime.getRuntime().availableProcessors());
+        if (batchResults.isCanceled()) {
+            cancel();
+        }
+        return batchResults.getMetadata();
+    }
+
     /**
      * Performs the change described by the given {@code change}.
      *
      * @param rootEncryptedDocument the root {@code EncryptedDocument} containing the {@code change}
      * @param foldersMetadata       the list of folders metadata present in the changes
+     * @param documentsMetadata     the already decrypted documents metadata, mapped by their encrypted name
+     * @param documentCreationBatch the batch which the new documents are added to
+     * @param documentUpdateBatch   the batch which the changes of the existing documents are added to
      * @param change                the change to process
      * @throws StorageCryptException if an error occurs when accessing a {@code EncryptedDocument}
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
     private SyncResult syncChange(EncryptedDocument rootEncryptedDocument,
                                   Map<String, RemoteDocument> foldersMetadata,
+                                  Map<String, EncryptedDocumentMetadata> documentsMetadata,
+                                  DocumentCreationBatch documentCreationBatch,
+                                  DocumentUpdateBatch documentUpdateBatch,
                                   RemoteChange change)
             throws StorageCryptException, DatabaseConnectionClosedException {
         LOG.debug(" - syncChange() : ");
         if (change.isDeleted()) {
+            if (documentCreationBatch.containsBackEntryId(change.getDocumentId())) {
+                encryptedDocuments.add(documentCreationBatch);
+            }
             EncryptedDocument locaDocument =
                     encryptedDocuments.encryptedDocumentWithAccountAndEntryId(
                             rootEncryptedDocument.getBackStorageAccount(),
@@ -572,10 +643,12 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
                 encryptedMetadata = remoteDocument.getName();
             }
 
-            EncryptedDocumentMetadata encryptedDocumentMetadata =
-                    new EncryptedDocumentMetadata(crypto, keyManager);
+            EncryptedDocumentMetadata encryptedDocumentMetadata = documentsMetadata.get(encryptedMetadata);
             try {
-                encryptedDocumentMetadata.decrypt(encryptedMetadata);
+                if (null == encryptedDocumentMetadata) {
+                    encryptedDocumentMetadata = new EncryptedDocumentMetadata(crypto, keyManager);
+                    encryptedDocumentMetadata.decrypt(encryptedMetadata);
+                }
 
                 LOG.debug("     - decrypted name = \"{}\"", encryptedDocumentMetadata.getDisplayName());
                 if (null!= progressListener) {
@@ -592,6 +665,9 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
             } else if (rootEncryptedDocument.getBackEntryId().equals(remoteDocument.getParentId())) {
                 parentEncryptedDocument = rootEncryptedDocument;
             } else {
+                if (documentCreationBatch.containsBackEntryId(remoteDocument.getParentId())) {
+                    encryptedDocuments.add(documentCreationBatch);
+                }
                 parentEncryptedDocument = encryptedDocuments.encryptedDocumentWithAccountAndEntryId(
                         rootEncryptedDocument.getBackStorageAccount(), remoteDocument.getParentId());
             }
@@ -601,13 +677,21 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
                 throw new StorageCryptException("Failed to get parent",
                         StorageCryptException.Reason.ParentNotFound);
             } else {
+                if (documentCreationBatch.containsChild(parentEncryptedDocument.getId(),
+                        encryptedDocumentMetadata.getDisplayName())) {
+                    encryptedDocuments.add(documentCreationBatch);
+                }
                 EncryptedDocument encryptedDocument = parentEncryptedDocument.child(encryptedDocumentMetadata.getDisplayName());
                 if (null == encryptedDocument) {
                     LOG.debug("     - creating document \"{}\", id=\"{}\"",
                             encryptedDocumentMetadata.getDisplayName(),
                             remoteDocument.getId());
-                    encryptedDocument = parentEncryptedDocument.createChild(
+                    encryptedDocument = parentEncryptedDocument.newChild(
                             encryptedDocumentMetadata, encryptedMetadata, remoteDocument);
+                    documentCreationBatch.add(encryptedDocument);
+                    if (documentCreationBatch.size() >= Constants.ORMLITE.DOCUMENT_CREATION_BATCH_SIZE) {
+                        encryptedDocuments.add(documentCreationBatch);
+                    }
                     return new SyncResult(SyncResult.Result.Synced, encryptedDocument);
                 } else {
                     LOG.debug("     - existing document \"{}\"", encryptedDocumentMetadata.getDisplayName());
@@ -627,9 +711,11 @@ public class ChangesSyncProcess extends AbstractProcess<ChangesSyncProcess.Resul
                                 case Done:
                                 case Failed:
                                     LOG.debug("       - updating file \"{}\"", encryptedDocumentMetadata.getDisplayName());
-                                    encryptedDocument.updateSyncState(SyncAction.Download, State.Planned);
+                                    encryptedDocument.updateSyncState(SyncAction.Download, State.Planned,
+                                            documentUpdateBatch);
                                     if (null==encryptedDocument.getBackEntryId()) {
-                                        encryptedDocument.updateBackEntryId(remoteDocument.getId());
+                                        encryptedDocument.updateBackEntryId(remoteDocument.getId(),
+                                                documentUpdateBatch);
                                     }
                                     return new SyncResult(SyncResult.Result.Synced, encryptedDocument);
                                 default:
@@ -0,0 +1,184 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.processes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.db.Database;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+import fr.petrus.lib.core.i18n.TextI18n;
+import fr.petrus.lib.core.processes.results.BaseProcessResults;
+
+/**
+ * The {@code Process} which compacts the database file, while the database stays open.
+ *
+ * <p>The compaction is made of small steps, and stops when there is nothing left to compact, or
+ * when its time budget is exhausted. It can be paused and canceled between two steps.
+ *
+ * <p>It is run when the application exits, after all the other tasks have been canceled and
+ * before the database is closed, so that no other connection writes to the database meanwhile.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DatabaseCompactionProcess extends AbstractProcess<DatabaseCompactionProcess.Results> {
+
+    private static Logger LOG = LoggerFactory.getLogger(DatabaseCompactionProcess.class);
+
+    /**
+     * The {@code ProcessResults} implementation for this particular {@code Process} implementation.
+     */
+    public static class Results extends BaseProcessResults<Void, Void> {
+
+        private long initialFileSize = -1;
+        private long finalFileSize = -1;
+        private int numSteps = 0;
+
+        /**
+         * Creates a new {@code Results} instance, providing its dependencies.
+         *
+         * @param textI18n a {@code textI18n} instance
+         */
+        public Results(TextI18n textI18n) {
+            super (textI18n, false, false, false);
+        }
+
+        /**
+         * Returns the size of the database file before the compaction.
+         *
+         * @return the size of the database file before the compaction, or -1 if it is unknown
+         */
+        public long getInitialFileSize() {
+            return initialFileSize;
+        }
+
+        /**
+         * Returns the size of the database file after the compaction.
+         *
+         * @return the size of the database file after the compaction, or -1 if it is unknown
+         */
+        public long getFinalFileSize() {
+            return finalFileSize;
+        }
+
+        /**
+         * Returns the number of compaction steps which compacted some data.
+         *
+         * @return the number of compaction steps which compacted some data
+         */
+        public int getNumSteps() {
+            return numSteps;
+        }
+
+        /**
+         * Returns the number of bytes reclaimed by the compaction.
+         *
+         * <p>The space freed by the rewritten chunks may only be reclaimed by the next commits,
+         * so this number may be lower than the space actually freed.
+         *
+         * @return the number of bytes reclaimed by the compaction
+         */
+        public long getReclaimedBytes() {
+            if (initialFileSize < 0 || finalFileSize < 0 || finalFileSize > initialFileSize) {
+                return 0;
+            }
+            return initialFileSize - finalFileSize;
+        }
+    }
+
+    private Database database = null;
+
+    /**
+     * Creates a new {@code DatabaseCompactionProcess}, providing its dependencies.
+     *
+     * @param database a {@code Database} instance
+     * @param textI18n a {@code TextI18n} instance
+     */
+    public DatabaseCompactionProcess(Database database, TextI18n textI18n) {
+        super(new Results(textI18n));
+        this.database = database;
+    }
+
+    /**
+     * Compacts the database file, with the default time budget.
+     *
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public void compact() throws DatabaseConnectionClosedException {
+        compact(Constants.ORMLITE.COMPACTION_TIME_BUDGET_MS);
+    }
+
+    /**
+     * Compacts the database file, until there is nothing left to compact or until the given
+     * {@code timeBudget} is exhausted.
+     *
+     * @param timeBudget the maximum time spent compacting, in milliseconds (the time spent paused
+     *                   is not counted)
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    public void compact(long timeBudget) throws DatabaseConnectionClosedException {
+        Results results = getResults();
+        try {
+            start();
+            results.initialFileSize = database.getDatabaseFileSize();
+            long elapsedTime = 0;
+            while (elapsedTime < timeBudget) {
+                pauseIfNeeded();
+                if (isCanceled()) {
+                    return;
+                }
+                long stepStartTime = System.currentTimeMillis();
+                boolean compacted = database.compactDatabase(
+                        Constants.ORMLITE.COMPACTION_TARGET_FILL_RATE,
+                        Constants.ORMLITE.COMPACTION_STEP_SIZE);
+                elapsedTime += System.currentTimeMillis() - stepStartTime;
+                if (!compacted) {
+                    break;
+                }
+                results.numSteps++;
+            }
+        } finally {
+            if (database.isOpen()) {
+                results.finalFileSize = database.getDatabaseFileSize();
+            }
+            LOG.debug("Database compaction : {} steps, {} bytes reclaimed",
+                    results.numSteps, results.getReclaimedBytes());
+        }
+    }
+}
@@ -43,8 +43,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -257,12 +256,12 @@ public class DocumentsDecryptionProcess extends AbstractProcess<DocumentsDecrypt
                             existingDocuments.put(srcDocument.getId(),
                                     new SourceDestinationResult<>(srcDocument, dstFile));
                         } else {
-                            InputStream srcFileInputStream = null;
-                            OutputStream dstFileOutputStream = null;
+                            FileChannel srcFileChannel = null;
+                            FileChannel dstFileChannel = null;
                             try {
                                 try {
                                     File srcFile = srcDocument.file();
-                                    srcFileInputStream = new FileInputStream(srcFile);
+                                    srcFileChannel = new FileInputStream(srcFile).getChannel();
                                 } catch (IOException e) {
                                     LOG.error("Failed to open source file {}", srcDocument.getFileName(), e);
                                     failedDecryptions.put(srcDocument.getId(), new FailedResult<>(srcDocument,
@@ -273,7 +272,7 @@ public class DocumentsDecryptionProcess extends AbstractProcess<DocumentsDecrypt
 
                                 try {
                                     dstFile.createNewFile();
-                                    dstFileOutputStream = new FileOutputStream(dstFile);
+                                    dstFileChannel = new FileOutputStream(dstFile).getChannel();
                                 } catch (IOException e) {
                                     LOG.error("Failed to open destination file {}", dstFile.getAbsolutePath(), e);
                                     failedDecryptions.put(srcDocument.getId(), new FailedResult<>(srcDocument,
@@ -285,7 +284,8 @@ public class DocumentsDecryptionProcess extends AbstractProcess<DocumentsDecrypt
                                 try {
                                     EncryptedDataStream encryptedDataStream
                                             = new EncryptedDataStream(crypto, keyManager.getKeys(srcDocument.getKeyAlias()));
-                                    encryptedDataStream.decrypt(srcFileInputStream, dstFileOutputStream, new ProcessProgressAdapter() {
+                                    encryptedDataStream.setWorkerThreads(Runtime.getRuntime().availableProcessors());
+                                    encryptedDataStream.decrypt(srcFileChannel, dstFileChannel, new ProcessProgressAdapter() {
                                         @Override
                                         public void onProgress(int i, int progress) {
                                             if (null != progressListener) {
@@ -325,16 +325,16 @@ public class DocumentsDecryptionProcess extends AbstractProcess<DocumentsDecrypt
                                 successfulDecryptions.put(srcDocument.getId(),
                                         new SourceDestinationResult<>(srcDocument, dstFile));
                             } finally {
-                                if (null != srcFileInputStream) {
+                                if (null != srcFileChannel) {
                                     try {
-                                        srcFileInputStream.close();
+                                        srcFileChannel.close();
                                     } catch (IOException e) {
                                         LOG.error("Error when closing source input stream", e);
                                     }
                                 }
-                                if (null != dstFileOutputStream) {
+                                if (null != dstFileChannel) {
                                     try {
-                                        dstFileOutputStream.close();
+                                        dstFileChannel.close();
                                     } catch (IOException e) {
                                         LOG.error("Error when closing destination output stream", e);
                                     }
@@ -43,8 +43,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -54,14 +53,19 @@ import java.util.List;
 
 import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.EncryptedDocuments;
+import fr.petrus.lib.core.NotFoundException;
 import fr.petrus.lib.core.StorageCryptException;
 import fr.petrus.lib.core.SyncAction;
+import fr.petrus.lib.core.crypto.ChunkSizePolicy;
 import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.CryptoException;
 import fr.petrus.lib.core.crypto.EncryptedDataStream;
 import fr.petrus.lib.core.crypto.KeyManager;
 import fr.petrus.lib.core.EncryptedDocument;
 import fr.petrus.lib.core.State;
+import fr.petrus.lib.core.cloud.Account;
+import fr.petrus.lib.core.cloud.exceptions.NetworkException;
+import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.processes.results.BaseProcessResults;
 import fr.petrus.lib.core.processes.results.ColumnType;
@@ -71,6 +75,7 @@ import fr.petrus.lib.core.result.ProcessProgressAdapter;
 import fr.petrus.lib.core.result.ProgressListener;
 import fr.petrus.lib.core.filesystem.FileSystem;
 import fr.petrus.lib.core.i18n.TextI18n;
+import fr.petrus.lib.core.network.Network;
 
 /**
  * The {@code Process} which handles documents encryption.
@@ -165,10 +170,13 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
     private Crypto crypto;
     private KeyManager keyManager;
     private FileSystem fileSystem;
+    private Network network;
     private EncryptedDocuments encryptedDocuments;
     private LinkedHashMap<String, SourceDestinationResult<File, EncryptedDocument>> successfulEncryptions = new LinkedHashMap<>();
     private LinkedHashMap<String, FailedResult<String>> failedEncryptions = new LinkedHashMap<>();
     private ProgressListener progressListener;
+    private boolean streamingUpload;
+    private boolean extendedStreamFormat;
 
     /**
      * Creates a new {@code DocumentsEncryptionProcess}, providing its dependencies.
@@ -177,16 +185,21 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
      * @param keyManager         a {@code KeyManager} instance
      * @param textI18n           a {@code TextI18n} instance
      * @param fileSystem         a {@code FileSystem} instance
+     * @param network            a {@code Network} instance
      * @param encryptedDocuments an {@code EncryptedDocuments} instance
      */
     public DocumentsEncryptionProcess(Crypto crypto, KeyManager keyManager, TextI18n textI18n,
-                                      FileSystem fileSystem, EncryptedDocuments encryptedDocuments) {
+                                      FileSystem fileSystem, Network network,
+                                      EncryptedDocuments encryptedDocuments) {
         super(new Results(textI18n));
         this.crypto = crypto;
         this.keyManager = keyManager;
         this.fileSystem = fileSystem;
+        this.network = network;
         this.encryptedDocuments = encryptedDocuments;
         progressListener = null;
+        streamingUpload = false;
+        extendedStreamFormat = false;
     }
 
     /**
@@ -198,6 +211,34 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
         this.progressListener = progressListener;
     }
 
+    /**
+     * Sets whether the files are uploaded while they are encrypted, if their back storage account
+     * is reachable.
+     *
+     * <p>In this mode, the clear file is read only once, and the encrypted file is written to the
+     * local storage during the upload, instead of being read back by the synchronization process.
+     * If the upload fails, the file is encrypted locally and its upload is planned as usual.
+     * If the process is canceled during the upload, the document is deleted.
+     *
+     * @param streamingUpload true if the files are uploaded while they are encrypted
+     */
+    public void setStreamingUpload(boolean streamingUpload) {
+        this.streamingUpload = streamingUpload;
+    }
+
+    /**
+     * Sets whether the files are encrypted with the extended stream format : authenticated
+     * encryption, chunk index and chunk size chosen for the document type.
+     *
+     * <p>Older releases of the application cannot decrypt this format, so it should only be
+     * enabled when all the devices which synchronize the same accounts can read it.
+     *
+     * @param extendedStreamFormat true if the files are encrypted with the extended stream format
+     */
+    public void setExtendedStreamFormat(boolean extendedStreamFormat) {
+        this.extendedStreamFormat = extendedStreamFormat;
+    }
+
     /**
      * Encrypts the given {@code srcDocuments} into the folder represented by the {@code EncryptedDocument}
      * with the given {@code dstFolderId}, using the {@code dstKeyAlias}.
@@ -332,6 +373,7 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
                     }
 
                     EncryptedDocument dstEncryptedDocument;
+                    boolean created = false;
                     EncryptedDocument parent = encryptedDocuments.encryptedDocumentWithId(parentId);
                     if (null == parent) {
                         failedEncryptions.put(srcPath, new FailedResult<>(srcPath,
@@ -344,6 +386,7 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
                             try {
                                 dstEncryptedDocument = parent.createChild(srcFile.getName(),
                                         fileSystem.getMimeType(srcFile), dstKeyAlias);
+                                created = true;
                             } catch (StorageCryptException e) {
                                 LOG.error("Failed to create encrypted file {}", srcPath, e);
                                 failedEncryptions.put(srcPath, new FailedResult<>(srcPath, e));
@@ -359,13 +402,55 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
                         }
                     }
 
-                    InputStream srcFileInputStream = null;
-                    OutputStream dstFileOutputStream = null;
+                    if (streamingUpload && !dstEncryptedDocument.isUnsynchronized()
+                            && (null != dstEncryptedDocument.getBackEntryId() || null != parent.getBackEntryId())
+                            && isRemoteStorageReachable(dstEncryptedDocument)) {
+                        // prevent the synchronization process from uploading the document at the same time
+                        dstEncryptedDocument.updateSyncState(SyncAction.Upload, State.Running);
+                        try {
+                            EncryptedDataStream encryptedDataStream =
+                                    encryptedDataStream(dstKeyAlias, dstEncryptedDocument, srcFile);
+                            dstEncryptedDocument.updateLocalModificationTime(System.currentTimeMillis());
+                            if (null == dstEncryptedDocument.getBackEntryId()) {
+                                dstEncryptedDocument.uploadNew(encryptedDataStream, srcFile, encryptionProgressListener());
+                            } else {
+                                dstEncryptedDocument.upload(encryptedDataStream, srcFile, encryptionProgressListener());
+                            }
+                            if (State.Done == dstEncryptedDocument.getSyncState(SyncAction.Upload)) {
+                                successfulEncryptions.put(srcPath,
+                                        new SourceDestinationResult<>(srcFile, dstEncryptedDocument));
+                                currentDocumentIndex++;
+                                continue;
+                            }
+                            if (!isCanceled()) {
+                                LOG.error("Upload of file {} while encrypting it is incomplete, encrypting it locally",
+                                        srcPath);
+                            }
+                        } catch (UserCanceledException e) {
+                            LOG.debug("Upload of file {} canceled while encrypting it", srcPath, e);
+                            abandonCanceledEncryption(dstEncryptedDocument, created);
+                            return;
+                        } catch (CryptoException | StorageCryptException | NetworkException | NotFoundException e) {
+                            if (!isCanceled()) {
+                                LOG.error("Failed to upload file {} while encrypting it, encrypting it locally",
+                                        srcPath, e);
+                            }
+                        }
+                        if (isCanceled()) {
+                            // the remote storage may have failed the upload before noticing the cancelation
+                            abandonCanceledEncryption(dstEncryptedDocument, created);
+                            return;
+                        }
+                    }
+
+                    FileChannel srcFileChannel = null;
+                    FileChannel dstFileChannel = null;
                     File dstFile;
+                    boolean encryptionCanceled = false;
 
                     try {
                         try {
-                            srcFileInputStream = new FileInputStream(srcFile);
+                            srcFileChannel = new FileInputStream(srcFile).getChannel();
                         } catch (IOException e) {
                             LOG.error("Failed to open source file {}", srcPath, e);
                             failedEncryptions.put(srcPath, new FailedResult<>(srcPath,
@@ -376,7 +461,7 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
 
                         try {
                             dstFile = dstEncryptedDocument.file();
-                            dstFileOutputStream = new FileOutputStream(dstFile);
+                            dstFileChannel = new FileOutputStream(dstFile).getChannel();
                         } catch (IOException e) {
                             LOG.error("Failed to open destination file {}", dstEncryptedDocument.getFileName(), e);
                             failedEncryptions.put(srcPath, new FailedResult<>(srcPath,
@@ -387,40 +472,16 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
 
                         try {
                             EncryptedDataStream encryptedDataStream =
-                                    new EncryptedDataStream(crypto, keyManager.getKeys(dstKeyAlias));
-                            encryptedDataStream.encrypt(srcFileInputStream, dstFileOutputStream, new ProcessProgressAdapter() {
-                                @Override
-                                public void onProgress(int i, int progress) {
-                                    if (null != progressListener) {
-                                        if (0 == i) {
-                                            progressListener.onProgress(1, progress);
-                                        }
-                                    }
-                                }
-
-                                @Override
-                                public void onSetMax(int i, int max) {
-                                    if (null != progressListener) {
-                                        if (0 == i) {
-                                            progressListener.onSetMax(1, max);
-                                        }
-                                    }
-                                }
-
-                                @Override
-                                public boolean isCanceled() {
-                                    return DocumentsEncryptionProcess.this.isCanceled();
+                                    encryptedDataStream(dstKeyAlias, dstEncryptedDocument, srcFile);
+                            encryptedDataStream.encrypt(srcFileChannel, dstFileChannel, encryptionProgressListener());
+                            // the encryption stops silently when canceled, leaving a truncated file
+                            encryptionCanceled = isCanceled();
+                            if (!encryptionCanceled) {
+                                dstEncryptedDocument.updateFileSize();
+                                dstEncryptedDocument.updateLocalModificationTime(System.currentTimeMillis());
+                                if (!dstEncryptedDocument.isUnsynchronized()) {
+                                    dstEncryptedDocument.updateSyncState(SyncAction.Upload, State.Planned);
                                 }
-
-                                @Override
-                                public void pauseIfNeeded() {
-                                    DocumentsEncryptionProcess.this.pauseIfNeeded();
-                                }
-                            });
-                            dstEncryptedDocument.updateFileSize();
-                            dstEncryptedDocument.updateLocalModificationTime(System.currentTimeMillis());
-                            if (!dstEncryptedDocument.isUnsynchronized()) {
-                                dstEncryptedDocument.updateSyncState(SyncAction.Upload, State.Planned);
                             }
                         } catch (CryptoException e) {
                             dstEncryptedDocument.delete();
@@ -431,21 +492,25 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
                             continue;
                         }
                     } finally {
-                        if (null != srcFileInputStream) {
+                        if (null != srcFileChannel) {
                             try {
-                                srcFileInputStream.close();
+                                srcFileChannel.close();
                             } catch (IOException e) {
                                 LOG.error("Error when closing source input stream", e);
                             }
                         }
-                        if (null != dstFileOutputStream) {
+                        if (null != dstFileChannel) {
                             try {
-                                dstFileOutputStream.close();
+                                dstFileChannel.close();
                             } catch (IOException e) {
                                 LOG.error("Error when closing destination output stream", e);
                             }
                         }
                     }
+                    if (encryptionCanceled) {
+                        abandonCanceledEncryption(dstEncryptedDocument, created);
+                        return;
+                    }
                     successfulEncryptions.put(srcPath, new SourceDestinationResult<>(srcFile, dstEncryptedDocument));
                     currentDocumentIndex++;
                 }
@@ -454,4 +519,103 @@ public class DocumentsEncryptionProcess extends AbstractProcess<DocumentsEncrypt
             getResults().addResults(successfulEncryptions.values(), failedEncryptions.values());
         }
     }
+
+    /**
+     * Cleans up the given {@code encryptedDocument} after its encryption was canceled.
+     *
+     * <p>A document created by this process is deleted. A document which already existed is kept,
+     * but as its local file was already overwritten, its download is planned again if it has a
+     * remote copy, and its upload is not retried.
+     *
+     * @param encryptedDocument the document which encryption was canceled
+     * @param created           true if the document was created by this process
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private void abandonCanceledEncryption(EncryptedDocument encryptedDocument, boolean created)
+            throws DatabaseConnectionClosedException {
+        if (created) {
+            encryptedDocument.delete();
+        } else if (!encryptedDocument.isUnsynchronized()) {
+            encryptedDocument.updateSyncState(SyncAction.Upload, State.Done);
+            if (null != encryptedDocument.getBackEntryId()) {
+                encryptedDocument.updateSyncState(SyncAction.Download, State.Planned);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the remote storage of the given {@code encryptedDocument} can be reached
+     * for an upload.
+     *
+     * @param encryptedDocument the document to upload
+     * @return true if the network is ready for uploads and the remote storage of the document is available
+     */
+    private boolean isRemoteStorageReachable(EncryptedDocument encryptedDocument) {
+        if (null == network || !network.isNetworkReadyForSyncAction(SyncAction.Upload)) {
+            return false;
+        }
+        Account account = encryptedDocument.getBackStorageAccount();
+        return null != account && null != account.getRemoteStorage();
+    }
+
+    /**
+     * Returns a new {@code EncryptedDataStream} which encrypts the given {@code srcFile} into the
+     * given {@code dstEncryptedDocument}, with the key which has the given {@code keyAlias}.
+     *
+     * @param keyAlias             the alias of the key used to encrypt the file
+     * @param dstEncryptedDocument the document where the file is encrypted
+     * @param srcFile              the clear file to encrypt
+     * @return the new {@code EncryptedDataStream}
+     * @throws CryptoException if the key cannot be retrieved
+     */
+    private EncryptedDataStream encryptedDataStream(String keyAlias, EncryptedDocument dstEncryptedDocument,
+                                                    File srcFile) throws CryptoException {
+        EncryptedDataStream encryptedDataStream = new EncryptedDataStream(crypto, keyManager.getKeys(keyAlias));
+        encryptedDataStream.setWorkerThreads(Runtime.getRuntime().availableProcessors());
+        if (extendedStreamFormat) {
+            encryptedDataStream.setWriteIndex(true);
+            encryptedDataStream.setAuthenticatedEncryption(true);
+            encryptedDataStream.setChunkSize(ChunkSizePolicy.forMimeType(
+                    dstEncryptedDocument.getMimeType()).chunkSize(srcFile.length()));
+        }
+        return encryptedDataStream;
+    }
+
+    /**
+     * Returns a listener which reports the encryption progress of the current file to the
+     * {@code progressListener} of this process, and which handles canceling and pausing.
+     *
+     * @return a listener for the encryption of the current file
+     */
+    private ProcessProgressAdapter encryptionProgressListener() {
+        return new ProcessProgressAdapter() {
+            @Override
+            public void onProgress(int i, int progress) {
+                if (null != progressListener) {
+                    if (0 == i) {
+                        progressListener.onProgress(1, progress);
+                    }
+                }
+            }
+
+            @Override
+            public void onSetMax(int i, int max) {
+                if (null != progressListener) {
+                    if (0 == i) {
+                        progressListener.onSetMax(1, max);
+                    }
+                }
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return DocumentsEncryptionProcess.this.isCanceled();
+            }
+
+            @Override
+            public void pauseIfNeeded() {
+                DocumentsEncryptionProcess.this.pauseIfNeeded();
+            }
+        };
+    }
 }
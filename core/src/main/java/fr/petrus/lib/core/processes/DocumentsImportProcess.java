@@ -41,8 +41,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import fr.petrus.lib.core.Constants;
@@ -59,6 +62,7 @@ import fr.petrus.lib.core.StorageType;
 import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
 import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.KeyManager;
+import fr.petrus.lib.core.db.DocumentCreationBatch;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.processes.results.BaseProcessResults;
 import fr.petrus.lib.core.processes.results.ColumnType;
@@ -165,6 +169,11 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
     private Crypto crypto;
     private KeyManager keyManager;
     private TextI18n textI18n;
+    private EncryptedDocuments encryptedDocuments;
+    private DocumentCreationBatch documentCreationBatch = new DocumentCreationBatch();
+    private List<SourceDestinationResult<String, EncryptedDocument>> pendingImports = new ArrayList<>();
+    private Set<EncryptedDocument> failedInsertions =
+            Collections.newSetFromMap(new IdentityHashMap<EncryptedDocument, Boolean>());
     private ConcurrentLinkedQueue<EncryptedDocument> importRoots = new ConcurrentLinkedQueue<>();
     private List<SourceDestinationResult<String, EncryptedDocument>> successfulImports = new ArrayList<>();
     private List<SourceDestinationResult<String, EncryptedDocument>> existingDocuments = new ArrayList<>();
@@ -189,6 +198,7 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
         this.crypto = crypto;
         this.keyManager = keyManager;
         this.textI18n = textI18n;
+        this.encryptedDocuments = encryptedDocuments;
         progressListener = null;
         numRootsToProcess = 0;
         numProcessedDocuments = 0;
@@ -273,6 +283,9 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
     /**
      * Imports the contents of the given {@code folder} from the local storage of the application.
      *
+     * <p>The new children of the folder are inserted into the database together, before the
+     * contents of its subfolders are imported.
+     *
      * @param folder the folder which contents will be imported.
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
@@ -290,26 +303,39 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
                 if (null != progressListener) {
                     progressListener.onSetMax(1, numFoundDocuments);
                 }
+                List<EncryptedDocument> childDocuments = new ArrayList<>();
                 for (File child : children) {
-                    importLocalDocumentsTree(folder, child);
+                    pauseIfNeeded();
+                    if (isCanceled()) {
+                        break;
+                    }
+                    EncryptedDocument childDocument = importLocalDocument(folder, child);
+                    if (null != childDocument) {
+                        childDocuments.add(childDocument);
+                    }
+                }
+                /* the children must have their ids before their own contents are imported */
+                insertCreationBatch();
+                for (EncryptedDocument childDocument : childDocuments) {
+                    if (!failedInsertions.contains(childDocument)) {
+                        importLocalDocuments(childDocument);
+                    }
                 }
             }
         }
     }
 
     /**
-     * Imports the given {@code document}, and its contents if it is a folder.
+     * Imports the given {@code document}, adding it to the creation batch if it is not already
+     * in the database.
      *
      * @param parent the parent {@code EncryptedDocument} of the given {@code document}
      * @param document the {@code File} to import
+     * @return the new or existing {@code EncryptedDocument}, or null if the import failed
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
-    private void importLocalDocumentsTree(EncryptedDocument parent, File document)
+    private EncryptedDocument importLocalDocument(EncryptedDocument parent, File document)
             throws DatabaseConnectionClosedException {
-        pauseIfNeeded();
-        if (isCanceled()) {
-            return;
-        }
         numProcessedDocuments++;
         if (null!= progressListener) {
             progressListener.onProgress(1, numProcessedDocuments);
@@ -322,26 +348,80 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
             if (null!= progressListener) {
                 progressListener.onMessage(1, encryptedDocumentMetadata.getDisplayName());
             }
-            EncryptedDocument encryptedDocument = parent.child(encryptedDocumentMetadata.getDisplayName());
+            EncryptedDocument encryptedDocument = existingChild(parent, encryptedDocumentMetadata.getDisplayName());
             if (null == encryptedDocument) {
-                try {
-                    encryptedDocument = parent.createChild(encryptedDocumentMetadata, document);
-                    successfulImports.add(new SourceDestinationResult<>(
-                            encryptedDocument.storageText() + " : " + document.getName(),
-                            encryptedDocument));
-                } catch (StorageCryptException e) {
-                    failedImports.put(document.getAbsolutePath(), new FailedResult<>(document.getName(), e));
-                }
+                encryptedDocument = parent.newChild(encryptedDocumentMetadata, document);
+                addToCreationBatch(encryptedDocument, new SourceDestinationResult<>(
+                        encryptedDocument.storageText() + " : " + document.getName(),
+                        encryptedDocument));
             } else {
                 existingDocuments.add(new SourceDestinationResult<>(
                         textI18n.getStorageTypeText(StorageType.Unsynchronized) + " : " + document.getAbsolutePath(),
                         encryptedDocument));
             }
-            importLocalDocuments(encryptedDocument);
+            return encryptedDocument;
         } catch (StorageCryptException e) {
             LOG.error("Failed to find key matching document name {}", document.getName());
             failedImports.put(document.getAbsolutePath(), new FailedResult<>(
                     textI18n.getStorageTypeText(StorageType.Unsynchronized) + " : " + document.getAbsolutePath(), e));
+            return null;
+        }
+    }
+
+    /**
+     * Returns the child of the given {@code parent} folder which has the given {@code displayName},
+     * inserting the creation batch first if this child is waiting in it.
+     *
+     * @param parent      the parent folder
+     * @param displayName the name of the child
+     * @return the child, or null if the folder has no child with this name
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private EncryptedDocument existingChild(EncryptedDocument parent, String displayName)
+            throws DatabaseConnectionClosedException {
+        if (documentCreationBatch.containsChild(parent.getId(), displayName)) {
+            insertCreationBatch();
+        }
+        return parent.child(displayName);
+    }
+
+    /**
+     * Adds the given new {@code encryptedDocument} to the creation batch, inserting the batch if it
+     * is full.
+     *
+     * @param encryptedDocument the new document
+     * @param importResult      the result to record when the document is inserted
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private void addToCreationBatch(EncryptedDocument encryptedDocument,
+                                    SourceDestinationResult<String, EncryptedDocument> importResult)
+            throws DatabaseConnectionClosedException {
+        documentCreationBatch.add(encryptedDocument);
+        pendingImports.add(importResult);
+        if (documentCreationBatch.size() >= Constants.ORMLITE.DOCUMENT_CREATION_BATCH_SIZE) {
+            insertCreationBatch();
+        }
+    }
+
+    /**
+     * Inserts the documents of the creation batch into the database, then records them as
+     * successful imports, or as failed imports if the insertion failed.
+     *
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private void insertCreationBatch() throws DatabaseConnectionClosedException {
+        try {
+            encryptedDocuments.add(documentCreationBatch);
+            successfulImports.addAll(pendingImports);
+        } catch (StorageCryptException e) {
+            LOG.error("Failed to insert {} imported documents", pendingImports.size(), e);
+            for (SourceDestinationResult<String, EncryptedDocument> pendingImport : pendingImports) {
+                failedInsertions.add(pendingImport.getDestination());
+                failedImports.put(pendingImport.getSource(),
+                        new FailedResult<>(pendingImport.getSource(), e));
+            }
+        } finally {
+            pendingImports.clear();
         }
     }
 
@@ -393,10 +473,25 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
                 if (null != progressListener) {
                     progressListener.onSetMax(1, numFoundDocuments);
                 }
+                List<EncryptedDocument> childFolders = new ArrayList<>();
                 for (RemoteDocument child : children) {
+                    pauseIfNeeded();
+                    if (isCanceled()) {
+                        break;
+                    }
                     //ignore .metadata file
                     if (!Constants.STORAGE.FOLDER_METADATA_FILE_NAME.equals(child.getName())) {
-                        importRemoteDocumentsTree(folder, child);
+                        EncryptedDocument childDocument = importRemoteDocument(folder, child);
+                        if (null != childDocument && childDocument.isFolder()) {
+                            childFolders.add(childDocument);
+                        }
+                    }
+                }
+                /* the children must have their ids before their own contents are imported */
+                insertCreationBatch();
+                for (EncryptedDocument childFolder : childFolders) {
+                    if (!failedInsertions.contains(childFolder)) {
+                        importRemoteDocuments(childFolder);
                     }
                 }
             } catch (UserCanceledException e) {
@@ -425,18 +520,16 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
     }
 
     /**
-     * Imports the given {@code document}, and its contents if it is a folder.
+     * Imports the given {@code document}, adding it to the creation batch if it is not already
+     * in the database.
      *
      * @param parent the parent {@code EncryptedDocument} of the given {@code document}
      * @param document the {@code RemoteDocument} to import
+     * @return the new or existing {@code EncryptedDocument}, or null if the import failed
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
-    private void importRemoteDocumentsTree(EncryptedDocument parent, RemoteDocument document)
+    private EncryptedDocument importRemoteDocument(EncryptedDocument parent, RemoteDocument document)
             throws DatabaseConnectionClosedException {
-        pauseIfNeeded();
-        if (isCanceled()) {
-            return;
-        }
         numProcessedDocuments++;
         if (null!= progressListener) {
             progressListener.onProgress(1, numProcessedDocuments);
@@ -468,25 +561,22 @@ public class DocumentsImportProcess extends AbstractProcess<DocumentsImportProce
             if (null!= progressListener) {
                 progressListener.onMessage(1, encryptedDocumentMetadata.getDisplayName());
             }
-            EncryptedDocument encryptedDocument = parent.child(encryptedDocumentMetadata.getDisplayName());
+            EncryptedDocument encryptedDocument = existingChild(parent, encryptedDocumentMetadata.getDisplayName());
             if (null == encryptedDocument) {
-                try {
-                    encryptedDocument = parent.createChild(encryptedDocumentMetadata, encryptedMetadata, document);
-                    successfulImports.add(new SourceDestinationResult<>(
-                            encryptedDocument.storageText() + " : " + document.getName(),
-                            encryptedDocument));
-                } catch (StorageCryptException e) {
-                    failedImports.put(document.getName(), new FailedResult<>(document.getName(), e));
-                }
+                encryptedDocument = parent.newChild(encryptedDocumentMetadata, encryptedMetadata, document);
+                addToCreationBatch(encryptedDocument, new SourceDestinationResult<>(
+                        encryptedDocument.storageText() + " : " + document.getName(),
+                        encryptedDocument));
             } else {
                 existingDocuments.add(new SourceDestinationResult<>(
                         encryptedDocument.storageText() + " : " + document.getName(),
                         encryptedDocument));
             }
-            importRemoteDocuments(encryptedDocument);
+            return encryptedDocument;
         } catch (StorageCryptException e) {
             LOG.error("Failed to find key matching document name {}", document.getName());
             failedImports.put(document.getName(), new FailedResult<>(document.getName(), e));
+            return null;
         }
     }
 }
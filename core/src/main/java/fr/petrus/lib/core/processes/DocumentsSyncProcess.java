@@ -39,11 +39,23 @@ package fr.petrus.lib.core.processes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.DocumentHashQueue;
+import fr.petrus.lib.core.DocumentRetryQueue;
 import fr.petrus.lib.core.EncryptedDocuments;
 import fr.petrus.lib.core.OrderBy;
 import fr.petrus.lib.core.StorageCryptException;
@@ -57,6 +69,8 @@ import fr.petrus.lib.core.cloud.exceptions.RemoteException;
 import fr.petrus.lib.core.EncryptedDocument;
 import fr.petrus.lib.core.State;
 import fr.petrus.lib.core.cloud.exceptions.UserCanceledException;
+import fr.petrus.lib.core.db.EncryptedDocumentCursor;
+import fr.petrus.lib.core.db.SyncStateListener;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
 import fr.petrus.lib.core.processes.results.BaseProcessResults;
 import fr.petrus.lib.core.result.ProcessProgressAdapter;
@@ -77,6 +91,10 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
 
     /**
      * The interface used by this process for communicating with its caller.
+     *
+     * <p>The documents are synchronized by several worker threads, but the methods of this listener,
+     * and those of the {@code ProgressListener} of this process, are never called at the same time.
+     * They are called from the worker threads, so they must not access the user interface directly.
      */
     public interface SyncActionListener {
         /**
@@ -114,14 +132,29 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
     private Accounts accounts;
     private EncryptedDocuments encryptedDocuments;
     private Network network;
-    private EncryptedDocument currentSyncedDocument;
-    private boolean restartCurrentDocumentSync;
     private DocumentHashQueue syncQueue;
     private int numDocumentsSynced;
     private HashSet<Long> syncAccountsHistory;
+    private final Object listenersLock = new Object();
     private ProgressListener progressListener;
     private SyncActionListener syncActionListener;
 
+    private int maxTransfers;
+    private int maxTransfersPerAccount;
+    private Map<Long, EncryptedDocument> runningDocuments;
+    private Map<Long, Integer> runningDocumentsPerAccount;
+    private Map<Long, Integer> runningChildrenPerParent;
+    private Set<Long> restartedDocumentIds;
+    private Queue<EncryptedDocument> readyDocuments;
+    private Map<Long, Queue<EncryptedDocument>> documentsWaitingForDocument;
+    private Map<Long, Queue<EncryptedDocument>> documentsWaitingForAccount;
+    private Set<Long> waitingDocumentIds;
+    private volatile long displayedDocumentId;
+    private DatabaseConnectionClosedException databaseConnectionClosedException;
+    private Set<Long> plannedDocumentIds;
+    private DocumentRetryQueue scheduledRetries;
+    private SyncStateListener syncStateListener;
+
     /**
      * Creates a new {@code DocumentsSyncProcess}, providing its dependencies.
      *
@@ -141,26 +174,114 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
         syncQueue = new DocumentHashQueue();
         syncAccountsHistory = new HashSet<>();
 
-        currentSyncedDocument = null;
-        restartCurrentDocumentSync = false;
+        maxTransfers = Constants.STORAGE.CLOUD_SYNC_MAX_TRANSFERS;
+        maxTransfersPerAccount = Constants.STORAGE.CLOUD_SYNC_MAX_TRANSFERS_PER_ACCOUNT;
+        runningDocuments = new HashMap<>();
+        runningDocumentsPerAccount = new HashMap<>();
+        runningChildrenPerParent = new HashMap<>();
+        restartedDocumentIds = new HashSet<>();
+        readyDocuments = new LinkedList<>();
+        documentsWaitingForDocument = new HashMap<>();
+        documentsWaitingForAccount = new HashMap<>();
+        waitingDocumentIds = new HashSet<>();
+        displayedDocumentId = -1;
+        databaseConnectionClosedException = null;
+        plannedDocumentIds = new LinkedHashSet<>();
+        scheduledRetries = new DocumentRetryQueue(Constants.STORAGE.CLOUD_SYNC_RETRY_DELAY_MS,
+                Constants.STORAGE.CLOUD_SYNC_MAX_RETRY_DELAY_MS);
+        syncStateListener = new SyncStateListener() {
+            @Override
+            public void onSyncStateChanged(long id, SyncAction syncAction, State state) {
+                if (State.Planned == state) {
+                    synchronized (DocumentsSyncProcess.this) {
+                        plannedDocumentIds.add(id);
+                        DocumentsSyncProcess.this.notifyAll();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Sets the maximum number of documents this process synchronizes at the same time, in total
+     * and for each account.
+     *
+     * <p>This method should be called before running this process.
+     *
+     * @param maxTransfers           the maximum number of documents synchronized at the same time
+     * @param maxTransfersPerAccount the maximum number of documents of a single account
+     *                               synchronized at the same time
+     */
+    public synchronized void setMaxTransfers(int maxTransfers, int maxTransfersPerAccount) {
+        this.maxTransfers = Math.max(1, maxTransfers);
+        this.maxTransfersPerAccount = Math.max(1, Math.min(this.maxTransfers, maxTransfersPerAccount));
     }
 
     /**
      * Sets the {@code ProgressListener} which this process will report its progress to.
      *
+     * <p>The methods of the given {@code progressListener} are called from the worker threads, one
+     * at a time.
+     *
      * @param progressListener the {@code ProgressListener} which this process will report its progress to
      */
-    public void setProgressListener(ProgressListener progressListener) {
-        this.progressListener = progressListener;
+    public void setProgressListener(final ProgressListener progressListener) {
+        if (null == progressListener) {
+            this.progressListener = null;
+        } else {
+            this.progressListener = new ProgressListener() {
+                @Override
+                public void onMessage(int i, String message) {
+                    synchronized (listenersLock) {
+                        progressListener.onMessage(i, message);
+                    }
+                }
+
+                @Override
+                public void onProgress(int i, int progress) {
+                    synchronized (listenersLock) {
+                        progressListener.onProgress(i, progress);
+                    }
+                }
+
+                @Override
+                public void onSetMax(int i, int max) {
+                    synchronized (listenersLock) {
+                        progressListener.onSetMax(i, max);
+                    }
+                }
+            };
+        }
     }
 
     /**
      * Sets the {@code SyncActionListener} which this process will report its progress to.
      *
+     * <p>The methods of the given {@code syncActionListener} are called from the worker threads, one
+     * at a time.
+     *
      * @param syncActionListener the {@code SyncActionListener} which this process will report its progress to
      */
-    public void setSyncActionListener(SyncActionListener syncActionListener) {
-        this.syncActionListener = syncActionListener;
+    public void setSyncActionListener(final SyncActionListener syncActionListener) {
+        if (null == syncActionListener) {
+            this.syncActionListener = null;
+        } else {
+            this.syncActionListener = new SyncActionListener() {
+                @Override
+                public void onSyncActionStart(SyncAction syncAction, EncryptedDocument encryptedDocument) {
+                    synchronized (listenersLock) {
+                        syncActionListener.onSyncActionStart(syncAction, encryptedDocument);
+                    }
+                }
+
+                @Override
+                public void onDocumentChanged(EncryptedDocument encryptedDocument) {
+                    synchronized (listenersLock) {
+                        syncActionListener.onDocumentChanged(encryptedDocument);
+                    }
+                }
+            };
+        }
     }
 
     /**
@@ -175,6 +296,7 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
         numEnqueuedDocuments += updateSyncQueue(SyncAction.Deletion);
         numEnqueuedDocuments += updateSyncQueue(SyncAction.Upload);
         numEnqueuedDocuments += updateSyncQueue(SyncAction.Download);
+        notifyAll();
         return numEnqueuedDocuments;
     }
 
@@ -189,21 +311,15 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
     private int updateSyncQueue(SyncAction syncAction) throws DatabaseConnectionClosedException {
         int numEnqueuedDocuments = 0;
         if (network.isNetworkReadyForSyncAction(syncAction)) {
-            for (EncryptedDocument encryptedDocument :
-                    encryptedDocuments.encryptedDocumentsWithSyncState(syncAction, State.Planned)) {
-                if (!encryptedDocument.hasTooManyFailures() && !encryptedDocument.hasTooManyRequests()) {
-                    synchronized(this) {
-                        syncQueue.offer(encryptedDocument);
-                        numEnqueuedDocuments++;
-                    }
-                }
-            }
-            for (EncryptedDocument encryptedDocument :
-                    encryptedDocuments.encryptedDocumentsWithSyncState(syncAction, State.Failed)) {
-                if (!encryptedDocument.hasTooManyFailures() && !encryptedDocument.hasTooManyRequests()) {
-                    synchronized(this) {
-                        syncQueue.offer(encryptedDocument);
-                        numEnqueuedDocuments++;
+            for (State state : new State[] { State.Planned, State.Failed }) {
+                EncryptedDocumentCursor cursor = encryptedDocuments.encryptedDocumentsCursorWithSyncState(syncAction, state);
+                while (cursor.hasNext()) {
+                    EncryptedDocument encryptedDocument = cursor.next();
+                    if (!encryptedDocument.hasTooManyFailures() && !encryptedDocument.hasTooManyRequests()) {
+                        synchronized(this) {
+                            syncQueue.offer(encryptedDocument);
+                            numEnqueuedDocuments++;
+                        }
                     }
                 }
             }
@@ -234,49 +350,68 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
             throws DatabaseConnectionClosedException {
         encryptedDocument.refresh();
         if (syncQueue.offer(encryptedDocument)) {
-            if (null != progressListener) {
-                synchronized (this) {
-                    progressListener.onSetMax(0, numDocumentsSynced + syncQueue.size());
+            synchronized (this) {
+                if (null != progressListener) {
+                    progressListener.onSetMax(0, numDocumentsSynced + numRemainingDocuments());
                 }
+                notifyAll();
             }
         }
     }
 
     /**
-     * Restarts the current document synchronization if the document being processed has the given
-     * {@code documentId}.
+     * Restarts the document synchronization if the document with the given {@code documentId} is
+     * being processed.
      *
      * @param documentId the id of the {@code EncryptedDocument} to restart processing.
      */
     public synchronized void restartIfCurrent(long documentId) {
-        if (null!=currentSyncedDocument && currentSyncedDocument.getId() == documentId) {
-            restartCurrentDocumentSync = true;
+        if (runningDocuments.containsKey(documentId)) {
+            restartedDocumentIds.add(documentId);
         }
     }
 
+    /**
+     * Returns whether the synchronization of the document with the given {@code documentId} was
+     * asked to restart.
+     *
+     * @param documentId the id of the {@code EncryptedDocument} to check
+     * @return true if the synchronization of the document was asked to restart
+     */
+    private synchronized boolean isRestarted(long documentId) {
+        return restartedDocumentIds.contains(documentId);
+    }
+
+    /**
+     * Returns the number of documents which remain to be processed, queued, waiting or running.
+     *
+     * @return the number of documents which remain to be processed
+     */
+    private synchronized int numRemainingDocuments() {
+        return syncQueue.size() + readyDocuments.size() + waitingDocumentIds.size() + runningDocuments.size();
+    }
+
     /**
      * Starts processing the documents in the synchronization queue.
      *
+     * <p>The database is scanned once at startup, to recover the documents which synchronization is
+     * planned or failed. Then the documents which synchronization gets planned are pushed to the
+     * queue as soon as their state is written, and the failed ones are retried after a delay, until
+     * there is no more document to synchronize.
+     *
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
     public void run() throws DatabaseConnectionClosedException {
         start();
         cleanupSyncStates();
-        while (network.isConnected()) {
-            if (0 == updateSyncQueue()) {
-                break;
-            }
-            syncDocuments();
-            pauseIfNeeded();
-            if (isCanceled()) {
-                break;
-            }
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                LOG.debug("DocumentsSyncProcess interrupted, exiting", e);
-                break;
+        encryptedDocuments.addSyncStateListener(syncStateListener);
+        try {
+            if (network.isConnected()) {
+                updateSyncQueue();
+                syncDocuments();
             }
+        } finally {
+            encryptedDocuments.removeSyncStateListener(syncStateListener);
         }
         cleanupSyncStates();
         if (network.isConnected()) {
@@ -292,8 +427,8 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
      */
     private void cleanupSyncStates() throws DatabaseConnectionClosedException {
         synchronized (this) {
-            currentSyncedDocument = null;
-            restartCurrentDocumentSync = false;
+            restartedDocumentIds.clear();
+            displayedDocumentId = -1;
         }
         cleanupSyncState(SyncAction.Deletion);
         cleanupSyncState(SyncAction.Upload);
@@ -331,63 +466,521 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
     private void cleanupSyncState(SyncAction syncAction) throws DatabaseConnectionClosedException {
-        List<EncryptedDocument> documentsList =
-                encryptedDocuments.encryptedDocumentsWithSyncState(syncAction, State.Running);
-        for (EncryptedDocument encryptedDocument : documentsList) {
-            encryptedDocument.updateSyncState(syncAction, State.Planned);
+        EncryptedDocumentCursor cursor =
+                encryptedDocuments.encryptedDocumentsCursorWithSyncState(syncAction, State.Running);
+        while (cursor.hasNext()) {
+            cursor.next().updateSyncState(syncAction, State.Planned);
         }
     }
 
     /**
      * Processes all the documents in the synchronization queue.
      *
+     * <p>The documents are processed by a pool of workers, which runs up to the configured number of
+     * transfers at the same time, for all accounts and for each account. A document is not started
+     * while its parent is queued or running, unless its deletion is planned, and a document is not
+     * started while one of its children is running, so that the parents are still created before
+     * their children and deleted after them.
+     *
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
     private void syncDocuments() throws DatabaseConnectionClosedException {
+        final int numWorkers;
         synchronized (this) {
             numDocumentsSynced = 0;
+            databaseConnectionClosedException = null;
+            numWorkers = maxTransfers;
             if (null != progressListener) {
                 progressListener.onProgress(0, numDocumentsSynced);
-                progressListener.onSetMax(0, numDocumentsSynced + syncQueue.size());
+                progressListener.onSetMax(0, numDocumentsSynced + numRemainingDocuments());
             }
         }
-        while (network.isConnected() && !syncQueue.isEmpty()) {
-            pauseIfNeeded();
-            if (isCanceled()) {
-                break;
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
+        try {
+            while (network.isConnected()) {
+                pauseIfNeeded();
+                if (isCanceled()) {
+                    break;
+                }
+                final EncryptedDocument encryptedDocument = nextDocumentToSync();
+                if (null == encryptedDocument) {
+                    break;
+                }
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        syncRunningDocument(encryptedDocument);
+                    }
+                });
             }
-            synchronized(this) {
-                if (!restartCurrentDocumentSync) {
-                    currentSyncedDocument = syncQueue.poll();
+            synchronized (this) {
+                while (!runningDocuments.isEmpty()) {
+                    wait();
                 }
-                restartCurrentDocumentSync = false;
             }
-            if (null!=currentSyncedDocument) {
-                syncAccountsHistory.add(currentSyncedDocument.getBackStorageAccount().getId());
-                syncDocument(currentSyncedDocument);
-                synchronized (this) {
-                    numDocumentsSynced++;
-                    if (null != progressListener) {
-                        progressListener.onProgress(0, numDocumentsSynced);
-                        progressListener.onSetMax(0, numDocumentsSynced + syncQueue.size());
+        } catch (InterruptedException e) {
+            LOG.debug("DocumentsSyncProcess interrupted, canceling", e);
+            cancel();
+        } finally {
+            executor.shutdown();
+            synchronized (this) {
+                // put back the documents which were not started in the queue, in their order
+                for (EncryptedDocument encryptedDocument : readyDocuments) {
+                    syncQueue.offer(encryptedDocument);
+                }
+                readyDocuments.clear();
+                for (Queue<EncryptedDocument> waitingDocuments : documentsWaitingForDocument.values()) {
+                    for (EncryptedDocument encryptedDocument : waitingDocuments) {
+                        syncQueue.offer(encryptedDocument);
+                    }
+                }
+                documentsWaitingForDocument.clear();
+                for (Queue<EncryptedDocument> waitingDocuments : documentsWaitingForAccount.values()) {
+                    for (EncryptedDocument encryptedDocument : waitingDocuments) {
+                        syncQueue.offer(encryptedDocument);
+                    }
+                }
+                documentsWaitingForAccount.clear();
+                waitingDocumentIds.clear();
+                // the planned and failed documents left are recovered by the next run
+                plannedDocumentIds.clear();
+                scheduledRetries.clear();
+            }
+        }
+        synchronized (this) {
+            if (null != databaseConnectionClosedException) {
+                throw databaseConnectionClosedException;
+            }
+        }
+    }
+
+    /**
+     * Waits until a document can be started, marks it as running and returns it.
+     *
+     * <p>The documents released by the previously finished ones are started first, in the order
+     * they were queued, then the documents of the synchronization queue. The documents which cannot
+     * be started yet are put aside until the document or the account they wait for is released.
+     *
+     * <p>While waiting, the documents which synchronization was planned in the meantime are added
+     * to the synchronization queue, and so are the documents which retry time has come. The wait is
+     * interrupted when this process is canceled, and never lasts more than
+     * {@link Constants.STORAGE#CLOUD_SYNC_STATE_CHECK_DELAY_MS}, so that a network loss is noticed.
+     *
+     * @return the next document to synchronize, or null if there are no more documents to
+     *         synchronize or if this process was canceled
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private EncryptedDocument nextDocumentToSync()
+            throws InterruptedException, DatabaseConnectionClosedException {
+        while (true) {
+            // the planned documents are read from the database without holding the monitor
+            List<EncryptedDocument> plannedDocuments = plannedDocuments();
+            synchronized (this) {
+                enqueuePlannedDocuments(plannedDocuments);
+                while (plannedDocumentIds.isEmpty()) {
+                    if (isCanceled() || null != databaseConnectionClosedException || !network.isConnected()) {
+                        return null;
+                    }
+                    long nextRetryDelay = enqueueScheduledRetries();
+                    if (runningDocuments.size() < maxTransfers) {
+                        EncryptedDocument encryptedDocument = readyDocuments.poll();
+                        if (null == encryptedDocument) {
+                            encryptedDocument = syncQueue.poll();
+                        }
+                        if (null != encryptedDocument) {
+                            if (!waitingDocumentIds.contains(encryptedDocument.getId())
+                                    && !putAsideIfBlocked(encryptedDocument)) {
+                                startRunning(encryptedDocument);
+                                return encryptedDocument;
+                            }
+                            continue;
+                        }
+                        if (runningDocuments.isEmpty() && nextRetryDelay < 0) {
+                            return null;
+                        }
+                    }
+                    if (nextRetryDelay > 0) {
+                        wait(Math.min(nextRetryDelay, Constants.STORAGE.CLOUD_SYNC_STATE_CHECK_DELAY_MS));
+                    } else {
+                        wait(Constants.STORAGE.CLOUD_SYNC_STATE_CHECK_DELAY_MS);
                     }
                 }
             }
-            synchronized(this) {
-                if (!restartCurrentDocumentSync) {
-                    currentSyncedDocument = null;
+        }
+    }
+
+    /**
+     * Returns the documents which synchronization was planned since the last call, and which are
+     * not already in the synchronization queue.
+     *
+     * <p>The documents are read from the database without holding the monitor of this process, so
+     * that the workers are not blocked by the database queries.
+     *
+     * @return the documents which synchronization was planned since the last call
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private List<EncryptedDocument> plannedDocuments() throws DatabaseConnectionClosedException {
+        List<Long> documentIds;
+        synchronized (this) {
+            if (plannedDocumentIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            documentIds = new ArrayList<>();
+            for (long documentId : plannedDocumentIds) {
+                if (!syncQueue.contains(documentId) && !waitingDocumentIds.contains(documentId)) {
+                    documentIds.add(documentId);
                 }
             }
+            plannedDocumentIds.clear();
+        }
+        List<EncryptedDocument> plannedDocuments = new ArrayList<>();
+        for (long documentId : documentIds) {
+            EncryptedDocument encryptedDocument = encryptedDocuments.encryptedDocumentWithId(documentId);
+            if (null != encryptedDocument) {
+                plannedDocuments.add(encryptedDocument);
+            }
+        }
+        return plannedDocuments;
+    }
+
+    /**
+     * Adds the given {@code plannedDocuments} to the synchronization queue, unless they were queued
+     * in the meantime.
+     *
+     * <p>This method must be called while holding the monitor of this process.
+     *
+     * @param plannedDocuments the documents which synchronization was planned
+     */
+    private void enqueuePlannedDocuments(List<EncryptedDocument> plannedDocuments) {
+        if (plannedDocuments.isEmpty()) {
+            return;
+        }
+        for (EncryptedDocument encryptedDocument : plannedDocuments) {
+            long documentId = encryptedDocument.getId();
+            if (!syncQueue.contains(documentId) && !waitingDocumentIds.contains(documentId)) {
+                syncQueue.offer(encryptedDocument);
+            }
+        }
+        if (null != progressListener) {
+            progressListener.onSetMax(0, numDocumentsSynced + numRemainingDocuments());
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        // wake up the threads waiting for a document, so that they notice the cancelation
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Adds the documents which retry time has come to the synchronization queue.
+     *
+     * @return the delay before the next scheduled retry in ms, or -1 if there is no more scheduled
+     *         retry
+     */
+    private long enqueueScheduledRetries() {
+        long now = System.currentTimeMillis();
+        EncryptedDocument encryptedDocument = scheduledRetries.pollDue(now);
+        while (null != encryptedDocument) {
+            syncQueue.offer(encryptedDocument);
+            encryptedDocument = scheduledRetries.pollDue(now);
+        }
+        return scheduledRetries.delayBeforeNext(now);
+    }
+
+    /**
+     * Returns the delay after which the synchronization of the given {@code encryptedDocument}
+     * should be retried, if one of its synchronization actions is still planned or failed.
+     *
+     * <p>The delay doubles with each retry of the same document, up to
+     * {@link Constants.STORAGE#CLOUD_SYNC_MAX_RETRY_DELAY_MS}.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} which synchronization was attempted
+     * @return the delay after which the synchronization should be retried in ms, or -1 if it should
+     *         not be retried
+     * @throws DatabaseConnectionClosedException if the database connection is closed
+     */
+    private long retryDelay(EncryptedDocument encryptedDocument) throws DatabaseConnectionClosedException {
+        if (isCanceled() || encryptedDocument.hasTooManyFailures() || encryptedDocument.hasTooManyRequests()) {
+            return -1;
+        }
+        boolean retry = false;
+        for (SyncAction syncAction : new SyncAction[] { SyncAction.Deletion, SyncAction.Upload, SyncAction.Download }) {
+            switch (encryptedDocument.getSyncState(syncAction)) {
+                case Planned:
+                case Failed:
+                    if (network.isNetworkReadyForSyncAction(syncAction)) {
+                        retry = true;
+                    }
+                    break;
+            }
+        }
+        if (!retry) {
+            return -1;
+        }
+        return scheduledRetries.retryDelay(encryptedDocument.getId());
+    }
+
+    /**
+     * Checks whether the given {@code encryptedDocument} can be started now, and if it cannot, puts
+     * it aside until the document or the account it waits for is released.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} to check
+     * @return true if the given {@code encryptedDocument} was put aside
+     */
+    private boolean putAsideIfBlocked(EncryptedDocument encryptedDocument) {
+        long documentId = encryptedDocument.getId();
+        if (runningDocuments.containsKey(documentId)) {
+            // the document was queued again while it was running
+            waitForDocument(documentId, encryptedDocument);
+            return true;
+        }
+        if (isDeletionPlanned(encryptedDocument)) {
+            if (runningChildrenPerParent.containsKey(documentId)) {
+                for (EncryptedDocument runningDocument : runningDocuments.values()) {
+                    if (runningDocument.getParentId() == documentId) {
+                        waitForDocument(runningDocument.getId(), encryptedDocument);
+                        return true;
+                    }
+                }
+            }
+        } else if (!encryptedDocument.isRoot()) {
+            long parentId = encryptedDocument.getParentId();
+            if (runningDocuments.containsKey(parentId) || waitingDocumentIds.contains(parentId)
+                    || syncQueue.contains(parentId)) {
+                waitForDocument(parentId, encryptedDocument);
+                return true;
+            }
+        }
+        long accountId = accountId(encryptedDocument);
+        Integer numRunningForAccount = runningDocumentsPerAccount.get(accountId);
+        if (null != numRunningForAccount && numRunningForAccount >= maxTransfersPerAccount) {
+            Queue<EncryptedDocument> waitingDocuments = documentsWaitingForAccount.get(accountId);
+            if (null == waitingDocuments) {
+                waitingDocuments = new LinkedList<>();
+                documentsWaitingForAccount.put(accountId, waitingDocuments);
+            }
+            waitingDocuments.offer(encryptedDocument);
+            waitingDocumentIds.add(documentId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Puts the given {@code encryptedDocument} aside until the document with the given
+     * {@code documentId} is released.
+     *
+     * @param documentId        the id of the document to wait for
+     * @param encryptedDocument the {@code EncryptedDocument} to put aside
+     */
+    private void waitForDocument(long documentId, EncryptedDocument encryptedDocument) {
+        Queue<EncryptedDocument> waitingDocuments = documentsWaitingForDocument.get(documentId);
+        if (null == waitingDocuments) {
+            waitingDocuments = new LinkedList<>();
+            documentsWaitingForDocument.put(documentId, waitingDocuments);
+        }
+        waitingDocuments.offer(encryptedDocument);
+        waitingDocumentIds.add(encryptedDocument.getId());
+    }
+
+    /**
+     * Releases the documents waiting for the given {@code encryptedDocument}, or for its account,
+     * so that they are checked again before the documents of the synchronization queue.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} which is not running anymore
+     */
+    private void releaseWaitingDocuments(EncryptedDocument encryptedDocument) {
+        Queue<EncryptedDocument> waitingDocuments = documentsWaitingForDocument.remove(encryptedDocument.getId());
+        if (null != waitingDocuments) {
+            for (EncryptedDocument waitingDocument : waitingDocuments) {
+                waitingDocumentIds.remove(waitingDocument.getId());
+                readyDocuments.offer(waitingDocument);
+            }
+        }
+        waitingDocuments = documentsWaitingForAccount.get(accountId(encryptedDocument));
+        if (null != waitingDocuments) {
+            EncryptedDocument waitingDocument = waitingDocuments.poll();
+            if (null != waitingDocument) {
+                waitingDocumentIds.remove(waitingDocument.getId());
+                readyDocuments.offer(waitingDocument);
+            }
+            if (waitingDocuments.isEmpty()) {
+                documentsWaitingForAccount.remove(accountId(encryptedDocument));
+            }
+        }
+    }
+
+    /**
+     * Marks the given {@code encryptedDocument} as running.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} which is started
+     */
+    private void startRunning(EncryptedDocument encryptedDocument) {
+        long accountId = accountId(encryptedDocument);
+        runningDocuments.put(encryptedDocument.getId(), encryptedDocument);
+        increment(runningDocumentsPerAccount, accountId);
+        increment(runningChildrenPerParent, encryptedDocument.getParentId());
+        syncAccountsHistory.add(accountId);
+    }
+
+    /**
+     * Marks the given {@code encryptedDocument} as not running anymore, releases the documents
+     * waiting for it, and schedules its retry if needed.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} which is finished
+     * @param retryDelay        the delay after which the synchronization of the given
+     *                          {@code encryptedDocument} should be retried in ms, or -1 if it should
+     *                          not be retried
+     */
+    private synchronized void stopRunning(EncryptedDocument encryptedDocument, long retryDelay) {
+        if (retryDelay < 0) {
+            scheduledRetries.forget(encryptedDocument.getId());
+        } else {
+            scheduledRetries.schedule(encryptedDocument, System.currentTimeMillis() + retryDelay);
+        }
+        runningDocuments.remove(encryptedDocument.getId());
+        restartedDocumentIds.remove(encryptedDocument.getId());
+        decrement(runningDocumentsPerAccount, accountId(encryptedDocument));
+        decrement(runningChildrenPerParent, encryptedDocument.getParentId());
+        releaseWaitingDocuments(encryptedDocument);
+        numDocumentsSynced++;
+        if (null != progressListener) {
+            progressListener.onProgress(0, numDocumentsSynced);
+            progressListener.onSetMax(0, numDocumentsSynced + numRemainingDocuments());
+        }
+        notifyAll();
+    }
+
+    /**
+     * Synchronizes the given running {@code encryptedDocument}, in a worker thread, restarting its
+     * synchronization as long as it is asked to.
+     *
+     * @param encryptedDocument the running {@code EncryptedDocument} to synchronize
+     */
+    private void syncRunningDocument(EncryptedDocument encryptedDocument) {
+        long retryDelay = -1;
+        try {
+            boolean restart;
+            do {
+                syncDocument(encryptedDocument);
+                synchronized (this) {
+                    restart = restartedDocumentIds.remove(encryptedDocument.getId());
+                }
+            } while (restart && !isCanceled());
+            retryDelay = retryDelay(encryptedDocument);
+        } catch (DatabaseConnectionClosedException e) {
+            synchronized (this) {
+                databaseConnectionClosedException = e;
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Error while synchronizing document {}", encryptedDocument.getDisplayName(), e);
+        } finally {
+            stopRunning(encryptedDocument, retryDelay);
+        }
+    }
+
+    /**
+     * Returns the id of the account where the given {@code encryptedDocument} is stored.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument}
+     * @return the id of the account where the given {@code encryptedDocument} is stored, or -1 if
+     *         the document has no account
+     */
+    private static long accountId(EncryptedDocument encryptedDocument) {
+        Account account = encryptedDocument.getBackStorageAccount();
+        if (null == account) {
+            return -1;
+        }
+        return account.getId();
+    }
+
+    /**
+     * Returns whether the deletion of the given {@code encryptedDocument} is planned.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} to check
+     * @return true if the deletion of the given {@code encryptedDocument} is planned
+     */
+    private static boolean isDeletionPlanned(EncryptedDocument encryptedDocument) {
+        switch (encryptedDocument.getSyncState(SyncAction.Deletion)) {
+            case Planned:
+            case Failed:
+                return true;
+        }
+        return false;
+    }
+
+    private static void increment(Map<Long, Integer> counters, long key) {
+        Integer count = counters.get(key);
+        counters.put(key, null == count ? 1 : count + 1);
+    }
+
+    private static void decrement(Map<Long, Integer> counters, long key) {
+        Integer count = counters.get(key);
+        if (null != count) {
+            if (count <= 1) {
+                counters.remove(key);
+            } else {
+                counters.put(key, count - 1);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the progress of the given {@code encryptedDocument} is the one displayed by the
+     * {@code ProgressListener}, which shows the last started document.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} to check
+     * @return true if the progress of the given {@code encryptedDocument} is displayed
+     */
+    private boolean isDisplayed(EncryptedDocument encryptedDocument) {
+        return null != progressListener && displayedDocumentId == encryptedDocument.getId();
+    }
+
+    /**
+     * Reports the progress of the given {@code encryptedDocument} to the {@code ProgressListener},
+     * if it is the displayed one.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} which progress is reported
+     * @param progress          the current progress
+     */
+    private void onDocumentProgress(EncryptedDocument encryptedDocument, int progress) {
+        synchronized (listenersLock) {
+            if (isDisplayed(encryptedDocument)) {
+                progressListener.onProgress(1, progress);
+            }
+        }
+    }
+
+    /**
+     * Reports the progress maximum of the given {@code encryptedDocument} to the
+     * {@code ProgressListener}, if it is the displayed one.
+     *
+     * @param encryptedDocument the {@code EncryptedDocument} which progress is reported
+     * @param max               the progress maximum
+     */
+    private void onDocumentSetMax(EncryptedDocument encryptedDocument, int max) {
+        synchronized (listenersLock) {
+            if (isDisplayed(encryptedDocument)) {
+                progressListener.onSetMax(1, max);
+            }
         }
     }
 
     /**
      * Processes the given {@code encryptedDocument}.
      *
+     * <p>This method is called from the worker threads, for a document which is marked as running.
+     *
      * @param encryptedDocument the {@code EncryptedDocument} to process
+     * @return true if a synchronization action was performed successfully
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
-    private boolean syncDocument(EncryptedDocument encryptedDocument)
+    protected boolean syncDocument(EncryptedDocument encryptedDocument)
             throws DatabaseConnectionClosedException {
         encryptedDocument.refresh();
 
@@ -489,8 +1082,12 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
 
         if (network.isNetworkReadyForSyncAction(syncAction)) {
             if (null!=progressListener) {
-                progressListener.onMessage(0, syncAction.name());
-                progressListener.onMessage(1, encryptedDocument.failSafeLogicalPath());
+                // the displayed document and its messages are changed together
+                synchronized (listenersLock) {
+                    displayedDocumentId = encryptedDocument.getId();
+                    progressListener.onMessage(0, syncAction.name());
+                    progressListener.onMessage(1, encryptedDocument.failSafeLogicalPath());
+                }
             }
             if (null!= syncActionListener) {
                 syncActionListener.onSyncActionStart(syncAction, encryptedDocument);
@@ -541,14 +1138,10 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
                 encryptedDocument.tryToRecoverBackEntryId();
             } catch (NotFoundException e) {
                 LOG.info("Remote element does not exist, delete the local copy only");
-                if (null!=progressListener) {
-                    progressListener.onSetMax(1, 1);
-                    progressListener.onProgress(1, 0);
-                }
+                onDocumentSetMax(encryptedDocument, 1);
+                onDocumentProgress(encryptedDocument, 0);
                 encryptedDocument.deleteLocal();
-                if (null!=progressListener) {
-                    progressListener.onProgress(1, 1);
-                }
+                onDocumentProgress(encryptedDocument, 1);
                 return true;
             } catch (NetworkException | StorageCryptException e) {
                 LOG.error("Failed to recover remote id", e);
@@ -564,10 +1157,8 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
         }
 
         LOG.trace("Deleting remote file : {}", encryptedDocument.getDisplayName());
-        if (null!=progressListener) {
-            progressListener.onSetMax(1, 1);
-            progressListener.onProgress(1, 0);
-        }
+        onDocumentSetMax(encryptedDocument, 1);
+        onDocumentProgress(encryptedDocument, 0);
         encryptedDocument.updateSyncState(SyncAction.Deletion, State.Running);
         if (null != syncActionListener) {
             syncActionListener.onDocumentChanged(encryptedDocument);
@@ -578,9 +1169,7 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
             } catch (NotFoundException e) {
                 LOG.info("Document not found, consider it already deleted", e);
             }
-            if (null != progressListener) {
-                progressListener.onProgress(1, 1);
-            }
+            onDocumentProgress(encryptedDocument, 1);
             return true;
         } catch (NetworkException | StorageCryptException e) {
             LOG.error("Error while deleting remote file", e);
@@ -596,7 +1185,7 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
      * @return true if the remote document was successfully downloaded
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
-    private boolean downloadDocument(EncryptedDocument encryptedDocument)
+    private boolean downloadDocument(final EncryptedDocument encryptedDocument)
             throws DatabaseConnectionClosedException {
         LOG.trace("Downloading document {}", encryptedDocument.getDisplayName());
         EncryptedDocument parentEncryptedDocument = encryptedDocuments.encryptedDocumentWithId(encryptedDocument.getParentId());
@@ -621,10 +1210,8 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
         }
 
         LOG.trace("Downloading remote file : {}", encryptedDocument.getDisplayName());
-        if (null!=progressListener) {
-            progressListener.onSetMax(1, (int) encryptedDocument.getSize());
-            progressListener.onProgress(1, 0);
-        }
+        onDocumentSetMax(encryptedDocument, (int) encryptedDocument.getSize());
+        onDocumentProgress(encryptedDocument, 0);
 
         encryptedDocument.updateSyncState(SyncAction.Download, State.Running);
         if (null != syncActionListener) {
@@ -640,25 +1227,21 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
                 encryptedDocument.download(new ProcessProgressAdapter() {
                     @Override
                     public void onProgress(int i, int progress) {
-                        if (null != progressListener) {
-                            if (0 == i) {
-                                progressListener.onProgress(1, progress);
-                            }
+                        if (0 == i) {
+                            onDocumentProgress(encryptedDocument, progress);
                         }
                     }
 
                     @Override
                     public void onSetMax(int i, int max) {
-                        if (null != progressListener) {
-                            if (0 == i) {
-                                progressListener.onSetMax(1, max);
-                            }
+                        if (0 == i) {
+                            onDocumentSetMax(encryptedDocument, max);
                         }
                     }
 
                     @Override
                     public boolean isCanceled() {
-                        return restartCurrentDocumentSync || DocumentsSyncProcess.this.isCanceled();
+                        return isRestarted(encryptedDocument.getId()) || DocumentsSyncProcess.this.isCanceled();
                     }
 
                     @Override
@@ -666,9 +1249,7 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
                         DocumentsSyncProcess.this.pauseIfNeeded();
                     }
                 });
-                if (null != progressListener) {
-                    progressListener.onProgress(1, (int) encryptedDocument.getSize());
-                }
+                onDocumentProgress(encryptedDocument, (int) encryptedDocument.getSize());
                 encryptedDocument.updateSyncState(SyncAction.Download, State.Done);
                 return true;
             } catch (UserCanceledException | NotFoundException | NetworkException | StorageCryptException e) {
@@ -686,7 +1267,7 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
      * @return true if the remote document was successfully uploaded
      * @throws DatabaseConnectionClosedException if the database connection is closed
      */
-    private boolean uploadDocument(EncryptedDocument encryptedDocument)
+    private boolean uploadDocument(final EncryptedDocument encryptedDocument)
             throws DatabaseConnectionClosedException {
         LOG.trace("Uploading document {}", encryptedDocument.getDisplayName());
         EncryptedDocument parentEncryptedDocument = encryptedDocument.parent();
@@ -695,10 +1276,8 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
         }
 
         LOG.trace("Uploading remote file : {}", encryptedDocument.getDisplayName());
-        if (null!=progressListener) {
-            progressListener.onSetMax(1, (int) encryptedDocument.getSize());
-            progressListener.onProgress(1, 0);
-        }
+        onDocumentSetMax(encryptedDocument, (int) encryptedDocument.getSize());
+        onDocumentProgress(encryptedDocument, 0);
 
         State previousState = encryptedDocument.getSyncState(SyncAction.Upload);
 
@@ -710,25 +1289,21 @@ public class DocumentsSyncProcess extends AbstractProcess<DocumentsSyncProcess.R
             ProcessProgressListener uploadProgressListener = new ProcessProgressAdapter() {
                 @Override
                 public void onProgress(int i, int progress) {
-                    if (null != progressListener) {
-                        if (0 == i) {
-                            progressListener.onProgress(1, progress);
-                        }
+                    if (0 == i) {
+                        onDocumentProgress(encryptedDocument, progress);
                     }
                 }
 
                 @Override
                 public void onSetMax(int i, int max) {
-                    if (null != progressListener) {
-                        if (0 == i) {
-                            progressListener.onSetMax(1, max);
-                        }
+                    if (0 == i) {
+                        onDocumentSetMax(encryptedDocument, max);
                     }
                 }
 
                 @Override
                 public boolean isCanceled() {
-                    return restartCurrentDocumentSync || DocumentsSyncProcess.this.isCanceled();
+                    return isRestarted(encryptedDocument.getId()) || DocumentsSyncProcess.this.isCanceled();
                 }
 
                 @Override
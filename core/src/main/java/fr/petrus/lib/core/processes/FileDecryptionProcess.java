@@ -43,8 +43,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import fr.petrus.lib.core.StorageCryptException;
 import fr.petrus.lib.core.crypto.Crypto;
@@ -123,8 +122,8 @@ public class FileDecryptionProcess extends AbstractProcess<FileDecryptionProcess
             throws DatabaseConnectionClosedException, StorageCryptException {
         start();
         if (null!= srcEncryptedDocument && null!=dstFilePath) {
-            InputStream srcFileInputStream = null;
-            OutputStream dstFileOutputStream = null;
+            FileChannel srcFileChannel = null;
+            FileChannel dstFileChannel = null;
 
             try {
                 File dstFile = new File(dstFilePath);
@@ -137,14 +136,14 @@ public class FileDecryptionProcess extends AbstractProcess<FileDecryptionProcess
                 File srcFile;
                 try {
                     srcFile = srcEncryptedDocument.file();
-                    srcFileInputStream = new FileInputStream(srcFile);
+                    srcFileChannel = new FileInputStream(srcFile).getChannel();
                 } catch (IOException e) {
                     throw new StorageCryptException("Error while opening source file : " + srcEncryptedDocument.getDisplayName(),
                             StorageCryptException.Reason.SourceFileOpenError, e);
                 }
 
                 try {
-                    dstFileOutputStream = new FileOutputStream(dstFile);
+                    dstFileChannel = new FileOutputStream(dstFile).getChannel();
                 } catch (IOException e) {
                     throw new StorageCryptException("Error while opening destination file : " + dstFilePath,
                             StorageCryptException.Reason.DestinationFileOpenError, e);
@@ -153,7 +152,8 @@ public class FileDecryptionProcess extends AbstractProcess<FileDecryptionProcess
                 try {
                     EncryptedDataStream encryptedDataStream = new EncryptedDataStream(crypto,
                             keyManager.getKeys(srcEncryptedDocument.getKeyAlias()));
-                    encryptedDataStream.decrypt(srcFileInputStream, dstFileOutputStream, new ProcessProgressAdapter() {
+                    encryptedDataStream.setWorkerThreads(Runtime.getRuntime().availableProcessors());
+                    encryptedDataStream.decrypt(srcFileChannel, dstFileChannel, new ProcessProgressAdapter() {
                         @Override
                         public void onProgress(int i, int progress) {
                             if (null != progressListener) {
@@ -188,16 +188,16 @@ public class FileDecryptionProcess extends AbstractProcess<FileDecryptionProcess
                             StorageCryptException.Reason.DecryptionError, e);
                 }
             } finally {
-                if (null != srcFileInputStream) {
+                if (null != srcFileChannel) {
                     try {
-                        srcFileInputStream.close();
+                        srcFileChannel.close();
                     } catch (IOException e) {
                         LOG.error("Error when closing source input stream", e);
                     }
                 }
-                if (null != dstFileOutputStream) {
+                if (null != dstFileChannel) {
                     try {
-                        dstFileOutputStream.close();
+                        dstFileChannel.close();
                     } catch (IOException e) {
                         LOG.error("Error when closing destination output stream", e);
                     }
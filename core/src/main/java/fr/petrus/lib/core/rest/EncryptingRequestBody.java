@@ -0,0 +1,166 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.rest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataStream;
+import fr.petrus.lib.core.result.ProcessProgressListener;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * This class extends Retrofit2 {@link RequestBody}, encrypting a clear file while it is uploaded.
+ *
+ * <p>The encrypted data is written to the request as it is produced, and optionally to a local
+ * cache file at the same time, so that the clear file is read only once and the encrypted data is
+ * never read back from the disk.
+ *
+ * <p>The file is encrypted again each time the body is written, so that the request can be retried.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptingRequestBody extends RequestBody {
+    private String mimeType;
+    private EncryptedDataStream encryptedDataStream;
+    private File srcFile;
+    private File cacheFile;
+    private ProcessProgressListener listener;
+
+    /**
+     * Creates a new {@code EncryptingRequestBody} instance.
+     *
+     * @param mimeType            the mime type of the encrypted data
+     * @param encryptedDataStream the stream used to encrypt the data
+     * @param srcFile             the clear file to encrypt and upload
+     * @param cacheFile           the file where the encrypted data is also written, or null
+     * @param listener            the listener to report the upload progress to
+     */
+    public EncryptingRequestBody(String mimeType, EncryptedDataStream encryptedDataStream, File srcFile,
+                                 File cacheFile, ProcessProgressListener listener) {
+        this.mimeType = mimeType;
+        this.encryptedDataStream = encryptedDataStream;
+        this.srcFile = srcFile;
+        this.cacheFile = cacheFile;
+        this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return MediaType.parse(mimeType);
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        try {
+            return encryptedDataStream.encryptedLength(srcFile.length());
+        } catch (CryptoException e) {
+            throw new IOException("Failed to compute the encrypted data length", e);
+        }
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (null!=listener) {
+            listener.onSetMax(0, (int) srcFile.length());
+            if (listener.isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            listener.pauseIfNeeded();
+        }
+
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(srcFile),
+                     Constants.FILE.BUFFER_SIZE);
+             OutputStream cacheOutputStream = null == cacheFile ? null :
+                     new BufferedOutputStream(new FileOutputStream(cacheFile), Constants.FILE.BUFFER_SIZE)) {
+            OutputStream outputStream = sink.outputStream();
+            if (null != cacheOutputStream) {
+                outputStream = new TeeOutputStream(outputStream, cacheOutputStream);
+            }
+            encryptedDataStream.encrypt(inputStream, outputStream, listener);
+            outputStream.flush();
+        } catch (CryptoException e) {
+            throw new IOException("Failed to encrypt data", e);
+        }
+
+        if (null!=listener && listener.isCanceled()) {
+            throw new IOException("Canceled");
+        }
+    }
+
+    /**
+     * An {@code OutputStream} which writes the same data to two output streams, without closing them.
+     */
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+    }
+}
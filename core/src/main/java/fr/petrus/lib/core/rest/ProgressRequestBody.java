@@ -55,6 +55,8 @@ import okio.BufferedSink;
 public class ProgressRequestBody extends RequestBody {
     private String mimeType;
     private File file;
+    private long offset;
+    private long length;
     private ProcessProgressListener listener;
 
     private static final int DEFAULT_BUFFER_SIZE = 2048;
@@ -67,8 +69,27 @@ public class ProgressRequestBody extends RequestBody {
      * @param listener the listener to report the upload progress to
      */
     public ProgressRequestBody(String mimeType, File file, ProcessProgressListener listener) {
+        this(mimeType, file, 0L, -1L, listener);
+    }
+
+    /**
+     * Creates a new {@code ProgressRequestBody} instance, which uploads {@code length} bytes of
+     * the given {@code file}, starting at the given {@code offset}.
+     *
+     * <p>The progress is reported relatively to the whole file.
+     *
+     * @param mimeType the mime type in the data to upload
+     * @param file     the file to upload
+     * @param offset   the offset of the first byte to upload
+     * @param length   the number of bytes to upload, or -1 to upload the file up to its end
+     * @param listener the listener to report the upload progress to
+     */
+    public ProgressRequestBody(String mimeType, File file, long offset, long length,
+                               ProcessProgressListener listener) {
         this.mimeType = mimeType;
         this.file = file;
+        this.offset = offset;
+        this.length = length;
         this.listener = listener;
     }
 
@@ -77,11 +98,17 @@ public class ProgressRequestBody extends RequestBody {
         return MediaType.parse(mimeType);
     }
 
+    @Override
+    public long contentLength() throws IOException {
+        return length;
+    }
+
     @Override
     public void writeTo(BufferedSink sink) throws IOException {
         long fileLength = file.length();
         byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        long uploaded = 0;
+        long uploaded = offset;
+        long remaining = length < 0 ? Long.MAX_VALUE : length;
         long uploadedSinceLastProgressUpdate = 0;
 
         if (null!=listener) {
@@ -93,8 +120,12 @@ public class ProgressRequestBody extends RequestBody {
         }
 
         try (FileInputStream in = new FileInputStream(file)) {
+            if (offset > 0) {
+                in.getChannel().position(offset);
+            }
             int read;
-            while ((read = in.read(buffer)) != -1) {
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                remaining -= read;
                 uploaded += read;
                 if (null!=listener) {
                     uploadedSinceLastProgressUpdate += read;
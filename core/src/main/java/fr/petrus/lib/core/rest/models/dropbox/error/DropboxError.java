@@ -57,6 +57,7 @@ public class DropboxError extends PrintableJson {
         public String not_file;
         public String not_folder;
         public String restricted_content;
+        public Long correct_offset;
 
         public Error() {
             tag = null;
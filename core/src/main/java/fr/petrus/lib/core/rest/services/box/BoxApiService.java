@@ -111,5 +111,6 @@ public interface BoxApiService {
 
     @Streaming
     @GET("2.0/files/{id}/content")
-    Call<ResponseBody> downloadFile(@Header("Authorization") String authHeader, @Path("id") String id);
+    Call<ResponseBody> downloadFile(@Header("Authorization") String authHeader, @Path("id") String id,
+                                    @Header("Range") String range);
 }
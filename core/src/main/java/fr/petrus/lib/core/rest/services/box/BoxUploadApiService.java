@@ -37,11 +37,18 @@
 package fr.petrus.lib.core.rest.services.box;
 
 import fr.petrus.lib.core.rest.models.box.BoxItems;
+import fr.petrus.lib.core.rest.models.box.BoxUploadParts;
+import fr.petrus.lib.core.rest.models.box.BoxUploadSession;
+import fr.petrus.lib.core.rest.models.box.BoxUploadedPart;
+import fr.petrus.lib.core.rest.models.box.CommitUploadSessionArg;
+import fr.petrus.lib.core.rest.models.box.NewUploadSessionArg;
 import okhttp3.RequestBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
+import retrofit2.http.GET;
 import retrofit2.http.Header;
 import retrofit2.http.POST;
+import retrofit2.http.PUT;
 import retrofit2.http.Path;
 
 /**
@@ -61,4 +68,24 @@ public interface BoxUploadApiService {
 
     @POST("api/2.0/files/{id}/content")
     Call<BoxItems> uploadFile(@Header("Authorization") String authHeader, @Path("id") String id, @Body RequestBody body);
+
+    @POST("api/2.0/files/upload_sessions")
+    Call<BoxUploadSession> startNewFileUploadSession(@Header("Authorization") String authHeader,
+                                                     @Body NewUploadSessionArg body);
+
+    @POST("api/2.0/files/{id}/upload_sessions")
+    Call<BoxUploadSession> startFileUploadSession(@Header("Authorization") String authHeader,
+                                                  @Path("id") String id, @Body NewUploadSessionArg body);
+
+    @PUT("api/2.0/files/upload_sessions/{id}")
+    Call<BoxUploadedPart> uploadPart(@Header("Authorization") String authHeader, @Path("id") String id,
+                                     @Header("Digest") String digest, @Header("Content-Range") String contentRange,
+                                     @Body RequestBody body);
+
+    @GET("api/2.0/files/upload_sessions/{id}/parts?limit=1000")
+    Call<BoxUploadParts> getUploadedParts(@Header("Authorization") String authHeader, @Path("id") String id);
+
+    @POST("api/2.0/files/upload_sessions/{id}/commit")
+    Call<BoxItems> commitUploadSession(@Header("Authorization") String authHeader, @Path("id") String id,
+                                       @Header("Digest") String digest, @Body CommitUploadSessionArg body);
 }
@@ -46,6 +46,10 @@ import retrofit2.Call;
 import fr.petrus.lib.core.rest.models.dropbox.DropboxFileMetadata;
 import fr.petrus.lib.core.rest.models.dropbox.PathArg;
 import fr.petrus.lib.core.rest.models.dropbox.UploadCommitArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionAppendArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionFinishArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionStartArg;
+import fr.petrus.lib.core.rest.models.dropbox.UploadSessionStartResult;
 import retrofit2.http.Streaming;
 
 /**
@@ -62,8 +66,24 @@ public interface DropboxContentApiService {
                                          @Header("Dropbox-API-Arg") UploadCommitArg arg,
                                          @Body RequestBody body);
 
+    @POST("2/files/upload_session/start")
+    Call<UploadSessionStartResult> startUploadSession(@Header("Authorization") String authHeader,
+                                                      @Header("Dropbox-API-Arg") UploadSessionStartArg arg,
+                                                      @Body RequestBody body);
+
+    @POST("2/files/upload_session/append_v2")
+    Call<ResponseBody> appendUploadSession(@Header("Authorization") String authHeader,
+                                           @Header("Dropbox-API-Arg") UploadSessionAppendArg arg,
+                                           @Body RequestBody body);
+
+    @POST("2/files/upload_session/finish")
+    Call<DropboxFileMetadata> finishUploadSession(@Header("Authorization") String authHeader,
+                                                  @Header("Dropbox-API-Arg") UploadSessionFinishArg arg,
+                                                  @Body RequestBody body);
+
     @Streaming
     @POST("2/files/download")
     Call<ResponseBody> downloadFile(@Header("Authorization") String authHeader,
-                                    @Header("Dropbox-API-Arg") PathArg arg);
+                                    @Header("Dropbox-API-Arg") PathArg arg,
+                                    @Header("Range") String range);
 }
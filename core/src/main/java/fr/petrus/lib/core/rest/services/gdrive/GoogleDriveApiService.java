@@ -52,6 +52,7 @@ import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.QueryMap;
 import retrofit2.http.Streaming;
+import retrofit2.http.Url;
 
 import fr.petrus.lib.core.rest.models.OauthTokenResponse;
 import fr.petrus.lib.core.rest.models.gdrive.GoogleDriveAbout;
@@ -104,7 +105,23 @@ public interface GoogleDriveApiService {
     @PUT("upload/drive/v2/files/{id}?uploadType=media")
     Call<GoogleDriveItem> uploadFile(@Header("Authorization") String authHeader, @Path("id") String id, @Body RequestBody body);
 
+    @POST("upload/drive/v2/files?uploadType=resumable")
+    Call<ResponseBody> startNewFileUploadSession(@Header("Authorization") String authHeader,
+                                                 @Header("X-Upload-Content-Type") String contentType,
+                                                 @Header("X-Upload-Content-Length") long contentLength,
+                                                 @Body NewItemArg body);
+
+    @PUT("upload/drive/v2/files/{id}?uploadType=resumable")
+    Call<ResponseBody> startFileUploadSession(@Header("Authorization") String authHeader, @Path("id") String id,
+                                              @Header("X-Upload-Content-Type") String contentType,
+                                              @Header("X-Upload-Content-Length") long contentLength);
+
+    @PUT
+    Call<GoogleDriveItem> uploadSessionChunk(@Url String sessionUrl, @Header("Authorization") String authHeader,
+                                             @Header("Content-Range") String contentRange, @Body RequestBody body);
+
     @Streaming
     @GET("drive/v2/files/{id}?alt=media")
-    Call<ResponseBody> downloadItem(@Header("Authorization") String authHeader, @Path("id") String id);
+    Call<ResponseBody> downloadItem(@Header("Authorization") String authHeader, @Path("id") String id,
+                                    @Header("Range") String range);
 }
@@ -106,9 +106,19 @@ public interface OpenStackApiService {
                                       @Path("container") String container,
                                       @Path(value="path", encoded=true) String path, @Body RequestBody file);
 
+    @PUT("v1/{account}/{container}/{path}?multipart-manifest=put")
+    Call<ResponseBody> uploadManifest(@Header("X-Auth-Token") String authHeader, @Path("account") String account,
+                                      @Path("container") String container,
+                                      @Path(value="path", encoded=true) String path, @Body RequestBody manifest);
+
+    @PUT("v1/{account}/{container}")
+    Call<ResponseBody> createContainer(@Header("X-Auth-Token") String authHeader,
+                                       @Path("account") String account, @Path("container") String container);
+
 
     @Streaming
     @GET("v1/{account}/{container}/{path}")
     Call<ResponseBody> downloadDocument(@Header("X-Auth-Token") String authHeader, @Path("account") String account,
-                                        @Path("container") String container, @Path(value="path", encoded=true) String path);
+                                        @Path("container") String container, @Path(value="path", encoded=true) String path,
+                                        @Header("Range") String range);
 }
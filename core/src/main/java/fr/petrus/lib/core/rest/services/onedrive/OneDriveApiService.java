@@ -55,7 +55,10 @@ import fr.petrus.lib.core.rest.models.onedrive.OneDriveItem;
 import fr.petrus.lib.core.rest.models.onedrive.OneDriveItems;
 import fr.petrus.lib.core.rest.models.onedrive.NewFolderArg;
 import fr.petrus.lib.core.rest.models.onedrive.OneDriveRoot;
+import fr.petrus.lib.core.rest.models.onedrive.OneDriveUploadSession;
+import fr.petrus.lib.core.rest.models.onedrive.UploadSessionArg;
 import retrofit2.http.Streaming;
+import retrofit2.http.Url;
 
 /**
  * This interface is used to call the OneDrive API.
@@ -153,13 +156,28 @@ public interface OneDriveApiService {
                                       @Path(value="name", encoded=true) String name,
                                       @Body RequestBody body);
 
+    @POST("v1.0/drive/items/{id}:/{name}:/upload.createSession")
+    Call<OneDriveUploadSession> createUploadSession(@Header("Authorization") String authHeader,
+                                                    @Path(value="id", encoded=true) String id,
+                                                    @Path(value="name", encoded=true) String name,
+                                                    @Body UploadSessionArg body);
+
+    @GET
+    Call<OneDriveUploadSession> getUploadSession(@Url String uploadUrl);
+
+    @PUT
+    Call<ResponseBody> uploadSessionChunk(@Url String uploadUrl, @Header("Content-Range") String contentRange,
+                                          @Body RequestBody body);
+
     @Streaming
     @GET("v1.0/drive/root:{path}/content")
     Call<ResponseBody> downloadDocumentByPath(@Header("Authorization") String authHeader,
-                                              @Path(value="path", encoded=true) String path);
+                                              @Path(value="path", encoded=true) String path,
+                                              @Header("Range") String range);
 
     @Streaming
     @GET("v1.0/drive/items/{id}/content")
     Call<ResponseBody> downloadDocumentById(@Header("Authorization") String authHeader,
-                                            @Path(value="id", encoded=true) String id);
+                                            @Path(value="id", encoded=true) String id,
+                                            @Header("Range") String range);
 }
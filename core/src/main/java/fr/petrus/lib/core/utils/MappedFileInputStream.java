@@ -0,0 +1,157 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An {@code InputStream} which reads a file by mapping it into memory.
+ *
+ * <p>The file is mapped by windows of a fixed size, so that a large file does not need to fit
+ * in the address space of the process. Reading from this stream only copies data from the
+ * mapped memory, without any system call until the next window is mapped.
+ *
+ * <p>The underlying {@code FileChannel} is closed when this stream is closed.
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class MappedFileInputStream extends InputStream {
+
+    private FileChannel fileChannel;
+    private long windowSize;
+    private long fileSize;
+    private long windowPosition;
+    private MappedByteBuffer window;
+
+    /**
+     * Creates a new {@code MappedFileInputStream} reading the given {@code fileChannel}, from its
+     * current position, by windows of the given size.
+     *
+     * @param fileChannel the channel of the file to read
+     * @param windowSize  the size of the mapped windows
+     * @throws IOException if the size or the position of the file cannot be read
+     */
+    public MappedFileInputStream(FileChannel fileChannel, long windowSize) throws IOException {
+        this.fileChannel = fileChannel;
+        this.windowSize = windowSize;
+        fileSize = fileChannel.size();
+        windowPosition = fileChannel.position();
+        window = null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextWindowIfNeeded()) {
+            return -1;
+        }
+        return window.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (0 == length) {
+            return 0;
+        }
+        if (!nextWindowIfNeeded()) {
+            return -1;
+        }
+        int bytesRead = Math.min(length, window.remaining());
+        window.get(buffer, offset, bytesRead);
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && nextWindowIfNeeded()) {
+            int step = (int) Math.min(n - skipped, window.remaining());
+            window.position(window.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        long remaining = fileSize - position();
+        return remaining > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) remaining;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        fileChannel.close();
+    }
+
+    /**
+     * Returns the position of the next byte to read in the file.
+     *
+     * @return the position of the next byte to read in the file
+     */
+    private long position() {
+        if (null == window) {
+            return windowPosition;
+        }
+        return windowPosition + window.position();
+    }
+
+    /**
+     * Maps the next window of the file if the current one was completely read.
+     *
+     * @return true if there is some data left to read, false if the end of the file was reached
+     * @throws IOException if the next window cannot be mapped
+     */
+    private boolean nextWindowIfNeeded() throws IOException {
+        if (null != window && window.hasRemaining()) {
+            return true;
+        }
+        if (null != window) {
+            windowPosition += window.capacity();
+            window = null;
+        }
+        if (windowPosition >= fileSize) {
+            return false;
+        }
+        window = fileChannel.map(FileChannel.MapMode.READ_ONLY, windowPosition,
+                Math.min(windowSize, fileSize - windowPosition));
+        return true;
+    }
+}
@@ -65,9 +65,27 @@ public class NumberConv {
      * @return the integer
      */
     public static int byteArrayToInt(byte[] b, int offset) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(4);
-        byteBuffer.put(b, offset, 4);
-        return byteBuffer.getInt(0);
+        return ((b[offset] & 0xff) << 24)
+                | ((b[offset + 1] & 0xff) << 16)
+                | ((b[offset + 2] & 0xff) << 8)
+                | (b[offset + 3] & 0xff);
+    }
+
+    /**
+     * Takes an integer value and writes it into the 4 bytes of the given array located at the given
+     * {@code offset}, without allocating a new array.
+     *
+     * @param i      the integer to convert
+     * @param b      the byte array to write to
+     * @param offset the offset where to write the integer
+     * @return the offset just after the written integer
+     */
+    public static int intToByteArray(int i, byte[] b, int offset) {
+        b[offset] = (byte) (i >>> 24);
+        b[offset + 1] = (byte) (i >>> 16);
+        b[offset + 2] = (byte) (i >>> 8);
+        b[offset + 3] = (byte) i;
+        return offset + 4;
     }
 
     /**
@@ -90,8 +108,21 @@ public class NumberConv {
      * @return the short integer
      */
     public static short byteArrayToShort(byte[] b, int offset) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(2);
-        byteBuffer.put(b, offset, 2);
-        return byteBuffer.getShort(0);
+        return (short) (((b[offset] & 0xff) << 8) | (b[offset + 1] & 0xff));
+    }
+
+    /**
+     * Takes a short integer value and writes it into the 2 bytes of the given array located at
+     * the given {@code offset}, without allocating a new array.
+     *
+     * @param i      the short integer to convert
+     * @param b      the byte array to write to
+     * @param offset the offset where to write the short integer
+     * @return the offset just after the written short integer
+     */
+    public static int shortToByteArray(short i, byte[] b, int offset) {
+        b[offset] = (byte) (i >>> 8);
+        b[offset + 1] = (byte) i;
+        return offset + 2;
     }
 }
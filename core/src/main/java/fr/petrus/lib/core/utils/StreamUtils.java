@@ -169,6 +169,31 @@ public class StreamUtils {
         return byteArrayOutputStream.toByteArray();
     }
 
+    /**
+     * Reads exactly {@code length} bytes of data from the given {@code inputStream} into the given
+     * {@code buffer}, starting at {@code offset}, unless the end of the stream is reached before.
+     *
+     * @param inputStream the {@code InputStream} to read the data from
+     * @param buffer      the buffer to read the data into
+     * @param offset      the offset in the {@code buffer} where to write the data
+     * @param length      the number of bytes to read
+     * @return the number of bytes read, which is smaller than {@code length} only if the end of
+     *         the stream was reached
+     * @throws IOException if an error occurs when reading data
+     */
+    public static int readFully(InputStream inputStream, byte[] buffer, int offset, int length)
+            throws IOException {
+        int totalLength = 0;
+        while (totalLength < length) {
+            int bytesRead = inputStream.read(buffer, offset + totalLength, length - totalLength);
+            if (-1 == bytesRead) {
+                break;
+            }
+            totalLength += bytesRead;
+        }
+        return totalLength;
+    }
+
     /**
      * Writes the given {@code data} to the given {@code outputStream}, using a buffer which size is
      * {@code bufferSize}, reporting the progress and being controlled by the given {@code listener}.
@@ -182,10 +207,33 @@ public class StreamUtils {
      */
     public static boolean write(OutputStream outputStream, byte[] data, int bufferSize, ProcessProgressListener listener)
             throws IOException {
+        if (null==data) {
+            return false;
+        }
+        return write(outputStream, data, 0, data.length, bufferSize, listener);
+    }
+
+    /**
+     * Writes {@code length} bytes of the given {@code data}, starting at {@code dataOffset}, to the
+     * given {@code outputStream}, using a buffer which size is {@code bufferSize}, reporting the
+     * progress and being controlled by the given {@code listener}.
+     *
+     * @param outputStream the {@code OutputStream} to write the data to
+     * @param data         the array containing the data to write
+     * @param dataOffset   the offset of the data to write
+     * @param length       the number of bytes to write
+     * @param bufferSize   the buffer size
+     * @param listener     the listener to report and control the progress
+     * @return true if all the given {@code data} was written
+     * @throws IOException if an error occurs when reading data
+     */
+    public static boolean write(OutputStream outputStream, byte[] data, int dataOffset, int length,
+                                int bufferSize, ProcessProgressListener listener)
+            throws IOException {
         if (null==outputStream || null==data || bufferSize<1) {
             return false;
         }
-        for(int offset=0; offset<data.length; offset+=bufferSize) {
+        for(int offset=0; offset<length; offset+=bufferSize) {
             if (null!=listener) {
                 listener.onProgress(0, offset);
                 listener.pauseIfNeeded();
@@ -193,9 +241,9 @@ public class StreamUtils {
                     return false;
                 }
             }
-            int remaining = data.length - offset;
+            int remaining = length - offset;
             int bytesToWrite = bufferSize<remaining?bufferSize:remaining;
-            outputStream.write(data, offset, bytesToWrite);
+            outputStream.write(data, dataOffset + offset, bytesToWrite);
         }
         outputStream.flush();
         return true;
@@ -0,0 +1,115 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.test;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.EncryptedDocumentMetadata;
+import fr.petrus.lib.core.db.DocumentCreationBatch;
+import fr.petrus.lib.core.db.H2Database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the ancestor paths of the documents of a deep hierarchy, on a new database
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class AncestorPathTest {
+
+    private static final int DEPTH = 200;
+
+    @Rule
+    public TestDatabase testDatabase = new TestDatabase();
+
+    private EncryptedDocument newChild(EncryptedDocument parent, int level) {
+        EncryptedDocumentMetadata metadata = new EncryptedDocumentMetadata(null, null);
+        metadata.setMetadata("application/octet-stream", "level " + level, "key");
+        return parent.newChild(metadata, new File(testDatabase.getFolder(), "level" + level));
+    }
+
+    @Test
+    public void deepHierarchyAddedOneByOne() throws Exception {
+        H2Database database = testDatabase.getDatabase();
+        testDatabase.insertRootDocuments(1);
+        EncryptedDocument root = database.getEncryptedDocumentById(1);
+
+        EncryptedDocument parent = root;
+        StringBuilder expectedAncestorPath = new StringBuilder("/");
+        for (int level = 1; level <= DEPTH; level++) {
+            expectedAncestorPath.append(parent.getId()).append('/');
+            EncryptedDocument child = newChild(parent, level);
+            database.addEncryptedDocument(child);
+            EncryptedDocument written = database.getEncryptedDocumentById(child.getId());
+            assertNotNull(written);
+            assertEquals(expectedAncestorPath.toString(), written.getAncestorPath());
+            parent = written;
+        }
+        assertTrue(parent.getAncestorPath().length() > 255);
+
+        List<EncryptedDocument> descendants = database.getEncryptedDocumentDescendants(root, true);
+        assertEquals(DEPTH, descendants.size());
+        assertEquals(parent.getId(), descendants.get(DEPTH - 1).getId());
+    }
+
+    @Test
+    public void deepHierarchyAddedInBatches() throws Exception {
+        H2Database database = testDatabase.getDatabase();
+        testDatabase.insertRootDocuments(1);
+
+        EncryptedDocument parent = database.getEncryptedDocumentById(1);
+        for (int level = 1; level <= DEPTH; level++) {
+            DocumentCreationBatch documentCreationBatch = new DocumentCreationBatch();
+            EncryptedDocument child = newChild(parent, level);
+            documentCreationBatch.add(child);
+            database.executeDocumentCreationBatch(documentCreationBatch);
+            parent = child;
+        }
+        EncryptedDocument deepest = database.getEncryptedDocumentById(parent.getId());
+        assertNotNull(deepest);
+        assertEquals(parent.getAncestorPath(), deepest.getAncestorPath());
+        assertTrue(deepest.getAncestorPath().length() > 255);
+    }
+}
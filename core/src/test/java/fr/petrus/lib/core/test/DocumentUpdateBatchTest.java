@@ -0,0 +1,139 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.test;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.State;
+import fr.petrus.lib.core.SyncAction;
+import fr.petrus.lib.core.db.DocumentUpdateBatch;
+import fr.petrus.lib.core.db.H2Database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the DocumentUpdateBatch execution
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DocumentUpdateBatchTest {
+
+    @Rule
+    public TestDatabase testDatabase = new TestDatabase();
+
+    private H2Database database;
+
+    @Before
+    public void insertDocuments() throws Exception {
+        database = testDatabase.getDatabase();
+        testDatabase.insertRootDocuments(2);
+    }
+
+    @Test
+    public void changesOfTheSameDocumentMerged() {
+        DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+        assertTrue(documentUpdateBatch.isEmpty());
+        documentUpdateBatch.updateBackEntryVersion(1, 1)
+                .updateSyncState(1, SyncAction.Upload, State.Running)
+                .updateBackEntryVersion(1, 2)
+                .updateSyncState(1, SyncAction.Upload, State.Done);
+        assertEquals(1, documentUpdateBatch.size());
+        documentUpdateBatch.updateBackEntryVersion(2, 1);
+        assertEquals(2, documentUpdateBatch.size());
+    }
+
+    @Test
+    public void executionWritesAllChangesThenClearsTheBatch() throws Exception {
+        DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+        documentUpdateBatch.updateBackEntryVersion(1, 1)
+                .updateBackEntryVersion(1, 5)
+                .updateSyncState(1, SyncAction.Upload, State.Done)
+                .updateSyncFailures(1, 0, -1)
+                .updateBackEntryId(2, "remote-2")
+                .updateRemoteModificationTime(2, 1476800000000L);
+        database.executeDocumentUpdateBatch(documentUpdateBatch);
+        assertTrue(documentUpdateBatch.isEmpty());
+
+        EncryptedDocument first = database.getEncryptedDocumentById(1);
+        assertEquals(5, first.getBackEntryVersion());
+        assertEquals(State.Done, first.getSyncState(SyncAction.Upload));
+        assertEquals(0, first.getBackEntryNumSyncFailures());
+        assertNull(first.getBackEntryId());
+
+        EncryptedDocument second = database.getEncryptedDocumentById(2);
+        assertEquals("remote-2", second.getBackEntryId());
+        assertEquals(1476800000000L, second.getRemoteModificationTime());
+    }
+
+    @Test
+    public void failedExecutionWritesNothingAndKeepsTheBatch() throws Exception {
+        char[] tooLong = new char[1024];
+        Arrays.fill(tooLong, 'x');
+        DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+        documentUpdateBatch.updateBackEntryVersion(1, 5)
+                .updateBackEntryId(2, new String(tooLong));
+        try {
+            database.executeDocumentUpdateBatch(documentUpdateBatch);
+            fail("The execution of a batch with a too long back entry id should fail");
+        } catch (SQLException e) {
+            // expected
+        }
+        assertFalse(documentUpdateBatch.isEmpty());
+        assertEquals(2, documentUpdateBatch.size());
+
+        assertEquals(0, database.getEncryptedDocumentById(1).getBackEntryVersion());
+        assertNull(database.getEncryptedDocumentById(2).getBackEntryId());
+
+        /* the batch can be executed again once the failing change is replaced */
+        documentUpdateBatch.updateBackEntryId(2, "remote-2");
+        database.executeDocumentUpdateBatch(documentUpdateBatch);
+        assertTrue(documentUpdateBatch.isEmpty());
+        assertEquals(5, database.getEncryptedDocumentById(1).getBackEntryVersion());
+        assertEquals("remote-2", database.getEncryptedDocumentById(2).getBackEntryId());
+    }
+}
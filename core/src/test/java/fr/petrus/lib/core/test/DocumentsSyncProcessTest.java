@@ -0,0 +1,386 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.test;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.EncryptedDocuments;
+import fr.petrus.lib.core.State;
+import fr.petrus.lib.core.SyncAction;
+import fr.petrus.lib.core.cloud.Account;
+import fr.petrus.lib.core.cloud.Accounts;
+import fr.petrus.lib.core.db.EncryptedDocumentCursor;
+import fr.petrus.lib.core.db.H2Database;
+import fr.petrus.lib.core.db.SyncStateListener;
+import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+import fr.petrus.lib.core.network.Network;
+import fr.petrus.lib.core.processes.DocumentsSyncProcess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the dispatch of the documents to the workers of the DocumentsSyncProcess : the transfer
+ * limits, the dispatch order and the wakeup on the sync state changes
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DocumentsSyncProcessTest {
+
+    @Rule
+    public TestDatabase testDatabase = new TestDatabase();
+
+    private H2Database database;
+    private EncryptedDocuments encryptedDocuments;
+    private List<String> events;
+    private Map<Long, Integer> runningPerAccount;
+    private Map<Long, Integer> maxRunningPerAccount;
+    private int running;
+    private int maxRunning;
+
+    /**
+     * The transfer performed by the process for each document, instead of the remote operations.
+     */
+    private interface Transfer {
+        void transfer(EncryptedDocument encryptedDocument) throws Exception;
+    }
+
+    @Before
+    public void createDependencies() throws Exception {
+        database = testDatabase.getDatabase();
+        testDatabase.insertAccount(1);
+        testDatabase.insertAccount(2);
+        events = Collections.synchronizedList(new ArrayList<String>());
+        runningPerAccount = new HashMap<>();
+        maxRunningPerAccount = new HashMap<>();
+        running = 0;
+        maxRunning = 0;
+
+        /* the documents are read from the test database, without the platform dependencies */
+        encryptedDocuments = new EncryptedDocuments() {
+            @Override
+            public EncryptedDocument encryptedDocumentWithId(long id) throws DatabaseConnectionClosedException {
+                EncryptedDocument encryptedDocument = database.getEncryptedDocumentById(id);
+                if (null != encryptedDocument) {
+                    encryptedDocument.setDependencies(null, null, null, null, database);
+                }
+                return encryptedDocument;
+            }
+
+            @Override
+            public EncryptedDocumentCursor encryptedDocumentsCursorWithSyncState(final SyncAction syncAction,
+                                                                                 final State state) {
+                return new EncryptedDocumentCursor(new EncryptedDocumentCursor.PageQuery() {
+                    @Override
+                    public List<EncryptedDocument> query(long afterId, int limit)
+                            throws DatabaseConnectionClosedException {
+                        List<EncryptedDocument> page =
+                                database.getEncryptedDocumentsBySyncState(syncAction, state, afterId, limit);
+                        for (EncryptedDocument encryptedDocument : page) {
+                            encryptedDocument.setDependencies(null, null, null, null, database);
+                        }
+                        return page;
+                    }
+                }, 100);
+            }
+
+            @Override
+            public void addSyncStateListener(SyncStateListener syncStateListener) {
+                database.addSyncStateListener(syncStateListener);
+            }
+
+            @Override
+            public void removeSyncStateListener(SyncStateListener syncStateListener) {
+                database.removeSyncStateListener(syncStateListener);
+            }
+        };
+    }
+
+    private DocumentsSyncProcess syncProcess(final Transfer transfer) {
+        Network network = new Network() {
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+
+            @Override
+            public boolean isNetworkReadyForSyncAction(SyncAction syncAction) {
+                return true;
+            }
+        };
+        /* no account quota to refresh */
+        Accounts accounts = new Accounts() {
+            @Override
+            public Account accountWithId(long id) {
+                return null;
+            }
+        };
+        return new DocumentsSyncProcess(null, network, accounts, encryptedDocuments) {
+            @Override
+            protected boolean syncDocument(EncryptedDocument encryptedDocument)
+                    throws DatabaseConnectionClosedException {
+                long accountId = encryptedDocument.getBackStorageAccount().getId();
+                started(accountId);
+                events.add("start " + encryptedDocument.getId());
+                try {
+                    transfer.transfer(encryptedDocument);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    events.add("end " + encryptedDocument.getId());
+                    stopped(accountId);
+                }
+                for (SyncAction syncAction : SyncAction.values()) {
+                    encryptedDocument.updateSyncState(syncAction, State.Done);
+                }
+                return true;
+            }
+        };
+    }
+
+    private synchronized void started(long accountId) {
+        running++;
+        maxRunning = Math.max(maxRunning, running);
+        Integer runningForAccount = runningPerAccount.get(accountId);
+        runningForAccount = null == runningForAccount ? 1 : runningForAccount + 1;
+        runningPerAccount.put(accountId, runningForAccount);
+        Integer maxRunningForAccount = maxRunningPerAccount.get(accountId);
+        if (null == maxRunningForAccount || maxRunningForAccount < runningForAccount) {
+            maxRunningPerAccount.put(accountId, runningForAccount);
+        }
+    }
+
+    private synchronized void stopped(long accountId) {
+        running--;
+        runningPerAccount.put(accountId, runningPerAccount.get(accountId) - 1);
+    }
+
+    private List<String> startedDocuments() {
+        List<String> startedDocuments = new ArrayList<>();
+        synchronized (events) {
+            for (String event : events) {
+                if (event.startsWith("start ")) {
+                    startedDocuments.add(event.substring("start ".length()));
+                }
+            }
+        }
+        return startedDocuments;
+    }
+
+    private List<String> startedIn(List<String> documentIds) {
+        List<String> startedDocuments = new ArrayList<>();
+        for (String documentId : startedDocuments()) {
+            if (documentIds.contains(documentId)) {
+                startedDocuments.add(documentId);
+            }
+        }
+        return startedDocuments;
+    }
+
+    @Test
+    public void transfersLimitedPerAccount() throws Exception {
+        testDatabase.insertDocument(1, -1, 1, true, null);
+        testDatabase.insertDocument(2, -1, 2, true, null);
+        for (long id = 3; id <= 6; id++) {
+            testDatabase.insertDocument(id, 1, 1, false, SyncAction.Upload);
+        }
+        testDatabase.insertDocument(7, 2, 2, false, SyncAction.Upload);
+        testDatabase.insertDocument(8, 2, 2, false, SyncAction.Upload);
+
+        /* the first two documents of each account wait for each other, so that they run together */
+        final Map<Long, CountDownLatch> runTogether = new HashMap<>();
+        runTogether.put(1L, new CountDownLatch(2));
+        runTogether.put(2L, new CountDownLatch(2));
+        DocumentsSyncProcess documentsSyncProcess = syncProcess(new Transfer() {
+            @Override
+            public void transfer(EncryptedDocument encryptedDocument) throws Exception {
+                CountDownLatch latch = runTogether.get(encryptedDocument.getBackStorageAccount().getId());
+                latch.countDown();
+                latch.await(5, TimeUnit.SECONDS);
+                Thread.sleep(20);
+            }
+        });
+        documentsSyncProcess.setMaxTransfers(4, 2);
+        documentsSyncProcess.run();
+
+        assertEquals(6, startedDocuments().size());
+        assertEquals(2, (int) maxRunningPerAccount.get(1L));
+        assertEquals(2, (int) maxRunningPerAccount.get(2L));
+        assertTrue(maxRunning <= 4);
+        assertEquals(0, database.getEncryptedDocumentsBySyncState(SyncAction.Upload, State.Planned).size());
+    }
+
+    @Test
+    public void documentsOfAnAccountStartedInQueueOrder() throws Exception {
+        testDatabase.insertDocument(1, -1, 1, true, null);
+        testDatabase.insertDocument(2, -1, 2, true, null);
+        for (long id = 3; id <= 6; id++) {
+            testDatabase.insertDocument(id, 1, 1, false, SyncAction.Upload);
+        }
+        testDatabase.insertDocument(7, 2, 2, false, SyncAction.Upload);
+        testDatabase.insertDocument(8, 2, 2, false, SyncAction.Upload);
+
+        /* the first documents of the two accounts wait for each other, so that they run together */
+        final CountDownLatch runTogether = new CountDownLatch(2);
+        DocumentsSyncProcess documentsSyncProcess = syncProcess(new Transfer() {
+            @Override
+            public void transfer(EncryptedDocument encryptedDocument) throws Exception {
+                runTogether.countDown();
+                runTogether.await(5, TimeUnit.SECONDS);
+            }
+        });
+        documentsSyncProcess.setMaxTransfers(4, 1);
+        documentsSyncProcess.run();
+
+        assertEquals(Arrays.asList("3", "4", "5", "6"), startedIn(Arrays.asList("3", "4", "5", "6")));
+        assertEquals(Arrays.asList("7", "8"), startedIn(Arrays.asList("7", "8")));
+        assertEquals(1, (int) maxRunningPerAccount.get(1L));
+        assertEquals(1, (int) maxRunningPerAccount.get(2L));
+        assertEquals(2, maxRunning);
+    }
+
+    @Test
+    public void globalTransfersLimit() throws Exception {
+        testDatabase.insertDocument(1, -1, 1, true, null);
+        testDatabase.insertDocument(2, -1, 2, true, null);
+        for (long id = 3; id <= 8; id++) {
+            testDatabase.insertDocument(id, id % 2 == 1 ? 1 : 2, id % 2 == 1 ? 1 : 2, false, SyncAction.Upload);
+        }
+        DocumentsSyncProcess documentsSyncProcess = syncProcess(new Transfer() {
+            @Override
+            public void transfer(EncryptedDocument encryptedDocument) throws Exception {
+                Thread.sleep(20);
+            }
+        });
+        documentsSyncProcess.setMaxTransfers(3, 3);
+        documentsSyncProcess.run();
+
+        assertEquals(6, startedDocuments().size());
+        assertTrue(maxRunning <= 3);
+    }
+
+    @Test
+    public void childrenStartedAfterTheirParent() throws Exception {
+        testDatabase.insertDocument(1, -1, 1, true, null);
+        testDatabase.insertDocument(2, 1, 1, true, SyncAction.Upload);
+        testDatabase.insertDocument(3, 2, 1, false, SyncAction.Upload);
+        testDatabase.insertDocument(4, 2, 1, false, SyncAction.Upload);
+        DocumentsSyncProcess documentsSyncProcess = syncProcess(new Transfer() {
+            @Override
+            public void transfer(EncryptedDocument encryptedDocument) throws Exception {
+                Thread.sleep(20);
+            }
+        });
+        documentsSyncProcess.setMaxTransfers(4, 4);
+        documentsSyncProcess.run();
+
+        int parentEnd = events.indexOf("end 2");
+        assertTrue(parentEnd >= 0);
+        assertTrue(parentEnd < events.indexOf("start 3"));
+        assertTrue(parentEnd < events.indexOf("start 4"));
+    }
+
+    @Test
+    public void deletionStartedAfterTheRunningChildren() throws Exception {
+        testDatabase.insertDocument(1, -1, 1, true, null);
+        testDatabase.insertDocument(2, 1, 1, true, null);
+        testDatabase.insertDocument(3, 2, 1, false, SyncAction.Upload);
+        final CountDownLatch childStarted = new CountDownLatch(1);
+        DocumentsSyncProcess documentsSyncProcess = syncProcess(new Transfer() {
+            @Override
+            public void transfer(EncryptedDocument encryptedDocument) throws Exception {
+                if (3 == encryptedDocument.getId()) {
+                    childStarted.countDown();
+                    /* the deletion of the parent is planned while its child is running */
+                    database.updateEncryptedDocumentSyncState(2, SyncAction.Deletion, State.Planned);
+                    Thread.sleep(100);
+                }
+            }
+        });
+        documentsSyncProcess.setMaxTransfers(4, 4);
+        documentsSyncProcess.run();
+
+        assertEquals(0, childStarted.getCount());
+        int childEnd = events.indexOf("end 3");
+        assertTrue(childEnd >= 0);
+        assertTrue(childEnd < events.indexOf("start 2"));
+    }
+
+    @Test
+    public void plannedDocumentStartedAsSoonAsItsStateIsWritten() throws Exception {
+        testDatabase.insertDocument(1, -1, 1, true, null);
+        testDatabase.insertDocument(2, 1, 1, false, SyncAction.Upload);
+        testDatabase.insertDocument(3, 1, 1, false, null);
+        final CountDownLatch plannedStarted = new CountDownLatch(1);
+        final long[] startDelay = { -1 };
+        DocumentsSyncProcess documentsSyncProcess = syncProcess(new Transfer() {
+            @Override
+            public void transfer(EncryptedDocument encryptedDocument) throws Exception {
+                if (2 == encryptedDocument.getId()) {
+                    long planningTime = System.currentTimeMillis();
+                    database.updateEncryptedDocumentSyncState(3, SyncAction.Upload, State.Planned);
+                    /* the planned document is started while this one is still running */
+                    if (plannedStarted.await(5, TimeUnit.SECONDS)) {
+                        startDelay[0] = System.currentTimeMillis() - planningTime;
+                    }
+                } else {
+                    plannedStarted.countDown();
+                }
+            }
+        });
+        documentsSyncProcess.setMaxTransfers(4, 4);
+        documentsSyncProcess.run();
+
+        assertEquals(Arrays.asList("2", "3"), startedDocuments());
+        assertTrue(startDelay[0] >= 0);
+        /* the dispatcher is woken up by the state change, not by its periodic network check */
+        assertTrue("started after " + startDelay[0] + " ms", startDelay[0] < 500);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import fr.petrus.lib.core.DocumentHashQueue;
+import fr.petrus.lib.core.DocumentRetryQueue;
+import fr.petrus.lib.core.EncryptedDocument;
+import fr.petrus.lib.core.State;
+import fr.petrus.lib.core.SyncAction;
+import fr.petrus.lib.core.db.DocumentUpdateBatch;
+import fr.petrus.lib.core.db.H2Database;
+import fr.petrus.lib.core.db.SyncStateListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the sync state notifications of the database, the order of the DocumentHashQueue, and the
+ * order and delays of the DocumentRetryQueue
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class DocumentsSyncQueueTest {
+
+    @Rule
+    public TestDatabase testDatabase = new TestDatabase();
+
+    private H2Database database;
+    private List<String> notifications;
+    private SyncStateListener syncStateListener;
+
+    @Before
+    public void registerListener() throws Exception {
+        database = testDatabase.getDatabase();
+        testDatabase.insertRootDocuments(3);
+
+        notifications = Collections.synchronizedList(new ArrayList<String>());
+        syncStateListener = new SyncStateListener() {
+            @Override
+            public void onSyncStateChanged(long id, SyncAction syncAction, State state) {
+                notifications.add(id + ":" + syncAction + ":" + state);
+            }
+        };
+        database.addSyncStateListener(syncStateListener);
+    }
+
+    @After
+    public void unregisterListener() {
+        database.removeSyncStateListener(syncStateListener);
+    }
+
+    @Test
+    public void syncStateUpdateNotifiesListener() throws Exception {
+        database.updateEncryptedDocumentSyncState(1, SyncAction.Upload, State.Planned);
+        assertEquals(Arrays.asList("1:Upload:Planned"), notifications);
+
+        database.removeSyncStateListener(syncStateListener);
+        database.updateEncryptedDocumentSyncState(1, SyncAction.Upload, State.Running);
+        assertEquals(1, notifications.size());
+    }
+
+    @Test
+    public void batchNotifiesSyncStatesOnlyOnceWritten() throws Exception {
+        DocumentUpdateBatch documentUpdateBatch = new DocumentUpdateBatch();
+        documentUpdateBatch.updateSyncState(1, SyncAction.Upload, State.Running)
+                .updateSyncState(1, SyncAction.Upload, State.Planned)
+                .updateBackEntryVersion(2, 3)
+                .updateSyncState(3, SyncAction.Download, State.Failed);
+        assertTrue(notifications.isEmpty());
+
+        database.executeDocumentUpdateBatch(documentUpdateBatch);
+        Collections.sort(notifications);
+        assertEquals(Arrays.asList("1:Upload:Planned", "3:Download:Failed"), notifications);
+    }
+
+    @Test
+    public void hashQueuePollsInOrderWithoutDuplicates() throws Exception {
+        EncryptedDocument first = database.getEncryptedDocumentById(1);
+        EncryptedDocument second = database.getEncryptedDocumentById(2);
+        EncryptedDocument third = database.getEncryptedDocumentById(3);
+
+        DocumentHashQueue syncQueue = new DocumentHashQueue();
+        assertTrue(syncQueue.offer(second));
+        assertTrue(syncQueue.offer(first));
+        assertFalse(syncQueue.offer(database.getEncryptedDocumentById(2)));
+        assertTrue(syncQueue.offer(third));
+        assertEquals(3, syncQueue.size());
+
+        syncQueue.remove(first);
+        assertFalse(syncQueue.contains(1));
+        assertSame(second, syncQueue.poll());
+        assertSame(third, syncQueue.poll());
+        assertNull(syncQueue.poll());
+        assertTrue(syncQueue.isEmpty());
+    }
+
+    @Test
+    public void retriesDispatchedByTimeThenScheduleOrder() throws Exception {
+        EncryptedDocument first = database.getEncryptedDocumentById(1);
+        EncryptedDocument second = database.getEncryptedDocumentById(2);
+        EncryptedDocument third = database.getEncryptedDocumentById(3);
+
+        DocumentRetryQueue retryQueue = new DocumentRetryQueue(1000, 60000);
+        assertEquals(-1, retryQueue.delayBeforeNext(0));
+        retryQueue.schedule(third, 2000);
+        retryQueue.schedule(second, 1000);
+        retryQueue.schedule(first, 1000);
+
+        assertEquals(500, retryQueue.delayBeforeNext(500));
+        assertNull(retryQueue.pollDue(500));
+        assertSame(second, retryQueue.pollDue(1000));
+        assertSame(first, retryQueue.pollDue(1000));
+        assertNull(retryQueue.pollDue(1000));
+        assertEquals(1000, retryQueue.delayBeforeNext(1000));
+        assertSame(third, retryQueue.pollDue(2500));
+        assertTrue(retryQueue.isEmpty());
+        assertEquals(-1, retryQueue.delayBeforeNext(2500));
+    }
+
+    @Test
+    public void retryDelayDoublesUpToMaximum() throws Exception {
+        EncryptedDocument first = database.getEncryptedDocumentById(1);
+        EncryptedDocument second = database.getEncryptedDocumentById(2);
+
+        DocumentRetryQueue retryQueue = new DocumentRetryQueue(1000, 60000);
+        long[] expectedDelays = { 1000, 2000, 4000, 8000, 16000, 32000, 60000, 60000 };
+        for (long expectedDelay : expectedDelays) {
+            assertEquals(expectedDelay, retryQueue.retryDelay(first.getId()));
+            retryQueue.schedule(first, 0);
+        }
+        for (int i = 0; i < 64; i++) {
+            retryQueue.schedule(first, 0);
+        }
+        assertEquals(60000, retryQueue.retryDelay(first.getId()));
+        assertEquals(1000, retryQueue.retryDelay(second.getId()));
+
+        retryQueue.forget(first.getId());
+        assertEquals(1000, retryQueue.retryDelay(first.getId()));
+
+        retryQueue.schedule(second, 0);
+        retryQueue.clear();
+        assertTrue(retryQueue.isEmpty());
+        assertEquals(1000, retryQueue.retryDelay(second.getId()));
+    }
+}
@@ -38,8 +38,11 @@ package fr.petrus.lib.core.test;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import fr.petrus.lib.core.utils.NumberConv;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -61,4 +64,20 @@ public class NumberConvTest {
         assertEquals(NumberConv.byteArrayToShort(NumberConv.shortToByteArray((short)11), 0), (short)11);
         assertEquals(NumberConv.byteArrayToShort(NumberConv.shortToByteArray((short)42), 0), (short)42);
     }
+
+    @Test
+    public void inPlaceIntConversionOK() {
+        byte[] b = new byte[6];
+        assertEquals(NumberConv.intToByteArray(-123456789, b, 1), 5);
+        assertArrayEquals(NumberConv.intToByteArray(-123456789), Arrays.copyOfRange(b, 1, 5));
+        assertEquals(NumberConv.byteArrayToInt(b, 1), -123456789);
+    }
+
+    @Test
+    public void inPlaceShortConversionOK() {
+        byte[] b = new byte[3];
+        assertEquals(NumberConv.shortToByteArray((short)-4242, b, 1), 3);
+        assertArrayEquals(NumberConv.shortToByteArray((short)-4242), Arrays.copyOfRange(b, 1, 3));
+        assertEquals(NumberConv.byteArrayToShort(b, 1), (short)-4242);
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.lib.core.test;
+
+import org.junit.rules.ExternalResource;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.State;
+import fr.petrus.lib.core.StorageType;
+import fr.petrus.lib.core.SyncAction;
+import fr.petrus.lib.core.db.DatabaseConstants;
+import fr.petrus.lib.core.db.H2Database;
+
+/**
+ * A JUnit rule which opens a new {@link H2Database} in a temporary folder before each test, and
+ * closes and deletes it after the test
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class TestDatabase extends ExternalResource {
+
+    private File databaseFolder;
+    private H2Database database;
+
+    @Override
+    protected void before() throws Throwable {
+        databaseFolder = Files.createTempDirectory("storagecrypt-test").toFile();
+        database = new H2Database(databaseFolder.getAbsolutePath(), null);
+        database.open();
+    }
+
+    @Override
+    protected void after() {
+        database.close();
+        File[] files = databaseFolder.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        databaseFolder.delete();
+    }
+
+    /**
+     * Returns the open database.
+     *
+     * @return the open database
+     */
+    public H2Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Returns the temporary folder of the database.
+     *
+     * @return the temporary folder of the database
+     */
+    public File getFolder() {
+        return databaseFolder;
+    }
+
+    /**
+     * Inserts the root documents with ids 1 to {@code count}, stored on Google Drive, directly with
+     * JDBC.
+     *
+     * @param count the number of documents to insert
+     * @throws SQLException if an error occurs when inserting the documents
+     */
+    public void insertRootDocuments(int count) throws SQLException {
+        try (Connection connection = connection();
+             PreparedStatement insert = connection.prepareStatement(String.format(
+                     "insert into %s (%s, %s, %s, %s, %s) values (?, ?, ?, ?, ?)",
+                     DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_TYPE,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ANCESTOR_PATH))) {
+            for (long id = 1; id <= count; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "document " + id);
+                insert.setLong(3, Constants.STORAGE.ROOT_PARENT_ID);
+                insert.setString(4, StorageType.GoogleDrive.name());
+                insert.setString(5, "/");
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Inserts a Google Drive account with the given {@code id}, directly with JDBC.
+     *
+     * @param id the id of the account
+     * @throws SQLException if an error occurs when inserting the account
+     */
+    public void insertAccount(long id) throws SQLException {
+        try (Connection connection = connection();
+             PreparedStatement insert = connection.prepareStatement(String.format(
+                     "insert into %s (%s, %s) values (?, ?)",
+                     DatabaseConstants.ACCOUNTS_TABLE,
+                     DatabaseConstants.ACCOUNT_COLUMN_ID,
+                     DatabaseConstants.ACCOUNT_COLUMN_STORAGE_TYPE))) {
+            insert.setLong(1, id);
+            insert.setString(2, StorageType.GoogleDrive.name());
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserts a document stored in the account with the given {@code accountId}, directly with
+     * JDBC.
+     *
+     * @param id                the id of the document
+     * @param parentId          the id of the parent of the document
+     * @param accountId         the id of the account where the document is stored
+     * @param folder            true if the document is a folder
+     * @param plannedSyncAction the synchronization action which is planned for the document, or
+     *                          null if none is planned
+     * @throws SQLException if an error occurs when inserting the document
+     */
+    public void insertDocument(long id, long parentId, long accountId, boolean folder,
+                               SyncAction plannedSyncAction) throws SQLException {
+        try (Connection connection = connection();
+             PreparedStatement insert = connection.prepareStatement(String.format(
+                     "insert into %s (%s, %s, %s, %s, %s, %s, %s, %s, %s) values (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                     DatabaseConstants.ENCRYPTED_DOCUMENTS_TABLE,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_ID,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_DISPLAY_NAME,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_MIME_TYPE,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_PARENT_ID,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_TYPE,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_STORAGE_ACCOUNT,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DELETION_STATE,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_UPLOAD_STATE,
+                     DatabaseConstants.ENCRYPTED_DOCUMENT_COLUMN_BACK_ENTRY_DOWNLOAD_STATE))) {
+            insert.setLong(1, id);
+            insert.setString(2, "document " + id);
+            insert.setString(3, folder ? Constants.STORAGE.DEFAULT_FOLDER_MIME_TYPE : "application/octet-stream");
+            insert.setLong(4, parentId);
+            insert.setString(5, StorageType.GoogleDrive.name());
+            insert.setLong(6, accountId);
+            int index = 7;
+            for (SyncAction syncAction : new SyncAction[] { SyncAction.Deletion, SyncAction.Upload, SyncAction.Download }) {
+                insert.setString(index++, (syncAction == plannedSyncAction ? State.Planned : State.Done).name());
+            }
+            insert.executeUpdate();
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:file:" + databaseFolder.getAbsolutePath() + "/StorageCrypt");
+    }
+}
@@ -60,6 +60,7 @@ import java.util.List;
 import java.util.Locale;
 
 import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.DocumentSummary;
 import fr.petrus.lib.core.EncryptedDocuments;
 import fr.petrus.lib.core.OrderBy;
 import fr.petrus.lib.core.SyncAction;
@@ -364,6 +365,25 @@ public class StorageCryptProvider extends DocumentsProvider {
         }
     }
 
+    private void includeDocument(MatrixCursor result, DocumentSummary documentSummary) {
+        final MatrixCursor.RowBuilder row = result.newRow();
+
+        int flags = DocumentsContract.Document.FLAG_SUPPORTS_WRITE
+                | DocumentsContract.Document.FLAG_SUPPORTS_DELETE;
+        if (Build.VERSION.SDK_INT >= 21) {
+            flags |= DocumentsContract.Document.FLAG_SUPPORTS_RENAME;
+        }
+        if (documentSummary.isRoot() || documentSummary.isFolder()) {
+            flags |= DocumentsContract.Document.FLAG_DIR_SUPPORTS_CREATE;
+        }
+
+        row.add(DocumentsContract.Document.COLUMN_DOCUMENT_ID, documentSummary.getId());
+        row.add(DocumentsContract.Document.COLUMN_DISPLAY_NAME, documentSummary.getDisplayName());
+        row.add(DocumentsContract.Document.COLUMN_MIME_TYPE, getProviderMimeType(documentSummary.getMimeType()));
+        row.add(DocumentsContract.Document.COLUMN_SIZE, documentSummary.getSize());
+        row.add(DocumentsContract.Document.COLUMN_FLAGS, flags);
+    }
+
     private void includeDocument(MatrixCursor result, String documentId)
             throws DatabaseConnectionClosedException {
         EncryptedDocument encryptedDocument =
@@ -392,11 +412,11 @@ public class StorageCryptProvider extends DocumentsProvider {
         } else {
             EncryptedDocument parent = encryptedDocuments.encryptedDocumentWithId(Long.parseLong(parentDocumentId));
             if (null != parent) {
-                List<EncryptedDocument> documentsList = parent.children(true, OrderBy.NameAsc);
+                List<DocumentSummary> documentsList = parent.childrenSummaries(true, OrderBy.NameAsc);
                 Log.d(TAG, "includeChildDocuments(parentDocumentId=" + parentDocumentId + ")");
-                for (EncryptedDocument encryptedDocument : documentsList) {
-                    Log.d(TAG, "  documentId=" + encryptedDocument.getId() + ", displayName=" + encryptedDocument.getDisplayName());
-                    includeDocument(result, encryptedDocument);
+                for (DocumentSummary documentSummary : documentsList) {
+                    Log.d(TAG, "  documentId=" + documentSummary.getId() + ", displayName=" + documentSummary.getDisplayName());
+                    includeDocument(result, documentSummary);
                 }
             }
         }
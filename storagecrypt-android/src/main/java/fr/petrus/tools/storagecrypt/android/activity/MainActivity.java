@@ -86,6 +86,7 @@ import fr.petrus.lib.core.filesystem.tree.PathTree;
 import fr.petrus.lib.core.platform.AppContext;
 import fr.petrus.lib.core.platform.TaskCreationException;
 import fr.petrus.lib.core.processes.ChangesSyncProcess;
+import fr.petrus.lib.core.processes.DatabaseCompactionProcess;
 import fr.petrus.lib.core.processes.DocumentsDecryptionProcess;
 import fr.petrus.lib.core.processes.DocumentsEncryptionProcess;
 import fr.petrus.lib.core.processes.DocumentsImportProcess;
@@ -398,12 +399,22 @@ public class MainActivity
         appContext.cancelAllTasks(4000);
         fileSystem.removeCacheFiles();
         StorageCryptService.stopService(this);
+        compactDatabase();
         keyManager.lockKeyStore();
         database.close();
         DocumentListChangeEvent.postSticky();
         finish();
     }
 
+    private void compactDatabase() {
+        try {
+            new DatabaseCompactionProcess(database, textI18n)
+                    .compact(Constants.ORMLITE.COMPACTION_EXIT_TIME_BUDGET_MS);
+        } catch (DatabaseConnectionClosedException e) {
+            Log.e(TAG, "Database is closed", e);
+        }
+    }
+
     @Override
     public void showHelp(String anchor) {
         WebViewFragment webViewFragment = new WebViewFragment();
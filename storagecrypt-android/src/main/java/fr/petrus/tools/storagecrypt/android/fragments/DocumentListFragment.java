@@ -1049,9 +1049,14 @@ public class DocumentListFragment extends Fragment {
             syncButton.setText(String.format(Locale.getDefault(), "%d/%d", 0, 0));
             syncButton.setCompoundDrawablesWithIntrinsicBounds(0, 0, R.drawable.ic_download_black_36dp, 0);
         } else {
-            int progress = event.getProgress().getProgress();
-            int max = event.getProgress().getMax();
-            SyncAction currentSyncAction = event.getSyncAction();
+            int progress;
+            int max;
+            SyncAction currentSyncAction;
+            synchronized (event) {
+                progress = event.getProgress().getProgress();
+                max = event.getProgress().getMax();
+                currentSyncAction = event.getSyncAction();
+            }
             syncButton.setText(String.format(Locale.getDefault(), "%d/%d", progress, max));
             if (null == currentSyncAction) {
                 syncButton.setCompoundDrawablesWithIntrinsicBounds(0, 0, R.drawable.ic_download_black_36dp, 0);
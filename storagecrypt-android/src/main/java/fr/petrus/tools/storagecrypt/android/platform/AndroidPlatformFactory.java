@@ -45,6 +45,7 @@ import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.KeyManager;
 import fr.petrus.lib.core.db.Database;
 import fr.petrus.lib.core.db.H2Database;
+import fr.petrus.lib.core.db.H2DatabaseProfile;
 import fr.petrus.lib.core.platform.AppContext;
 import fr.petrus.lib.core.platform.PlatformFactory;
 import fr.petrus.lib.core.filesystem.FileSystem;
@@ -122,7 +123,8 @@ public class AndroidPlatformFactory implements PlatformFactory {
 
     @Override
     public Database database(FileSystem fileSystem, TextI18n textI18n) {
-        return new H2Database(AndroidFileSystem.getInternalStoragePath(context), textI18n);
+        return new H2Database(AndroidFileSystem.getInternalStoragePath(context),
+                H2DatabaseProfile.Mobile, textI18n);
     }
 
     @Override
@@ -119,6 +119,8 @@ public class AndroidTextI18n extends AbstractTextI18n {
                             return context.getString(R.string.error_message_StorageCryptException_GetRemoteFileError);
                         case CreationError:
                             return context.getString(R.string.error_message_StorageCryptException_CreationError);
+                        case UpdateError:
+                            return context.getString(R.string.error_message_StorageCryptException_UpdateError);
                         case DocumentExists:
                             return context.getString(R.string.error_message_StorageCryptException_DocumentExists);
                         case ParentNotFound:
@@ -36,15 +36,14 @@
 
 package fr.petrus.tools.storagecrypt.android.platform.crypto;
 
-import org.spongycastle.crypto.BlockCipher;
 import org.spongycastle.crypto.BufferedBlockCipher;
-import org.spongycastle.crypto.CipherParameters;
 import org.spongycastle.crypto.InvalidCipherTextException;
 import org.spongycastle.crypto.engines.AESFastEngine;
 import org.spongycastle.crypto.modes.CBCBlockCipher;
-import org.spongycastle.crypto.paddings.BlockCipherPadding;
+import org.spongycastle.crypto.modes.GCMBlockCipher;
 import org.spongycastle.crypto.paddings.PKCS7Padding;
 import org.spongycastle.crypto.paddings.PaddedBufferedBlockCipher;
+import org.spongycastle.crypto.params.AEADParameters;
 import org.spongycastle.crypto.params.KeyParameter;
 import org.spongycastle.crypto.params.ParametersWithIV;
 
@@ -55,6 +54,7 @@ import fr.petrus.lib.core.Constants;
 import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.CryptoException;
 import fr.petrus.lib.core.crypto.EncryptedDataChunk;
+import fr.petrus.lib.core.crypto.KeyedContextCache;
 import fr.petrus.lib.core.crypto.keystore.KeyStore;
 import fr.petrus.lib.core.crypto.mac.Mac;
 
@@ -67,12 +67,55 @@ import fr.petrus.lib.core.crypto.mac.Mac;
  * @since 08.10.2016
  */
 public class AndroidBCLightWeightApiCrypto extends AndroidAbstractCrypto {
-    private final BlockCipher blockCipher = new AESFastEngine();
+
+    /**
+     * The encryption ([0]) and decryption ([1]) ciphers of each thread, for each key.
+     *
+     * <p>The ciphers are initialized once with their key, then only reinitialized with a new
+     * initialization vector, which keeps the AES key schedule.
+     */
+    private final KeyedContextCache<BufferedBlockCipher[]> ciphers =
+            new KeyedContextCache<BufferedBlockCipher[]>(Constants.CRYPTO.CONTEXT_CACHE_MAX_KEYS) {
+                @Override
+                protected BufferedBlockCipher[] create(SecretKey key) {
+                    KeyParameter keyParam = new KeyParameter(key.getEncoded());
+                    byte[] iv = new byte[Constants.CRYPTO.AES_BLOCK_SIZE];
+                    BufferedBlockCipher encryptionCipher = newCipher();
+                    encryptionCipher.init(true, new ParametersWithIV(keyParam, iv));
+                    BufferedBlockCipher decryptionCipher = newCipher();
+                    decryptionCipher.init(false, new ParametersWithIV(keyParam, iv));
+                    return new BufferedBlockCipher[] { encryptionCipher, decryptionCipher };
+                }
+            };
+
+    /**
+     * The authenticated encryption cipher of each thread, for each key.
+     *
+     * <p>The ciphers are initialized once with their key, then only reinitialized with a new nonce,
+     * which keeps the AES key schedule and the GHASH tables.
+     */
+    private final KeyedContextCache<GCMBlockCipher> aeadCiphers =
+            new KeyedContextCache<GCMBlockCipher>(Constants.CRYPTO.CONTEXT_CACHE_MAX_KEYS) {
+                @Override
+                protected GCMBlockCipher create(SecretKey key) {
+                    GCMBlockCipher cipher = new GCMBlockCipher(new AESFastEngine());
+                    cipher.init(false, new AEADParameters(new KeyParameter(key.getEncoded()),
+                            8 * Constants.CRYPTO.AEAD_TAG_SIZE, new byte[Constants.CRYPTO.AEAD_NONCE_SIZE]));
+                    return cipher;
+                }
+            };
 
     @Override
     public void initProvider() {
     }
 
+    @Override
+    public void clearKeyContexts() {
+        super.clearKeyContexts();
+        ciphers.clear();
+        aeadCiphers.clear();
+    }
+
     @Override
     public boolean isAes256Supported() {
         return true;
@@ -93,18 +136,10 @@ public class AndroidBCLightWeightApiCrypto extends AndroidAbstractCrypto {
         EncryptedDataChunk result = new EncryptedDataChunk(this);
 
         // generate random IV
-        result.setIV(generateRandomByteArray(blockCipher.getBlockSize()));
-
-        // setup cipher parameters with key and IV
-        KeyParameter keyParam = new KeyParameter(key.getEncoded());
-        CipherParameters params = new ParametersWithIV(keyParam, result.getIV());
+        result.setIV(generateRandomByteArray(Constants.CRYPTO.AES_BLOCK_SIZE));
 
-        // setup AES cipher in CBC mode with PKCS7 padding
-        BlockCipherPadding padding = new PKCS7Padding();
-        BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(
-                new CBCBlockCipher(blockCipher), padding);
-        cipher.reset();
-        cipher.init(true, params);
+        // get the AES cipher of this thread for this key, and set its IV
+        BufferedBlockCipher cipher = cipher(key, true, result.getIV());
 
         // encrypt and add padding
         byte[] out = new byte[cipher.getOutputSize(data.length)];
@@ -121,16 +156,8 @@ public class AndroidBCLightWeightApiCrypto extends AndroidAbstractCrypto {
 
     @Override
     public byte[] decrypt(SecretKey key, EncryptedDataChunk dataChunk) throws CryptoException {
-        // setup cipher parameters with key and IV
-        KeyParameter keyParam = new KeyParameter(key.getEncoded());
-        CipherParameters params = new ParametersWithIV(keyParam, dataChunk.getIV());
-
-        // setup AES cipher in CBC mode with PKCS7 padding
-        BlockCipherPadding padding = new PKCS7Padding();
-        BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(
-                new CBCBlockCipher(blockCipher), padding);
-        cipher.reset();
-        cipher.init(false, params);
+        // get the AES cipher of this thread for this key, and set its IV
+        BufferedBlockCipher cipher = cipher(key, false, dataChunk.getIV());
 
         // create a temporary buffer to decode into (it'll include padding)
         byte[] buffer = new byte[cipher.getOutputSize(dataChunk.getData().length)];
@@ -148,6 +175,114 @@ public class AndroidBCLightWeightApiCrypto extends AndroidAbstractCrypto {
         return out;
     }
 
+    @Override
+    public int encrypt(SecretKey key, byte[] iv, byte[] input, int inputOffset, int inputLength,
+                       byte[] output, int outputOffset) throws CryptoException {
+        BufferedBlockCipher cipher = cipher(key, true, iv);
+
+        // encrypt and add padding, directly into the output buffer
+        int encryptedLength = cipher.processBytes(input, inputOffset, inputLength, output, outputOffset);
+        try {
+            encryptedLength += cipher.doFinal(output, outputOffset + encryptedLength);
+        } catch (InvalidCipherTextException e) {
+            throw new CryptoException(e);
+        }
+        return encryptedLength;
+    }
+
+    @Override
+    public int decrypt(SecretKey key, byte[] iv, byte[] input, int inputOffset, int inputLength,
+                       byte[] output, int outputOffset) throws CryptoException {
+        BufferedBlockCipher cipher = cipher(key, false, iv);
+
+        // decrypt and remove padding, directly into the output buffer
+        int decryptedLength = cipher.processBytes(input, inputOffset, inputLength, output, outputOffset);
+        try {
+            decryptedLength += cipher.doFinal(output, outputOffset + decryptedLength);
+        } catch (InvalidCipherTextException e) {
+            throw new CryptoException(e);
+        }
+        return decryptedLength;
+    }
+
+    @Override
+    public int encryptAuthenticated(SecretKey key, byte[] nonce, byte[] aad, byte[] input, int inputOffset,
+                                    int inputLength, byte[] output, int outputOffset) throws CryptoException {
+        GCMBlockCipher cipher = aeadCipher(key, true, nonce, aad);
+
+        // encrypt and append the tag, directly into the output buffer
+        int encryptedLength = cipher.processBytes(input, inputOffset, inputLength, output, outputOffset);
+        try {
+            encryptedLength += cipher.doFinal(output, outputOffset + encryptedLength);
+        } catch (InvalidCipherTextException e) {
+            throw new CryptoException(e);
+        }
+        return encryptedLength;
+    }
+
+    @Override
+    public int decryptAuthenticated(SecretKey key, byte[] nonce, byte[] aad, byte[] input, int inputOffset,
+                                    int inputLength, byte[] tag, int tagOffset, byte[] output, int outputOffset)
+            throws CryptoException {
+        GCMBlockCipher cipher = aeadCipher(key, false, nonce, aad);
+
+        // decrypt, then feed the tag which is expected at the end of the input, and verify it
+        int decryptedLength = cipher.processBytes(input, inputOffset, inputLength, output, outputOffset);
+        decryptedLength += cipher.processBytes(tag, tagOffset, Constants.CRYPTO.AEAD_TAG_SIZE,
+                output, outputOffset + decryptedLength);
+        try {
+            decryptedLength += cipher.doFinal(output, outputOffset + decryptedLength);
+        } catch (InvalidCipherTextException e) {
+            throw new CryptoException(e);
+        }
+        return decryptedLength;
+    }
+
+    /**
+     * Creates a new AES cipher in CBC mode with PKCS7 padding.
+     *
+     * @return the new cipher
+     */
+    private static BufferedBlockCipher newCipher() {
+        return new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESFastEngine()), new PKCS7Padding());
+    }
+
+    /**
+     * Returns the cipher of the calling thread for the given {@code key}, reinitialized with the
+     * given initialization vector.
+     *
+     * @param key           the encryption key
+     * @param forEncryption true to get the encryption cipher, false to get the decryption cipher
+     * @param iv            the initialization vector
+     * @return the cipher of the calling thread, ready to process data
+     * @throws CryptoException if the cipher cannot be created
+     */
+    private BufferedBlockCipher cipher(SecretKey key, boolean forEncryption, byte[] iv) throws CryptoException {
+        BufferedBlockCipher cipher = ciphers.get(key)[forEncryption ? 0 : 1];
+        // a null key parameter keeps the key schedule of the previous initialization
+        cipher.init(forEncryption, new ParametersWithIV(null, iv));
+        return cipher;
+    }
+
+    /**
+     * Returns the AES-GCM cipher of the calling thread for the given {@code key}, reinitialized with
+     * the given nonce and additional authenticated data.
+     *
+     * @param key           the encryption key
+     * @param forEncryption true to encrypt, false to decrypt
+     * @param nonce         the nonce
+     * @param aad           the additional authenticated data
+     * @return the cipher of the calling thread, ready to process data
+     * @throws CryptoException if the cipher cannot be created
+     */
+    private GCMBlockCipher aeadCipher(SecretKey key, boolean forEncryption, byte[] nonce, byte[] aad)
+            throws CryptoException {
+        GCMBlockCipher cipher = aeadCiphers.get(key);
+        // a null key parameter keeps the key schedule of the previous initialization
+        cipher.init(forEncryption, new AEADParameters(null, 8 * Constants.CRYPTO.AEAD_TAG_SIZE, nonce, aad));
+        return cipher;
+    }
+
     @Override
     public Mac initMac(SecretKey key) throws CryptoException {
         return new BCLightWeightApiMac(key);
@@ -36,10 +36,30 @@ public class BCLightWeightApiMac implements Mac {
         mac.update(data, 0, data.length);
     }
 
+    @Override
+    public void update(byte[] data, int offset, int length) {
+        mac.update(data, offset, length);
+    }
+
+    @Override
+    public void reset() {
+        mac.reset();
+    }
+
+    @Override
+    public int getMacLength() {
+        return mac.getMacSize();
+    }
+
     @Override
     public byte[] doFinal() {
         final byte[] resultBuffer = new byte[mac.getUnderlyingDigest().getDigestSize()];
         mac.doFinal(resultBuffer, 0);
         return resultBuffer;
     }
+
+    @Override
+    public void doFinal(byte[] output, int offset) {
+        mac.doFinal(output, offset);
+    }
 }
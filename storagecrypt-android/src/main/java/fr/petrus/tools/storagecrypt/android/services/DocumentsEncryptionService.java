@@ -99,6 +99,7 @@ public class DocumentsEncryptionService extends ThreadService<DocumentsEncryptio
                 appContext.getKeyManager(),
                 appContext.getTextI18n(),
                 appContext.getFileSystem(),
+                appContext.getNetwork(),
                 appContext.getEncryptedDocuments());
         documentsEncryptionProcess.setProgressListener(new ProgressListener() {
             @Override
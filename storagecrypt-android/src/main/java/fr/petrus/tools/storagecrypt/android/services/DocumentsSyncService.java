@@ -133,60 +133,72 @@ public class DocumentsSyncService extends ThreadService<DocumentsSyncService> {
         documentsSyncProcess.setProgressListener(new ProgressAdapter() {
             @Override
             public void onMessage(int i, String message) {
-                if (0==i) {
-                    if (null==message) {
-                        taskProgressEvent.setMessage(i, message).postSticky();
-                    } else {
-                        try {
-                            Application application = Application.getInstance();
-                            SyncAction syncAction = SyncAction.valueOf(message);
-                            switch (syncAction) {
-                                case Upload:
-                                    taskProgressEvent.setMessage(i, application.getString(
-                                            R.string.progress_message_uploading_remote_document));
-                                    break;
-                                case Download:
-                                    taskProgressEvent.setMessage(i, application.getString(
-                                            R.string.progress_message_downloading_remote_document));
-                                    break;
-                                case Deletion:
-                                    taskProgressEvent.setMessage(i, application.getString(
-                                            R.string.progress_message_deleting_remote_document));
-                                    break;
-                            }
-                        } catch (IllegalArgumentException e) {
-                            Log.e(TAG, "Unknown SyncAction \"" + message + "\"", e);
+                synchronized (taskProgressEvent) {
+                    if (0==i) {
+                        if (null==message) {
                             taskProgressEvent.setMessage(i, message).postSticky();
+                        } else {
+                            try {
+                                Application application = Application.getInstance();
+                                SyncAction syncAction = SyncAction.valueOf(message);
+                                switch (syncAction) {
+                                    case Upload:
+                                        taskProgressEvent.setMessage(i, application.getString(
+                                                R.string.progress_message_uploading_remote_document));
+                                        break;
+                                    case Download:
+                                        taskProgressEvent.setMessage(i, application.getString(
+                                                R.string.progress_message_downloading_remote_document));
+                                        break;
+                                    case Deletion:
+                                        taskProgressEvent.setMessage(i, application.getString(
+                                                R.string.progress_message_deleting_remote_document));
+                                        break;
+                                }
+                            } catch (IllegalArgumentException e) {
+                                Log.e(TAG, "Unknown SyncAction \"" + message + "\"", e);
+                                taskProgressEvent.setMessage(i, message).postSticky();
+                            }
                         }
+                    } else {
+                        taskProgressEvent.setMessage(i, message).postSticky();
                     }
-                } else {
-                    taskProgressEvent.setMessage(i, message).postSticky();
                 }
             }
 
             @Override
             public void onProgress(int i, int progress) {
-                taskProgressEvent.setProgress(i, progress).postSticky();
+                synchronized (taskProgressEvent) {
+                    taskProgressEvent.setProgress(i, progress).postSticky();
+                }
                 if (0==i) {
-                    documentsSyncServiceEvent.getProgress().setProgress(progress);
-                    documentsSyncServiceEvent.postSticky();
+                    synchronized (documentsSyncServiceEvent) {
+                        documentsSyncServiceEvent.getProgress().setProgress(progress);
+                        documentsSyncServiceEvent.postSticky();
+                    }
                 }
             }
 
             @Override
             public void onSetMax(int i, int max) {
-                taskProgressEvent.setMax(i, max).postSticky();
+                synchronized (taskProgressEvent) {
+                    taskProgressEvent.setMax(i, max).postSticky();
+                }
                 if (0==i) {
-                    documentsSyncServiceEvent.getProgress().setMax(max);
-                    documentsSyncServiceEvent.postSticky();
+                    synchronized (documentsSyncServiceEvent) {
+                        documentsSyncServiceEvent.getProgress().setMax(max);
+                        documentsSyncServiceEvent.postSticky();
+                    }
                 }
             }
         });
         documentsSyncProcess.setSyncActionListener(new DocumentsSyncProcess.SyncActionListener() {
             @Override
             public void onSyncActionStart(SyncAction syncAction, EncryptedDocument encryptedDocument) {
-                documentsSyncServiceEvent.setSyncAction(syncAction);
-                documentsSyncServiceEvent.postSticky();
+                synchronized (documentsSyncServiceEvent) {
+                    documentsSyncServiceEvent.setSyncAction(syncAction);
+                    documentsSyncServiceEvent.postSticky();
+                }
             }
 
             @Override
@@ -49,6 +49,8 @@ public class DesktopConstants {
         String PROPERTY_PROXY_CONFIGURATION = "proxy.configuration";
         String PROPERTY_PROXY_ADDRESS = "proxy.address";
         String PROPERTY_PROXY_PORT = "proxy.port";
+        String PROPERTY_STREAMING_UPLOAD = "upload.streaming";
+        String PROPERTY_EXTENDED_STREAM_FORMAT = "encryption.extended_format";
     }
 
     public interface RESOURCES {
@@ -84,6 +84,8 @@ public class Settings {
     private ProxyConfiguration proxyConfiguration = ProxyConfiguration.UseSystemProxies;
     private String proxyAddress = null;
     private int proxyPort = -1;
+    private boolean streamingUpload = false;
+    private boolean extendedStreamFormat = false;
 
     /**
      * Creates a new {@code Settings} instance.
@@ -132,6 +134,10 @@ public class Settings {
                             ProxyConfiguration.NoProxy.name()));
             proxyAddress = props.getProperty(DesktopConstants.OPTIONS.PROPERTY_PROXY_ADDRESS, null);
             proxyPort = getIntValue(props.getProperty(DesktopConstants.OPTIONS.PROPERTY_PROXY_PORT, null), -1);
+            streamingUpload = getBooleanValue(
+                    props.getProperty(DesktopConstants.OPTIONS.PROPERTY_STREAMING_UPLOAD, null), false);
+            extendedStreamFormat = getBooleanValue(
+                    props.getProperty(DesktopConstants.OPTIONS.PROPERTY_EXTENDED_STREAM_FORMAT, null), false);
         } finally {
             if (null!=is) {
                 try {
@@ -164,6 +170,9 @@ public class Settings {
             if (proxyPort>=0) {
                 props.setProperty(DesktopConstants.OPTIONS.PROPERTY_PROXY_PORT, String.valueOf(proxyPort));
             }
+            props.setProperty(DesktopConstants.OPTIONS.PROPERTY_STREAMING_UPLOAD, String.valueOf(streamingUpload));
+            props.setProperty(DesktopConstants.OPTIONS.PROPERTY_EXTENDED_STREAM_FORMAT,
+                    String.valueOf(extendedStreamFormat));
             File f = new File(fileSystem.getAppDir(), DesktopConstants.OPTIONS.SETTINGS_FILE);
             out = new FileOutputStream( f );
             props.store(out, "StorageCrypt settings");
@@ -217,6 +226,25 @@ public class Settings {
         this.proxyPort = proxyPort;
     }
 
+    /**
+     * Sets whether the encrypted files are uploaded while they are encrypted.
+     *
+     * @param streamingUpload true if the encrypted files are uploaded while they are encrypted
+     */
+    public void setStreamingUpload(boolean streamingUpload) {
+        this.streamingUpload = streamingUpload;
+    }
+
+    /**
+     * Sets whether the files are encrypted with the extended stream format, which older releases
+     * cannot decrypt.
+     *
+     * @param extendedStreamFormat true if the files are encrypted with the extended stream format
+     */
+    public void setExtendedStreamFormat(boolean extendedStreamFormat) {
+        this.extendedStreamFormat = extendedStreamFormat;
+    }
+
     /**
      * Returns the encrypted database encryption password.
      *
@@ -253,6 +281,25 @@ public class Settings {
         return proxyPort;
     }
 
+    /**
+     * Returns whether the encrypted files are uploaded while they are encrypted.
+     *
+     * @return true if the encrypted files are uploaded while they are encrypted
+     */
+    public boolean isStreamingUpload() {
+        return streamingUpload;
+    }
+
+    /**
+     * Returns whether the files are encrypted with the extended stream format, which older releases
+     * cannot decrypt.
+     *
+     * @return true if the files are encrypted with the extended stream format
+     */
+    public boolean isExtendedStreamFormat() {
+        return extendedStreamFormat;
+    }
+
     /**
      * Converts the given {@code stringValue} as an integer.
      *
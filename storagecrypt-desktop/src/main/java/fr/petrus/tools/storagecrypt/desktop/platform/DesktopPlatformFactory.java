@@ -46,6 +46,7 @@ import fr.petrus.lib.core.crypto.Crypto;
 import fr.petrus.lib.core.crypto.KeyManager;
 import fr.petrus.lib.core.db.Database;
 import fr.petrus.lib.core.db.H2Database;
+import fr.petrus.lib.core.db.H2DatabaseProfile;
 import fr.petrus.lib.core.platform.AppContext;
 import fr.petrus.lib.core.platform.PlatformFactory;
 import fr.petrus.lib.core.filesystem.FileSystem;
@@ -126,7 +127,7 @@ public class DesktopPlatformFactory implements PlatformFactory {
 
     @Override
     public Database database(FileSystem fileSystem, TextI18n textI18n) {
-        return new H2Database(fileSystem.getAppDirPath(), textI18n);
+        return new H2Database(fileSystem.getAppDirPath(), H2DatabaseProfile.Desktop, textI18n);
     }
 
     @Override
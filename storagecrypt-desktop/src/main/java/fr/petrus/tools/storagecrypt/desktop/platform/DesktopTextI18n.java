@@ -119,6 +119,8 @@ public class DesktopTextI18n extends AbstractTextI18n {
                             return textBundle.getString("error_message_StorageCryptException_GetRemoteFileError");
                         case CreationError:
                             return textBundle.getString("error_message_StorageCryptException_CreationError");
+                        case UpdateError:
+                            return textBundle.getString("error_message_StorageCryptException_UpdateError");
                         case DocumentExists:
                             return textBundle.getString("error_message_StorageCryptException_DocumentExists");
                         case ParentNotFound:
@@ -158,8 +158,12 @@ public class DocumentsEncryptionTask extends ProcessTask {
                                 appContext.getKeyManager(),
                                 appContext.getTextI18n(),
                                 appContext.getFileSystem(),
+                                appContext.getNetwork(),
                                 appContext.getEncryptedDocuments());
                 setProcess(documentsEncryptionProcess);
+                documentsEncryptionProcess.setStreamingUpload(appWindow.getSettings().isStreamingUpload());
+                documentsEncryptionProcess.setExtendedStreamFormat(
+                        appWindow.getSettings().isExtendedStreamFormat());
                 documentsEncryptionProcess.setProgressListener(new ProgressListener() {
                     @Override
                     public void onMessage(int i, String message) {
@@ -66,6 +66,9 @@ public class DocumentsSyncTask extends ProcessTask {
 
     /**
      * This class is used to report this {@code Task} state.
+     *
+     * <p>It is updated by the synchronization worker threads and read by the UI thread, so it must
+     * only be accessed while holding its lock.
      */
     public static class SyncServiceState {
         /**
@@ -80,7 +83,7 @@ public class DocumentsSyncTask extends ProcessTask {
     }
 
     private CloudAppKeys cloudAppKeys = null;
-    private SyncServiceState syncState = new SyncServiceState();
+    private final SyncServiceState syncState = new SyncServiceState();
 
     /**
      * Creates a new {@code DocumentsSyncTask} instance.
@@ -121,56 +124,66 @@ public class DocumentsSyncTask extends ProcessTask {
                 documentsSyncProcess.setProgressListener(new ProgressAdapter() {
                     @Override
                     public void onMessage(int i, String message) {
-                        if (0==i) {
-                            if (null==message) {
-                                taskProgressEvent.progresses[i].setMessage(message);
-                            } else {
-                                try {
-                                    TextBundle textBundle = appWindow.getTextBundle();
-                                    SyncAction syncAction = SyncAction.valueOf(message);
-                                    switch (syncAction) {
-                                        case Upload:
-                                            taskProgressEvent.progresses[i].setMessage(
-                                                    textBundle.getString("progress_message_syncing_documents_upload"));
-                                            break;
-                                        case Download:
-                                            taskProgressEvent.progresses[i].setMessage(
-                                                    textBundle.getString("progress_message_syncing_documents_download"));
-                                            break;
-                                        case Deletion:
-                                            taskProgressEvent.progresses[i].setMessage(
-                                                    textBundle.getString("progress_message_syncing_documents_deletion"));
-                                            break;
-                                    }
-                                } catch (IllegalArgumentException e) {
-                                    LOG.error("Unknown SyncAction \"{}\"", message, e);
+                        synchronized (taskProgressEvent) {
+                            if (0==i) {
+                                if (null==message) {
                                     taskProgressEvent.progresses[i].setMessage(message);
+                                } else {
+                                    try {
+                                        TextBundle textBundle = appWindow.getTextBundle();
+                                        SyncAction syncAction = SyncAction.valueOf(message);
+                                        switch (syncAction) {
+                                            case Upload:
+                                                taskProgressEvent.progresses[i].setMessage(
+                                                        textBundle.getString("progress_message_syncing_documents_upload"));
+                                                break;
+                                            case Download:
+                                                taskProgressEvent.progresses[i].setMessage(
+                                                        textBundle.getString("progress_message_syncing_documents_download"));
+                                                break;
+                                            case Deletion:
+                                                taskProgressEvent.progresses[i].setMessage(
+                                                        textBundle.getString("progress_message_syncing_documents_deletion"));
+                                                break;
+                                        }
+                                    } catch (IllegalArgumentException e) {
+                                        LOG.error("Unknown SyncAction \"{}\"", message, e);
+                                        taskProgressEvent.progresses[i].setMessage(message);
+                                    }
                                 }
+                            } else {
+                                taskProgressEvent.progresses[i].setMessage(message);
                             }
-                        } else {
-                            taskProgressEvent.progresses[i].setMessage(message);
                         }
                         appWindow.updateDocumentsSyncProgress(taskProgressEvent);
                     }
 
                     @Override
                     public void onProgress(int i, int progress) {
-                        taskProgressEvent.progresses[i].setProgress(progress);
+                        synchronized (taskProgressEvent) {
+                            taskProgressEvent.progresses[i].setProgress(progress);
+                        }
                         appWindow.updateDocumentsSyncProgress(taskProgressEvent);
 
                         if (0==i) {
-                            syncState.progress.setProgress(progress);
+                            synchronized (syncState) {
+                                syncState.progress.setProgress(progress);
+                            }
                             appWindow.updateDocumentsSyncProgress(syncState);
                         }
                     }
 
                     @Override
                     public void onSetMax(int i, int max) {
-                        taskProgressEvent.progresses[i].setMax(max);
+                        synchronized (taskProgressEvent) {
+                            taskProgressEvent.progresses[i].setMax(max);
+                        }
                         appWindow.updateDocumentsSyncProgress(taskProgressEvent);
 
                         if (0==i) {
-                            syncState.progress.setMax(max);
+                            synchronized (syncState) {
+                                syncState.progress.setMax(max);
+                            }
                             appWindow.updateDocumentsSyncProgress(syncState);
                         }
                     }
@@ -179,7 +192,9 @@ public class DocumentsSyncTask extends ProcessTask {
                     @Override
                     public void onSyncActionStart(SyncAction syncAction,
                                                   EncryptedDocument encryptedDocument) {
-                        syncState.currentSyncAction = syncAction;
+                        synchronized (syncState) {
+                            syncState.currentSyncAction = syncAction;
+                        }
                         appWindow.updateDocumentsSyncProgress(syncState);
                     }
 
@@ -67,6 +67,7 @@ import java.util.Locale;
 import java.util.Map;
 
 import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.DocumentSummary;
 import fr.petrus.lib.core.EncryptedDocuments;
 import fr.petrus.lib.core.OrderBy;
 import fr.petrus.lib.core.SyncAction;
@@ -90,6 +91,7 @@ import fr.petrus.tools.storagecrypt.desktop.DesktopConstants;
 import fr.petrus.tools.storagecrypt.desktop.ProgressWindowCreationException;
 import fr.petrus.lib.core.platform.TaskCreationException;
 import fr.petrus.lib.core.processes.ChangesSyncProcess;
+import fr.petrus.lib.core.processes.DatabaseCompactionProcess;
 import fr.petrus.lib.core.processes.DocumentsDecryptionProcess;
 import fr.petrus.lib.core.processes.DocumentsEncryptionProcess;
 import fr.petrus.lib.core.processes.DocumentsImportProcess;
@@ -201,7 +203,7 @@ public class AppWindow extends ApplicationWindow implements
     private ChangesSyncProgressWindow.ProgressEvent lastChangesSyncProgressEvent = null;
 
     private DocumentsSyncProgressWindow documentsSyncProgressWindow = null;
-    private DocumentsSyncProgressWindow.ProgressEvent lastDocumentsSyncProgressEvent = null;
+    private volatile DocumentsSyncProgressWindow.ProgressEvent lastDocumentsSyncProgressEvent = null;
 
     private DocumentsTable documentsTable = null;
 
@@ -353,8 +355,12 @@ public class AppWindow extends ApplicationWindow implements
                             appContext.getTask(DocumentsSyncTask.class).start();
                             documentsSyncProgressWindow =
                                     getProgressWindow(DocumentsSyncProgressWindow.class);
-                            if (null != lastDocumentsSyncProgressEvent) {
-                                documentsSyncProgressWindow.update(lastDocumentsSyncProgressEvent);
+                            DocumentsSyncProgressWindow.ProgressEvent progressEvent =
+                                    lastDocumentsSyncProgressEvent;
+                            if (null != progressEvent) {
+                                synchronized (progressEvent) {
+                                    documentsSyncProgressWindow.update(progressEvent);
+                                }
                             }
                         } catch (TaskCreationException e) {
                             LOG.error("Failed to get task {}",
@@ -373,7 +379,7 @@ public class AppWindow extends ApplicationWindow implements
             });
         }
 
-        documentsTable = new DocumentsTable(windowContent, textBundle, resources, this);
+        documentsTable = new DocumentsTable(windowContent, textBundle, textI18n, resources, this);
         applyGridData(documentsTable.getTable()).horizontalSpan(2).withFill();
 
         windowContent.layout();
@@ -473,6 +479,7 @@ public class AppWindow extends ApplicationWindow implements
             fileSystem.removeCacheFiles();
             appContext.cancelAllTasks(4000);
             fileSystem.removeCacheFiles();
+            compactDatabase();
             database.close();
             return super.close();
         } else {
@@ -481,6 +488,15 @@ public class AppWindow extends ApplicationWindow implements
         }
     }
 
+    private void compactDatabase() {
+        try {
+            new DatabaseCompactionProcess(database, textI18n)
+                    .compact(Constants.ORMLITE.COMPACTION_EXIT_TIME_BUDGET_MS);
+        } catch (DatabaseConnectionClosedException e) {
+            LOG.error("Database is closed", e);
+        }
+    }
+
     /**
      * Returns the {@code AppContext} which provides dependencies for many classes.
      *
@@ -697,9 +713,14 @@ public class AppWindow extends ApplicationWindow implements
         asyncExec(new Runnable() {
             @Override
             public void run() {
-                int progress = syncState.progress.getProgress();
-                int max = syncState.progress.getMax();
-                SyncAction currentSyncAction = syncState.currentSyncAction;
+                int progress;
+                int max;
+                SyncAction currentSyncAction;
+                synchronized (syncState) {
+                    progress = syncState.progress.getProgress();
+                    max = syncState.progress.getMax();
+                    currentSyncAction = syncState.currentSyncAction;
+                }
                 documentsSyncButton.setText(String.format(Locale.getDefault(), "%d/%d",
                         progress, max));
                 if (null==currentSyncAction) {
@@ -739,7 +760,9 @@ public class AppWindow extends ApplicationWindow implements
             @Override
             public void run() {
                 if (null!= documentsSyncProgressWindow) {
-                    documentsSyncProgressWindow.update(progressEvent);
+                    synchronized (progressEvent) {
+                        documentsSyncProgressWindow.update(progressEvent);
+                    }
                 }
                 syncProcessGroup.pack();
                 windowContent.layout();
@@ -882,6 +905,23 @@ public class AppWindow extends ApplicationWindow implements
         return new ArrayList<>();
     }
 
+    @Override
+    public List<DocumentSummary> getCurrentFolderChildrenSummaries(OrderBy orderBy) {
+        try {
+            if (!isCurrentFolderRoot()) {
+                return currentFolder.childrenSummaries(true, orderBy);
+            }
+        } catch (DatabaseConnectionClosedException e) {
+            LOG.error("Database is locked", e);
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<EncryptedDocument> getDocuments(List<Long> ids) throws DatabaseConnectionClosedException {
+        return encryptedDocuments.encryptedDocumentsWithIds(ids);
+    }
+
     @Override
     public boolean isCurrentFolderRoot() {
         return Constants.STORAGE.ROOT_PARENT_ID == currentFolderId;
@@ -72,13 +72,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import fr.petrus.lib.core.DocumentSummary;
 import fr.petrus.lib.core.EncryptedDocument;
 import fr.petrus.lib.core.OrderBy;
+import fr.petrus.lib.core.State;
 import fr.petrus.lib.core.SyncAction;
 import fr.petrus.lib.core.db.exceptions.DatabaseConnectionClosedException;
+import fr.petrus.lib.core.i18n.TextI18n;
 import fr.petrus.lib.core.utils.StringUtils;
 import fr.petrus.tools.storagecrypt.desktop.DesktopConstants;
 import fr.petrus.tools.storagecrypt.desktop.DocumentAction;
@@ -90,6 +94,10 @@ import fr.petrus.tools.storagecrypt.desktop.swt.TextShortener;
  * A custom SWT Table containing {@code EncryptedDocuments}, with context menus, drag and drop and
  * a few other convenient things.
  *
+ * <p>The "top level" folder lists the full {@code EncryptedDocument} roots, while the other folders
+ * list lightweight {@code DocumentSummary} rows, which are resolved to full documents only when
+ * they are selected.
+ *
  * @author Pierre Sagne
  * @since 19.04.2016
  */
@@ -127,6 +135,25 @@ public class DocumentsTable {
          */
         List<EncryptedDocument> getCurrentFolderChildren(OrderBy orderBy);
 
+        /**
+         * Returns the summaries of the current folder children, sorted using the given
+         * {@code orderBy} criterion.
+         *
+         * @param orderBy the criterion used to sort the current folder children list
+         * @return a list containing the summaries of the current folder children, sorted using the
+         *         given {@code orderBy} criterion
+         */
+        List<DocumentSummary> getCurrentFolderChildrenSummaries(OrderBy orderBy);
+
+        /**
+         * Returns the full documents with the given {@code ids}.
+         *
+         * @param ids the ids of the documents to return
+         * @return the list of the documents with the given {@code ids}
+         * @throws DatabaseConnectionClosedException if the database connection is closed
+         */
+        List<EncryptedDocument> getDocuments(List<Long> ids) throws DatabaseConnectionClosedException;
+
         /**
          * Requests an update of the current folder.
          */
@@ -168,6 +195,7 @@ public class DocumentsTable {
     }
 
     private DocumentsTableListener listener = null;
+    private TextI18n textI18n = null;
     private Resources resources = null;
 
     private OrderBy orderBy = OrderBy.NameAsc;
@@ -187,13 +215,15 @@ public class DocumentsTable {
      *
      * @param parent     the parent of this {@code DocumentsTable}
      * @param textBundle a {@code TextBundle} instance
+     * @param textI18n   a {@code TextI18n} instance
      * @param resources  a {@code Resources} instance
      * @param listener   the {@code DocumentsTableListener} this {@code DocumentsTable} uses to
      *                   interact with its owner
      */
-    public DocumentsTable(Composite parent, TextBundle textBundle, Resources resources,
-                          DocumentsTableListener listener) {
+    public DocumentsTable(Composite parent, TextBundle textBundle, TextI18n textI18n,
+                          Resources resources, DocumentsTableListener listener) {
         this.listener = listener;
+        this.textI18n = textI18n;
         this.resources = resources;
         textShortener = new TextShortener(parent.getDisplay(), TextShortener.Mode.ELLIPSIZE);
         tableViewer = createTableViewer(parent, listener);
@@ -241,7 +271,11 @@ public class DocumentsTable {
             deletionColumn.getColumn().setImage(
                     resources.loadImage(DesktopConstants.RESOURCES.IC_DELETE_BLACK));
         }
-        tableViewer.setInput(listener.getCurrentFolderChildren(orderBy));
+        if (listener.isCurrentFolderRoot()) {
+            tableViewer.setInput(listener.getCurrentFolderChildren(orderBy));
+        } else {
+            tableViewer.setInput(listener.getCurrentFolderChildrenSummaries(orderBy));
+        }
         if (folderChanged) {
             tableViewer.getTable().setTopIndex(0);
         }
@@ -405,12 +439,23 @@ public class DocumentsTable {
 
     private List<EncryptedDocument> getSelected() {
         List<EncryptedDocument> selected = new ArrayList<>();
+        List<Long> selectedSummariesIds = new ArrayList<>();
 
         IStructuredSelection selection = tableViewer.getStructuredSelection();
         for (Iterator it = selection.iterator(); it.hasNext();) {
             Object element = it.next();
-            if (null!=element) {
+            if (element instanceof EncryptedDocument) {
                 selected.add((EncryptedDocument) element);
+            } else if (element instanceof DocumentSummary) {
+                selectedSummariesIds.add(((DocumentSummary) element).getId());
+            }
+        }
+
+        if (!selectedSummariesIds.isEmpty()) {
+            try {
+                selected.addAll(listener.getDocuments(selectedSummariesIds));
+            } catch (DatabaseConnectionClosedException e) {
+                LOG.error("Database is closed", e);
             }
         }
 
@@ -524,6 +569,20 @@ public class DocumentsTable {
                                     listener.encryptDocuments(destinationDocument, files);
                                     return;
                                 }
+                            } else if (null != item.getData() && item.getData() instanceof DocumentSummary) {
+                                DocumentSummary destinationSummary = (DocumentSummary) item.getData();
+                                if (destinationSummary.isFolder()) {
+                                    try {
+                                        List<EncryptedDocument> destinationDocuments = listener.getDocuments(
+                                                Collections.singletonList(destinationSummary.getId()));
+                                        if (!destinationDocuments.isEmpty()) {
+                                            listener.encryptDocuments(destinationDocuments.get(0), files);
+                                            return;
+                                        }
+                                    } catch (DatabaseConnectionClosedException e) {
+                                        LOG.error("Database is closed", e);
+                                    }
+                                }
                             }
                         }
                         if (!listener.isCurrentFolderRoot()) {
@@ -547,25 +606,8 @@ public class DocumentsTable {
         nameColumn.setLabelProvider(new OwnerDrawLabelProvider() {
             @Override
             protected void measure(Event event, Object element) {
-                EncryptedDocument document = (EncryptedDocument) element;
-                Image image;
-                if (document.isRoot()) {
-                    if (document.isUnsynchronized()) {
-                        image = resources.loadImage(DesktopConstants.RESOURCES.IC_FOLDER);
-                    } else {
-                        image = resources.loadImage(DesktopConstants.RESOURCES.IC_CLOUD);
-                    }
-                } else if (document.isFolder()) {
-                    image = resources.loadImage(DesktopConstants.RESOURCES.IC_FOLDER);
-                } else {
-                    image = resources.loadImage(DesktopConstants.RESOURCES.IC_FILE);
-                }
-                String text;
-                if (document.isRoot()) {
-                    text = StringUtils.surroundWithSpaces(document.storageText(), NUM_SURROUNDING_SPACES);
-                } else {
-                    text = StringUtils.surroundWithSpaces(document.getDisplayName(), NUM_SURROUNDING_SPACES);
-                }
+                Image image = getNameImage(element);
+                String text = getNameText(element);
                 int widthLeftForText = nameColumn.getColumn().getWidth() - image.getBounds().width;
                 event.setBounds(getImageAndTextBounds(event.x, event.y, image, event.gc,
                         textShortener.shortenText(event.gc, text, widthLeftForText)));
@@ -573,25 +615,8 @@ public class DocumentsTable {
 
             @Override
             protected void paint(Event event, Object element) {
-                EncryptedDocument document = (EncryptedDocument) element;
-                Image image;
-                if (document.isRoot()) {
-                    if (document.isUnsynchronized()) {
-                        image = resources.loadImage(DesktopConstants.RESOURCES.IC_FOLDER);
-                    } else {
-                        image = resources.loadImage(DesktopConstants.RESOURCES.IC_CLOUD);
-                    }
-                } else if (document.isFolder()) {
-                    image = resources.loadImage(DesktopConstants.RESOURCES.IC_FOLDER);
-                } else {
-                    image = resources.loadImage(DesktopConstants.RESOURCES.IC_FILE);
-                }
-                String text;
-                if (document.isRoot()) {
-                    text = StringUtils.surroundWithSpaces(document.storageText(), NUM_SURROUNDING_SPACES);
-                } else {
-                    text = StringUtils.surroundWithSpaces(document.getDisplayName(), NUM_SURROUNDING_SPACES);
-                }
+                Image image = getNameImage(element);
+                String text = getNameText(element);
                 Rectangle bounds = event.getBounds();
                 event.gc.drawImage(image, bounds.x + 4,
                         bounds.y + ( bounds.height - image.getBounds().height ) / 2);
@@ -610,6 +635,14 @@ public class DocumentsTable {
         mimeTypeColumn.setLabelProvider(new ColumnLabelProvider() {
             @Override
             public String getText(Object element) {
+                if (element instanceof DocumentSummary) {
+                    DocumentSummary summary = (DocumentSummary) element;
+                    if (summary.isRoot() || summary.isFolder()) {
+                        return null;
+                    } else {
+                        return StringUtils.surroundWithSpaces(summary.getMimeType(), NUM_SURROUNDING_SPACES);
+                    }
+                }
                 EncryptedDocument document = (EncryptedDocument) element;
                 if (document.isRoot() || document.isFolder()) {
                     return null;
@@ -622,6 +655,15 @@ public class DocumentsTable {
         sizeColumn.setLabelProvider(new ColumnLabelProvider() {
             @Override
             public String getText(Object element) {
+                if (element instanceof DocumentSummary) {
+                    DocumentSummary summary = (DocumentSummary) element;
+                    if (summary.isRoot() || summary.isFolder()) {
+                        return null;
+                    } else {
+                        return StringUtils.surroundWithSpaces(textI18n.getSizeText(summary.getSize()),
+                                NUM_SURROUNDING_SPACES);
+                    }
+                }
                 EncryptedDocument document = (EncryptedDocument) element;
                 if (document.isRoot()) {
                     return StringUtils.surroundWithSpaces(document.getBackStorageQuotaText(), NUM_SURROUNDING_SPACES);
@@ -636,7 +678,7 @@ public class DocumentsTable {
         syncOrDownloadColumn.setLabelProvider(new OwnerDrawLabelProvider() {
             @Override
             protected void measure(Event event, Object element) {
-                Image image = getSyncOrDownloadStateImage((EncryptedDocument) element);
+                Image image = getSyncOrDownloadStateImage(element);
                 if (null!=image) {
                     int columnWidth = syncOrDownloadColumn.getColumn().getWidth();
                     event.setBounds(getCenteredImageBounds(event.x, event.y,
@@ -646,7 +688,7 @@ public class DocumentsTable {
 
             @Override
             protected void paint(Event event, Object element) {
-                Image image = getSyncOrDownloadStateImage((EncryptedDocument) element);
+                Image image = getSyncOrDownloadStateImage(element);
                 if (null!=image) {
                     int columnWidth = syncOrDownloadColumn.getColumn().getWidth();
                     Rectangle bounds = getCenteredImageBounds(event.x, event.y,
@@ -659,7 +701,7 @@ public class DocumentsTable {
         uploadColumn.setLabelProvider(new OwnerDrawLabelProvider() {
             @Override
             protected void measure(Event event, Object element) {
-                Image image = getUploadStateImage((EncryptedDocument) element);
+                Image image = getUploadStateImage(element);
                 if (null!=image) {
                     int columnWidth = uploadColumn.getColumn().getWidth();
                     event.setBounds(getCenteredImageBounds(event.x, event.y,
@@ -669,7 +711,7 @@ public class DocumentsTable {
 
             @Override
             protected void paint(Event event, Object element) {
-                Image image = getUploadStateImage((EncryptedDocument) element);
+                Image image = getUploadStateImage(element);
                 if (null!=image) {
                     int columnWidth = uploadColumn.getColumn().getWidth();
                     Rectangle bounds = getCenteredImageBounds(event.x, event.y,
@@ -682,7 +724,7 @@ public class DocumentsTable {
         deletionColumn.setLabelProvider(new OwnerDrawLabelProvider() {
             @Override
             protected void measure(Event event, Object element) {
-                Image image = getDeletionStateImage((EncryptedDocument) element);
+                Image image = getDeletionStateImage(element);
                 if (null!=image) {
                     int columnWidth = deletionColumn.getColumn().getWidth();
                     event.setBounds(getCenteredImageBounds(event.x, event.y,
@@ -692,7 +734,7 @@ public class DocumentsTable {
 
             @Override
             protected void paint(Event event, Object element) {
-                Image image = getDeletionStateImage((EncryptedDocument) element);
+                Image image = getDeletionStateImage(element);
                 if (null!=image) {
                     int columnWidth = deletionColumn.getColumn().getWidth();
                     Rectangle bounds = getCenteredImageBounds(event.x, event.y,
@@ -720,7 +762,60 @@ public class DocumentsTable {
                 imageBounds.height);
     }
 
-    private Image getSyncOrDownloadStateImage(EncryptedDocument document) {
+    private Image getNameImage(Object element) {
+        if (element instanceof DocumentSummary) {
+            if (((DocumentSummary) element).isFolder()) {
+                return resources.loadImage(DesktopConstants.RESOURCES.IC_FOLDER);
+            } else {
+                return resources.loadImage(DesktopConstants.RESOURCES.IC_FILE);
+            }
+        }
+        EncryptedDocument document = (EncryptedDocument) element;
+        if (document.isRoot()) {
+            if (document.isUnsynchronized()) {
+                return resources.loadImage(DesktopConstants.RESOURCES.IC_FOLDER);
+            } else {
+                return resources.loadImage(DesktopConstants.RESOURCES.IC_CLOUD);
+            }
+        } else if (document.isFolder()) {
+            return resources.loadImage(DesktopConstants.RESOURCES.IC_FOLDER);
+        } else {
+            return resources.loadImage(DesktopConstants.RESOURCES.IC_FILE);
+        }
+    }
+
+    private String getNameText(Object element) {
+        if (element instanceof DocumentSummary) {
+            return StringUtils.surroundWithSpaces(((DocumentSummary) element).getDisplayName(),
+                    NUM_SURROUNDING_SPACES);
+        }
+        EncryptedDocument document = (EncryptedDocument) element;
+        if (document.isRoot()) {
+            return StringUtils.surroundWithSpaces(document.storageText(), NUM_SURROUNDING_SPACES);
+        } else {
+            return StringUtils.surroundWithSpaces(document.getDisplayName(), NUM_SURROUNDING_SPACES);
+        }
+    }
+
+    private State getSyncState(Object element, SyncAction syncAction) {
+        if (element instanceof DocumentSummary) {
+            return ((DocumentSummary) element).getSyncState(syncAction);
+        }
+        return ((EncryptedDocument) element).getSyncState(syncAction);
+    }
+
+    private boolean isRoot(Object element) {
+        if (element instanceof DocumentSummary) {
+            return ((DocumentSummary) element).isRoot();
+        }
+        return ((EncryptedDocument) element).isRoot();
+    }
+
+    private Image getSyncOrDownloadStateImage(Object element) {
+        if (element instanceof DocumentSummary) {
+            return getDownloadStateImage(getSyncState(element, SyncAction.Download));
+        }
+        EncryptedDocument document = (EncryptedDocument) element;
         if (document.isUnsynchronizedRoot()) {
             return null;
         } else if (document.isRoot()) {
@@ -737,24 +832,32 @@ public class DocumentsTable {
                 }
             }
         } else {
-            switch (document.getSyncState(SyncAction.Download)) {
-                case Planned:
-                    return resources.loadImage(DesktopConstants.RESOURCES.IC_DOWNLOAD_VIOLET);
-                case Running:
-                    return resources.loadImage(DesktopConstants.RESOURCES.IC_DOWNLOAD_GREEN);
-                case Failed:
-                    return resources.loadImage(DesktopConstants.RESOURCES.IC_DOWNLOAD_RED);
-                default:
-                    return null;
-            }
+            return getDownloadStateImage(document.getSyncState(SyncAction.Download));
         }
     }
 
-    private Image getUploadStateImage(EncryptedDocument document) {
-        if (document.isRoot()) {
+    private Image getDownloadStateImage(State state) {
+        if (null==state) {
+            return null;
+        }
+        switch (state) {
+            case Planned:
+                return resources.loadImage(DesktopConstants.RESOURCES.IC_DOWNLOAD_VIOLET);
+            case Running:
+                return resources.loadImage(DesktopConstants.RESOURCES.IC_DOWNLOAD_GREEN);
+            case Failed:
+                return resources.loadImage(DesktopConstants.RESOURCES.IC_DOWNLOAD_RED);
+            default:
+                return null;
+        }
+    }
+
+    private Image getUploadStateImage(Object element) {
+        State state = isRoot(element) ? null : getSyncState(element, SyncAction.Upload);
+        if (null==state) {
             return null;
         } else {
-            switch (document.getSyncState(SyncAction.Upload)) {
+            switch (state) {
                 case Planned:
                     return resources.loadImage(DesktopConstants.RESOURCES.IC_UPLOAD_VIOLET);
                 case Running:
@@ -767,11 +870,12 @@ public class DocumentsTable {
         }
     }
 
-    private Image getDeletionStateImage(EncryptedDocument document) {
-        if (document.isRoot()) {
+    private Image getDeletionStateImage(Object element) {
+        State state = isRoot(element) ? null : getSyncState(element, SyncAction.Deletion);
+        if (null==state) {
             return null;
         } else {
-            switch (document.getSyncState(SyncAction.Deletion)) {
+            switch (state) {
                 case Planned:
                     return resources.loadImage(DesktopConstants.RESOURCES.IC_DELETE_VIOLET);
                 case Running:
@@ -0,0 +1,123 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+package fr.petrus.tools.storagecrypt.desktop.test;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataChunk;
+import fr.petrus.lib.core.crypto.EncryptedDataChunkCodec;
+import fr.petrus.lib.core.crypto.SecretKeys;
+import fr.petrus.tools.storagecrypt.desktop.platform.crypto.DesktopBCLightWeightApiCrypto;
+import fr.petrus.tools.storagecrypt.desktop.platform.crypto.DesktopJcaCrypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the encoding and decoding of data chunks with reusable buffers
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptedDataChunkCodecTest {
+
+    private Crypto cryptoJca = new DesktopJcaCrypto();
+    private Crypto cryptoBCLW = new DesktopBCLightWeightApiCrypto();
+
+    private SecretKeys secretKeys = null;
+
+    private byte[] data = null;
+
+    @Before
+    public void init() throws CryptoException {
+        cryptoJca.initProvider();
+        secretKeys = new SecretKeys(cryptoJca.generateEncryptionKey(256), cryptoJca.generateSignatureKey(256));
+        data = new byte[300000];
+        new Random(42).nextBytes(data);
+    }
+
+    @Test
+    public void codecChunkReadByEncryptedDataChunk() throws CryptoException, IOException {
+        for (Crypto crypto : new Crypto[] { cryptoJca, cryptoBCLW }) {
+            EncryptedDataChunkCodec codec = new EncryptedDataChunkCodec(crypto, secretKeys, data.length);
+            assertEquals(codec.readClearData(new ByteArrayInputStream(data), null), data.length);
+            codec.encode();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            codec.writeEncodedChunk(outputStream);
+
+            EncryptedDataChunk encryptedDataChunk = new EncryptedDataChunk(crypto);
+            assertTrue(encryptedDataChunk.read(new ByteArrayInputStream(outputStream.toByteArray())));
+            assertTrue(encryptedDataChunk.verify(secretKeys.getSignatureKey()));
+            assertArrayEquals(crypto.decrypt(secretKeys.getEncryptionKey(), encryptedDataChunk), data);
+        }
+    }
+
+    @Test
+    public void encryptedDataChunkDecodedByCodec() throws CryptoException, IOException {
+        for (Crypto crypto : new Crypto[] { cryptoJca, cryptoBCLW }) {
+            EncryptedDataChunk encryptedDataChunk = crypto.encrypt(secretKeys.getEncryptionKey(), data);
+            encryptedDataChunk.sign(secretKeys.getSignatureKey());
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            encryptedDataChunk.write(outputStream);
+
+            EncryptedDataChunkCodec codec = new EncryptedDataChunkCodec(crypto, secretKeys, data.length);
+            assertTrue(codec.readEncodedChunk(new ByteArrayInputStream(outputStream.toByteArray())));
+            codec.decode();
+            assertArrayEquals(Arrays.copyOf(codec.getClearData(), codec.getClearDataLength()), data);
+        }
+    }
+
+    @Test(expected = CryptoException.class)
+    public void tamperedChunkRejected() throws CryptoException, IOException {
+        EncryptedDataChunkCodec codec = new EncryptedDataChunkCodec(cryptoJca, secretKeys, data.length);
+        codec.readClearData(new ByteArrayInputStream(data), null);
+        codec.encode();
+        byte[] encodedChunk = Arrays.copyOf(codec.getEncodedChunk(), codec.getEncodedChunkLength());
+        encodedChunk[encodedChunk.length - 1] ^= 1;
+        assertTrue(codec.readEncodedChunk(new ByteArrayInputStream(encodedChunk)));
+        codec.decode();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+package fr.petrus.tools.storagecrypt.desktop.test;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataStream;
+import fr.petrus.lib.core.crypto.SecretKeys;
+import fr.petrus.tools.storagecrypt.desktop.platform.crypto.DesktopBCLightWeightApiCrypto;
+import fr.petrus.tools.storagecrypt.desktop.platform.crypto.DesktopJcaCrypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the encryption and decryption of data streams
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptedDataStreamTest {
+
+    private Crypto cryptoJca = new DesktopJcaCrypto();
+    private Crypto cryptoBCLW = new DesktopBCLightWeightApiCrypto();
+
+    private SecretKeys secretKeys = null;
+
+    private byte[] data = null;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void init() throws CryptoException {
+        cryptoJca.initProvider();
+        secretKeys = new SecretKeys(cryptoJca.generateEncryptionKey(256), cryptoJca.generateSignatureKey(256));
+        data = new byte[5 * Constants.CRYPTO.DEFAULT_CHUNK_SIZE + 12345];
+        new Random(42).nextBytes(data);
+    }
+
+    private byte[] encrypt(Crypto crypto, int workerThreads, byte[] clearData) throws CryptoException {
+        return encrypt(crypto, workerThreads, false, clearData);
+    }
+
+    private byte[] encrypt(Crypto crypto, int workerThreads, boolean authenticatedEncryption, byte[] clearData)
+            throws CryptoException {
+        EncryptedDataStream encryptedDataStream = new EncryptedDataStream(crypto, secretKeys);
+        encryptedDataStream.setWorkerThreads(workerThreads);
+        encryptedDataStream.setAuthenticatedEncryption(authenticatedEncryption);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encryptedDataStream.encrypt(new ByteArrayInputStream(clearData), outputStream, null);
+        return outputStream.toByteArray();
+    }
+
+    private byte[] decrypt(Crypto crypto, int workerThreads, byte[] encryptedData) throws CryptoException {
+        EncryptedDataStream encryptedDataStream = new EncryptedDataStream(crypto, secretKeys);
+        encryptedDataStream.setWorkerThreads(workerThreads);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encryptedDataStream.decrypt(new ByteArrayInputStream(encryptedData), outputStream, null);
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    public void cryptDecryptSequential() throws CryptoException {
+        assertArrayEquals(decrypt(cryptoJca, 1, encrypt(cryptoJca, 1, data)), data);
+    }
+
+    @Test
+    public void cryptParallelDecryptSequential() throws CryptoException {
+        assertArrayEquals(decrypt(cryptoJca, 1, encrypt(cryptoJca, 4, data)), data);
+        assertArrayEquals(decrypt(cryptoBCLW, 1, encrypt(cryptoBCLW, 4, data)), data);
+    }
+
+    @Test
+    public void cryptSequentialDecryptParallel() throws CryptoException {
+        assertArrayEquals(decrypt(cryptoJca, 4, encrypt(cryptoJca, 1, data)), data);
+        assertArrayEquals(decrypt(cryptoBCLW, 4, encrypt(cryptoBCLW, 1, data)), data);
+    }
+
+    @Test
+    public void cryptDecryptAuthenticated() throws CryptoException {
+        assertArrayEquals(decrypt(cryptoBCLW, 1, encrypt(cryptoJca, 1, true, data)), data);
+        assertArrayEquals(decrypt(cryptoJca, 4, encrypt(cryptoBCLW, 4, true, data)), data);
+    }
+
+    @Test(expected = CryptoException.class)
+    public void decryptAuthenticatedTamperedData() throws CryptoException {
+        byte[] encryptedData = encrypt(cryptoBCLW, 1, true, data);
+        encryptedData[encryptedData.length / 2] ^= 1;
+        decrypt(cryptoBCLW, 1, encryptedData);
+    }
+
+    @Test(expected = CryptoException.class)
+    public void decryptParallelTamperedData() throws CryptoException {
+        byte[] encryptedData = encrypt(cryptoJca, 4, data);
+        encryptedData[encryptedData.length / 2] ^= 1;
+        decrypt(cryptoJca, 4, encryptedData);
+    }
+
+    @Test(expected = CryptoException.class)
+    public void decryptWrongPrefix() throws CryptoException {
+        byte[] encryptedData = encrypt(cryptoJca, 1, data);
+        encryptedData[0] ^= 1;
+        decrypt(cryptoJca, 1, encryptedData);
+    }
+
+    @Test(expected = CryptoException.class)
+    public void decryptUnknownVersionFlag() throws CryptoException {
+        byte[] encryptedData = encrypt(cryptoJca, 1, data);
+        encryptedData[Constants.CRYPTO.STREAM_PREFIX.length] |= 0x40;
+        decrypt(cryptoJca, 1, encryptedData);
+    }
+
+    @Test(timeout = 10000, expected = CryptoException.class)
+    public void encryptParallelFailingInput() throws CryptoException {
+        EncryptedDataStream encryptedDataStream = new EncryptedDataStream(cryptoJca, secretKeys);
+        encryptedDataStream.setWorkerThreads(4);
+        InputStream failingInputStream = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos > 2 * Constants.CRYPTO.DEFAULT_CHUNK_SIZE) {
+                    throw new IllegalStateException("Read failure");
+                }
+                return super.read(b, off, len);
+            }
+        };
+        encryptedDataStream.encrypt(failingInputStream, new ByteArrayOutputStream(), null);
+    }
+
+    @Test
+    public void cryptDecryptFiles() throws CryptoException, IOException {
+        File clearFile = temporaryFolder.newFile();
+        File encryptedFile = temporaryFolder.newFile();
+        File decryptedFile = temporaryFolder.newFile();
+        Files.write(clearFile.toPath(), data);
+
+        EncryptedDataStream encryptedDataStream = new EncryptedDataStream(cryptoBCLW, secretKeys);
+        encryptedDataStream.setWorkerThreads(4);
+        encryptedDataStream.encrypt(clearFile, encryptedFile, null);
+        byte[] encryptedData = Files.readAllBytes(encryptedFile.toPath());
+        assertArrayEquals(decrypt(cryptoJca, 1, encryptedData), data);
+
+        encryptedDataStream.decrypt(encryptedFile, decryptedFile, null);
+        assertArrayEquals(Files.readAllBytes(decryptedFile.toPath()), data);
+    }
+
+    @Test
+    public void verifiedLengthOfPartialFile() throws CryptoException, IOException {
+        byte[] encryptedData = encrypt(cryptoJca, 1, data);
+        EncryptedDataStream encryptedDataStream = new EncryptedDataStream(cryptoJca, secretKeys);
+        File partialFile = temporaryFolder.newFile();
+
+        Files.write(partialFile.toPath(), encryptedData);
+        long verifiedLength = encryptedDataStream.verifiedLength(partialFile);
+        assertTrue(verifiedLength > 0 && verifiedLength < encryptedData.length);
+
+        Files.write(partialFile.toPath(), Arrays.copyOf(encryptedData, encryptedData.length / 2));
+        verifiedLength = encryptedDataStream.verifiedLength(partialFile);
+        assertTrue(verifiedLength > 0 && verifiedLength <= encryptedData.length / 2);
+
+        /* the verified length is the boundary of the next chunk section */
+        assertEquals(1, encryptedData[(int) verifiedLength]);
+        assertArrayEquals(Constants.CRYPTO.CHUNK_PREFIX, Arrays.copyOfRange(encryptedData,
+                (int) verifiedLength + 1, (int) verifiedLength + 1 + Constants.CRYPTO.CHUNK_PREFIX.length));
+
+        /* a tampered chunk and the following ones are not verified */
+        byte[] tamperedData = Arrays.copyOf(encryptedData, encryptedData.length);
+        tamperedData[(int) verifiedLength - 1] ^= 1;
+        Files.write(partialFile.toPath(), tamperedData);
+        assertTrue(encryptedDataStream.verifiedLength(partialFile) < verifiedLength);
+
+        Files.write(partialFile.toPath(), Arrays.copyOf(encryptedData, 3));
+        assertEquals(0L, encryptedDataStream.verifiedLength(partialFile));
+    }
+
+    @Test
+    public void encryptedLength() throws CryptoException {
+        int[] lengths = { 0, 1, 15, 16, Constants.CRYPTO.DEFAULT_CHUNK_SIZE, data.length };
+        for (boolean authenticatedEncryption : new boolean[] { false, true }) {
+            for (boolean writeIndex : new boolean[] { false, true }) {
+                for (int length : lengths) {
+                    EncryptedDataStream encryptedDataStream = new EncryptedDataStream(cryptoJca, secretKeys);
+                    encryptedDataStream.setAuthenticatedEncryption(authenticatedEncryption);
+                    encryptedDataStream.setWriteIndex(writeIndex);
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    encryptedDataStream.encrypt(new ByteArrayInputStream(data, 0, length), outputStream, null);
+                    assertEquals(outputStream.size(), encryptedDataStream.encryptedLength(length));
+                }
+            }
+        }
+    }
+}
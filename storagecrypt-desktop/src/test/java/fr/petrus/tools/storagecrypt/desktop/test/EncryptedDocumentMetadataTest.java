@@ -0,0 +1,155 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.tools.storagecrypt.desktop.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKey;
+
+import fr.petrus.lib.core.EncryptedDocumentMetadata;
+import fr.petrus.lib.core.StorageCryptException;
+import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataChunk;
+import fr.petrus.lib.core.crypto.KeyManager;
+import fr.petrus.tools.storagecrypt.desktop.platform.crypto.DesktopJcaCrypto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the decryption of batches of document metadata
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class EncryptedDocumentMetadataTest {
+
+    private static final int BATCH_SIZE = 200;
+
+    /** the number of metadata decryptions after which the decrypting thread is interrupted */
+    private static final int DECRYPTIONS_BEFORE_INTERRUPTION = 20;
+
+    private final AtomicInteger decryptions = new AtomicInteger();
+    private volatile Thread decryptingThread = null;
+
+    private Crypto crypto = new DesktopJcaCrypto() {
+        @Override
+        public byte[] decrypt(SecretKey key, EncryptedDataChunk dataChunk) throws CryptoException {
+            Thread thread = decryptingThread;
+            if (null != thread) {
+                int decryption = decryptions.incrementAndGet();
+                if (DECRYPTIONS_BEFORE_INTERRUPTION == decryption) {
+                    thread.interrupt();
+                } else if (decryption > DECRYPTIONS_BEFORE_INTERRUPTION && Thread.currentThread() != thread) {
+                    /* the workers wait until they are stopped by the shutdown of their pool */
+                    while (!Thread.currentThread().isInterrupted()) {
+                        Thread.yield();
+                    }
+                }
+            }
+            return super.decrypt(key, dataChunk);
+        }
+    };
+
+    private KeyManager keyManager = null;
+
+    private List<String> encryptedMetadataList = null;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void init() throws IOException, StorageCryptException {
+        crypto.initProvider();
+        keyManager = new KeyManager(crypto, temporaryFolder.newFolder());
+        assertTrue(keyManager.createKeyStore("password"));
+        assertTrue(keyManager.generateKeys("key"));
+
+        encryptedMetadataList = new ArrayList<>();
+        EncryptedDocumentMetadata metadata = new EncryptedDocumentMetadata(crypto, keyManager);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            metadata.setMetadata("text/plain", "Document " + i + ".txt", "key");
+            encryptedMetadataList.add(metadata.encryptToBase64());
+        }
+    }
+
+    @After
+    public void clearInterruptedStatus() {
+        decryptingThread = null;
+        Thread.interrupted();
+    }
+
+    @Test
+    public void decryptBatch() {
+        EncryptedDocumentMetadata.BatchResults results =
+                EncryptedDocumentMetadata.decrypt(crypto, keyManager, encryptedMetadataList, 4);
+        assertFalse(results.isCanceled());
+        assertEquals(BATCH_SIZE, results.getMetadata().size());
+        assertEquals("Document 0.txt", results.getMetadata().get(encryptedMetadataList.get(0)).getDisplayName());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test(timeout = 10000)
+    public void interruptedBatchDecryptionIsCanceled() {
+        assertInterruptedDecryptionCanceled(4);
+    }
+
+    @Test(timeout = 10000)
+    public void interruptedSingleThreadDecryptionIsCanceled() {
+        assertInterruptedDecryptionCanceled(1);
+    }
+
+    private void assertInterruptedDecryptionCanceled(int threads) {
+        decryptingThread = Thread.currentThread();
+        EncryptedDocumentMetadata.BatchResults results =
+                EncryptedDocumentMetadata.decrypt(crypto, keyManager, encryptedMetadataList, threads);
+        assertTrue(Thread.currentThread().isInterrupted());
+        assertTrue(results.isCanceled());
+        assertTrue(results.getMetadata().size() < BATCH_SIZE);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ *  Copyright Pierre Sagne (12 december 2014)
+ *
+ * petrus.dev.fr@gmail.com
+ *
+ * This software is a computer program whose purpose is to encrypt and
+ * synchronize files on the cloud.
+ *
+ * This software is governed by the CeCILL license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ *
+ */
+
+package fr.petrus.tools.storagecrypt.desktop.test;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import fr.petrus.lib.core.Constants;
+import fr.petrus.lib.core.crypto.Crypto;
+import fr.petrus.lib.core.crypto.CryptoException;
+import fr.petrus.lib.core.crypto.EncryptedDataStream;
+import fr.petrus.lib.core.crypto.EncryptedDataStreamIndex;
+import fr.petrus.lib.core.crypto.SecretKeys;
+import fr.petrus.lib.core.crypto.SeekableEncryptedChannel;
+import fr.petrus.tools.storagecrypt.desktop.platform.crypto.DesktopBCLightWeightApiCrypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test the random access decryption of encrypted files
+ *
+ * @author Pierre Sagne
+ * @since 18.10.2026
+ */
+public class SeekableEncryptedChannelTest {
+
+    private Crypto crypto = new DesktopBCLightWeightApiCrypto();
+
+    private SecretKeys secretKeys = null;
+
+    private byte[] data = null;
+
+    private File encryptedFile = null;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void init() throws CryptoException, IOException {
+        secretKeys = new SecretKeys(crypto.generateEncryptionKey(256), crypto.generateSignatureKey(256));
+        data = new byte[3 * Constants.CRYPTO.DEFAULT_CHUNK_SIZE + 4321];
+        new Random(42).nextBytes(data);
+        encryptedFile = temporaryFolder.newFile();
+        try (OutputStream outputStream = new FileOutputStream(encryptedFile)) {
+            new EncryptedDataStream(crypto, secretKeys).encrypt(new ByteArrayInputStream(data), outputStream, null);
+        }
+    }
+
+    private SeekableEncryptedChannel open() throws CryptoException, IOException {
+        return new SeekableEncryptedChannel(crypto, secretKeys,
+                new RandomAccessFile(encryptedFile, "r").getChannel());
+    }
+
+    @Test
+    public void readRanges() throws CryptoException, IOException {
+        try (SeekableEncryptedChannel channel = open()) {
+            assertEquals(data.length, channel.size());
+            assertEquals(4, channel.getIndex().getChunkCount());
+
+            int[][] ranges = {
+                    { 0, 10 },
+                    { Constants.CRYPTO.DEFAULT_CHUNK_SIZE - 5, 10 },
+                    { 2 * Constants.CRYPTO.DEFAULT_CHUNK_SIZE + 17, Constants.CRYPTO.DEFAULT_CHUNK_SIZE + 100 },
+                    { data.length - 1, 1 }
+            };
+            for (int[] range : ranges) {
+                byte[] buffer = new byte[range[1]];
+                assertEquals(range[1], channel.read(range[0], buffer, 0, range[1]));
+                assertArrayEquals(Arrays.copyOfRange(data, range[0], range[0] + range[1]), buffer);
+            }
+            assertEquals(-1, channel.read(data.length, new byte[1], 0, 1));
+        }
+    }
+
+    @Test
+    public void readSequentially() throws CryptoException, IOException {
+        try (SeekableEncryptedChannel channel = open()) {
+            ByteBuffer buffer = ByteBuffer.allocate(data.length);
+            buffer.limit(100000);
+            while (channel.read(buffer) > 0) {
+                buffer.limit(Math.min(buffer.capacity(), buffer.position() + 100000));
+            }
+            assertArrayEquals(data, buffer.array());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readTamperedChunk() throws CryptoException, IOException {
+        try (SeekableEncryptedChannel channel = open()) {
+            try (FileChannel fileChannel = new RandomAccessFile(encryptedFile, "rw").getChannel()) {
+                long position = channel.getIndex().getEntry(1).getEncodedOffset() + 1000;
+                ByteBuffer b = ByteBuffer.allocate(1);
+                fileChannel.read(b, position);
+                b.put(0, (byte) (b.get(0) ^ 1));
+                b.rewind();
+                fileChannel.write(b, position);
+            }
+            channel.read(Constants.CRYPTO.DEFAULT_CHUNK_SIZE, new byte[10], 0, 10);
+        }
+    }
+
+    @Test
+    public void readIndexTrailer() throws CryptoException, IOException {
+        File indexedFile = temporaryFolder.newFile();
+        EncryptedDataStream encryptedDataStream = new EncryptedDataStream(crypto, secretKeys);
+        encryptedDataStream.setWriteIndex(true);
+        encryptedDataStream.setAuthenticatedEncryption(true);
+        try (OutputStream outputStream = new FileOutputStream(indexedFile)) {
+            encryptedDataStream.encrypt(new ByteArrayInputStream(data), outputStream, null);
+        }
+
+        try (FileChannel plainChannel = new RandomAccessFile(encryptedFile, "r").getChannel();
+             FileChannel indexedChannel = new RandomAccessFile(indexedFile, "r").getChannel()) {
+            assertNull(EncryptedDataStreamIndex.readTrailer(crypto, secretKeys, plainChannel));
+            EncryptedDataStreamIndex trailerIndex =
+                    EncryptedDataStreamIndex.readTrailer(crypto, secretKeys, indexedChannel);
+            assertNotNull(trailerIndex);
+            EncryptedDataStreamIndex scannedIndex =
+                    EncryptedDataStreamIndex.scan(crypto, secretKeys, indexedChannel);
+            assertEquals(scannedIndex.getChunkCount(), trailerIndex.getChunkCount());
+            for (int i = 0; i < scannedIndex.getChunkCount(); i++) {
+                EncryptedDataStreamIndex.Entry scanned = scannedIndex.getEntry(i);
+                EncryptedDataStreamIndex.Entry read = trailerIndex.getEntry(i);
+                assertEquals(scanned.getClearOffset(), read.getClearOffset());
+                assertEquals(scanned.getClearLength(), read.getClearLength());
+                assertEquals(scanned.getEncodedOffset(), read.getEncodedOffset());
+                assertEquals(scanned.getEncodedLength(), read.getEncodedLength());
+                assertArrayEquals(scanned.getSignature(), read.getSignature());
+            }
+
+            /* readers which do not know about the index stop at the global signature */
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            try (InputStream inputStream = new FileInputStream(indexedFile)) {
+                new EncryptedDataStream(crypto, secretKeys).decrypt(inputStream, decrypted, null);
+            }
+            assertArrayEquals(data, decrypted.toByteArray());
+        }
+
+        try (SeekableEncryptedChannel channel = new SeekableEncryptedChannel(crypto, secretKeys,
+                new RandomAccessFile(indexedFile, "r").getChannel())) {
+            byte[] buffer = new byte[1000];
+            assertEquals(buffer.length, channel.read(data.length - buffer.length, buffer, 0, buffer.length));
+            assertArrayEquals(Arrays.copyOfRange(data, data.length - buffer.length, data.length), buffer);
+        }
+    }
+
+    @Test
+    public void readCustomChunkSize() throws CryptoException, IOException {
+        for (boolean writeIndex : new boolean[] { false, true }) {
+            File customFile = temporaryFolder.newFile();
+            EncryptedDataStream encryptedDataStream = new EncryptedDataStream(crypto, secretKeys);
+            encryptedDataStream.setChunkSize(Constants.CRYPTO.SEEKABLE_CHUNK_SIZE);
+            encryptedDataStream.setWriteIndex(writeIndex);
+            try (OutputStream outputStream = new FileOutputStream(customFile)) {
+                encryptedDataStream.encrypt(new ByteArrayInputStream(data), outputStream, null);
+            }
+
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            try (InputStream inputStream = new FileInputStream(customFile)) {
+                new EncryptedDataStream(crypto, secretKeys).decrypt(inputStream, decrypted, null);
+            }
+            assertArrayEquals(data, decrypted.toByteArray());
+
+            try (SeekableEncryptedChannel channel = new SeekableEncryptedChannel(crypto, secretKeys,
+                    new RandomAccessFile(customFile, "r").getChannel())) {
+                assertEquals((data.length + Constants.CRYPTO.SEEKABLE_CHUNK_SIZE - 1)
+                        / Constants.CRYPTO.SEEKABLE_CHUNK_SIZE, channel.getIndex().getChunkCount());
+                byte[] buffer = new byte[1000];
+                int offset = 5 * Constants.CRYPTO.SEEKABLE_CHUNK_SIZE - 500;
+                assertEquals(buffer.length, channel.read(offset, buffer, 0, buffer.length));
+                assertArrayEquals(Arrays.copyOfRange(data, offset, offset + buffer.length), buffer);
+            }
+        }
+    }
+}